@@ -0,0 +1,102 @@
+package com.zss.backoffice.audit;
+
+import com.zss.backoffice.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Back office audit events on the "com.zss.backoffice.audit" logger, written through the asynchronous
+ * appender of logback-spring.xml. An event names the user by id and masked email only and is logged for
+ * a sampled share of users, failures at a rate of their own.
+ */
+public class BackofficeAuditLog {
+
+    private static final Logger AUDIT = LoggerFactory.getLogger("com.zss.backoffice.audit");
+
+    private final double sampleRate;
+
+    private final double failureSampleRate;
+
+    private final DoubleSupplier random;
+
+    public BackofficeAuditLog(double sampleRate, double failureSampleRate) {
+        this(sampleRate, failureSampleRate, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    BackofficeAuditLog(double sampleRate, double failureSampleRate, DoubleSupplier random) {
+        this.sampleRate = sampleRate;
+        this.failureSampleRate = failureSampleRate;
+        this.random = random;
+    }
+
+    public void received(User user) {
+        if (AUDIT.isInfoEnabled() && this.sampled(sampleRate)) {
+            AUDIT.info("event=received id={} email={} customerType={} addresses={}", user.getId(), maskEmail(user.getEmail()),
+                    user.getCustomerType(), user.getAddresses() == null ? 0 : user.getAddresses().size());
+        }
+    }
+
+    public void sent(User user, String topic, int partition, long offset) {
+        if (AUDIT.isInfoEnabled() && this.sampled(sampleRate)) {
+            AUDIT.info("event=sent id={} email={} topic={} partition={} offset={}", user.getId(), maskEmail(user.getEmail()),
+                    topic, partition, offset);
+        }
+    }
+
+    public void verdict(User user, String verdict) {
+        if (AUDIT.isInfoEnabled() && this.sampled(sampleRate)) {
+            AUDIT.info("event=verdict id={} email={} verdict={}", user.getId(), maskEmail(user.getEmail()), verdict);
+        }
+    }
+
+    public void consumed(User user, String topic) {
+        if (AUDIT.isInfoEnabled() && this.sampled(sampleRate)) {
+            AUDIT.info("event=consumed id={} email={} topic={}", user.getId(), maskEmail(user.getEmail()), topic);
+        }
+    }
+
+    /**
+     * A dropped duplicate may never have been decoded; the user is only asked for when the event is logged.
+     */
+    public void duplicate(Supplier<User> duplicate, String topic) {
+        if (AUDIT.isInfoEnabled() && this.sampled(sampleRate)) {
+            User user = duplicate.get();
+            AUDIT.info("event=duplicate id={} email={} topic={}", user.getId(), maskEmail(user.getEmail()), topic);
+        }
+    }
+
+    public void failed(String step, User user, Throwable ex) {
+        if (AUDIT.isErrorEnabled() && this.sampled(failureSampleRate)) {
+            AUDIT.error("event=failed step={} id={} email={}", step, user.getId(), maskEmail(user.getEmail()), ex);
+        }
+    }
+
+    /**
+     * What may be said about a user in an error answered to the caller.
+     */
+    public static String describe(User user) {
+        return "id=" + user.getId() + ", email=" + maskEmail(user.getEmail());
+    }
+
+    /**
+     * The first character of the local part and the domain: "j***@example.com".
+     */
+    public static String maskEmail(String email) {
+        if (email == null) {
+            return null;
+        }
+        int at = email.indexOf('@');
+        if (at <= 0) {
+            return "***";
+        }
+        return new StringBuilder(email.length() - at + 4).append(email.charAt(0)).append("***").append(email, at, email.length()).toString();
+    }
+
+    private boolean sampled(double rate) {
+        return rate >= 1 || (rate > 0 && random.getAsDouble() < rate);
+    }
+}
@@ -0,0 +1,113 @@
+package com.zss.backoffice.codec;
+
+import com.zss.backoffice.exception.UndecodableUserException;
+import com.zss.backoffice.model.User;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_BINARY;
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.USER_SCHEMA_VERSION_HEADER;
+
+/**
+ * A consumed user that is still the bytes it arrived as. The headers can be read straight away, and the
+ * body is decoded the first time {@link #get()} is called, so a listener that filters or routes on headers
+ * never pays for decoding the records it skips. A body that cannot be decoded fails with
+ * {@link UndecodableUserException} in the listener, where the error handler can quarantine its record,
+ * rather than in the consumer's poll, where it would stop the partition.
+ */
+public final class LazyUser implements Supplier<User> {
+
+    private final String topic;
+
+    private final Headers headers;
+
+    private final byte[] data;
+
+    private final UserDeserializer deserializer;
+
+    private User user;
+
+    private boolean decoded;
+
+    LazyUser(String topic, Headers headers, byte[] data, UserDeserializer deserializer) {
+        this.topic = topic;
+        this.headers = headers;
+        this.data = data;
+        this.deserializer = deserializer;
+    }
+
+    /**
+     * A user that was never encoded, such as one built in process; {@link #data()} writes it as JSON.
+     */
+    public static LazyUser of(User user) {
+        LazyUser lazyUser = new LazyUser(null, new RecordHeaders(), null, null);
+        lazyUser.user = user;
+        lazyUser.decoded = true;
+        return lazyUser;
+    }
+
+    /**
+     * The last value of the header as a string, or null when the record does not carry it.
+     */
+    public String header(String name) {
+        Header header = headers.lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Decodes the user on first use.
+     *
+     * @throws UndecodableUserException when the body is not a user in a format and schema version this
+     * service reads
+     */
+    @Override
+    public User get() {
+        if (!decoded) {
+            user = this.decode();
+            decoded = true;
+        }
+        return user;
+    }
+
+    public boolean isDecoded() {
+        return decoded;
+    }
+
+    public byte[] data() {
+        return data == null && user != null ? new UserSerializer().serialize(topic, user) : data;
+    }
+
+    private User decode() {
+        if (data == null) {
+            return null;
+        }
+        if (USER_FORMAT_BINARY.equals(this.header(USER_FORMAT_HEADER))) {
+            String version = this.header(USER_SCHEMA_VERSION_HEADER);
+            if (version != null && !isSupported(version)) {
+                throw new UndecodableUserException(String.format("Unsupported user schema version [%s] on %s", version, topic));
+            }
+        }
+        try {
+            return deserializer.deserialize(topic, headers, data);
+        } catch (RuntimeException ex) {
+            throw new UndecodableUserException(String.format("Unable to decode a user of %d bytes from %s", data.length, topic), ex);
+        }
+    }
+
+    /**
+     * The codec reads every version up to its own, so only a record written by a newer producer is refused.
+     */
+    private static boolean isSupported(String version) {
+        try {
+            int number = Integer.parseInt(version.trim());
+            return number >= 1 && number <= UserBinaryCodec.SCHEMA_VERSION;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.zss.backoffice.codec;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/**
+ * Hands each record to the listener as a {@link LazyUser} without looking at its body; decoding is left to
+ * {@link UserDeserializer} when the listener asks for the user.
+ */
+public class LazyUserDeserializer implements Deserializer<LazyUser> {
+
+    private final UserDeserializer userDeserializer = new UserDeserializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        userDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public LazyUser deserialize(String topic, byte[] data) {
+        return this.deserialize(topic, new RecordHeaders(), data);
+    }
+
+    @Override
+    public LazyUser deserialize(String topic, Headers headers, byte[] data) {
+        return new LazyUser(topic, headers, data, userDeserializer);
+    }
+
+    @Override
+    public void close() {
+        userDeserializer.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.zss.backoffice.codec;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Writes a consumed {@link LazyUser} back out as the bytes it was read from, decoded or not, so a record
+ * moved to a retry tier, dead letter or quarantine topic is byte for byte the one that failed.
+ */
+public class LazyUserSerializer implements Serializer<LazyUser> {
+
+    @Override
+    public byte[] serialize(String topic, LazyUser data) {
+        return data == null ? null : data.data();
+    }
+}
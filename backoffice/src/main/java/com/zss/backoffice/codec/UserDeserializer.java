@@ -0,0 +1,53 @@
+package com.zss.backoffice.codec;
+
+import com.zss.backoffice.model.User;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_BINARY;
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_HEADER;
+
+/**
+ * Reads users written by {@link UserSerializer}: records tagged with the binary format header are
+ * decoded with {@link UserBinaryCodec}, anything else is read as JSON.
+ */
+public class UserDeserializer implements Deserializer<User> {
+
+    private final JsonDeserializer<User> jsonDeserializer = new JsonDeserializer<>(User.class, false);
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public User deserialize(String topic, byte[] data) {
+        return jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public User deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (isBinary(headers)) {
+            return UserBinaryCodec.decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    private static boolean isBinary(Headers headers) {
+        Header format = headers.lastHeader(USER_FORMAT_HEADER);
+        return format != null && USER_FORMAT_BINARY.equals(new String(format.value(), StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
@@ -0,0 +1,237 @@
+package com.zss.backoffice.commit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Commits the offsets of the registration record listener in batches, in place of the container. A record
+ * is registered when it is delivered and acknowledged once it has been processed, or recovered by the error
+ * handler. A partition may be committed up to the first delivered record not yet acknowledged, so nothing is
+ * committed ahead of a record still being worked on. The commit goes out asynchronously from the consumer
+ * thread once {@code maxRecords} acknowledgements are waiting or the oldest has waited {@code maxIntervalMs}.
+ * Partitions being revoked, or whose consumer is stopping, are committed synchronously.
+ *
+ * <p>Apart from the counts, every method must be called on the thread of the consumer that owns the
+ * partitions; a consumer's partitions are only ever touched by that thread.
+ */
+@Slf4j
+public class OffsetCommitCoordinator implements ConsumerAwareRebalanceListener {
+
+    private final int maxRecords;
+
+    private final long maxIntervalMs;
+
+    private final LongSupplier clock;
+
+    private final ConcurrentMap<TopicPartition, PartitionProgress> partitions = new ConcurrentHashMap<>();
+
+    private final LongAdder asyncCommits = new LongAdder();
+
+    private final LongAdder syncCommits = new LongAdder();
+
+    private final LongAdder failedCommits = new LongAdder();
+
+    public OffsetCommitCoordinator(int maxRecords, long maxIntervalMs) {
+        this(maxRecords, maxIntervalMs, System::currentTimeMillis);
+    }
+
+    OffsetCommitCoordinator(int maxRecords, long maxIntervalMs, LongSupplier clock) {
+        this.maxRecords = maxRecords;
+        this.maxIntervalMs = maxIntervalMs;
+        this.clock = clock;
+    }
+
+    public long getMaxIntervalMs() {
+        return maxIntervalMs;
+    }
+
+    public void delivered(ConsumerRecord<?, ?> record) {
+        partitions.computeIfAbsent(new TopicPartition(record.topic(), record.partition()), partition -> new PartitionProgress(record.offset()))
+                .delivered(record.offset());
+    }
+
+    /**
+     * Marks the record processed without committing, for a caller that has no consumer at hand such as a recoverer.
+     */
+    public void acknowledge(ConsumerRecord<?, ?> record) {
+        PartitionProgress progress = partitions.get(new TopicPartition(record.topic(), record.partition()));
+        if (progress != null) {
+            progress.processed(record.offset(), clock.getAsLong());
+        }
+    }
+
+    public void acknowledge(ConsumerRecord<?, ?> record, Consumer<?, ?> consumer) {
+        this.acknowledge(record);
+        this.commitIfDue(consumer);
+    }
+
+    /**
+     * Commits the consumer's partitions asynchronously when enough acknowledgements are waiting, or have waited long enough.
+     */
+    public void commitIfDue(Consumer<?, ?> consumer) {
+        long now = clock.getAsLong();
+        int waiting = 0;
+        long oldest = Long.MAX_VALUE;
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : consumer.assignment()) {
+            PartitionProgress progress = partitions.get(partition);
+            if (progress != null && progress.hasUncommitted()) {
+                waiting += progress.acknowledged;
+                oldest = Math.min(oldest, progress.firstAcknowledgedAt);
+                offsets.put(partition, new OffsetAndMetadata(progress.next));
+            }
+        }
+        if (offsets.isEmpty() || (waiting < maxRecords && now - oldest < maxIntervalMs)) {
+            return;
+        }
+        offsets.forEach((partition, offset) -> partitions.get(partition).committing(offset.offset()));
+        asyncCommits.increment();
+        consumer.commitAsync(offsets, (committed, ex) -> {
+            if (ex != null) {
+                failedCommits.increment();
+                log.warn("Unable to commit offsets {}, they are committed again with the next batch", committed, ex);
+                committed.forEach((partition, offset) -> {
+                    PartitionProgress progress = partitions.get(partition);
+                    if (progress != null) {
+                        progress.commitFailed(offset.offset());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Commits synchronously what has been processed of the given partitions and forgets them.
+     */
+    public void commitAndRelease(Consumer<?, ?> consumer, Collection<TopicPartition> released) {
+        Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+        for (TopicPartition partition : released) {
+            PartitionProgress progress = partitions.remove(partition);
+            if (progress != null && progress.next > progress.committed) {
+                offsets.put(partition, new OffsetAndMetadata(progress.next));
+            }
+        }
+        if (offsets.isEmpty()) {
+            return;
+        }
+        try {
+            consumer.commitSync(offsets);
+            syncCommits.increment();
+            log.info("Committed {} before releasing the partitions", offsets);
+        } catch (RuntimeException ex) {
+            failedCommits.increment();
+            log.warn("Unable to commit offsets {} before releasing the partitions, they will be consumed again", offsets, ex);
+        }
+    }
+
+    @Override
+    public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> revoked) {
+        this.commitAndRelease(consumer, revoked);
+    }
+
+    /**
+     * Starts tracking from the consumer's position, so a record skipped on redelivery is never taken for processed.
+     */
+    @Override
+    public void onPartitionsAssigned(Consumer<?, ?> consumer, Collection<TopicPartition> assigned) {
+        for (TopicPartition partition : assigned) {
+            long position = consumer.position(partition);
+            partitions.put(partition, new PartitionProgress(position));
+        }
+    }
+
+    /**
+     * Acknowledged records that have not been committed yet, over every partition.
+     */
+    public long uncommittedCount() {
+        return partitions.values().stream().mapToLong(progress -> progress.acknowledged).sum();
+    }
+
+    public long asyncCommitCount() {
+        return asyncCommits.sum();
+    }
+
+    public long syncCommitCount() {
+        return syncCommits.sum();
+    }
+
+    public long failedCommitCount() {
+        return failedCommits.sum();
+    }
+
+    /**
+     * Offsets of one partition. {@code next} is the offset to commit: every delivered record before it has
+     * been processed. Records delivered from it on wait in {@code outstanding}, the processed ones among
+     * them also in {@code processed}, until the records ahead of them are processed too.
+     */
+    private static final class PartitionProgress {
+
+        private final ArrayDeque<Long> outstanding = new ArrayDeque<>();
+
+        private final Set<Long> processed = new HashSet<>();
+
+        private long next;
+
+        private long committed;
+
+        private long lastDelivered = -1;
+
+        private volatile int acknowledged;
+
+        private long firstAcknowledgedAt;
+
+        private PartitionProgress(long next) {
+            this.next = next;
+            this.committed = next;
+        }
+
+        private void delivered(long offset) {
+            if (offset > lastDelivered && offset >= next) {
+                outstanding.addLast(offset);
+                lastDelivered = offset;
+            }
+        }
+
+        private void processed(long offset, long now) {
+            if (offset < next || offset > lastDelivered || !processed.add(offset)) {
+                return;
+            }
+            while (!outstanding.isEmpty() && processed.remove(outstanding.peekFirst())) {
+                next = outstanding.pollFirst() + 1;
+            }
+            if (acknowledged++ == 0) {
+                firstAcknowledgedAt = now;
+            }
+        }
+
+        private boolean hasUncommitted() {
+            return next > committed && acknowledged > 0;
+        }
+
+        private void committing(long offset) {
+            committed = offset;
+            acknowledged = 0;
+        }
+
+        private void commitFailed(long offset) {
+            if (committed == offset) {
+                committed = -1;
+            }
+        }
+    }
+}
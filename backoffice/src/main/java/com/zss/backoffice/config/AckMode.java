@@ -0,0 +1,70 @@
+package com.zss.backoffice.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How long a submit waits before answering the caller, and the producer acknowledgement that backs it.
+ */
+public enum AckMode {
+
+    /**
+     * Answer as soon as the record is handed to the producer; the broker does not acknowledge it.
+     */
+    FIRE_AND_FORGET("fire-and-forget", "0"),
+
+    /**
+     * Answer once the partition leader has written the record.
+     */
+    LEADER("leader", "1"),
+
+    /**
+     * Answer once every in-sync replica has written the record.
+     */
+    ALL("all", "all");
+
+    private final String modeName;
+
+    private final String acks;
+
+    AckMode(String modeName, String acks) {
+        this.modeName = modeName;
+        this.acks = acks;
+    }
+
+    public String getModeName() {
+        return modeName;
+    }
+
+    public String getAcks() {
+        return acks;
+    }
+
+    public boolean awaitsAcknowledgement() {
+        return this != FIRE_AND_FORGET;
+    }
+
+    /**
+     * Overrides the acknowledgement of a producer profile. Idempotence requires acks=all, so it is
+     * switched off for the weaker modes.
+     */
+    public Map<String, Object> applyTo(Map<String, Object> producerProps) {
+        producerProps.put(ProducerConfig.ACKS_CONFIG, acks);
+        if (this != ALL) {
+            producerProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, false);
+        }
+        return producerProps;
+    }
+
+    public static AckMode of(String name) {
+        String normalized = name.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+        for (AckMode ackMode : values()) {
+            if (ackMode.modeName.equals(normalized)) {
+                return ackMode;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown acknowledgement mode [%s]", name));
+    }
+}
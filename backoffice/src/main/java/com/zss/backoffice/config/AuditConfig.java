@@ -0,0 +1,21 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.audit.BackofficeAuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AuditConfig {
+
+    @Value(value = "${backoffice.audit.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value(value = "${backoffice.audit.failure-sample-rate:1.0}")
+    private double failureSampleRate;
+
+    @Bean
+    public BackofficeAuditLog backofficeAuditLog() {
+        return new BackofficeAuditLog(sampleRate, failureSampleRate);
+    }
+}
@@ -4,6 +4,21 @@ public class BackoficeConstants {
 
     public static final String REGISTRATION_GROUP_ID = "userRegistration";
     public static final String REGISTRATION_TOPIC = "userRegistration";
+    public static final String USER_CHANGELOG_TOPIC = "backofficeUserChangelog";
+    public static final String USER_VIEW_GROUP_ID = "backofficeUserView";
+    public static final String RETRY_GROUP_ID = "userRegistrationRetry";
+    public static final String DEAD_LETTER_REPLAY_GROUP_ID = "userRegistrationDeadLetterReplay";
+    public static final String RETRY_TOPIC_SUFFIX = "-retry-";
+    public static final String DEAD_LETTER_TOPIC_SUFFIX = "-dlt";
+    public static final String QUARANTINE_TOPIC_SUFFIX = "-quarantine";
+    public static final String USER_FORMAT_HEADER = "user-format";
+    public static final String USER_SCHEMA_VERSION_HEADER = "user-schema-version";
+    public static final String USER_FORMAT_BINARY = "binary";
+    public static final String ACK_MODE_HEADER = "X-Ack-Mode";
+    public static final String EVENT_ID_HEADER = "event-id";
+    public static final String VERDICT_HEADER = "registration-verdict";
+    public static final String RECEIVED_AT_HEADER = "received-at";
+    public static final String SENT_AT_HEADER = "sent-at";
 
     private BackoficeConstants(){}
 }
@@ -0,0 +1,53 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.dedup.RegistrationDedupCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The dedup cache in front of the registration listeners, enabled by "kafka.listener.dedup.enabled".
+ * Its statistics are published under the standard Micrometer cache meter names.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.dedup.enabled", havingValue = "true")
+public class DedupConfig {
+
+    private static final String CACHE_NAME = "registrationDedup";
+
+    @Value(value = "${kafka.listener.dedup.max-entries:100000}")
+    private int maxEntries;
+
+    @Value(value = "${kafka.listener.dedup.ttl-ms:600000}")
+    private long ttlMs;
+
+    @Value(value = "${kafka.listener.dedup.stripes:16}")
+    private int stripes;
+
+    @Bean
+    public RegistrationDedupCache registrationDedupCache() {
+        return new RegistrationDedupCache(maxEntries, ttlMs, stripes);
+    }
+
+    @Bean
+    public MeterBinder registrationDedupCacheMetrics(RegistrationDedupCache registrationDedupCache) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", registrationDedupCache, RegistrationDedupCache::hitCount)
+                    .tag("cache", CACHE_NAME).tag("result", "hit")
+                    .description("Redelivered registrations dropped by the dedup cache").register(registry);
+            FunctionCounter.builder("cache.gets", registrationDedupCache, RegistrationDedupCache::missCount)
+                    .tag("cache", CACHE_NAME).tag("result", "miss")
+                    .description("Registrations not seen before by the dedup cache").register(registry);
+            FunctionCounter.builder("cache.evictions", registrationDedupCache, RegistrationDedupCache::evictionCount)
+                    .tag("cache", CACHE_NAME)
+                    .description("Dedup cache entries evicted by size or age").register(registry);
+            Gauge.builder("cache.size", registrationDedupCache, RegistrationDedupCache::size)
+                    .tag("cache", CACHE_NAME)
+                    .description("Registrations currently remembered by the dedup cache").register(registry);
+        };
+    }
+}
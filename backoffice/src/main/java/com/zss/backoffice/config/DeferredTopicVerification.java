@@ -0,0 +1,63 @@
+package com.zss.backoffice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * Creates missing topics once the application is ready instead of while its context is refreshed, so a
+ * slow or unreachable broker no longer holds up startup. Verification runs on a thread of its own and is
+ * tried again every {@code retryIntervalMs} until it succeeds or the application stops.
+ */
+@Slf4j
+public class DeferredTopicVerification implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private final KafkaAdmin kafkaAdmin;
+
+    private final long retryIntervalMs;
+
+    private volatile Thread verifier;
+
+    public DeferredTopicVerification(KafkaAdmin kafkaAdmin, long retryIntervalMs) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+        if (verifier != null) {
+            return;
+        }
+        verifier = new Thread(this::verify, "backoffice-topic-verification");
+        verifier.setDaemon(true);
+        verifier.start();
+    }
+
+    @Override
+    public void destroy() {
+        Thread current = verifier;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void verify() {
+        long started = System.currentTimeMillis();
+        for (int attempt = 1; !Thread.currentThread().isInterrupted(); attempt++) {
+            try {
+                kafkaAdmin.initialize();
+                log.info("Topics verified after {} attempt(s) in {} ms", attempt, System.currentTimeMillis() - started);
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Unable to verify topics on attempt {}, trying again in {} ms", attempt, retryIntervalMs, ex);
+            }
+            try {
+                Thread.sleep(retryIntervalMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
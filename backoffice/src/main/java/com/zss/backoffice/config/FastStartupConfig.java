@@ -0,0 +1,50 @@
+package com.zss.backoffice.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Support for the "fast-startup" profile, which turns on lazy bean initialization.
+ */
+@Configuration
+@Slf4j
+public class FastStartupConfig {
+
+    /**
+     * Beans with Kafka listeners are created with the context even when everything else is lazy: their
+     * endpoints are only registered when the bean is, and nothing else asks for them before a request does.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter kafkaListenerLazyInitializationExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasKafkaListener(beanType);
+    }
+
+    /**
+     * Ends the process as soon as it is ready, for the training run that records the class data sharing archive.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "backoffice.startup.exit-when-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return event -> {
+            log.info("Ready {} ms after the JVM started, exiting", System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+
+    private static boolean hasKafkaListener(Class<?> beanType) {
+        return AnnotatedElementUtils.hasAnnotation(beanType, KafkaListener.class)
+                || !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<KafkaListener>) method ->
+                        AnnotatedElementUtils.findMergedAnnotation(method, KafkaListener.class)).isEmpty();
+    }
+}
@@ -1,7 +1,13 @@
 package com.zss.backoffice.config;
 
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.codec.LazyUserDeserializer;
+import com.zss.backoffice.commit.OffsetCommitCoordinator;
 import com.zss.backoffice.model.User;
+import com.zss.backoffice.quarantine.QuarantineRecoverer;
+import com.zss.backoffice.retry.RetryTopicRecoverer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
@@ -9,11 +15,18 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultAfterRollbackProcessor;
+import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
+import org.springframework.lang.Nullable;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
 
 import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_GROUP_ID;
 
@@ -23,22 +36,134 @@ public class KafkaConsumerConfig {
     @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
     private String bootstrapAddress;
 
-    public ConsumerFactory<String, User> consumerFactory(String groupId) {
+    @Value(value = "${spring.kafka.consumer.auto-offset-reset:latest}")
+    private String autoOffsetReset;
+
+    @Value(value = "${kafka.listener.concurrency:${kafka.topic.partitions}}")
+    private int concurrency;
+
+    @Value(value = "${kafka.listener.batch.max-records:500}")
+    private int batchMaxRecords;
+
+    @Value(value = "${kafka.listener.batch.max-wait-ms:500}")
+    private int batchMaxWaitMs;
+
+    @Value(value = "${kafka.listener.batch.min-bytes:1}")
+    private int batchMinBytes;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    /**
+     * Registrations reach the listeners undecoded, as {@link LazyUser}: a record that cannot be decoded fails
+     * in its listener and is quarantined instead of failing every poll of its partition.
+     */
+    public ConsumerFactory<String, LazyUser> consumerFactory(String groupId) {
+        return new DefaultKafkaConsumerFactory<>(consumerProps(groupId), new StringDeserializer(), new LazyUserDeserializer());
+    }
+
+    /**
+     * Consumer factory for batch listeners: a poll returns once min-bytes are available or max-wait has
+     * elapsed, capped at max-records, so each listener call gets a reasonably full batch.
+     */
+    public ConsumerFactory<String, LazyUser> batchConsumerFactory(String groupId) {
+        Map<String, Object> props = consumerProps(groupId);
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchMaxRecords);
+        props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, batchMaxWaitMs);
+        props.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, batchMinBytes);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new LazyUserDeserializer());
+    }
+
+    /**
+     * Consumer factory for the transactional listener: offsets are committed through the producer
+     * transaction and only records from committed transactions are read.
+     */
+    public ConsumerFactory<String, LazyUser> transactionalConsumerFactory(String groupId) {
+        Map<String, Object> props = consumerProps(groupId);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new LazyUserDeserializer());
+    }
+
+    public Map<String, Object> consumerProps(String groupId) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new JsonDeserializer<>(User.class));
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+        return props;
     }
 
-    public ConcurrentKafkaListenerContainerFactory<String, User> kafkaListenerContainerFactory(String groupId) {
-        ConcurrentKafkaListenerContainerFactory<String, User> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> kafkaListenerContainerFactory(String groupId) {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory(groupId));
+        factory.setConcurrency(concurrency);
         return factory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, User> backOfficeKafkaListenerContainerFactory() {
-        return kafkaListenerContainerFactory(REGISTRATION_GROUP_ID);
+    public QuarantineRecoverer quarantineRecoverer(KafkaTemplate<String, LazyUser> forwardingKafkaTemplate) {
+        return new QuarantineRecoverer(forwardingKafkaTemplate, sendTimeoutMs);
+    }
+
+    /**
+     * A record that cannot be decoded is quarantined. With retry topics enabled any other record that fails
+     * is moved to the first retry tier at once instead of being retried in place, so it never holds up the
+     * records behind it; without them it is logged and skipped.
+     * With batched commits the container no longer commits: the listener acknowledges each record to the
+     * coordinator, which commits in batches, and a recovered record counts as acknowledged.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> backOfficeKafkaListenerContainerFactory(
+            QuarantineRecoverer quarantineRecoverer, @Nullable RetryTopicRecoverer retryTopicRecoverer,
+            @Nullable OffsetCommitCoordinator offsetCommitCoordinator) {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = kafkaListenerContainerFactory(REGISTRATION_GROUP_ID);
+        BiConsumer<ConsumerRecord<?, ?>, Exception> recoverer =
+                quarantineRecoverer.orElse(retryTopicRecoverer != null ? retryTopicRecoverer : QuarantineRecoverer.LOG_AND_SKIP);
+        if (offsetCommitCoordinator != null) {
+            factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+            factory.getContainerProperties().setConsumerRebalanceListener(offsetCommitCoordinator);
+            factory.getContainerProperties().setIdleEventInterval(offsetCommitCoordinator.getMaxIntervalMs());
+            factory.setRecordInterceptor(record -> {
+                offsetCommitCoordinator.delivered(record);
+                return record;
+            });
+            recoverer = recoverer.andThen((record, ex) -> offsetCommitCoordinator.acknowledge(record));
+        }
+        factory.setErrorHandler(new SeekToCurrentErrorHandler(recoverer, new FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    /**
+     * Batch mode of the back office listener, enabled with kafka.listener.mode=batch. Offsets are
+     * committed manually once per batch so a failed record can be nacked without losing the ones before it.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> backOfficeBatchKafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(batchConsumerFactory(REGISTRATION_GROUP_ID));
+        factory.setConcurrency(concurrency);
+        factory.setBatchListener(true);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL);
+        return factory;
+    }
+
+    /**
+     * Consume-transform-produce mode of the back office listener, enabled with kafka.listener.mode=transactional.
+     * The container starts a Kafka transaction per poll; replies sent from the listener and the consumed
+     * offsets are committed or aborted together. A record that keeps failing is given up on after ten
+     * attempts: quarantined when it cannot be decoded, logged and skipped otherwise.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> backOfficeTransactionalKafkaListenerContainerFactory(
+            KafkaTransactionManager<String, User> kafkaTransactionManager, QuarantineRecoverer quarantineRecoverer) {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(transactionalConsumerFactory(REGISTRATION_GROUP_ID));
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setTransactionManager(kafkaTransactionManager);
+        factory.setAfterRollbackProcessor(new DefaultAfterRollbackProcessor<>(
+                quarantineRecoverer.orElse(QuarantineRecoverer.LOG_AND_SKIP), new FixedBackOff(0L, 9L)));
+        return factory;
     }
 
     @Bean
@@ -1,38 +1,118 @@
 package com.zss.backoffice.config;
 
 
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.codec.LazyUserSerializer;
+import com.zss.backoffice.codec.UserSerializer;
 import com.zss.backoffice.model.User;
+import com.zss.backoffice.shutdown.InFlightSendInterceptor;
+import com.zss.backoffice.shutdown.InFlightSends;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@Slf4j
 public class KafkaProducerConfig {
 
     @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
     private String bootstrapAddress;
 
-    @Bean
-    public ProducerFactory<String, User> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
+    @Value(value = "${kafka.serialization.binary-topics:}")
+    private String binaryTopics;
+
+    @Value(value = "${kafka.producer.profile:low-latency}")
+    private String profile;
+
+    @Value(value = "${kafka.producer.ack-mode:leader}")
+    private String ackMode;
+
+    @Value(value = "${kafka.producer.transaction-id-prefix:backoffice-tx-}")
+    private String transactionIdPrefix;
+
+    public Map<String, Object> producerProps(String name, ProducerProfile producerProfile) {
+        Map<String, Object> configProps = new HashMap<>(producerProfile.getSettings());
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserSerializer.class);
+        configProps.put(UserSerializer.BINARY_TOPICS_CONFIG, binaryTopics);
+        configProps.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, InFlightSendInterceptor.class.getName());
+        configProps.put(InFlightSendInterceptor.IN_FLIGHT_SENDS_CONFIG, inFlightSends());
+        log.info("Kafka producer [{}] uses profile [{}] with {}", name, producerProfile.getProfileName(), producerProfile.getSettings());
+        return configProps;
+    }
+
+    /**
+     * Shared by the producers of every profile, transactional ones included, to count what they have not yet completed.
+     */
+    @Bean
+    public InFlightSends inFlightSends() {
+        return new InFlightSends();
+    }
+
+    /**
+     * The interactive profile once per acknowledgement mode; producers are only created for the modes requests use.
+     */
+    @Bean
+    public AckModeKafkaTemplates ackModeKafkaTemplates() {
+        Map<AckMode, KafkaTemplate<String, User>> templates = new EnumMap<>(AckMode.class);
+        for (AckMode mode : AckMode.values()) {
+            Map<String, Object> configProps = mode.applyTo(producerProps("interactive-" + mode.getModeName(), ProducerProfile.of(profile)));
+            templates.put(mode, new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps)));
+        }
+        return new AckModeKafkaTemplates(templates, AckMode.of(ackMode));
     }
 
+    /**
+     * Idempotent, transactional producer for the consume-transform-produce listener. It always runs the
+     * durable profile, since transactions require idempotence and acknowledgement from all replicas.
+     */
     @Bean
+    public ProducerFactory<String, User> transactionalProducerFactory() {
+        DefaultKafkaProducerFactory<String, User> factory =
+                new DefaultKafkaProducerFactory<>(producerProps("transactional", ProducerProfile.DURABLE));
+        factory.setTransactionIdPrefix(transactionIdPrefix);
+        return factory;
+    }
+
+    @Bean
+    @Primary
     public KafkaTemplate<String, User> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        AckModeKafkaTemplates ackModeKafkaTemplates = ackModeKafkaTemplates();
+        return ackModeKafkaTemplates.forMode(ackModeKafkaTemplates.getDefaultMode());
+    }
+
+    @Bean
+    public KafkaTemplate<String, User> transactionalKafkaTemplate() {
+        return new KafkaTemplate<>(transactionalProducerFactory());
+    }
+
+    /**
+     * Passes consumed registrations on as the bytes they were read from, acknowledged by all replicas: to the
+     * retry tiers, the dead letter topic and quarantine.
+     */
+    @Bean
+    public KafkaTemplate<String, LazyUser> forwardingKafkaTemplate() {
+        Map<String, Object> configProps = AckMode.ALL.applyTo(producerProps("forwarding", ProducerProfile.of(profile)));
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, LazyUserSerializer.class);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps));
+    }
+
+    @Bean
+    public KafkaTransactionManager<String, User> kafkaTransactionManager() {
+        return new KafkaTransactionManager<>(transactionalProducerFactory());
     }
 
 }
@@ -1,16 +1,21 @@
 package com.zss.backoffice.config;
 
+import com.zss.backoffice.quarantine.QuarantineRecoverer;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.config.TopicConfig;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.KafkaAdmin;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
 import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static com.zss.backoffice.config.BackoficeConstants.USER_CHANGELOG_TOPIC;
 
 @Configuration
 public class KafkaTopicConfig {
@@ -21,20 +26,61 @@ public class KafkaTopicConfig {
     @Value(value = "${spring.kafka.template.default-topic}")
     private String defaultTopic;
 
+    @Value(value = "${kafka.topic.partitions}")
+    private int partitions;
+
+    @Value(value = "${kafka.topic.replication-factor}")
+    private short replicationFactor;
+
+    @Value(value = "${kafka.topic.deferred-verification.enabled:false}")
+    private boolean deferredVerification;
+
+    @Value(value = "${kafka.topic.deferred-verification.retry-interval-ms:5000}")
+    private long verificationRetryIntervalMs;
+
+    /**
+     * Creates missing topics while the context starts, unless their verification is deferred.
+     */
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        return new KafkaAdmin(configs);
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(configs);
+        kafkaAdmin.setAutoCreate(!deferredVerification);
+        return kafkaAdmin;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kafka.topic.deferred-verification.enabled", havingValue = "true")
+    public DeferredTopicVerification deferredTopicVerification(KafkaAdmin kafkaAdmin) {
+        return new DeferredTopicVerification(kafkaAdmin, verificationRetryIntervalMs);
     }
 
     @Bean
     public NewTopic registrationTopic() {
-        return new NewTopic(defaultTopic, 1, (short) 1);
+        return new NewTopic(defaultTopic, partitions, replicationFactor);
     }
 
     @Bean
     public NewTopic backofficeTopic() {
-        return new NewTopic(REGISTRATION_TOPIC, 1, (short) 1);
+        return new NewTopic(REGISTRATION_TOPIC, partitions, replicationFactor);
+    }
+
+    /**
+     * Registrations that could not be decoded, set aside untouched so they can be inspected.
+     */
+    @Bean
+    public NewTopic registrationQuarantineTopic() {
+        return new NewTopic(QuarantineRecoverer.quarantineTopic(REGISTRATION_TOPIC), partitions, replicationFactor);
+    }
+
+    /**
+     * Latest state of every registered user, keyed like the registration topic. Compaction bounds it by the
+     * number of users rather than the number of updates, so the view rebuilds from it quickly.
+     */
+    @Bean
+    public NewTopic userChangelogTopic() {
+        return new NewTopic(USER_CHANGELOG_TOPIC, partitions, replicationFactor)
+                .configs(Collections.singletonMap(TopicConfig.CLEANUP_POLICY_CONFIG, TopicConfig.CLEANUP_POLICY_COMPACT));
     }
 }
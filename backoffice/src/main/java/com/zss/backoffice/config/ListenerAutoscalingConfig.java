@@ -0,0 +1,89 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.scaling.ListenerAutoscaler;
+import com.zss.backoffice.scaling.ListenerConcurrencyPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_GROUP_ID;
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+
+/**
+ * Concurrency of the registration listener driven by the lag of its consumer group, enabled by
+ * "kafka.listener.autoscaling.enabled". Only the listener of the configured mode runs, so all three are named.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.autoscaling.enabled", havingValue = "true")
+public class ListenerAutoscalingConfig {
+
+    @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
+    private String bootstrapAddress;
+
+    @Value(value = "${kafka.listener.autoscaling.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value(value = "${kafka.listener.autoscaling.max-concurrency:${kafka.topic.partitions}}")
+    private int maxConcurrency;
+
+    @Value(value = "${kafka.listener.autoscaling.target-drain-ms:10000}")
+    private long targetDrainMs;
+
+    @Value(value = "${kafka.listener.autoscaling.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    @Value(value = "${kafka.listener.autoscaling.sample-interval-ms:5000}")
+    private long sampleIntervalMs;
+
+    @Bean
+    public ListenerAutoscaler registrationListenerAutoscaler(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                                             ApplicationEventPublisher eventPublisher) {
+        AdminClient adminClient = AdminClient.create(Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress));
+        KafkaConsumer<byte[], byte[]> endOffsetConsumer = new KafkaConsumer<>(
+                Collections.singletonMap(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        return new ListenerAutoscaler(kafkaListenerEndpointRegistry,
+                Arrays.asList("backOfficeListener", "backOfficeBatchListener", "backOfficeTransactionalListener"),
+                adminClient, endOffsetConsumer, REGISTRATION_TOPIC, REGISTRATION_GROUP_ID,
+                new ListenerConcurrencyPolicy(minConcurrency, maxConcurrency, targetDrainMs, cooldownMs),
+                eventPublisher, sampleIntervalMs);
+    }
+
+    @Bean
+    public MeterBinder registrationListenerAutoscalerMetrics(ListenerAutoscaler registrationListenerAutoscaler) {
+        return registry -> {
+            Gauge.builder("backoffice.listener.concurrency", registrationListenerAutoscaler, ListenerAutoscaler::getConcurrency)
+                    .tag("group", REGISTRATION_GROUP_ID)
+                    .description("Consumers the registration listener runs").register(registry);
+            Gauge.builder("backoffice.listener.group.lag", registrationListenerAutoscaler, ListenerAutoscaler::getLag)
+                    .tag("group", REGISTRATION_GROUP_ID)
+                    .description("Records behind the committed offsets of the group, over all partitions").register(registry);
+            Gauge.builder("backoffice.listener.partition.lag.max", registrationListenerAutoscaler, ListenerAutoscaler::getMaxPartitionLag)
+                    .tag("group", REGISTRATION_GROUP_ID)
+                    .description("Lag of the partition furthest behind").register(registry);
+            Gauge.builder("backoffice.listener.throughput", registrationListenerAutoscaler, ListenerAutoscaler::getRecordsPerSecond)
+                    .tag("group", REGISTRATION_GROUP_ID)
+                    .description("Records committed per second over the last sample").register(registry);
+            FunctionCounter.builder("backoffice.listener.scaling", registrationListenerAutoscaler, ListenerAutoscaler::scaleUpCount)
+                    .tags("group", REGISTRATION_GROUP_ID, "direction", "up")
+                    .description("Times the registration listener was given more consumers").register(registry);
+            FunctionCounter.builder("backoffice.listener.scaling", registrationListenerAutoscaler, ListenerAutoscaler::scaleDownCount)
+                    .tags("group", REGISTRATION_GROUP_ID, "direction", "down")
+                    .description("Times the registration listener was given fewer consumers").register(registry);
+        };
+    }
+}
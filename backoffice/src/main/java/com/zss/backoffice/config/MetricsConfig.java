@@ -0,0 +1,40 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.metrics.BackofficeMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+
+/**
+ * Back office pipeline meters, published through the actuator metrics endpoint.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public BackofficeMetrics backofficeMetrics(MeterRegistry meterRegistry) {
+        return new BackofficeMetrics(meterRegistry);
+    }
+
+    /**
+     * Consumer lag of whichever registration listener mode is running. The containers are looked up on
+     * every read because they are only created once the application context has started.
+     */
+    @Bean
+    public MeterBinder registrationConsumerLagMetrics(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
+        return registry -> Gauge.builder("backoffice.registration.consumer.lag", kafkaListenerEndpointRegistry,
+                endpoints -> endpoints.getListenerContainers().stream()
+                        .filter(MessageListenerContainer::isRunning)
+                        .mapToDouble(BackofficeMetrics::maxRecordsLag)
+                        .max().orElse(0))
+                .tag("topic", REGISTRATION_TOPIC)
+                .description("Largest lag, in records, of a registration topic partition behind the running listener")
+                .register(registry);
+    }
+}
@@ -0,0 +1,77 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.commit.OffsetCommitCoordinator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.event.ConsumerStoppingEvent;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+/**
+ * Batched offset commits for the registration record listener, enabled by "kafka.listener.batched-commit.enabled".
+ * Both container events used here are published on the consumer thread, which is the only one allowed to commit.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.batched-commit.enabled", havingValue = "true")
+public class OffsetCommitConfig {
+
+    private static final String LISTENER_ID = "backOfficeListener";
+
+    @Value(value = "${kafka.listener.batched-commit.max-records:500}")
+    private int maxRecords;
+
+    @Value(value = "${kafka.listener.batched-commit.max-interval-ms:1000}")
+    private long maxIntervalMs;
+
+    @Bean
+    public OffsetCommitCoordinator offsetCommitCoordinator() {
+        return new OffsetCommitCoordinator(maxRecords, maxIntervalMs);
+    }
+
+    /**
+     * The last acknowledgements before the topic goes quiet are committed once the container has been idle for the interval.
+     */
+    @Bean
+    public ApplicationListener<ListenerContainerIdleEvent> commitOffsetsWhenIdle(OffsetCommitCoordinator offsetCommitCoordinator) {
+        return event -> {
+            if (event.getListenerId().startsWith(LISTENER_ID)) {
+                offsetCommitCoordinator.commitIfDue(event.getConsumer());
+            }
+        };
+    }
+
+    /**
+     * A stopping consumer leaves its group without revoking its partitions, so they are committed here instead.
+     */
+    @Bean
+    public ApplicationListener<ConsumerStoppingEvent> commitOffsetsWhenStopping(OffsetCommitCoordinator offsetCommitCoordinator) {
+        return event -> {
+            MessageListenerContainer container = event.getSource(MessageListenerContainer.class);
+            if (container.getListenerId().startsWith(LISTENER_ID) && event.getPartitions() != null) {
+                offsetCommitCoordinator.commitAndRelease(event.getConsumer(), event.getPartitions());
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder offsetCommitMetrics(OffsetCommitCoordinator offsetCommitCoordinator) {
+        return registry -> {
+            Gauge.builder("backoffice.listener.commit.uncommitted", offsetCommitCoordinator, OffsetCommitCoordinator::uncommittedCount)
+                    .description("Records acknowledged by the registration listener and not yet committed").register(registry);
+            FunctionCounter.builder("backoffice.listener.commits", offsetCommitCoordinator, OffsetCommitCoordinator::asyncCommitCount)
+                    .tag("mode", "async")
+                    .description("Offset commits of the registration listener").register(registry);
+            FunctionCounter.builder("backoffice.listener.commits", offsetCommitCoordinator, OffsetCommitCoordinator::syncCommitCount)
+                    .tag("mode", "sync")
+                    .description("Offset commits of the registration listener").register(registry);
+            FunctionCounter.builder("backoffice.listener.commits.failed", offsetCommitCoordinator, OffsetCommitCoordinator::failedCommitCount)
+                    .description("Offset commits of the registration listener that failed").register(registry);
+        };
+    }
+}
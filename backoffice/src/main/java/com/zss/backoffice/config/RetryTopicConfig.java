@@ -0,0 +1,122 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.codec.LazyUserDeserializer;
+import com.zss.backoffice.codec.UserDeserializer;
+import com.zss.backoffice.retry.DeadLetterReplayer;
+import com.zss.backoffice.retry.RetryTierErrorHandler;
+import com.zss.backoffice.retry.RetryTopicRecoverer;
+import com.zss.backoffice.retry.RetryTopics;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+import static com.zss.backoffice.config.BackoficeConstants.DEAD_LETTER_REPLAY_GROUP_ID;
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static com.zss.backoffice.config.BackoficeConstants.RETRY_GROUP_ID;
+
+/**
+ * Non-blocking retries of the back office record listener, enabled by "kafka.listener.retry.enabled": a
+ * registration that fails moves to a chain of retry topics with growing delays and then to a dead letter
+ * topic, while the registration topic keeps flowing.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.retry.enabled", havingValue = "true")
+public class RetryTopicConfig {
+
+    private final KafkaConsumerConfig kafkaConsumerConfig;
+
+    @Value(value = "${kafka.topic.partitions}")
+    private int partitions;
+
+    @Value(value = "${kafka.topic.replication-factor}")
+    private short replicationFactor;
+
+    @Value(value = "${kafka.listener.concurrency:${kafka.topic.partitions}}")
+    private int concurrency;
+
+    @Value(value = "${kafka.listener.retry.delays-ms:1000,10000,60000}")
+    private List<Long> delaysMs;
+
+    @Value(value = "${kafka.listener.retry.idle-interval-ms:500}")
+    private long idleIntervalMs;
+
+    @Value(value = "${kafka.listener.retry.replay-poll-timeout-ms:1000}")
+    private long replayPollTimeoutMs;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    @Autowired
+    public RetryTopicConfig(KafkaConsumerConfig kafkaConsumerConfig) {
+        this.kafkaConsumerConfig = kafkaConsumerConfig;
+    }
+
+    /**
+     * The tiers and the dead letter topic are registered as topics for the KafkaAdmin to create, one per
+     * configured delay.
+     */
+    @Bean
+    public RetryTopics retryTopics(ConfigurableListableBeanFactory beanFactory) {
+        RetryTopics retryTopics = new RetryTopics(REGISTRATION_TOPIC, delaysMs);
+        for (String topic : retryTopics.getRetryTopics()) {
+            beanFactory.registerSingleton(topic + "Topic", new NewTopic(topic, partitions, replicationFactor));
+        }
+        String deadLetterTopic = retryTopics.getDeadLetterTopic();
+        beanFactory.registerSingleton(deadLetterTopic + "Topic", new NewTopic(deadLetterTopic, partitions, replicationFactor));
+        return retryTopics;
+    }
+
+    /**
+     * Moved records are sent unchanged with acks=all: the offset of the failed record is committed once they are.
+     */
+    @Bean
+    public RetryTopicRecoverer retryTopicRecoverer(KafkaTemplate<String, LazyUser> forwardingKafkaTemplate, RetryTopics retryTopics) {
+        return new RetryTopicRecoverer(forwardingKafkaTemplate, retryTopics, sendTimeoutMs);
+    }
+
+    @Bean
+    public RetryTierErrorHandler retryTierErrorHandler(RetryTopicRecoverer retryTopicRecoverer) {
+        return new RetryTierErrorHandler(retryTopicRecoverer);
+    }
+
+    /**
+     * A record reaches a tier only after its listener container has started, so a new retry group reads
+     * the tiers from the beginning. Idle events let the container resume partitions paused on a record
+     * that was not due.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> backOfficeRetryKafkaListenerContainerFactory(
+            RetryTierErrorHandler retryTierErrorHandler) {
+        Map<String, Object> props = kafkaConsumerConfig.consumerProps(RETRY_GROUP_ID);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new LazyUserDeserializer()));
+        factory.setConcurrency(concurrency);
+        factory.setErrorHandler(retryTierErrorHandler);
+        factory.getContainerProperties().setIdleEventInterval(idleIntervalMs);
+        return factory;
+    }
+
+    @Bean
+    public DeadLetterReplayer deadLetterReplayer(AckModeKafkaTemplates kafkaTemplates, RetryTopics retryTopics) {
+        Map<String, Object> props = kafkaConsumerConfig.consumerProps(DEAD_LETTER_REPLAY_GROUP_ID);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        return new DeadLetterReplayer(() -> new KafkaConsumer<>(props, new StringDeserializer(), new UserDeserializer()),
+                kafkaTemplates.forMode(AckMode.ALL), retryTopics, replayPollTimeoutMs, sendTimeoutMs);
+    }
+}
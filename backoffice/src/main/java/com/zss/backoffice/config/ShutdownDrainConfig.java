@@ -0,0 +1,97 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.shutdown.InFlightSends;
+import com.zss.backoffice.shutdown.ShutdownDrain;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Graceful drain of the back office on shutdown, enabled by "backoffice.shutdown.drain.enabled". Draining
+ * takes the instance out of service: the "shutdownDrain" health component turns OUT_OF_SERVICE and /submit
+ * answers 503 with the connection closed.
+ */
+@Configuration
+@ConditionalOnProperty(name = "backoffice.shutdown.drain.enabled", havingValue = "true")
+public class ShutdownDrainConfig {
+
+    @Value(value = "${backoffice.shutdown.drain.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Bean
+    public ShutdownDrain shutdownDrain(InFlightSends inFlightSends, KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
+        return new ShutdownDrain(inFlightSends, kafkaListenerEndpointRegistry, timeoutMs);
+    }
+
+    @Bean
+    public HealthIndicator shutdownDrainHealthIndicator(ShutdownDrain shutdownDrain) {
+        return () -> shutdownDrain.isDraining()
+                ? Health.outOfService().withDetail("inFlightSends", shutdownDrain.inFlightSends()).build()
+                : Health.up().build();
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebMvcConfigurer shutdownDrainWebMvcConfigurer(ShutdownDrain shutdownDrain) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                        shutdownDrain.admit();
+                        return true;
+                    }
+                }).addPathPatterns("/submit");
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public WebFilter shutdownDrainWebFilter(ShutdownDrain shutdownDrain) {
+        return (exchange, chain) -> {
+            if (shutdownDrain.isDraining() && exchange.getRequest().getPath().value().endsWith("/submit")) {
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "close");
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    @Bean
+    public MeterBinder shutdownDrainMetrics(ShutdownDrain shutdownDrain) {
+        return registry -> {
+            Gauge.builder("backoffice.shutdown.draining", shutdownDrain, drain -> drain.isDraining() ? 1 : 0)
+                    .description("1 while the back office drains before shutdown").register(registry);
+            Gauge.builder("backoffice.shutdown.sends.in.flight", shutdownDrain, ShutdownDrain::inFlightSends)
+                    .description("Records handed to a producer and not yet completed").register(registry);
+            FunctionCounter.builder("backoffice.shutdown.sends.drained", shutdownDrain, ShutdownDrain::drainedSendCount)
+                    .description("Sends that completed during the drain").register(registry);
+            FunctionCounter.builder("backoffice.shutdown.sends.abandoned", shutdownDrain, ShutdownDrain::abandonedSendCount)
+                    .description("Sends given up on at the drain deadline").register(registry);
+            FunctionCounter.builder("backoffice.shutdown.listeners.stopped", shutdownDrain, ShutdownDrain::stoppedListenerCount)
+                    .description("Listener containers stopped after committing their last batch").register(registry);
+            FunctionCounter.builder("backoffice.shutdown.listeners.abandoned", shutdownDrain, ShutdownDrain::abandonedListenerCount)
+                    .description("Listener containers left running at the drain deadline").register(registry);
+        };
+    }
+}
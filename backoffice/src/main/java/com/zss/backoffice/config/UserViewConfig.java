@@ -0,0 +1,56 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.codec.UserDeserializer;
+import com.zss.backoffice.model.User;
+import com.zss.backoffice.view.RegisteredUserView;
+import com.zss.backoffice.view.UserChangelog;
+import com.zss.backoffice.view.UserChangelogReader;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Map;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_CHANGELOG_TOPIC;
+import static com.zss.backoffice.config.BackoficeConstants.USER_VIEW_GROUP_ID;
+
+@Configuration
+public class UserViewConfig {
+
+    private final KafkaConsumerConfig kafkaConsumerConfig;
+
+    @Autowired
+    public UserViewConfig(KafkaConsumerConfig kafkaConsumerConfig) {
+        this.kafkaConsumerConfig = kafkaConsumerConfig;
+    }
+
+    @Bean
+    public RegisteredUserView registeredUserView() {
+        return new RegisteredUserView();
+    }
+
+    @Bean
+    public UserChangelog userChangelog(KafkaTemplate<String, User> kafkaTemplate, RegisteredUserView registeredUserView) {
+        return new UserChangelog(kafkaTemplate, registeredUserView);
+    }
+
+    /**
+     * The reader assigns itself every changelog partition; the group id is never used to commit offsets. Its
+     * lookups must not let the broker create the changelog, which would then not be compacted.
+     */
+    @Bean
+    public UserChangelogReader userChangelogReader(RegisteredUserView registeredUserView, KafkaAdmin kafkaAdmin) {
+        Map<String, Object> props = kafkaConsumerConfig.consumerProps(USER_VIEW_GROUP_ID);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        props.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        return new UserChangelogReader(() -> new KafkaConsumer<>(props, new StringDeserializer(), new UserDeserializer()),
+                () -> AdminClient.create(kafkaAdmin.getConfig()), USER_CHANGELOG_TOPIC, registeredUserView);
+    }
+}
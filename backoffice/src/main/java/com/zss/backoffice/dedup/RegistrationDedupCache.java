@@ -0,0 +1,146 @@
+package com.zss.backoffice.dedup;
+
+import com.zss.backoffice.codec.UserBinaryCodec;
+import com.zss.backoffice.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the registrations the listeners have already processed so a redelivery after a rebalance or
+ * retry can be dropped without reaching any store. Entries are spread over independently locked stripes,
+ * each an insertion ordered map: with a fixed time to live the eldest entry is always the first to
+ * expire, so eviction by size or age only ever looks at the head and every operation is O(1).
+ */
+public class RegistrationDedupCache {
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private final LinkedHashMap<String, Long>[] stripes;
+
+    private final int maxEntriesPerStripe;
+
+    private final long ttlNanos;
+
+    private final LongSupplier nanoTime;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    public RegistrationDedupCache(int maxEntries, long ttlMs, int stripeCount) {
+        this(maxEntries, ttlMs, stripeCount, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    RegistrationDedupCache(int maxEntries, long ttlMs, int stripeCount, LongSupplier nanoTime) {
+        if (maxEntries < stripeCount || stripeCount < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Dedup cache needs at least one entry per stripe, got [%d] entries for [%d] stripes", maxEntries, stripeCount));
+        }
+        this.stripes = new LinkedHashMap[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LinkedHashMap<>();
+        }
+        this.maxEntriesPerStripe = maxEntries / stripeCount;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * The event id when the producer supplied one, otherwise a digest of the user's canonical binary encoding;
+     * the user is only asked for in the second case.
+     */
+    public static String keyOf(byte[] eventId, Supplier<User> user) {
+        if (eventId != null && eventId.length > 0) {
+            return "id:" + new String(eventId, StandardCharsets.UTF_8);
+        }
+        return "md5:" + Base64.getEncoder().encodeToString(DIGESTS.get().digest(UserBinaryCodec.encode(user.get())));
+    }
+
+    /**
+     * Whether the key was remembered within the time to live; counts a hit or a miss.
+     */
+    public boolean isDuplicate(String key) {
+        LinkedHashMap<String, Long> stripe = stripeFor(key);
+        long now = nanoTime.getAsLong();
+        boolean duplicate;
+        synchronized (stripe) {
+            this.expire(stripe, now);
+            duplicate = stripe.containsKey(key);
+        }
+        (duplicate ? hits : misses).increment();
+        return duplicate;
+    }
+
+    /**
+     * Remembers a key once its registration has been processed, restarting its time to live.
+     */
+    public void remember(String key) {
+        LinkedHashMap<String, Long> stripe = stripeFor(key);
+        long now = nanoTime.getAsLong();
+        synchronized (stripe) {
+            stripe.remove(key);
+            stripe.put(key, now);
+            this.expire(stripe, now);
+            Iterator<String> eldest = stripe.keySet().iterator();
+            while (stripe.size() > maxEntriesPerStripe) {
+                eldest.next();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    public long size() {
+        long size = 0;
+        for (LinkedHashMap<String, Long> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private void expire(LinkedHashMap<String, Long> stripe, long now) {
+        Iterator<Map.Entry<String, Long>> eldest = stripe.entrySet().iterator();
+        while (eldest.hasNext() && now - eldest.next().getValue() >= ttlNanos) {
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private LinkedHashMap<String, Long> stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+    }
+}
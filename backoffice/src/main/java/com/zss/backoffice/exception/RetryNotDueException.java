@@ -0,0 +1,18 @@
+package com.zss.backoffice.exception;
+
+/**
+ * A record read from a retry tier before its delay has elapsed.
+ */
+public class RetryNotDueException extends RuntimeException {
+
+    private final long dueAt;
+
+    public RetryNotDueException(long dueAt){
+        super("Retry is not due before " + dueAt);
+        this.dueAt = dueAt;
+    }
+
+    public long getDueAt() {
+        return dueAt;
+    }
+}
@@ -0,0 +1,11 @@
+package com.zss.backoffice.exception;
+
+/**
+ * A back office update refused because this instance is draining before it stops.
+ */
+public class ShuttingDownException extends RuntimeException {
+
+    public ShuttingDownException(String message){
+        super(message);
+    }
+}
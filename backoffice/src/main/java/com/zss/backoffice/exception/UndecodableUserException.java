@@ -0,0 +1,28 @@
+package com.zss.backoffice.exception;
+
+/**
+ * A record whose value cannot be read as a user however often it is tried: it is quarantined rather than
+ * retried.
+ */
+public class UndecodableUserException extends RuntimeException {
+
+    public UndecodableUserException(String message){
+        super(message);
+    }
+
+    public UndecodableUserException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+    /**
+     * Whether the exception, or any exception it was wrapped in on the way out of a listener, is this one.
+     */
+    public static boolean isCauseOf(Throwable ex){
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UndecodableUserException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,70 +1,322 @@
 package com.zss.backoffice.facade;
 
+import com.zss.backoffice.audit.BackofficeAuditLog;
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.commit.OffsetCommitCoordinator;
+import com.zss.backoffice.config.AckMode;
+import com.zss.backoffice.config.AckModeKafkaTemplates;
+import com.zss.backoffice.dedup.RegistrationDedupCache;
 import com.zss.backoffice.exception.ApplicationException;
+import com.zss.backoffice.exception.UndecodableUserException;
+import com.zss.backoffice.metrics.BackofficeMetrics;
 import com.zss.backoffice.model.BackofficeResponse;
+import com.zss.backoffice.model.RegistrationReply;
+import com.zss.backoffice.model.RegistrationVerdict;
 import com.zss.backoffice.model.User;
+import com.zss.backoffice.model.UserKey;
+import com.zss.backoffice.quarantine.QuarantineRecoverer;
+import com.zss.backoffice.retry.DeadLetterReplayer;
+import com.zss.backoffice.view.RegisteredUserView;
+import com.zss.backoffice.view.UserChangelog;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.SendResult;
+import org.springframework.lang.Nullable;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 
+import static com.zss.backoffice.config.BackoficeConstants.ACK_MODE_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.EVENT_ID_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.RECEIVED_AT_HEADER;
 import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_GROUP_ID;
 import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static com.zss.backoffice.config.BackoficeConstants.SENT_AT_HEADER;
 
 @RestController
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
 @Slf4j
 public class BackofficeController {
 
-    private final KafkaTemplate<String, User> kafkaTemplate;
+    private final AckModeKafkaTemplates kafkaTemplates;
+
+    private final KafkaTemplate<String, User> transactionalKafkaTemplate;
 
     private final CountDownLatch countDownLatch;
 
+    private final RegistrationDedupCache dedupCache;
+
+    private final RegisteredUserView registeredUserView;
+
+    private final UserChangelog userChangelog;
+
+    private final BackofficeMetrics backofficeMetrics;
+
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    private final BackofficeAuditLog auditLog;
+
+    private final QuarantineRecoverer quarantineRecoverer;
+
+    private final OffsetCommitCoordinator offsetCommitCoordinator;
+
     @Value(value = "${spring.kafka.template.default-topic}")
     private String defaultTopic;
 
+    @Value(value = "${kafka.listener.batch.redelivery-delay-ms:1000}")
+    private long batchRedeliveryDelayMs;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
     @Autowired
-    public BackofficeController(KafkaTemplate<String, User> kafkaTemplate, CountDownLatch countDownLatch){
-        this.kafkaTemplate = kafkaTemplate;
+    public BackofficeController(AckModeKafkaTemplates kafkaTemplates,
+                                @Qualifier("transactionalKafkaTemplate") KafkaTemplate<String, User> transactionalKafkaTemplate,
+                                CountDownLatch countDownLatch,
+                                @Nullable RegistrationDedupCache dedupCache,
+                                RegisteredUserView registeredUserView,
+                                UserChangelog userChangelog,
+                                BackofficeMetrics backofficeMetrics,
+                                @Nullable DeadLetterReplayer deadLetterReplayer,
+                                BackofficeAuditLog auditLog,
+                                QuarantineRecoverer quarantineRecoverer,
+                                @Nullable OffsetCommitCoordinator offsetCommitCoordinator){
+        this.kafkaTemplates = kafkaTemplates;
+        this.transactionalKafkaTemplate = transactionalKafkaTemplate;
         this.countDownLatch = countDownLatch;
+        this.dedupCache = dedupCache;
+        this.registeredUserView = registeredUserView;
+        this.userChangelog = userChangelog;
+        this.backofficeMetrics = backofficeMetrics;
+        this.deadLetterReplayer = deadLetterReplayer;
+        this.auditLog = auditLog;
+        this.quarantineRecoverer = quarantineRecoverer;
+        this.offsetCommitCoordinator = offsetCommitCoordinator;
     }
 
+    /**
+     * Answers once the requested acknowledgement arrives without holding the servlet thread: 201 when the
+     * broker has the update, 202 for fire-and-forget, 500 when the send fails and 504 when no answer comes in time.
+     */
     @PostMapping(path = "/submit", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(code = HttpStatus.CREATED)
-    public BackofficeResponse userRegistration(@RequestBody User user){
-      log.info("Update user details {}", user.toString());
-      this.sendMessage(user);
-      return BackofficeResponse.builder().message("User Registration Updated").build();
+    public DeferredResult<ResponseEntity<BackofficeResponse>> userRegistration(@RequestBody User user,
+            @RequestHeader(value = ACK_MODE_HEADER, required = false) String ackModeName){
+      long receivedAt = System.currentTimeMillis();
+      long receivedAtNanos = System.nanoTime();
+      auditLog.received(user);
+      AckMode ackMode = kafkaTemplates.resolve(ackModeName);
+      DeferredResult<ResponseEntity<BackofficeResponse>> result = new DeferredResult<>(ackTimeoutMs,
+              ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response("User Registration Update Acknowledgement Timed Out")));
+      result.onCompletion(() -> backofficeMetrics.recordSubmitted(receivedAtNanos, ackMode,
+              result.getResult() instanceof ResponseEntity ? ((ResponseEntity<?>) result.getResult()).getStatusCode() : HttpStatus.INTERNAL_SERVER_ERROR));
+      this.sendMessage(user, ackMode, receivedAt, result);
+      return result;
+    }
+
+    /**
+     * With batched commits each record is acknowledged to the commit coordinator once processed; the
+     * container commits after every poll otherwise.
+     */
+    @KafkaListener(id = "backOfficeListener", topics = REGISTRATION_TOPIC, groupId = REGISTRATION_GROUP_ID,
+            containerFactory = "backOfficeKafkaListenerContainerFactory",
+            autoStartup = "#{'${kafka.listener.mode:record}' == 'record'}")
+    public void userBackOfficeListener(ConsumerRecord<String, LazyUser> record, Consumer<?, ?> consumer){
+        this.processRegistrationOnce(record);
+        if (offsetCommitCoordinator != null) {
+            offsetCommitCoordinator.acknowledge(record, consumer);
+        }
+    }
+
+    /**
+     * Processes a whole poll in one call. Offsets are committed once for the batch; when a record fails,
+     * the records before it are committed and only the failed record onwards is redelivered. A record that
+     * cannot be decoded would fail again on every redelivery, so it is quarantined and the batch goes on.
+     */
+    @KafkaListener(id = "backOfficeBatchListener", topics = REGISTRATION_TOPIC, groupId = REGISTRATION_GROUP_ID,
+            containerFactory = "backOfficeBatchKafkaListenerContainerFactory",
+            autoStartup = "#{'${kafka.listener.mode:record}' == 'batch'}")
+    public void userBackOfficeBatchListener(List<ConsumerRecord<String, LazyUser>> records, Acknowledgment acknowledgment){
+        log.info("Received batch of {} messages from User registration", records.size());
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, LazyUser> record = records.get(i);
+            try {
+                try {
+                    this.processRegistrationOnce(record);
+                } catch (UndecodableUserException ex) {
+                    quarantineRecoverer.accept(record, ex);
+                }
+            } catch (RuntimeException ex) {
+                log.error("Failed to process message from User registration partition=[{}] offset=[{}], redelivering the remaining {} of the batch",
+                        record.partition(), record.offset(), records.size() - i, ex);
+                acknowledgment.nack(i, batchRedeliveryDelayMs);
+                return;
+            }
+        }
+        acknowledgment.acknowledge();
     }
 
-    @KafkaListener(topics = REGISTRATION_TOPIC, groupId = REGISTRATION_GROUP_ID)
-    public void userBackOfficeListener(String user){
-        log.info("Received message from User registration {}", user);
+    /**
+     * Consume-transform-produce: runs inside the container's Kafka transaction, so the reply to the
+     * back office topic and the consumed offset are committed atomically and a replay after a
+     * rebalance never publishes a duplicate reply. The dedup cache is not consulted here: an aborted
+     * transaction must be processed again on redelivery. A registration sent in request-reply mode gets
+     * its verdict and correlation id on the reply.
+     */
+    @KafkaListener(id = "backOfficeTransactionalListener", topics = REGISTRATION_TOPIC, groupId = REGISTRATION_GROUP_ID,
+            containerFactory = "backOfficeTransactionalKafkaListenerContainerFactory",
+            autoStartup = "#{'${kafka.listener.mode:record}' == 'transactional'}")
+    public void userBackOfficeTransactionalListener(ConsumerRecord<String, LazyUser> record){
+        long consumedAt = backofficeMetrics.recordConsumed(record);
+        User user = record.value().get();
+        RegistrationVerdict verdict = this.verdictFor(record, user);
+        if (verdict == RegistrationVerdict.ACCEPTED) {
+            this.processRegistration(user);
+            userChangelog.record(user, transactionalKafkaTemplate);
+        } else {
+            auditLog.verdict(user, verdict.getHeaderValue());
+        }
+        ProducerRecord<String, User> reply = RegistrationReply.to(record, RegisteredUserView.withoutSecrets(user), verdict);
+        transactionalKafkaTemplate.send(reply != null ? reply : new ProducerRecord<>(defaultTopic, UserKey.of(user), user));
+        backofficeMetrics.recordProcessed(record, consumedAt, verdict);
+    }
+
+    /**
+     * Sends up to max dead letters back to the registration topic: 404 when retry topics are not enabled.
+     */
+    @PostMapping(path = "/dlt/replay", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BackofficeResponse> replayDeadLetters(@RequestParam(value = "max", defaultValue = "100") int maxRecords){
+        if (deadLetterReplayer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response("Retry topics are not enabled"));
+        }
+        if (maxRecords <= 0) {
+            throw new IllegalArgumentException("max must be positive");
+        }
+        int replayed = deadLetterReplayer.replay(maxRecords);
+        return ResponseEntity.ok(response(String.format("Replayed %d registrations from the dead letter topic", replayed)));
+    }
+
+    /**
+     * Looks the user up in the registered user view: 404 when unknown, 503 while the view is still
+     * being rebuilt from the changelog after a start.
+     */
+    @GetMapping(path = "/users/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> registeredUserById(@PathVariable("id") int id){
+        return registeredUser(registeredUserView.findById(id));
+    }
+
+    @GetMapping(path = "/users", params = "email", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> registeredUserByEmail(@RequestParam("email") String email){
+        return registeredUser(registeredUserView.findByEmail(email));
+    }
+
+    /**
+     * Drops a registration the dedup cache has seen processed within its time to live. A key is only
+     * remembered after processing succeeds, so a failed record is still processed when redelivered.
+     * A registration awaiting a reply whose email is already taken, or that arrives before the registered user
+     * view is rebuilt, is not processed, and the sender is told so. A duplicate carrying an event id is dropped
+     * without being decoded.
+     */
+    private void processRegistrationOnce(ConsumerRecord<String, LazyUser> record){
+        long consumedAt = backofficeMetrics.recordConsumed(record);
+        Header eventId = record.headers().lastHeader(EVENT_ID_HEADER);
+        String key = dedupCache == null ? null : RegistrationDedupCache.keyOf(eventId == null ? null : eventId.value(), record.value());
+        if (key != null && dedupCache.isDuplicate(key)) {
+            auditLog.duplicate(record.value(), record.topic());
+            return;
+        }
+        User user = record.value().get();
+        RegistrationVerdict verdict = this.verdictFor(record, user);
+        if (verdict == RegistrationVerdict.ACCEPTED) {
+            this.processRegistration(user);
+            userChangelog.record(user);
+        } else {
+            auditLog.verdict(user, verdict.getHeaderValue());
+        }
+        ProducerRecord<String, User> reply = RegistrationReply.to(record, RegisteredUserView.withoutSecrets(user), verdict);
+        if (reply != null) {
+            kafkaTemplates.forMode(kafkaTemplates.getDefaultMode()).send(reply);
+        }
+        backofficeMetrics.recordProcessed(record, consumedAt, verdict);
+        if (key != null && verdict != RegistrationVerdict.UNAVAILABLE) {
+            dedupCache.remember(key);
+        }
+    }
+
+    /**
+     * Only a sender waiting for the verdict has its email checked against the registered users; any other
+     * registration is processed as before, as are its redeliveries, retries and replays. Until the view is
+     * rebuilt no verdict is given, rather than accepting an email the changelog may yet show as taken.
+     */
+    private RegistrationVerdict verdictFor(ConsumerRecord<String, LazyUser> record, User user){
+        if (!RegistrationReply.isRequested(record)) {
+            return RegistrationVerdict.ACCEPTED;
+        }
+        return registeredUserView.isReady() ? registeredUserView.verdictFor(user) : RegistrationVerdict.UNAVAILABLE;
+    }
+
+    private void processRegistration(User user){
+        auditLog.consumed(user, REGISTRATION_TOPIC);
         this.countDownLatch.countDown(); //This for test purpose only have remove
     }
 
-    private void sendMessage(User user){
-        ListenableFuture<SendResult<String, User>> listenableFuture = kafkaTemplate.send(defaultTopic, user);
+    private void sendMessage(User user, AckMode ackMode, long receivedAt, DeferredResult<ResponseEntity<BackofficeResponse>> response){
+        ProducerRecord<String, User> record = new ProducerRecord<>(defaultTopic, UserKey.of(user), user);
+        record.headers()
+                .add(RECEIVED_AT_HEADER, BackofficeMetrics.timestamp(receivedAt))
+                .add(SENT_AT_HEADER, BackofficeMetrics.timestamp(System.currentTimeMillis()));
+        ListenableFuture<SendResult<String, User>> listenableFuture = kafkaTemplates.forMode(ackMode).send(record);
+        if (!ackMode.awaitsAcknowledgement()) {
+            response.setResult(ResponseEntity.status(HttpStatus.ACCEPTED).body(response("User Registration Updated")));
+        }
         listenableFuture.addCallback((ListenableFutureCallback<? super SendResult<String, User>>) new ListenableFutureCallback<SendResult<String, User>>() {
             @Override
             public void onSuccess(SendResult<String, User> result) {
-                log.info("Sent message to user registration=[{}] with offset=[{}]", user.toString(), result.getRecordMetadata().offset());
+                auditLog.sent(user, result.getRecordMetadata().topic(), result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                backofficeMetrics.recordSent(result.getRecordMetadata());
+                response.setResult(ResponseEntity.status(HttpStatus.CREATED).body(response("User Registration Updated")));
             }
             @Override
             public void onFailure(Throwable ex) {
-               throw new ApplicationException(String.format("Unable to send message to user registration=[{%s}]", user.toString()), ex);
+                backofficeMetrics.recordSendFailure(defaultTopic);
+                auditLog.failed("send", user, ex);
+                response.setErrorResult(new ApplicationException(String.format("Unable to send message to user registration=[{%s}]", BackofficeAuditLog.describe(user)), ex));
             }
         });
     }
+
+    private ResponseEntity<?> registeredUser(Optional<User> user){
+        if (!registeredUserView.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response("Registered user view is being rebuilt"));
+        }
+        return user.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(response("User is not registered")));
+    }
+
+    private BackofficeResponse response(String message){
+        return BackofficeResponse.builder().message(message).build();
+    }
 }
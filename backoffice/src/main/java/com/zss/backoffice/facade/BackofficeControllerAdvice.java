@@ -1,6 +1,8 @@
 package com.zss.backoffice.facade;
 
+import com.zss.backoffice.exception.ShuttingDownException;
 import com.zss.backoffice.model.BackofficeResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +12,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
 public class BackofficeControllerAdvice extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(value = {Exception.class})
@@ -18,6 +21,20 @@ public class BackofficeControllerAdvice extends ResponseEntityExceptionHandler {
                 new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR, request);
     }
 
+    @ExceptionHandler(value = {IllegalArgumentException.class})
+    protected ResponseEntity<Object> handleIllegalArgument(IllegalArgumentException ex, WebRequest request) {
+        return handleExceptionInternal(ex, errorResponse(ex.getMessage()),
+                new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(value = {ShuttingDownException.class})
+    protected ResponseEntity<Object> handleShuttingDown(ShuttingDownException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONNECTION, "close");
+        return handleExceptionInternal(ex, errorResponse(ex.getMessage()),
+                headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
     private BackofficeResponse errorResponse(String message){
         return BackofficeResponse.builder().message(message).build();
     }
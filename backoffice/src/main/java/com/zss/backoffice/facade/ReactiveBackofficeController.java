@@ -0,0 +1,214 @@
+package com.zss.backoffice.facade;
+
+import com.zss.backoffice.audit.BackofficeAuditLog;
+import com.zss.backoffice.config.AckMode;
+import com.zss.backoffice.config.AckModeKafkaSenders;
+import com.zss.backoffice.dedup.RegistrationDedupCache;
+import com.zss.backoffice.exception.ApplicationException;
+import com.zss.backoffice.metrics.BackofficeMetrics;
+import com.zss.backoffice.model.BackofficeResponse;
+import com.zss.backoffice.model.RegistrationReply;
+import com.zss.backoffice.model.RegistrationVerdict;
+import com.zss.backoffice.model.User;
+import com.zss.backoffice.model.UserKey;
+import com.zss.backoffice.view.RegisteredUserView;
+import com.zss.backoffice.view.UserChangelog;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.sender.SenderRecord;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+
+import static com.zss.backoffice.config.BackoficeConstants.ACK_MODE_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.EVENT_ID_HEADER;
+
+/**
+ * The back office endpoint and registration listener on WebFlux and Reactor Kafka, active when the
+ * "reactive" profile selects the reactive web application type.
+ */
+@RestController
+@RequestMapping(path = "${server.servlet.context-path:}")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveBackofficeController {
+
+    private final AckModeKafkaSenders kafkaSenders;
+
+    private final KafkaReceiver<String, User> registrationKafkaReceiver;
+
+    private final CountDownLatch countDownLatch;
+
+    private final RegistrationDedupCache dedupCache;
+
+    private final RegisteredUserView registeredUserView;
+
+    private final UserChangelog userChangelog;
+
+    private final BackofficeMetrics backofficeMetrics;
+
+    private final BackofficeAuditLog auditLog;
+
+    private Disposable registrationSubscription;
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
+    @Autowired
+    public ReactiveBackofficeController(AckModeKafkaSenders kafkaSenders,
+                                        KafkaReceiver<String, User> registrationKafkaReceiver,
+                                        CountDownLatch countDownLatch,
+                                        @Nullable RegistrationDedupCache dedupCache,
+                                        RegisteredUserView registeredUserView,
+                                        UserChangelog userChangelog,
+                                        BackofficeMetrics backofficeMetrics,
+                                        BackofficeAuditLog auditLog){
+        this.kafkaSenders = kafkaSenders;
+        this.registrationKafkaReceiver = registrationKafkaReceiver;
+        this.countDownLatch = countDownLatch;
+        this.dedupCache = dedupCache;
+        this.registeredUserView = registeredUserView;
+        this.userChangelog = userChangelog;
+        this.backofficeMetrics = backofficeMetrics;
+        this.auditLog = auditLog;
+    }
+
+    /**
+     * Same contract as the servlet endpoint, except that fire-and-forget still waits for the record to
+     * leave the producer so it counts against the in-flight limit.
+     */
+    @PostMapping(path = "/submit", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<BackofficeResponse>> userRegistration(@RequestBody Mono<User> body,
+            @RequestHeader(value = ACK_MODE_HEADER, required = false) String ackModeName){
+        AckMode ackMode = kafkaSenders.resolve(ackModeName);
+        HttpStatus status = ackMode.awaitsAcknowledgement() ? HttpStatus.CREATED : HttpStatus.ACCEPTED;
+        return body.flatMap(user -> {
+            auditLog.received(user);
+            return kafkaSenders.forMode(ackMode)
+                    .send(Mono.just(SenderRecord.create(new ProducerRecord<>(defaultTopic, UserKey.of(user), user), user)))
+                    .next()
+                    .map(result -> {
+                        auditLog.sent(user, result.recordMetadata().topic(), result.recordMetadata().partition(), result.recordMetadata().offset());
+                        return ResponseEntity.status(status).body(response("User Registration Updated"));
+                    })
+                    .doOnError(ex -> auditLog.failed("send", user, ex))
+                    .onErrorMap(ex -> new ApplicationException(String.format("Unable to send message to user registration=[{%s}]", BackofficeAuditLog.describe(user)), ex));
+        }).timeout(Duration.ofMillis(ackTimeoutMs),
+                Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response("User Registration Update Acknowledgement Timed Out"))));
+    }
+
+    @GetMapping(path = "/users/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> registeredUserById(@PathVariable("id") int id){
+        return registeredUser(registeredUserView.findById(id));
+    }
+
+    @GetMapping(path = "/users", params = "email", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> registeredUserByEmail(@RequestParam("email") String email){
+        return registeredUser(registeredUserView.findByEmail(email));
+    }
+
+    /**
+     * Subscribes once the application is ready, like the listener containers, so the topics have been
+     * created with their configured partitions before the first assignment.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeToRegistration(){
+        registrationSubscription = registrationKafkaReceiver.receive()
+                .subscribe(record -> {
+                    try {
+                        this.userBackOfficeListener(record);
+                    } catch (RuntimeException ex) {
+                        log.error("Failed to process message from User registration partition=[{}] offset=[{}]",
+                                record.partition(), record.offset(), ex);
+                    }
+                    record.receiverOffset().acknowledge();
+                }, ex -> log.error("User registration receiver stopped", ex));
+    }
+
+    @PreDestroy
+    public void unsubscribeFromRegistration(){
+        if (registrationSubscription != null) {
+            registrationSubscription.dispose();
+        }
+    }
+
+    @ExceptionHandler(value = {ApplicationException.class})
+    public ResponseEntity<BackofficeResponse> handleApplicationException(ApplicationException ex){
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response(ex.getMessage()));
+    }
+
+    @ExceptionHandler(value = {IllegalArgumentException.class})
+    public ResponseEntity<BackofficeResponse> handleIllegalArgument(IllegalArgumentException ex){
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response(ex.getMessage()));
+    }
+
+    private void userBackOfficeListener(ConsumerRecord<String, User> record){
+        long consumedAt = backofficeMetrics.recordConsumed(record);
+        User user = record.value();
+        Header eventId = record.headers().lastHeader(EVENT_ID_HEADER);
+        String key = dedupCache == null ? null : RegistrationDedupCache.keyOf(eventId == null ? null : eventId.value(), () -> user);
+        if (key != null && dedupCache.isDuplicate(key)) {
+            auditLog.duplicate(() -> user, record.topic());
+            return;
+        }
+        RegistrationVerdict verdict = !RegistrationReply.isRequested(record) ? RegistrationVerdict.ACCEPTED
+                : registeredUserView.isReady() ? registeredUserView.verdictFor(user) : RegistrationVerdict.UNAVAILABLE;
+        if (verdict == RegistrationVerdict.ACCEPTED) {
+            auditLog.consumed(user, record.topic());
+            this.countDownLatch.countDown(); //This for test purpose only have remove
+            userChangelog.record(user);
+        } else {
+            auditLog.verdict(user, verdict.getHeaderValue());
+        }
+        ProducerRecord<String, User> reply = RegistrationReply.to(record, RegisteredUserView.withoutSecrets(user), verdict);
+        if (reply != null) {
+            kafkaSenders.forMode(kafkaSenders.getDefaultMode())
+                    .send(Mono.just(SenderRecord.create(reply, user)))
+                    .subscribe(result -> { }, ex -> auditLog.failed("reply", user, ex));
+        }
+        backofficeMetrics.recordProcessed(record, consumedAt, verdict);
+        if (key != null && verdict != RegistrationVerdict.UNAVAILABLE) {
+            dedupCache.remember(key);
+        }
+    }
+
+    private ResponseEntity<?> registeredUser(Optional<User> user){
+        if (!registeredUserView.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response("Registered user view is being rebuilt"));
+        }
+        return user.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND).body(response("User is not registered")));
+    }
+
+    private BackofficeResponse response(String message){
+        return BackofficeResponse.builder().message(message).build();
+    }
+}
@@ -0,0 +1,134 @@
+package com.zss.backoffice.metrics;
+
+import com.zss.backoffice.config.AckMode;
+import com.zss.backoffice.model.RegistrationVerdict;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.header.Header;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.zss.backoffice.config.BackoficeConstants.RECEIVED_AT_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.SENT_AT_HEADER;
+
+/**
+ * Meters of the back office side of the pipeline. A registration is timed from the moment registration
+ * sent it to its consumption, from consumption to the end of processing, and from the HTTP request that
+ * carried it to the end of processing, using the timestamp headers registration stamps on each record.
+ * Times across hosts are only as good as their clocks, so negative spans are counted as zero.
+ */
+public class BackofficeMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+
+    public BackofficeMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the time from receiving an update over HTTP to its answer.
+     */
+    public void recordSubmitted(long receivedAtNanos, AckMode ackMode, HttpStatus status) {
+        this.timer("backoffice.submit.latency", "Time from receiving a user update to answering it",
+                "ack.mode", ackMode.getModeName(), "status", String.valueOf(status.value()))
+                .record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSent(RecordMetadata metadata) {
+        Counter.builder("backoffice.records.sent")
+                .description("User updates acknowledged by the broker")
+                .tag("topic", metadata.topic())
+                .tag("partition", String.valueOf(metadata.partition()))
+                .register(registry)
+                .increment();
+    }
+
+    public void recordSendFailure(String topic) {
+        Counter.builder("backoffice.send.failures")
+                .description("User updates the producer failed to send")
+                .tag("topic", topic)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Counts the record against its partition and times it since it was sent; returns the consume time to
+     * pass to {@link #recordProcessed}.
+     */
+    public long recordConsumed(ConsumerRecord<?, ?> record) {
+        Counter.builder("backoffice.records.consumed")
+                .description("Registrations consumed by the back office")
+                .tag("topic", record.topic())
+                .tag("partition", String.valueOf(record.partition()))
+                .register(registry)
+                .increment();
+        long sentAt = timestampOf(record.headers().lastHeader(SENT_AT_HEADER), record.timestamp());
+        this.timer("backoffice.registration.produce.to.consume", "Time from sending a registration to consuming it",
+                "topic", record.topic())
+                .record(Math.max(0, System.currentTimeMillis() - sentAt), TimeUnit.MILLISECONDS);
+        return System.nanoTime();
+    }
+
+    public void recordProcessed(ConsumerRecord<?, ?> record, long consumedAtNanos, RegistrationVerdict verdict) {
+        this.timer("backoffice.registration.consume.to.processed", "Time from consuming a registration to processing it",
+                "verdict", verdict.getHeaderValue())
+                .record(System.nanoTime() - consumedAtNanos, TimeUnit.NANOSECONDS);
+        long receivedAt = timestampOf(record.headers().lastHeader(RECEIVED_AT_HEADER), -1);
+        if (receivedAt >= 0) {
+            this.timer("backoffice.registration.end.to.end", "Time from the registration request to processing it",
+                    "verdict", verdict.getHeaderValue())
+                    .record(Math.max(0, System.currentTimeMillis() - receivedAt), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * The header value of an epoch millisecond timestamp.
+     */
+    public static byte[] timestamp(long epochMillis) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array();
+    }
+
+    /**
+     * The largest lag, in records, of any partition the container's consumers are assigned, as reported by
+     * the consumer's own fetch metrics; zero until the first fetch.
+     */
+    public static double maxRecordsLag(MessageListenerContainer container) {
+        double lag = 0;
+        for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                MetricName name = metric.getKey();
+                if ("records-lag-max".equals(name.name()) && !name.tags().containsKey("topic")) {
+                    Object value = metric.getValue().metricValue();
+                    if (value instanceof Double && !((Double) value).isNaN() && !((Double) value).isInfinite()) {
+                        lag = Math.max(lag, (Double) value);
+                    }
+                }
+            }
+        }
+        return lag;
+    }
+
+    private Timer timer(String name, String description, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static long timestampOf(Header header, long otherwise) {
+        return header == null || header.value().length != Long.BYTES ? otherwise : ByteBuffer.wrap(header.value()).getLong();
+    }
+}
@@ -0,0 +1,44 @@
+package com.zss.backoffice.model;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.zss.backoffice.config.BackoficeConstants.VERDICT_HEADER;
+
+/**
+ * Builds the reply to a registration sent in request-reply mode: the user goes back on the topic named by
+ * the request's reply topic header, with its correlation id and the verdict.
+ */
+public final class RegistrationReply {
+
+    private RegistrationReply(){}
+
+    /**
+     * Whether the sender waits for a reply to the request.
+     */
+    public static boolean isRequested(ConsumerRecord<?, ?> request) {
+        return request.headers().lastHeader(KafkaHeaders.REPLY_TOPIC) != null
+                && request.headers().lastHeader(KafkaHeaders.CORRELATION_ID) != null;
+    }
+
+    /**
+     * The reply to the request, or null when the sender is not waiting for one.
+     */
+    public static ProducerRecord<String, User> to(ConsumerRecord<?, ?> request, User user, RegistrationVerdict verdict) {
+        if (!isRequested(request)) {
+            return null;
+        }
+        Header replyTopic = request.headers().lastHeader(KafkaHeaders.REPLY_TOPIC);
+        Header correlationId = request.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+        ProducerRecord<String, User> reply = new ProducerRecord<>(new String(replyTopic.value(), StandardCharsets.UTF_8),
+                UserKey.of(user), user);
+        reply.headers()
+                .add(KafkaHeaders.CORRELATION_ID, correlationId.value())
+                .add(VERDICT_HEADER, verdict.getHeaderValue().getBytes(StandardCharsets.UTF_8));
+        return reply;
+    }
+}
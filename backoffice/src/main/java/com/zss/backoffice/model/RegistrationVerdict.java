@@ -0,0 +1,24 @@
+package com.zss.backoffice.model;
+
+/**
+ * The back office decision on a registration, sent back in the verdict header of a reply.
+ */
+public enum RegistrationVerdict {
+
+    ACCEPTED("accepted"),
+    ALREADY_REGISTERED("already-registered"),
+    /**
+     * Refused while the registered user view is rebuilt; the registration is not processed and may be sent again.
+     */
+    UNAVAILABLE("unavailable");
+
+    private final String headerValue;
+
+    RegistrationVerdict(String headerValue) {
+        this.headerValue = headerValue;
+    }
+
+    public String getHeaderValue() {
+        return headerValue;
+    }
+}
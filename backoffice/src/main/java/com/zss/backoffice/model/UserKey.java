@@ -0,0 +1,24 @@
+package com.zss.backoffice.model;
+
+import java.util.Locale;
+
+/**
+ * Derives the Kafka record key for a {@link User} so that every update for the same user
+ * lands on the same partition and is consumed in order.
+ */
+public final class UserKey {
+
+    private UserKey(){}
+
+    /**
+     * Returns the normalized email address, which is known from the first registration onwards,
+     * falling back to the user id. A user with neither gets a null key and is spread round-robin.
+     */
+    public static String of(User user) {
+        String email = user.getEmail();
+        if (email != null && !email.trim().isEmpty()) {
+            return email.trim().toLowerCase(Locale.ROOT);
+        }
+        return user.getId() > 0 ? String.valueOf(user.getId()) : null;
+    }
+}
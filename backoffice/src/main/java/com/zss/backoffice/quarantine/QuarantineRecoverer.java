@@ -0,0 +1,78 @@
+package com.zss.backoffice.quarantine;
+
+import com.zss.backoffice.exception.UndecodableUserException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import static com.zss.backoffice.config.BackoficeConstants.QUARANTINE_TOPIC_SUFFIX;
+
+/**
+ * Moves a record whose user cannot be decoded to the quarantine topic of its topic, unchanged and with the
+ * "kafka_dlt-" headers saying where it came from and why. Such a record would fail the same way on every
+ * retry, so it skips the retry tiers; any other failure is left to the recoverer it is combined with.
+ * The publish is awaited, so a record is only committed past once it is quarantined.
+ */
+@Slf4j
+public class QuarantineRecoverer extends DeadLetterPublishingRecoverer {
+
+    /**
+     * What becomes of a failed record when nothing else recovers it: logged and skipped.
+     */
+    public static final BiConsumer<ConsumerRecord<?, ?>, Exception> LOG_AND_SKIP = (record, ex) ->
+            log.error("Skipped message from {} partition=[{}] offset=[{}] that failed processing",
+                    record.topic(), record.partition(), record.offset(), ex);
+
+    private final long sendTimeoutMs;
+
+    public QuarantineRecoverer(KafkaTemplate<?, ?> kafkaTemplate, long sendTimeoutMs) {
+        super(kafkaTemplate, (record, ex) -> new TopicPartition(quarantineTopic(record.topic()), -1));
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    public static String quarantineTopic(String topic) {
+        return topic + QUARANTINE_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Quarantines records that cannot be decoded and hands every other failure to the given recoverer.
+     */
+    public BiConsumer<ConsumerRecord<?, ?>, Exception> orElse(BiConsumer<ConsumerRecord<?, ?>, Exception> otherwise) {
+        return (record, ex) -> {
+            if (UndecodableUserException.isCauseOf(ex)) {
+                this.accept(record, ex);
+            } else {
+                otherwise.accept(record, ex);
+            }
+        };
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        log.warn("Quarantining message from {} partition=[{}] offset=[{}]: {}", record.topic(), record.partition(),
+                record.offset(), exception.getMessage());
+        super.accept(record, exception);
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> kafkaTemplate) {
+        try {
+            kafkaTemplate.send(outRecord).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while quarantining to " + outRecord.topic(), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new KafkaException("Unable to quarantine to " + outRecord.topic(), ex);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.zss.backoffice.retry;
+
+import com.zss.backoffice.exception.ApplicationException;
+import com.zss.backoffice.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Sends dead letters back to the topic they were first consumed from, without their "kafka_dlt-" headers,
+ * so they go through the retry tiers again. Progress is kept as the committed offsets of a consumer group
+ * of its own: a replay starts after the last dead letter replayed and commits once every record it sent
+ * has been acknowledged, so a failed replay is repeated by the next one.
+ */
+@Slf4j
+public class DeadLetterReplayer {
+
+    private static final String DEAD_LETTER_HEADER_PREFIX = KafkaHeaders.PREFIX + "dlt-";
+
+    private final Supplier<Consumer<String, User>> consumerFactory;
+
+    private final KafkaTemplate<String, User> kafkaTemplate;
+
+    private final RetryTopics retryTopics;
+
+    private final long pollTimeoutMs;
+
+    private final long sendTimeoutMs;
+
+    public DeadLetterReplayer(Supplier<Consumer<String, User>> consumerFactory, KafkaTemplate<String, User> kafkaTemplate,
+                              RetryTopics retryTopics, long pollTimeoutMs, long sendTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.retryTopics = retryTopics;
+        this.pollTimeoutMs = pollTimeoutMs;
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    /**
+     * Replays at most the given number of dead letters and returns how many were replayed.
+     */
+    public synchronized int replay(int maxRecords) {
+        try (Consumer<String, User> consumer = consumerFactory.get()) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(retryTopics.getDeadLetterTopic());
+            if (partitionInfos == null || partitionInfos.isEmpty()) {
+                return 0;
+            }
+            List<TopicPartition> partitions = partitionInfos.stream()
+                    .map(info -> new TopicPartition(info.topic(), info.partition()))
+                    .collect(Collectors.toList());
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> endOffsets = consumer.endOffsets(partitions);
+            Map<TopicPartition, OffsetAndMetadata> replayed = new HashMap<>();
+            List<ListenableFuture<SendResult<String, User>>> sends = new ArrayList<>();
+            while (sends.size() < maxRecords && !caughtUp(consumer, endOffsets)) {
+                for (ConsumerRecord<String, User> record : consumer.poll(Duration.ofMillis(pollTimeoutMs))) {
+                    if (sends.size() == maxRecords) {
+                        break;
+                    }
+                    sends.add(kafkaTemplate.send(replayRecord(record)));
+                    replayed.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+                }
+            }
+            for (ListenableFuture<SendResult<String, User>> send : sends) {
+                this.await(send);
+            }
+            if (!replayed.isEmpty()) {
+                consumer.commitSync(replayed);
+            }
+            log.info("Replayed {} registrations from {}", sends.size(), retryTopics.getDeadLetterTopic());
+            return sends.size();
+        }
+    }
+
+    private ProducerRecord<String, User> replayRecord(ConsumerRecord<String, User> deadLetter) {
+        RecordHeaders headers = new RecordHeaders();
+        String topic = retryTopics.getTopic();
+        boolean originalTopicFound = false;
+        for (Header header : deadLetter.headers()) {
+            if (!header.key().startsWith(DEAD_LETTER_HEADER_PREFIX)) {
+                headers.add(header);
+            } else if (!originalTopicFound && KafkaHeaders.DLT_ORIGINAL_TOPIC.equals(header.key())) {
+                topic = new String(header.value(), StandardCharsets.UTF_8);
+                originalTopicFound = true;
+            }
+        }
+        return new ProducerRecord<>(topic, null, deadLetter.key(), deadLetter.value(), headers);
+    }
+
+    private boolean caughtUp(Consumer<String, User> consumer, Map<TopicPartition, Long> endOffsets) {
+        return endOffsets.entrySet().stream().allMatch(end -> consumer.position(end.getKey()) >= end.getValue());
+    }
+
+    private void await(ListenableFuture<SendResult<String, User>> send) {
+        try {
+            send.get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ApplicationException("Interrupted while replaying dead letters", ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new ApplicationException("Unable to replay dead letters from " + retryTopics.getDeadLetterTopic(), ex);
+        }
+    }
+}
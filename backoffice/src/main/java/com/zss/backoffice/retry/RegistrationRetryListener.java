@@ -0,0 +1,66 @@
+package com.zss.backoffice.retry;
+
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.exception.RetryNotDueException;
+import com.zss.backoffice.facade.BackofficeController;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.event.ListenerContainerIdleEvent;
+import org.springframework.stereotype.Component;
+
+import static com.zss.backoffice.config.BackoficeConstants.RETRY_GROUP_ID;
+
+/**
+ * Consumes every retry tier of the registration topic and hands a record back to the back office
+ * listener once its tier delay has elapsed. A failure moves it on to the next tier.
+ */
+@Component
+@ConditionalOnProperty(name = "kafka.listener.retry.enabled", havingValue = "true")
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
+@Slf4j
+public class RegistrationRetryListener {
+
+    public static final String RETRY_LISTENER_ID = "backOfficeRetryListener";
+
+    private final BackofficeController backofficeController;
+
+    private final RetryTopics retryTopics;
+
+    private final RetryTierErrorHandler retryTierErrorHandler;
+
+    @Autowired
+    public RegistrationRetryListener(BackofficeController backofficeController, RetryTopics retryTopics,
+                                     RetryTierErrorHandler retryTierErrorHandler) {
+        this.backofficeController = backofficeController;
+        this.retryTopics = retryTopics;
+        this.retryTierErrorHandler = retryTierErrorHandler;
+    }
+
+    @KafkaListener(id = RETRY_LISTENER_ID, topics = "#{retryTopics.retryTopics}", groupId = RETRY_GROUP_ID,
+            containerFactory = "backOfficeRetryKafkaListenerContainerFactory")
+    public void userBackOfficeRetryListener(ConsumerRecord<String, LazyUser> record, Consumer<?, ?> consumer) {
+        retryTierErrorHandler.resumeDue(consumer);
+        long dueAt = retryTopics.dueAt(record);
+        if (dueAt > System.currentTimeMillis()) {
+            throw new RetryNotDueException(dueAt);
+        }
+        log.info("Retrying message from {} partition=[{}] offset=[{}]", record.topic(), record.partition(), record.offset());
+        backofficeController.userBackOfficeListener(record, consumer);
+    }
+
+    /**
+     * Published on the consumer thread while every partition it reads is paused or empty.
+     */
+    @EventListener
+    public void onRetryListenerIdle(ListenerContainerIdleEvent event) {
+        if (event.getListenerId().startsWith(RETRY_LISTENER_ID)) {
+            retryTierErrorHandler.resumeDue(event.getConsumer());
+        }
+    }
+}
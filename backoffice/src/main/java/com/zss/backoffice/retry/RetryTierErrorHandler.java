@@ -0,0 +1,85 @@
+package com.zss.backoffice.retry;
+
+import com.zss.backoffice.exception.RetryNotDueException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.listener.ContainerAwareErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
+import org.springframework.kafka.support.SeekUtils;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+/**
+ * Error handler of the retry tier listener. A record that is not due yet is sought back and its partition
+ * paused until it is, so the consumer thread keeps serving the other partitions and tiers instead of
+ * sleeping; {@link #resumeDue(Consumer)} is called from that same thread to resume the partitions whose
+ * head record has become due. A record that fails again goes straight to the next tier.
+ */
+@Slf4j
+public class RetryTierErrorHandler implements ContainerAwareErrorHandler {
+
+    private static final LogAccessor LOGGER = new LogAccessor(RetryTierErrorHandler.class);
+
+    private final SeekToCurrentErrorHandler failureHandler;
+
+    private final Map<TopicPartition, Long> pausedUntil = new ConcurrentHashMap<>();
+
+    public RetryTierErrorHandler(BiConsumer<ConsumerRecord<?, ?>, Exception> recoverer) {
+        this.failureHandler = new SeekToCurrentErrorHandler(recoverer, new FixedBackOff(0L, 0L));
+    }
+
+    @Override
+    public void handle(Exception thrownException, List<ConsumerRecord<?, ?>> records, Consumer<?, ?> consumer,
+                       MessageListenerContainer container) {
+        RetryNotDueException notDue = notDue(thrownException);
+        if (notDue == null) {
+            failureHandler.handle(thrownException, records, consumer, container);
+            return;
+        }
+        ConsumerRecord<?, ?> head = records.get(0);
+        TopicPartition partition = new TopicPartition(head.topic(), head.partition());
+        SeekUtils.doSeeks(records, consumer, thrownException, false, (record, ex) -> false, LOGGER);
+        pausedUntil.put(partition, notDue.getDueAt());
+        consumer.pause(Collections.singleton(partition));
+        log.debug("Paused retry partition {} until {}", partition, notDue.getDueAt());
+    }
+
+    /**
+     * Neither a record sought back nor one moved to the next tier by the failure handler is committed here;
+     * the next record processed on the partition commits past the latter.
+     */
+    @Override
+    public boolean isAckAfterHandle() {
+        return false;
+    }
+
+    public void resumeDue(Consumer<?, ?> consumer) {
+        long now = System.currentTimeMillis();
+        List<TopicPartition> due = consumer.paused().stream()
+                .filter(partition -> pausedUntil.getOrDefault(partition, 0L) <= now)
+                .collect(Collectors.toList());
+        if (!due.isEmpty()) {
+            due.forEach(pausedUntil::remove);
+            consumer.resume(due);
+        }
+    }
+
+    private static RetryNotDueException notDue(Throwable thrown) {
+        for (Throwable cause = thrown; cause != null; cause = cause.getCause()) {
+            if (cause instanceof RetryNotDueException) {
+                return (RetryNotDueException) cause;
+            }
+        }
+        return null;
+    }
+}
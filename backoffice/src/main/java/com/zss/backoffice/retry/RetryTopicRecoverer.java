@@ -0,0 +1,40 @@
+package com.zss.backoffice.retry;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Moves a failed record to the next retry tier, or the dead letter topic after the last one, with the
+ * original topic, partition, offset and timestamp and the exception in the standard "kafka_dlt-" headers.
+ * Every hop appends its own set, so the first of each header is the record as first consumed and the last
+ * the most recent failure. The publish is awaited: when it fails the error handler seeks back and the
+ * record is tried again rather than lost.
+ */
+public class RetryTopicRecoverer extends DeadLetterPublishingRecoverer {
+
+    private final long sendTimeoutMs;
+
+    public RetryTopicRecoverer(KafkaTemplate<?, ?> kafkaTemplate, RetryTopics retryTopics, long sendTimeoutMs) {
+        super(kafkaTemplate, retryTopics::destination);
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> kafkaTemplate) {
+        try {
+            kafkaTemplate.send(outRecord).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while publishing to " + outRecord.topic(), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new KafkaException("Unable to publish to " + outRecord.topic(), ex);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.zss.backoffice.retry;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static com.zss.backoffice.config.BackoficeConstants.DEAD_LETTER_TOPIC_SUFFIX;
+import static com.zss.backoffice.config.BackoficeConstants.RETRY_TOPIC_SUFFIX;
+
+/**
+ * The retry tiers behind a topic: a record failing on the topic moves to "topic-retry-0", from the last
+ * retry tier to "topic-dlt", and in between to the next tier. A record in tier n is not processed before
+ * its timestamp plus the n-th delay; since a tier holds records in the order they failed, only the
+ * record at the head of each partition has to wait.
+ */
+public class RetryTopics {
+
+    private final String topic;
+
+    private final List<Long> delaysMs;
+
+    private final List<String> retryTopics;
+
+    public RetryTopics(String topic, List<Long> delaysMs) {
+        if (delaysMs.isEmpty()) {
+            throw new IllegalArgumentException("At least one retry delay is required");
+        }
+        this.topic = topic;
+        this.delaysMs = Collections.unmodifiableList(new ArrayList<>(delaysMs));
+        List<String> names = new ArrayList<>();
+        for (int tier = 0; tier < delaysMs.size(); tier++) {
+            names.add(topic + RETRY_TOPIC_SUFFIX + tier);
+        }
+        this.retryTopics = Collections.unmodifiableList(names);
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public List<String> getRetryTopics() {
+        return retryTopics;
+    }
+
+    public String getDeadLetterTopic() {
+        return topic + DEAD_LETTER_TOPIC_SUFFIX;
+    }
+
+    /**
+     * Where a record that failed on the given topic goes next.
+     */
+    public String nextTopic(String failedTopic) {
+        if (topic.equals(failedTopic)) {
+            return retryTopics.get(0);
+        }
+        int tier = retryTopics.indexOf(failedTopic);
+        if (tier < 0) {
+            throw new IllegalArgumentException("Not a retry tier of " + topic + ": " + failedTopic);
+        }
+        return tier + 1 < retryTopics.size() ? retryTopics.get(tier + 1) : getDeadLetterTopic();
+    }
+
+    /**
+     * The time before which a record read from a retry tier must not be processed.
+     */
+    public long dueAt(ConsumerRecord<?, ?> record) {
+        int tier = retryTopics.indexOf(record.topic());
+        return tier < 0 ? record.timestamp() : record.timestamp() + delaysMs.get(tier);
+    }
+
+    /**
+     * Destination resolver for the recoverer; the partition is left to the key so a tier needs no more
+     * partitions than it has.
+     */
+    public TopicPartition destination(ConsumerRecord<?, ?> record, Exception ex) {
+        return new TopicPartition(nextTopic(record.topic()), -1);
+    }
+}
@@ -0,0 +1,64 @@
+package com.zss.backoffice.scaling;
+
+/**
+ * Decides how many consumers a listener should run. The group's backlog is divided by the rate at which
+ * one consumer is currently getting through it, giving the consumers needed to drain the backlog within
+ * {@code targetDrainMs}. Scaling up goes straight to that number; scaling down releases one consumer at a
+ * time. Every change rebalances the group, so after one nothing changes for {@code cooldownMs}.
+ */
+public class ListenerConcurrencyPolicy {
+
+    private final int minConcurrency;
+
+    private final int maxConcurrency;
+
+    private final long targetDrainMs;
+
+    private final long cooldownMs;
+
+    public ListenerConcurrencyPolicy(int minConcurrency, int maxConcurrency, long targetDrainMs, long cooldownMs) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException(String.format(
+                    "Listener concurrency bounds must satisfy 1 <= min <= max, got min [%d] and max [%d]", minConcurrency, maxConcurrency));
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.targetDrainMs = targetDrainMs;
+        this.cooldownMs = cooldownMs;
+    }
+
+    /**
+     * The concurrency the listener should run with. A concurrency outside the bounds is corrected at once.
+     *
+     * @param partitions the partition count of the topic; consumers beyond it would sit idle
+     * @param recordsPerSecond records the group committed per second since the previous sample, NaN when
+     * there is no previous sample yet
+     */
+    public int decide(int current, int partitions, long lag, double recordsPerSecond, long sinceLastChangeMs) {
+        int ceiling = Math.max(minConcurrency, partitions > 0 ? Math.min(maxConcurrency, partitions) : maxConcurrency);
+        if (current < minConcurrency || current > ceiling) {
+            return Math.max(minConcurrency, Math.min(ceiling, current));
+        }
+        if (sinceLastChangeMs < cooldownMs || Double.isNaN(recordsPerSecond)) {
+            return current;
+        }
+        long wanted;
+        if (lag <= 0) {
+            wanted = minConcurrency;
+        } else if (recordsPerSecond <= 0) {
+            wanted = current + 1L;
+        } else {
+            wanted = (long) Math.ceil(lag * 1000.0 * current / (recordsPerSecond * targetDrainMs));
+        }
+        wanted = Math.max(minConcurrency, Math.min(ceiling, wanted));
+        return wanted < current ? current - 1 : (int) wanted;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
@@ -0,0 +1,43 @@
+package com.zss.backoffice.shutdown;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+
+/**
+ * Keeps {@link InFlightSends} up to date for the producer it is installed on. Kafka instantiates interceptors
+ * by class name, so the shared counter reaches it through the producer configuration.
+ */
+public class InFlightSendInterceptor implements ProducerInterceptor<Object, Object> {
+
+    public static final String IN_FLIGHT_SENDS_CONFIG = "backoffice.in-flight.sends";
+
+    private InFlightSends inFlightSends;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(IN_FLIGHT_SENDS_CONFIG);
+        inFlightSends = configured instanceof InFlightSends ? (InFlightSends) configured : null;
+    }
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        if (inFlightSends != null) {
+            inFlightSends.sent();
+        }
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+        if (inFlightSends != null) {
+            inFlightSends.completed();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
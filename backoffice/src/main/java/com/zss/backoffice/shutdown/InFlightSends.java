@@ -0,0 +1,48 @@
+package com.zss.backoffice.shutdown;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * How many back office records are on their way to the broker: counted up when a producer takes one and
+ * down when its send completes either way. Fed by {@link InFlightSendInterceptor}.
+ */
+public class InFlightSends {
+
+    private static final long POLL_INTERVAL_MS = 10;
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final LongAdder completed = new LongAdder();
+
+    void sent() {
+        inFlight.incrementAndGet();
+    }
+
+    void completed() {
+        inFlight.decrementAndGet();
+        completed.increment();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Polls every {@value #POLL_INTERVAL_MS} ms for the count to reach zero, giving up at the deadline.
+     *
+     * @return the sends left in flight
+     */
+    public long awaitIdle(long deadlineMs) throws InterruptedException {
+        long remaining = inFlight.get();
+        while (remaining > 0 && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(POLL_INTERVAL_MS);
+            remaining = inFlight.get();
+        }
+        return remaining;
+    }
+}
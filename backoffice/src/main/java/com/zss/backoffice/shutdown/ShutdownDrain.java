@@ -0,0 +1,163 @@
+package com.zss.backoffice.shutdown;
+
+import com.zss.backoffice.exception.ShuttingDownException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * The back office shutdown sequence. It first refuses /submit. The registration listeners then finish
+ * the batch in hand, committing its offsets synchronously or with their transaction. Last, the replies,
+ * retries and changelog entries those listeners produced get until the deadline to be acknowledged.
+ * Listeners go first because what they process is what still has to be sent. Each stage waits at most
+ * {@code timeoutMs}.
+ */
+@Slf4j
+public class ShutdownDrain implements SmartLifecycle {
+
+    /**
+     * Stopped once the lifecycles of the default phase, such as the listener autoscaler, have stopped and
+     * before the endpoint registry stops what is left of the listener containers.
+     */
+    public static final int PHASE = Integer.MAX_VALUE - 1;
+
+    private final InFlightSends inFlightSends;
+
+    private final KafkaListenerEndpointRegistry listenerEndpointRegistry;
+
+    private final long timeoutMs;
+
+    private final LongAdder drainedSends = new LongAdder();
+
+    private final LongAdder abandonedSends = new LongAdder();
+
+    private final LongAdder stoppedListeners = new LongAdder();
+
+    private final LongAdder abandonedListeners = new LongAdder();
+
+    private volatile boolean running;
+
+    private volatile boolean draining;
+
+    public ShutdownDrain(InFlightSends inFlightSends, KafkaListenerEndpointRegistry listenerEndpointRegistry, long timeoutMs) {
+        this.inFlightSends = inFlightSends;
+        this.listenerEndpointRegistry = listenerEndpointRegistry;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @throws ShuttingDownException while draining
+     */
+    public void admit() {
+        if (draining) {
+            throw new ShuttingDownException("Back office is shutting down, submit to another instance");
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public long inFlightSends() {
+        return inFlightSends.inFlight();
+    }
+
+    public long drainedSendCount() {
+        return drainedSends.sum();
+    }
+
+    public long abandonedSendCount() {
+        return abandonedSends.sum();
+    }
+
+    public long stoppedListenerCount() {
+        return stoppedListeners.sum();
+    }
+
+    public long abandonedListenerCount() {
+        return abandonedListeners.sum();
+    }
+
+    @Override
+    public void start() {
+        draining = false;
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.stop(() -> { });
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        try {
+            this.drain();
+        } finally {
+            running = false;
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        draining = true;
+        long started = System.currentTimeMillis();
+        long completedBefore = inFlightSends.completedCount();
+        log.info("Draining before shutdown: refusing updates and stopping the registration listeners");
+        this.stopListeners();
+        long abandoned = inFlightSends.inFlight();
+        try {
+            abandoned = inFlightSends.awaitIdle(System.currentTimeMillis() + timeoutMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        drainedSends.add(inFlightSends.completedCount() - completedBefore);
+        abandonedSends.add(abandoned);
+        if (abandoned > 0) {
+            log.warn("{} sends were still in flight {} ms into the drain and are abandoned", abandoned, timeoutMs);
+        }
+        log.info("Drain took {} ms: {} listeners stopped, {} abandoned; {} sends acknowledged, {} abandoned",
+                System.currentTimeMillis() - started, stoppedListeners.sum(), abandonedListeners.sum(),
+                drainedSends.sum(), abandonedSends.sum());
+    }
+
+    /**
+     * Asks every running container to stop at once and waits for them together; a container reports it has
+     * stopped only after its consumer has committed what it processed and closed. Stopping is only seen
+     * between polls, so the deadline has to outlast the container poll timeout.
+     */
+    private void stopListeners() {
+        List<MessageListenerContainer> containers = listenerEndpointRegistry.getListenerContainers().stream()
+                .filter(MessageListenerContainer::isRunning)
+                .collect(Collectors.toList());
+        CountDownLatch stopped = new CountDownLatch(containers.size());
+        containers.forEach(container -> container.stop(stopped::countDown));
+        try {
+            stopped.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        stoppedListeners.add(containers.size() - stopped.getCount());
+        abandonedListeners.add(stopped.getCount());
+        if (stopped.getCount() > 0) {
+            log.warn("{} listener containers were still running {} ms into the drain", stopped.getCount(), timeoutMs);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.codec.UserBinaryCodec;
+import com.zss.backoffice.model.RegistrationVerdict;
+import com.zss.backoffice.model.User;
+import com.zss.backoffice.model.UserKey;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process view of every registered user, indexed by id and by normalized email. It is written by the
+ * {@link UserChangelog} as registrations are accepted and by the {@link UserChangelogReader}, one changelog
+ * record at a time, and read lock free by the query endpoints. A user is identified by its id, so a user
+ * re-keyed under a new email replaces its old row.
+ */
+public class RegisteredUserView {
+
+    private final Map<String, User> byKey = new ConcurrentHashMap<>();
+
+    private final Map<Integer, String> keyById = new ConcurrentHashMap<>();
+
+    private final Map<String, User> byEmail = new ConcurrentHashMap<>();
+
+    private volatile boolean ready;
+
+    /**
+     * A copy of the user without its passwords, which neither the view nor the changelog keeps.
+     */
+    public static User withoutSecrets(User user) {
+        return User.builder()
+                .id(user.getId())
+                .title(user.getTitle())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .telephone(user.getTelephone())
+                .mobileNumber(user.getMobileNumber())
+                .customerType(user.getCustomerType())
+                .drugLicenseNo(user.getDrugLicenseNo())
+                .receiveMarketingMails(user.isReceiveMarketingMails())
+                .termsAndConditions(user.isTermsAndConditions())
+                .addresses(user.getAddresses())
+                .build();
+    }
+
+    /**
+     * Applies one changelog record; a null user is a tombstone.
+     */
+    public synchronized void apply(String key, User user) {
+        this.unindex(key, byKey.remove(key));
+        if (user == null) {
+            return;
+        }
+        String superseded = user.getId() > 0 ? keyById.get(user.getId()) : null;
+        if (superseded != null) {
+            this.unindex(superseded, byKey.remove(superseded));
+        }
+        byKey.put(key, user);
+        if (user.getId() > 0) {
+            keyById.put(user.getId(), key);
+        }
+        String email = normalizedEmail(user);
+        if (email != null) {
+            byEmail.put(email, user);
+        }
+    }
+
+    public Optional<User> findById(int id) {
+        String key = keyById.get(id);
+        return Optional.ofNullable(key == null ? null : byKey.get(key));
+    }
+
+    public Optional<User> findByEmail(String email) {
+        String normalized = email == null ? null : normalizedEmail(User.builder().email(email).build());
+        return Optional.ofNullable(normalized == null ? null : byEmail.get(normalized));
+    }
+
+    /**
+     * Rejects a registration whose email already belongs to a different user. A registration seen again, on
+     * redelivery, retry or replay, is the same user and accepted.
+     */
+    public RegistrationVerdict verdictFor(User user) {
+        return this.findByEmail(user.getEmail())
+                .filter(existing -> !sameUser(existing, user))
+                .map(existing -> RegistrationVerdict.ALREADY_REGISTERED)
+                .orElse(RegistrationVerdict.ACCEPTED);
+    }
+
+    /**
+     * Users with ids are told apart by them; when either has none, by everything but the passwords.
+     */
+    private static boolean sameUser(User existing, User user) {
+        if (existing.getId() > 0 && user.getId() > 0) {
+            return existing.getId() == user.getId();
+        }
+        return Arrays.equals(UserBinaryCodec.encode(withoutSecrets(existing)), UserBinaryCodec.encode(withoutSecrets(user)));
+    }
+
+    public int size() {
+        return byKey.size();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    void markReady() {
+        ready = true;
+    }
+
+    private void unindex(String key, User previous) {
+        if (previous == null) {
+            return;
+        }
+        keyById.remove(previous.getId(), key);
+        String email = normalizedEmail(previous);
+        if (email != null) {
+            byEmail.remove(email, previous);
+        }
+    }
+
+    private static String normalizedEmail(User user) {
+        String email = user.getEmail();
+        return email == null || email.trim().isEmpty() ? null : UserKey.of(user);
+    }
+}
@@ -0,0 +1,53 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.audit.BackofficeAuditLog;
+import com.zss.backoffice.model.User;
+import com.zss.backoffice.model.UserKey;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_CHANGELOG_TOPIC;
+
+/**
+ * Publishes processed registrations to the compacted changelog the {@link RegisteredUserView} is built
+ * from, keyed like the registration topic so compaction keeps the latest state of each user. The user is
+ * applied to this instance's view at once as well: registrations with the same email share a partition,
+ * so the next one is checked against it without waiting for the changelog to come back.
+ */
+@Slf4j
+public class UserChangelog {
+
+    private final KafkaTemplate<String, User> kafkaTemplate;
+
+    private final RegisteredUserView registeredUserView;
+
+    public UserChangelog(KafkaTemplate<String, User> kafkaTemplate, RegisteredUserView registeredUserView) {
+        this.kafkaTemplate = kafkaTemplate;
+        this.registeredUserView = registeredUserView;
+    }
+
+    public void record(User user) {
+        this.record(user, kafkaTemplate);
+    }
+
+    /**
+     * Publishes through the given template, so the transactional listener writes the changelog in its transaction.
+     * A user the view knew under another key also gets a tombstone for that key. A transaction that aborts
+     * leaves the user in the view; its redelivery is the same registration and accepted again.
+     */
+    public void record(User user, KafkaTemplate<String, User> template) {
+        String key = UserKey.of(user);
+        if (key == null) {
+            log.warn("User without email or id is not added to the user changelog [{}]", BackofficeAuditLog.describe(user));
+            return;
+        }
+        User registered = RegisteredUserView.withoutSecrets(user);
+        template.send(USER_CHANGELOG_TOPIC, key, registered)
+                .addCallback(result -> { }, ex -> log.error("Unable to publish user changelog record for key=[{}]", key, ex));
+        registeredUserView.findById(user.getId())
+                .map(UserKey::of)
+                .filter(previousKey -> user.getId() > 0 && !previousKey.equals(key))
+                .ifPresent(previousKey -> template.send(USER_CHANGELOG_TOPIC, previousKey, null));
+        registeredUserView.apply(key, registered);
+    }
+}
@@ -0,0 +1,169 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Reads every partition of the user changelog into the {@link RegisteredUserView}. On start it replays
+ * the changelog from the beginning and marks the view ready once it has caught up with the end offsets
+ * seen at startup, then keeps following new records. No offsets are committed: every instance holds the
+ * whole view and rebuilds it on each start. Until the changelog exists as a compacted topic, which may be
+ * after this application started when topic creation is deferred, the reader checks again every poll
+ * timeout; a failed poll is retried the same way instead of leaving the view stale.
+ */
+@Slf4j
+public class UserChangelogReader implements SmartLifecycle {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final Supplier<Consumer<String, User>> consumerFactory;
+
+    private final Supplier<AdminClient> adminClientFactory;
+
+    private final String topic;
+
+    private final RegisteredUserView registeredUserView;
+
+    private volatile Consumer<String, User> consumer;
+
+    private volatile Thread worker;
+
+    private volatile boolean running;
+
+    public UserChangelogReader(Supplier<Consumer<String, User>> consumerFactory, Supplier<AdminClient> adminClientFactory,
+                               String topic, RegisteredUserView registeredUserView) {
+        this.consumerFactory = consumerFactory;
+        this.adminClientFactory = adminClientFactory;
+        this.topic = topic;
+        this.registeredUserView = registeredUserView;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = consumerFactory.get();
+        worker = new Thread(this::read, "user-changelog-reader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            consumer.wakeup();
+            try {
+                current.join(POLL_TIMEOUT.toMillis() * 4);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        worker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void read() {
+        long started = System.nanoTime();
+        Map<TopicPartition, Long> rebuildTo = null;
+        try (Consumer<String, User> changelog = consumer; AdminClient adminClient = adminClientFactory.get()) {
+            while (running) {
+                try {
+                    if (rebuildTo == null) {
+                        List<TopicPartition> partitions = this.compactedPartitions(changelog, adminClient);
+                        if (partitions.isEmpty()) {
+                            TimeUnit.MILLISECONDS.sleep(POLL_TIMEOUT.toMillis());
+                            continue;
+                        }
+                        changelog.assign(partitions);
+                        changelog.seekToBeginning(partitions);
+                        rebuildTo = changelog.endOffsets(partitions);
+                    }
+                    for (ConsumerRecord<String, User> record : changelog.poll(POLL_TIMEOUT)) {
+                        if (record.key() != null) {
+                            registeredUserView.apply(record.key(), record.value());
+                        }
+                    }
+                    if (!registeredUserView.isReady() && caughtUp(changelog, rebuildTo)) {
+                        registeredUserView.markReady();
+                        log.info("Registered user view rebuilt from [{}] with [{}] users in [{}] ms", topic,
+                                registeredUserView.size(), Duration.ofNanos(System.nanoTime() - started).toMillis());
+                    }
+                } catch (WakeupException ex) {
+                    // stopping, or woken for no reason: the loop condition decides
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception ex) {
+                    log.warn("Unable to read the user changelog [{}], retrying", topic, ex);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(POLL_TIMEOUT.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The changelog's partitions, or none while the topic does not exist or is not compacted: a changelog
+     * that is not compacted loses users to retention, so the view is not built from it.
+     */
+    private List<TopicPartition> compactedPartitions(Consumer<String, User> changelog, AdminClient adminClient) throws Exception {
+        List<PartitionInfo> partitionInfos = changelog.partitionsFor(topic, POLL_TIMEOUT);
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            log.debug("User changelog [{}] does not exist yet", topic);
+            return Collections.emptyList();
+        }
+        ConfigResource resource = new ConfigResource(ConfigResource.Type.TOPIC, topic);
+        Config config = adminClient.describeConfigs(Collections.singleton(resource)).all()
+                .get(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS).get(resource);
+        ConfigEntry cleanupPolicy = config == null ? null : config.get(TopicConfig.CLEANUP_POLICY_CONFIG);
+        if (cleanupPolicy == null || cleanupPolicy.value() == null
+                || !cleanupPolicy.value().contains(TopicConfig.CLEANUP_POLICY_COMPACT)) {
+            log.warn("User changelog [{}] has cleanup policy [{}] instead of [{}], waiting for it to be compacted", topic,
+                    cleanupPolicy == null ? null : cleanupPolicy.value(), TopicConfig.CLEANUP_POLICY_COMPACT);
+            return Collections.emptyList();
+        }
+        return partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean caughtUp(Consumer<String, User> changelog, Map<TopicPartition, Long> rebuildTo) {
+        for (Map.Entry<TopicPartition, Long> end : rebuildTo.entrySet()) {
+            if (changelog.position(end.getKey()) < end.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
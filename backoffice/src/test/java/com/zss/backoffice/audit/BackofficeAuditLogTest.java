@@ -0,0 +1,60 @@
+package com.zss.backoffice.audit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.zss.backoffice.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class BackofficeAuditLogTest {
+
+    private final Logger auditLogger = (Logger) LoggerFactory.getLogger("com.zss.backoffice.audit");
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final User user = User.builder().id(3).lastName("Doe").email("john@example.com").password("secret").build();
+
+    @BeforeEach
+    public void attach() {
+        appender.start();
+        auditLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void detach() {
+        auditLogger.detachAppender(appender);
+    }
+
+    @Test
+    @DisplayName("Test verdicts and dropped duplicates are audited without personal details")
+    public void testVerdictAndDuplicate() {
+        BackofficeAuditLog auditLog = new BackofficeAuditLog(1.0, 1.0);
+
+        auditLog.verdict(user, "already-registered");
+        auditLog.duplicate(() -> user, "userRegistration");
+
+        assertEquals(2, appender.list.size());
+        assertEquals("event=verdict id=3 email=j***@example.com verdict=already-registered", appender.list.get(0).getFormattedMessage());
+        assertEquals("event=duplicate id=3 email=j***@example.com topic=userRegistration", appender.list.get(1).getFormattedMessage());
+        appender.list.forEach(event -> assertFalse(event.getFormattedMessage().contains("Doe")));
+    }
+
+    @Test
+    @DisplayName("Test a user outside the sample is not audited while its failure still is")
+    public void testSampling() {
+        BackofficeAuditLog auditLog = new BackofficeAuditLog(0.01, 1.0, () -> 0.5);
+
+        auditLog.consumed(user, "userRegistration");
+        auditLog.failed("reply", user, new IllegalStateException("broker down"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals("event=failed step=reply id=3 email=j***@example.com", appender.list.get(0).getFormattedMessage());
+    }
+}
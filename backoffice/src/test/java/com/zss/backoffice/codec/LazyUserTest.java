@@ -0,0 +1,110 @@
+package com.zss.backoffice.codec;
+
+import com.zss.backoffice.exception.UndecodableUserException;
+import com.zss.backoffice.model.User;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.zss.backoffice.config.BackoficeConstants.EVENT_ID_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_BINARY;
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.USER_SCHEMA_VERSION_HEADER;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyUserTest {
+
+    private final LazyUserDeserializer deserializer = new LazyUserDeserializer();
+
+    @Test
+    @DisplayName("Test headers are read without decoding and the user is decoded once")
+    public void testDecodedOnFirstUse() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(EVENT_ID_HEADER, "event-1".getBytes(StandardCharsets.UTF_8));
+        byte[] json = new UserSerializer().serialize("userRegistration", User.builder().id(7).email("test@gmail.com").build());
+        LazyUser lazyUser = deserializer.deserialize("userRegistration", headers, json);
+
+        assertEquals("event-1", lazyUser.header(EVENT_ID_HEADER));
+        assertNull(lazyUser.header(USER_FORMAT_HEADER));
+        assertFalse(lazyUser.isDecoded());
+        User user = lazyUser.get();
+        assertTrue(lazyUser.isDecoded());
+        assertEquals(7, user.getId());
+        assertSame(user, lazyUser.get());
+        assertArrayEquals(json, lazyUser.data());
+    }
+
+    @Test
+    @DisplayName("Test binary users are decoded by the format header")
+    public void testBinaryDecoded() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+        headers.add(USER_SCHEMA_VERSION_HEADER, String.valueOf(UserBinaryCodec.SCHEMA_VERSION).getBytes(StandardCharsets.UTF_8));
+        LazyUser lazyUser = deserializer.deserialize("userRegistration", headers,
+                UserBinaryCodec.encode(User.builder().id(9).email("test@gmail.com").build()));
+
+        assertEquals("test@gmail.com", lazyUser.get().getEmail());
+    }
+
+    @Test
+    @DisplayName("Test a body that is not a user fails as undecodable only when asked for")
+    public void testUndecodable() {
+        LazyUser lazyUser = deserializer.deserialize("userRegistration", new RecordHeaders(), "{not a user".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(UndecodableUserException.class, lazyUser::get);
+        assertArrayEquals("{not a user".getBytes(StandardCharsets.UTF_8), lazyUser.data());
+    }
+
+    @Test
+    @DisplayName("Test an unknown binary schema version is rejected before decoding")
+    public void testUnknownSchemaVersion() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+        headers.add(USER_SCHEMA_VERSION_HEADER, "99".getBytes(StandardCharsets.UTF_8));
+        LazyUser lazyUser = deserializer.deserialize("userRegistration", headers,
+                UserBinaryCodec.encode(User.builder().id(9).build()));
+
+        UndecodableUserException ex = assertThrows(UndecodableUserException.class, lazyUser::get);
+        assertEquals("Unsupported user schema version [99] on userRegistration", ex.getMessage());
+    }
+
+    @Test
+    @DisplayName("Test binary users of every schema version up to the current one are decoded")
+    public void testOlderSchemaVersionsDecoded() {
+        for (int version = 1; version <= UserBinaryCodec.SCHEMA_VERSION; version++) {
+            RecordHeaders headers = new RecordHeaders();
+            headers.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+            headers.add(USER_SCHEMA_VERSION_HEADER, String.valueOf(version).getBytes(StandardCharsets.UTF_8));
+            LazyUser lazyUser = deserializer.deserialize("userRegistration", headers,
+                    UserBinaryCodec.encode(User.builder().id(9).build()));
+
+            assertEquals(9, lazyUser.get().getId());
+        }
+        RecordHeaders unreadable = new RecordHeaders();
+        unreadable.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+        unreadable.add(USER_SCHEMA_VERSION_HEADER, "v1".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(UndecodableUserException.class, deserializer.deserialize("userRegistration", unreadable,
+                UserBinaryCodec.encode(User.builder().id(9).build()))::get);
+    }
+
+    @Test
+    @DisplayName("Test a user built in process is written back out as JSON")
+    public void testOfWritesJson() {
+        User user = User.builder().id(3).email("test@gmail.com").build();
+
+        LazyUser lazyUser = LazyUser.of(user);
+
+        assertTrue(lazyUser.isDecoded());
+        assertEquals(user.toString(), deserializer.deserialize("userRegistration", new RecordHeaders(),
+                new LazyUserSerializer().serialize("userRegistration", lazyUser)).get().toString());
+    }
+}
@@ -0,0 +1,127 @@
+package com.zss.backoffice.codec;
+
+import com.zss.backoffice.model.Address;
+import com.zss.backoffice.model.User;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_FORMAT_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserBinaryCodecTest {
+
+    @Test
+    @DisplayName("Test user with addresses survives a binary round trip")
+    public void testRoundTrip() {
+        User user = user(3);
+
+        User decoded = UserBinaryCodec.decode(UserBinaryCodec.encode(user));
+
+        assertEquals(user.toString(), decoded.toString());
+    }
+
+    @Test
+    @DisplayName("Test multi-byte text and long nested blocks survive a binary round trip")
+    public void testRoundTripUnicodeAndLongBlocks() {
+        User user = user(40);
+        user.setFirstName("Zoë \u0928\u092e\u0938\u094d\u0924\u0947 \uD83D\uDE00");
+        user.getAddresses().get(0).setLine2(new String(new char[300]).replace('\0', 'x'));
+
+        User decoded = UserBinaryCodec.decode(UserBinaryCodec.encode(user));
+
+        assertEquals(user.toString(), decoded.toString());
+    }
+
+    @Test
+    @DisplayName("Test empty and missing address lists are kept apart")
+    public void testEmptyAndMissingAddresses() {
+        User withoutAddresses = User.builder().email("test@gmail.com").build();
+        User withEmptyAddresses = User.builder().email("test@gmail.com").addresses(new ArrayList<>()).build();
+
+        assertNull(UserBinaryCodec.decode(UserBinaryCodec.encode(withoutAddresses)).getAddresses());
+        assertEquals(0, UserBinaryCodec.decode(UserBinaryCodec.encode(withEmptyAddresses)).getAddresses().size());
+    }
+
+    @Test
+    @DisplayName("Test binary payload is smaller than JSON")
+    public void testSmallerThanJson() {
+        User user = user(3);
+
+        byte[] json = new JsonSerializer<User>().serialize("userRegistration", user);
+
+        assertTrue(UserBinaryCodec.encode(user).length * 2 < json.length);
+    }
+
+    @Test
+    @DisplayName("Test fields unknown to this version are skipped")
+    public void testUnknownFieldsSkipped() {
+        byte[] known = UserBinaryCodec.encode(User.builder().email("test@gmail.com").build());
+        byte[] payload = new byte[known.length + 8];
+        payload[0] = UserBinaryCodec.SCHEMA_VERSION;
+        // field 100 as a varint and field 101 as a two byte string, written by a newer producer
+        payload[1] = (byte) 0xA0;
+        payload[2] = 0x06;
+        payload[3] = 0x2A;
+        payload[4] = (byte) 0xAA;
+        payload[5] = 0x06;
+        payload[6] = 0x02;
+        payload[7] = 'o';
+        payload[8] = 'k';
+        System.arraycopy(known, 1, payload, 9, known.length - 1);
+
+        assertEquals("test@gmail.com", UserBinaryCodec.decode(payload).getEmail());
+    }
+
+    @Test
+    @DisplayName("Test payload from a newer incompatible schema version is rejected")
+    public void testNewerSchemaVersionRejected() {
+        byte[] payload = UserBinaryCodec.encode(User.builder().build());
+        payload[0] = UserBinaryCodec.SCHEMA_VERSION + 1;
+
+        assertThrows(SerializationException.class, () -> UserBinaryCodec.decode(payload));
+    }
+
+    @Test
+    @DisplayName("Test serializer selects binary per topic and deserializer follows the format header")
+    public void testFormatSelectedPerTopic() {
+        UserSerializer serializer = new UserSerializer();
+        serializer.configure(Collections.singletonMap(UserSerializer.BINARY_TOPICS_CONFIG, "userRegistration"), false);
+        UserDeserializer deserializer = new UserDeserializer();
+        User user = user(1);
+
+        RecordHeaders binaryHeaders = new RecordHeaders();
+        byte[] binary = serializer.serialize("userRegistration", binaryHeaders, user);
+        RecordHeaders jsonHeaders = new RecordHeaders();
+        byte[] json = serializer.serialize("backoffice", jsonHeaders, user);
+
+        assertEquals("binary", new String(binaryHeaders.lastHeader(USER_FORMAT_HEADER).value(), StandardCharsets.UTF_8));
+        assertNull(jsonHeaders.lastHeader(USER_FORMAT_HEADER));
+        assertNotNull(json);
+        assertEquals(user.toString(), deserializer.deserialize("userRegistration", binaryHeaders, binary).toString());
+        assertEquals(user.toString(), deserializer.deserialize("backoffice", jsonHeaders, json).toString());
+    }
+
+    private User user(int addressCount) {
+        ArrayList<Address> addresses = new ArrayList<>();
+        for (int i = 0; i < addressCount; i++) {
+            addresses.add(Address.builder().id(i).title("mr.").firstName("TestUser").lastName("TestLast")
+                    .isShippingAddress(i == 0).isDefaultAddress(true).line1("Address Line 1").line2("Address Line 2")
+                    .city("city").town("town").state("state").build());
+        }
+        return User.builder().id(-42).title("mr").firstName("TestUser").lastName("TestLast")
+                .email("testEmailAddress@gmail.com").password("P@ssw0rd").verifyPassword("P@ssw0rd")
+                .telephone(123456789).mobileNumber(9874563210f).customerType("STOCKIST").drugLicenseNo("654")
+                .receiveMarketingMails(true).termsAndConditions(true).addresses(addresses).build();
+    }
+}
@@ -0,0 +1,131 @@
+package com.zss.backoffice.commit;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffsetCommitCoordinatorTest {
+
+    private static final TopicPartition PARTITION_0 = new TopicPartition(REGISTRATION_TOPIC, 0);
+
+    private static final TopicPartition PARTITION_1 = new TopicPartition(REGISTRATION_TOPIC, 1);
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    private final OffsetCommitCoordinator coordinator = new OffsetCommitCoordinator(3, 500, now::get);
+
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @BeforeEach
+    public void setUp() {
+        consumer.assign(Arrays.asList(PARTITION_0, PARTITION_1));
+        consumer.seek(PARTITION_0, 0);
+        consumer.seek(PARTITION_1, 0);
+        coordinator.onPartitionsAssigned(consumer, consumer.assignment());
+    }
+
+    @Test
+    @DisplayName("Test offsets are committed asynchronously once enough records are acknowledged")
+    public void testCommitsOnRecordCount() {
+        coordinator.acknowledge(delivered(PARTITION_0, 0), consumer);
+        coordinator.acknowledge(delivered(PARTITION_0, 1), consumer);
+
+        assertNull(consumer.committed(PARTITION_0));
+        assertEquals(2, coordinator.uncommittedCount());
+
+        coordinator.acknowledge(delivered(PARTITION_1, 0), consumer);
+
+        assertEquals(2, consumer.committed(PARTITION_0).offset());
+        assertEquals(1, consumer.committed(PARTITION_1).offset());
+        assertEquals(1, coordinator.asyncCommitCount());
+        assertEquals(0, coordinator.uncommittedCount());
+    }
+
+    @Test
+    @DisplayName("Test offsets are committed asynchronously once the oldest acknowledgement has waited long enough")
+    public void testCommitsOnInterval() {
+        coordinator.acknowledge(delivered(PARTITION_0, 0), consumer);
+        now.addAndGet(499);
+        coordinator.commitIfDue(consumer);
+
+        assertNull(consumer.committed(PARTITION_0));
+
+        now.addAndGet(1);
+        coordinator.commitIfDue(consumer);
+
+        assertEquals(1, consumer.committed(PARTITION_0).offset());
+        assertEquals(1, coordinator.asyncCommitCount());
+    }
+
+    @Test
+    @DisplayName("Test a record acknowledged ahead of an unfinished one is not committed past it")
+    public void testNeverCommitsPastAGap() {
+        ConsumerRecord<String, String> first = delivered(PARTITION_0, 0);
+        delivered(PARTITION_0, 1);
+        ConsumerRecord<String, String> third = delivered(PARTITION_0, 2);
+        ConsumerRecord<String, String> fourth = delivered(PARTITION_0, 3);
+
+        coordinator.acknowledge(third, consumer);
+        coordinator.acknowledge(fourth, consumer);
+        coordinator.acknowledge(first, consumer);
+
+        assertEquals(1, consumer.committed(PARTITION_0).offset());
+
+        coordinator.acknowledge(new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 1, null, "user-1"));
+        now.addAndGet(500);
+        coordinator.commitIfDue(consumer);
+
+        assertEquals(4, consumer.committed(PARTITION_0).offset());
+    }
+
+    @Test
+    @DisplayName("Test revoked partitions are committed synchronously and forgotten")
+    public void testCommitsRevokedPartitionsSynchronously() {
+        coordinator.acknowledge(delivered(PARTITION_0, 0), consumer);
+        coordinator.acknowledge(delivered(PARTITION_1, 0), consumer);
+
+        coordinator.onPartitionsRevokedBeforeCommit(consumer, Collections.singletonList(PARTITION_0));
+
+        assertEquals(1, consumer.committed(PARTITION_0).offset());
+        assertNull(consumer.committed(PARTITION_1));
+        assertEquals(1, coordinator.syncCommitCount());
+        assertEquals(1, coordinator.uncommittedCount());
+
+        coordinator.acknowledge(new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 1, null, "user-1"));
+
+        assertEquals(1, coordinator.uncommittedCount());
+    }
+
+    @Test
+    @DisplayName("Test a stopping consumer commits nothing already committed")
+    public void testReleaseSkipsCommittedPartitions() {
+        coordinator.acknowledge(delivered(PARTITION_0, 0), consumer);
+        coordinator.acknowledge(delivered(PARTITION_0, 1), consumer);
+        coordinator.acknowledge(delivered(PARTITION_0, 2), consumer);
+
+        coordinator.commitAndRelease(consumer, consumer.assignment());
+
+        assertEquals(new OffsetAndMetadata(3), consumer.committed(PARTITION_0));
+        assertEquals(1, coordinator.asyncCommitCount());
+        assertEquals(0, coordinator.syncCommitCount());
+    }
+
+    private ConsumerRecord<String, String> delivered(TopicPartition partition, long offset) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>(partition.topic(), partition.partition(), offset, null, "user-" + offset);
+        coordinator.delivered(record);
+        return record;
+    }
+}
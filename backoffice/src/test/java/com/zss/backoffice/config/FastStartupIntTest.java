@@ -0,0 +1,95 @@
+package com.zss.backoffice.config;
+
+import com.zss.backoffice.BackofficeApplication;
+import com.zss.backoffice.codec.UserSerializer;
+import com.zss.backoffice.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Starts the whole back office against an embedded broker with and without the "fast-startup" profile and
+ * reports how long it takes to start and to process a registration that was waiting when it was launched.
+ * A first start loads the classes both runs share, so neither measurement pays for it.
+ */
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FastStartupIntTest {
+
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @BeforeAll
+    public void startBroker() {
+        embeddedKafkaBroker = new EmbeddedKafkaBroker(1, true, 1, REGISTRATION_TOPIC)
+                .brokerProperty("log.dir", "target/embedded-kafka-startup");
+        embeddedKafkaBroker.afterPropertiesSet();
+        this.launch("test").close();
+    }
+
+    @AfterAll
+    public void stopBroker() {
+        embeddedKafkaBroker.destroy();
+    }
+
+    @Test
+    @DisplayName("Test startup time and time to the first consumed record with eager wiring")
+    public void testEagerStartup() throws Exception {
+        this.measureStartup(1, "test", context ->
+                assertFalse(context.getBeanFactory().getBeanDefinition("kafkaAdmin").isLazyInit()));
+    }
+
+    @Test
+    @DisplayName("Test startup time and time to the first consumed record with the fast-startup profile")
+    public void testFastStartup() throws Exception {
+        this.measureStartup(2, "test,fast-startup", context -> {
+            assertTrue(context.getBeanFactory().getBeanDefinition("kafkaAdmin").isLazyInit());
+            assertFalse(context.getBeanFactory().getBeanDefinition("backofficeController").isLazyInit());
+            assertNotNull(context.getBean(DeferredTopicVerification.class));
+        });
+    }
+
+    private void measureStartup(int userId, String profiles, Consumer<ConfigurableApplicationContext> checks) throws Exception {
+        try (Producer<String, User> producer = new DefaultKafkaProducerFactory<>(KafkaTestUtils.producerProps(embeddedKafkaBroker),
+                new StringSerializer(), new UserSerializer()).createProducer()) {
+            producer.send(new ProducerRecord<>(REGISTRATION_TOPIC, User.builder().id(userId).email("startup" + userId + "@gmail.com").build())).get();
+        }
+        long launched = System.nanoTime();
+        ConfigurableApplicationContext context = this.launch(profiles);
+        try {
+            long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+            assertTrue(context.getBean(CountDownLatch.class).await(60, TimeUnit.SECONDS));
+            long firstRecordMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+            log.info("Profiles [{}]: started in {} ms, first registration consumed {} ms after launch", profiles, startupMs, firstRecordMs);
+            checks.accept(context);
+        } finally {
+            context.close();
+        }
+    }
+
+    private ConfigurableApplicationContext launch(String profiles) {
+        return new SpringApplicationBuilder(BackofficeApplication.class).run(
+                "--spring.profiles.active=" + profiles,
+                "--spring.embedded.kafka.brokers=" + embeddedKafkaBroker.getBrokersAsString(),
+                "--server.port=0");
+    }
+}
@@ -0,0 +1,38 @@
+package com.zss.backoffice.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProducerProfileTest {
+
+    @Test
+    @DisplayName("Test producer profiles resolve from their configured names")
+    public void testProfileResolvedByName() {
+        assertEquals(ProducerProfile.LOW_LATENCY, ProducerProfile.of("low-latency"));
+        assertEquals(ProducerProfile.HIGH_THROUGHPUT, ProducerProfile.of(" HIGH_THROUGHPUT "));
+        assertEquals(ProducerProfile.DURABLE, ProducerProfile.of("Durable"));
+        assertThrows(IllegalArgumentException.class, () -> ProducerProfile.of("fastest"));
+    }
+
+    @Test
+    @DisplayName("Test durable profile waits for all replicas with an idempotent producer")
+    public void testDurableProfile() {
+        assertEquals("all", ProducerProfile.DURABLE.getSettings().get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, ProducerProfile.DURABLE.getSettings().get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+    }
+
+    @Test
+    @DisplayName("Test high throughput profile batches and compresses more than low latency")
+    public void testHighThroughputProfile() {
+        assertTrue((Integer) ProducerProfile.HIGH_THROUGHPUT.getSettings().get(ProducerConfig.LINGER_MS_CONFIG)
+                > (Integer) ProducerProfile.LOW_LATENCY.getSettings().get(ProducerConfig.LINGER_MS_CONFIG));
+        assertTrue((Integer) ProducerProfile.HIGH_THROUGHPUT.getSettings().get(ProducerConfig.BATCH_SIZE_CONFIG)
+                > (Integer) ProducerProfile.LOW_LATENCY.getSettings().get(ProducerConfig.BATCH_SIZE_CONFIG));
+        assertEquals("lz4", ProducerProfile.HIGH_THROUGHPUT.getSettings().get(ProducerConfig.COMPRESSION_TYPE_CONFIG));
+    }
+}
@@ -0,0 +1,85 @@
+package com.zss.backoffice.dedup;
+
+import com.zss.backoffice.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistrationDedupCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    @Test
+    @DisplayName("Test remembered keys are reported as duplicates and counted")
+    public void testHitsAndMisses() {
+        RegistrationDedupCache cache = new RegistrationDedupCache(10, 1000, 1, now::get);
+
+        assertFalse(cache.isDuplicate("a"));
+        cache.remember("a");
+
+        assertTrue(cache.isDuplicate("a"));
+        assertFalse(cache.isDuplicate("b"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(2, cache.missCount());
+    }
+
+    @Test
+    @DisplayName("Test entries expire after their time to live")
+    public void testTtlEviction() {
+        RegistrationDedupCache cache = new RegistrationDedupCache(10, 1000, 1, now::get);
+        cache.remember("a");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        cache.remember("b");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+
+        assertFalse(cache.isDuplicate("a"));
+        assertTrue(cache.isDuplicate("b"));
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    @DisplayName("Test the eldest entries are evicted beyond the maximum size")
+    public void testSizeEviction() {
+        RegistrationDedupCache cache = new RegistrationDedupCache(3, 60_000, 1, now::get);
+        for (String key : new String[]{"a", "b", "c"}) {
+            cache.remember(key);
+        }
+        cache.remember("a");
+        cache.remember("d");
+
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertFalse(cache.isDuplicate("b"));
+        assertTrue(cache.isDuplicate("a"));
+    }
+
+    @Test
+    @DisplayName("Test keys come from the event id or the user payload")
+    public void testKeyOf() {
+        User user = User.builder().id(1).email("user@example.com").build();
+
+        assertEquals(RegistrationDedupCache.keyOf(null, () -> user),
+                RegistrationDedupCache.keyOf(null, () -> User.builder().id(1).email("user@example.com").build()));
+        assertNotEquals(RegistrationDedupCache.keyOf(null, () -> user),
+                RegistrationDedupCache.keyOf(null, () -> User.builder().id(1).email("other@example.com").build()));
+        assertEquals("id:event-1", RegistrationDedupCache.keyOf("event-1".getBytes(StandardCharsets.UTF_8), () -> {
+            throw new AssertionError("an event id key needs no user");
+        }));
+    }
+
+    @Test
+    @DisplayName("Test a cache smaller than its stripe count is rejected")
+    public void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new RegistrationDedupCache(2, 1000, 4));
+    }
+}
@@ -33,6 +33,7 @@ import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.File;
 import java.io.IOException;
@@ -45,8 +46,12 @@ import java.util.concurrent.TimeUnit;
 import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -80,13 +85,17 @@ class BackofficeControllerIntTest {
         Consumer<String, User> consumer = buildConsumer();
         consumer.subscribe(Collections.singleton(defaultTopic));
 
-        this.mockMvc.perform(post("/submit").content(getRequest())
+        MvcResult result = this.mockMvc.perform(post("/submit").content(getRequest())
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(content().json("{\"message\": \"User Registration Updated\"}"));
 
         ConsumerRecord<String, User> singleRecord = KafkaTestUtils.getSingleRecord(consumer, defaultTopic);
         assertNotNull(singleRecord);
+        assertEquals("testemailaddress@gmail.com", singleRecord.key());
         assertEquals(getExpected(), singleRecord.value().toString());
     }
 
@@ -101,6 +110,30 @@ class BackofficeControllerIntTest {
         assertEquals(0, latch.getCount());
     }
 
+    @Test
+    @DisplayName("Test consumed registration is queryable from the registered user view")
+    public void testRegisteredUserQueryable() throws Exception {
+        Producer<String, User> producer = buildProducer();
+        producer.send(new ProducerRecord<>(REGISTRATION_TOPIC, "view@example.com",
+                User.builder().id(42).email("View@Example.com").password("secret").build()));
+        producer.flush();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        int status;
+        do {
+            TimeUnit.MILLISECONDS.sleep(100);
+            status = this.mockMvc.perform(get("/users").param("email", " view@example.COM"))
+                    .andReturn().getResponse().getStatus();
+        } while (status != 200 && System.currentTimeMillis() < deadline);
+
+        this.mockMvc.perform(get("/users/42"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.email").value("View@Example.com"))
+                .andExpect(jsonPath("$.password").doesNotExist());
+        this.mockMvc.perform(get("/users/4242"))
+                .andExpect(status().isNotFound());
+    }
+
     @Test
     @DisplayName("Test invalid content type received for user registration")
     public void testInvalidContentTypeReceivedForRegistration() throws Exception {
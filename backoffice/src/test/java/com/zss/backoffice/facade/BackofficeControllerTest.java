@@ -1,64 +1,395 @@
 package com.zss.backoffice.facade;
 
 
+import com.zss.backoffice.audit.BackofficeAuditLog;
+import com.zss.backoffice.codec.LazyUser;
+import com.zss.backoffice.codec.LazyUserDeserializer;
+import com.zss.backoffice.config.AckMode;
+import com.zss.backoffice.config.AckModeKafkaTemplates;
+import com.zss.backoffice.dedup.RegistrationDedupCache;
 import com.zss.backoffice.exception.ApplicationException;
+import com.zss.backoffice.exception.UndecodableUserException;
+import com.zss.backoffice.metrics.BackofficeMetrics;
+import com.zss.backoffice.model.BackofficeResponse;
+import com.zss.backoffice.model.RegistrationVerdict;
 import com.zss.backoffice.model.User;
+import com.zss.backoffice.quarantine.QuarantineRecoverer;
+import com.zss.backoffice.retry.DeadLetterReplayer;
+import com.zss.backoffice.view.RegisteredUserView;
+import com.zss.backoffice.view.UserChangelog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.zss.backoffice.config.BackoficeConstants.EVENT_ID_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.RECEIVED_AT_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static com.zss.backoffice.config.BackoficeConstants.SENT_AT_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.VERDICT_HEADER;
 import static com.zss.backoffice.facade.BackofficeControllerIntTest.getRequest;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(MockitoExtension.class)
 class BackofficeControllerTest {
 
+    @Mock
+    private AckModeKafkaTemplates kafkaTemplates;
+
     @Mock
     private KafkaTemplate<String, User> kafkaTemplate;
 
     @Mock
     private ListenableFuture<SendResult<String, User>> responseFuture;
 
+    @Mock
+    private CountDownLatch countDownLatch;
+
+    @Mock
+    private Acknowledgment acknowledgment;
+
+    @Mock
+    private RegisteredUserView registeredUserView;
+
+    @Mock
+    private UserChangelog userChangelog;
+
+    @Mock
+    private QuarantineRecoverer quarantineRecoverer;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private BackofficeMetrics backofficeMetrics = new BackofficeMetrics(meterRegistry);
+
+    @Spy
+    private BackofficeAuditLog auditLog = new BackofficeAuditLog(1.0, 1.0);
+
     @InjectMocks
     private BackofficeController backofficeController;
 
+    @BeforeEach
+    public void acceptRegistrations() {
+        lenient().when(registeredUserView.verdictFor(any(User.class))).thenReturn(RegistrationVerdict.ACCEPTED);
+        lenient().when(registeredUserView.isReady()).thenReturn(true);
+        ReflectionTestUtils.setField(backofficeController, "defaultTopic", "backoffice");
+    }
+
     @Test
-    @DisplayName("Test user registration sent failed to back office")
-    public void testRegistrationSubmitToFailedToBackOffice() throws Exception {
+    @DisplayName("Test user registration sent failed to back office is reported to the caller")
+    public void testRegistrationSubmitToFailedToBackOffice() {
 
-        String expectedMessage = "Unable to send message to user registration=[{User(id=0, title=null, firstName=null, lastName=null, " +
-                "email=null, password=null, verifyPassword=null, telephone=0.0, mobileNumber=0.0, customerType=null, " +
-                "drugLicenseNo=null, receiveMarketingMails=false, termsAndConditions=false, addresses=null)}]";
+        String expectedMessage = "Unable to send message to user registration=[{id=0, email=t***@example.com}]";
 
         doAnswer(invocationOnMock -> {
             ListenableFutureCallback listenableFutureCallback = invocationOnMock.getArgument(0);
             listenableFutureCallback.onFailure(new RuntimeException());
             return null;
         }).when(responseFuture).addCallback(any(ListenableFutureCallback.class));
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<BackofficeResponse>> result =
+                backofficeController.userRegistration(User.builder().email("test.user@example.com").password("secret").build(), null);
+
+        assertTrue(result.getResult() instanceof ApplicationException);
+        assertEquals(expectedMessage, ((ApplicationException) result.getResult()).getMessage());
+    }
+
+    @Test
+    @DisplayName("Test fire-and-forget user update is accepted without waiting")
+    public void testFireAndForgetUpdateAccepted() {
+        when(kafkaTemplates.resolve("fire-and-forget")).thenReturn(AckMode.FIRE_AND_FORGET);
+        when(kafkaTemplates.forMode(AckMode.FIRE_AND_FORGET)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<BackofficeResponse>> result =
+                backofficeController.userRegistration(User.builder().build(), "fire-and-forget");
+
+        assertEquals(HttpStatus.ACCEPTED, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Test user registration is keyed by normalized email")
+    public void testRegistrationKeyedByNormalizedEmail() {
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        backofficeController.userRegistration(User.builder().id(7).email(" Test.User@Example.com ").build(), null);
+
+        ArgumentCaptor<ProducerRecord<String, User>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertEquals("test.user@example.com", sent.getValue().key());
+        assertNotNull(sent.getValue().headers().lastHeader(RECEIVED_AT_HEADER));
+        assertNotNull(sent.getValue().headers().lastHeader(SENT_AT_HEADER));
+    }
+
+    @Test
+    @DisplayName("Test registration batch is acknowledged once when every record is processed")
+    public void testRegistrationBatchAcknowledgedOnce() {
+        backofficeController.userBackOfficeBatchListener(batchOf(3), acknowledgment);
+
+        verify(countDownLatch, times(3)).countDown();
+        verify(acknowledgment).acknowledge();
+        verify(acknowledgment, never()).nack(anyInt(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Test registration batch redelivers only the failed tail")
+    public void testRegistrationBatchRedeliversFailedTail() {
+        doNothing().doThrow(new IllegalStateException("processing failed")).when(countDownLatch).countDown();
+
+        backofficeController.userBackOfficeBatchListener(batchOf(3), acknowledgment);
+
+        verify(countDownLatch, times(2)).countDown();
+        verify(acknowledgment).nack(eq(1), anyLong());
+        verify(acknowledgment, never()).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Test redelivered registrations are dropped by the dedup cache")
+    public void testRedeliveredRegistrationsDropped() {
+        RegistrationDedupCache dedupCache = new RegistrationDedupCache(100, 60_000, 4);
+        BackofficeController dedupController = new BackofficeController(kafkaTemplates, kafkaTemplate, countDownLatch, dedupCache,
+                registeredUserView, userChangelog, backofficeMetrics, null, auditLog, quarantineRecoverer, null);
+        List<ConsumerRecord<String, LazyUser>> records = batchOf(3);
+        records.addAll(batchOf(2));
+        ConsumerRecord<String, LazyUser> withEventId = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 5, null, LazyUser.of(User.builder().id(1).build()));
+        withEventId.headers().add(new RecordHeader(EVENT_ID_HEADER, "event-1".getBytes(StandardCharsets.UTF_8)));
+        records.add(withEventId);
+
+        dedupController.userBackOfficeBatchListener(records, acknowledgment);
+        dedupController.userBackOfficeListener(new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 6, null, LazyUser.of(User.builder().id(3).build())), null);
+        dedupController.userBackOfficeListener(withEventId, null);
+
+        verify(countDownLatch, times(4)).countDown();
+        verify(acknowledgment).acknowledge();
+        assertEquals(4, dedupCache.hitCount());
+        assertEquals(4, dedupCache.missCount());
+    }
+
+    @Test
+    @DisplayName("Test an undecodable record is quarantined and the rest of the batch processed")
+    public void testUndecodableRecordQuarantined() {
+        List<ConsumerRecord<String, LazyUser>> records = batchOf(2);
+        ConsumerRecord<String, LazyUser> poisonPill = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 2, null,
+                new LazyUserDeserializer().deserialize(REGISTRATION_TOPIC, new RecordHeaders(), "{not a user".getBytes(StandardCharsets.UTF_8)));
+        records.add(1, poisonPill);
+
+        backofficeController.userBackOfficeBatchListener(records, acknowledgment);
+
+        verify(quarantineRecoverer).accept(eq(poisonPill), any(UndecodableUserException.class));
+        verify(countDownLatch, times(2)).countDown();
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    @DisplayName("Test a duplicate carrying an event id is dropped without being decoded")
+    public void testDuplicateDroppedUndecoded() {
+        BackofficeController dedupController = new BackofficeController(kafkaTemplates, kafkaTemplate, countDownLatch,
+                new RegistrationDedupCache(100, 60_000, 4), registeredUserView, userChangelog, backofficeMetrics, null,
+                new BackofficeAuditLog(0.0, 0.0), quarantineRecoverer, null);
+        LazyUserDeserializer deserializer = new LazyUserDeserializer();
+        byte[] body = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+        ConsumerRecord<String, LazyUser> first = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 0, null,
+                deserializer.deserialize(REGISTRATION_TOPIC, new RecordHeaders(), body));
+        first.headers().add(EVENT_ID_HEADER, "event-1".getBytes(StandardCharsets.UTF_8));
+        ConsumerRecord<String, LazyUser> redelivered = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 0, null,
+                deserializer.deserialize(REGISTRATION_TOPIC, new RecordHeaders(), body));
+        redelivered.headers().add(EVENT_ID_HEADER, "event-1".getBytes(StandardCharsets.UTF_8));
+
+        dedupController.userBackOfficeListener(first, null);
+        dedupController.userBackOfficeListener(redelivered, null);
+
+        assertTrue(first.value().isDecoded());
+        assertFalse(redelivered.value().isDecoded());
+        verify(countDownLatch).countDown();
+    }
+
+    @Test
+    @DisplayName("Test a registration that failed processing is not remembered as seen")
+    public void testFailedRegistrationNotRemembered() {
+        RegistrationDedupCache dedupCache = new RegistrationDedupCache(100, 60_000, 4);
+        BackofficeController dedupController = new BackofficeController(kafkaTemplates, kafkaTemplate, countDownLatch, dedupCache,
+                registeredUserView, userChangelog, backofficeMetrics, null, auditLog, quarantineRecoverer, null);
+        doThrow(new IllegalStateException("processing failed")).doNothing().when(countDownLatch).countDown();
+
+        dedupController.userBackOfficeBatchListener(batchOf(1), acknowledgment);
+        dedupController.userBackOfficeBatchListener(batchOf(1), acknowledgment);
+
+        verify(countDownLatch, times(2)).countDown();
+        verify(acknowledgment).nack(eq(0), anyLong());
+        verify(acknowledgment).acknowledge();
+        assertEquals(0, dedupCache.hitCount());
+    }
+
+    @Test
+    @DisplayName("Test processed registrations are published to the user changelog")
+    public void testProcessedRegistrationsPublishedToChangelog() {
+        backofficeController.userBackOfficeBatchListener(batchOf(2), acknowledgment);
+
+        verify(userChangelog, times(2)).record(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Test consumed registrations are timed from their request and counted per partition")
+    public void testRegistrationPipelineMetered() {
+        List<ConsumerRecord<String, LazyUser>> records = batchOf(2);
+        long now = System.currentTimeMillis();
+        records.get(0).headers()
+                .add(RECEIVED_AT_HEADER, BackofficeMetrics.timestamp(now - 20))
+                .add(SENT_AT_HEADER, BackofficeMetrics.timestamp(now - 10));
+
+        backofficeController.userBackOfficeBatchListener(records, acknowledgment);
+
+        assertEquals(2, meterRegistry.get("backoffice.records.consumed").tag("partition", "0").counter().count());
+        assertEquals(2, meterRegistry.get("backoffice.registration.produce.to.consume").timer().count());
+        assertEquals(2, meterRegistry.get("backoffice.registration.consume.to.processed").tag("verdict", "accepted").timer().count());
+        assertEquals(1, meterRegistry.get("backoffice.registration.end.to.end").timer().count());
+        assertTrue(meterRegistry.get("backoffice.registration.end.to.end").timer().totalTime(TimeUnit.MILLISECONDS) >= 20);
+    }
 
-        when(kafkaTemplate.send(any(),any())).thenReturn(responseFuture);
+    @Test
+    @DisplayName("Test a registration awaiting a verdict gets a correlated reply")
+    public void testRegistrationVerdictReplied() {
+        when(registeredUserView.verdictFor(any(User.class))).thenReturn(RegistrationVerdict.ALREADY_REGISTERED);
+        when(kafkaTemplates.getDefaultMode()).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        ConsumerRecord<String, LazyUser> request = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 0, null,
+                LazyUser.of(User.builder().id(0).email("taken@example.com").password("secret").build()));
+        request.headers()
+                .add(KafkaHeaders.REPLY_TOPIC, "backoffice".getBytes(StandardCharsets.UTF_8))
+                .add(KafkaHeaders.CORRELATION_ID, "correlation-1".getBytes(StandardCharsets.UTF_8));
+
+        backofficeController.userBackOfficeListener(request, null);
+
+        ArgumentCaptor<ProducerRecord<String, User>> reply = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(reply.capture());
+        assertEquals("backoffice", reply.getValue().topic());
+        assertNull(reply.getValue().value().getPassword());
+        assertEquals("correlation-1", new String(reply.getValue().headers().lastHeader(KafkaHeaders.CORRELATION_ID).value(), StandardCharsets.UTF_8));
+        assertEquals("already-registered", new String(reply.getValue().headers().lastHeader(VERDICT_HEADER).value(), StandardCharsets.UTF_8));
+        verify(countDownLatch, never()).countDown();
+        verify(userChangelog, never()).record(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Test a registration no one waits on is processed without checking its email")
+    public void testRegistrationWithoutReplyNotGated() {
+        backofficeController.userBackOfficeListener(new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 0, null,
+                LazyUser.of(User.builder().email("taken@example.com").build())), null);
 
-        Exception exception = assertThrows(ApplicationException.class,
-                () -> backofficeController.userRegistration(User.builder().build()));
-        assertEquals(expectedMessage, exception.getMessage());
+        verify(registeredUserView, never()).verdictFor(any(User.class));
+        verify(countDownLatch).countDown();
+        verify(userChangelog).record(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Test a registration awaiting a verdict is refused, not accepted, while the view is rebuilt")
+    public void testVerdictRefusedUntilViewReady() {
+        when(registeredUserView.isReady()).thenReturn(false);
+        when(kafkaTemplates.getDefaultMode()).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        ConsumerRecord<String, LazyUser> request = new ConsumerRecord<>(REGISTRATION_TOPIC, 0, 0, null,
+                LazyUser.of(User.builder().email("new@example.com").build()));
+        request.headers()
+                .add(KafkaHeaders.REPLY_TOPIC, "backoffice".getBytes(StandardCharsets.UTF_8))
+                .add(KafkaHeaders.CORRELATION_ID, "correlation-1".getBytes(StandardCharsets.UTF_8));
+
+        backofficeController.userBackOfficeListener(request, null);
+
+        ArgumentCaptor<ProducerRecord<String, User>> reply = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(reply.capture());
+        assertEquals("unavailable", new String(reply.getValue().headers().lastHeader(VERDICT_HEADER).value(), StandardCharsets.UTF_8));
+        verify(registeredUserView, never()).verdictFor(any(User.class));
+        verify(userChangelog, never()).record(any(User.class));
+    }
+
+    @Test
+    @DisplayName("Test registered user lookups answer from the view")
+    public void testRegisteredUserLookups() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(backofficeController).build();
+        when(registeredUserView.isReady()).thenReturn(false).thenReturn(true);
+        when(registeredUserView.findById(7)).thenReturn(Optional.of(User.builder().id(7).build()));
+        when(registeredUserView.findByEmail("nobody@example.com")).thenReturn(Optional.empty());
+
+        mvc.perform(get("/users/7")).andExpect(status().isServiceUnavailable());
+        mvc.perform(get("/users/7")).andExpect(status().isOk()).andExpect(jsonPath("$.id").value(7));
+        mvc.perform(get("/users").param("email", "nobody@example.com")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("Test dead letters are replayed only when retry topics are enabled")
+    public void testDeadLetterReplay() throws Exception {
+        DeadLetterReplayer deadLetterReplayer = mock(DeadLetterReplayer.class);
+        when(deadLetterReplayer.replay(25)).thenReturn(3);
+        BackofficeController replayController = new BackofficeController(kafkaTemplates, kafkaTemplate, countDownLatch, null,
+                registeredUserView, userChangelog, backofficeMetrics, deadLetterReplayer, auditLog, quarantineRecoverer, null);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(replayController)
+                .setControllerAdvice(new BackofficeControllerAdvice())
+                .build();
+
+        mvc.perform(post("/dlt/replay").param("max", "25"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.message").value("Replayed 3 registrations from the dead letter topic"));
+        mvc.perform(post("/dlt/replay").param("max", "0")).andExpect(status().isBadRequest());
+        MockMvcBuilders.standaloneSetup(backofficeController).build()
+                .perform(post("/dlt/replay")).andExpect(status().isNotFound());
     }
 
     @Test
@@ -73,4 +404,12 @@ class BackofficeControllerTest {
 
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
     }
+
+    private List<ConsumerRecord<String, LazyUser>> batchOf(int size) {
+        List<ConsumerRecord<String, LazyUser>> records = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            records.add(new ConsumerRecord<>(REGISTRATION_TOPIC, 0, i, null, LazyUser.of(User.builder().id(i + 1).build())));
+        }
+        return records;
+    }
 }
\ No newline at end of file
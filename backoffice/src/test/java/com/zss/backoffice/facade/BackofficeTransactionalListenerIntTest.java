@@ -0,0 +1,99 @@
+package com.zss.backoffice.facade;
+
+import com.zss.backoffice.model.User;
+import kafka.server.KafkaServer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.Collections;
+import java.util.Map;
+
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "kafka.listener.mode=transactional")
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 1,
+        controlledShutdown = true,
+        brokerProperties={
+                "log.dir=target/embedded-kafka-transactional",
+                "transaction.state.log.replication.factor=1",
+                "transaction.state.log.min.isr=1"
+        })
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class BackofficeTransactionalListenerIntTest {
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Test
+    @DisplayName("Test consumed registration is replied to the back office topic in the same transaction")
+    public void testRegistrationRepliedTransactionally() {
+        Consumer<String, User> consumer = buildConsumer();
+        consumer.subscribe(Collections.singleton(defaultTopic));
+
+        Producer<String, User> producer = buildProducer();
+        producer.send(new ProducerRecord<>(REGISTRATION_TOPIC, "tx@gmail.com", User.builder().email("tx@gmail.com").build()));
+        producer.flush();
+
+        ConsumerRecord<String, User> reply = KafkaTestUtils.getSingleRecord(consumer, defaultTopic, 30000L);
+        assertNotNull(reply);
+        assertEquals("tx@gmail.com", reply.key());
+        assertEquals("tx@gmail.com", reply.value().getEmail());
+    }
+
+    private Consumer<String, User> buildConsumer() {
+        final Map<String, Object> consumerProps = KafkaTestUtils
+                .consumerProps("transactionalReply", "true", embeddedKafkaBroker);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        final DefaultKafkaConsumerFactory<String, User> consumerFactory =
+                new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(), new JsonDeserializer<>(User.class));
+        return consumerFactory.createConsumer();
+    }
+
+    private Producer<String, User> buildProducer() {
+        final Map<String, Object> producerProps = KafkaTestUtils
+                .producerProps(embeddedKafkaBroker);
+
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        final DefaultKafkaProducerFactory<String, User> producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        return producerFactory.createProducer();
+    }
+
+    @AfterAll
+    public void tearDown(){
+        embeddedKafkaBroker.getKafkaServers().forEach(KafkaServer::shutdown);
+        embeddedKafkaBroker.getKafkaServers().forEach(KafkaServer::awaitShutdown);
+    }
+}
@@ -0,0 +1,140 @@
+package com.zss.backoffice.facade;
+
+import com.zss.backoffice.model.User;
+import kafka.server.KafkaServer;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.zss.backoffice.config.BackoficeConstants.ACK_MODE_HEADER;
+import static com.zss.backoffice.config.BackoficeConstants.REGISTRATION_TOPIC;
+import static com.zss.backoffice.facade.BackofficeControllerIntTest.getRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles({"test", "reactive"})
+@EmbeddedKafka(partitions = 1,
+        controlledShutdown = true,
+        brokerProperties={
+                "log.dir=target/embedded-kafka-reactive"
+        })
+@AutoConfigureWebTestClient
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ReactiveBackofficeControllerIntTest {
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${server.servlet.context-path}")
+    private String contextPath;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private CountDownLatch latch;
+
+    @Autowired
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @Test
+    @DisplayName("Test user update submitted successfully to user registration - reactive kafka sender")
+    public void testUserUpdateSubmittedSuccessfully() throws Exception {
+
+        Consumer<String, User> consumer = buildConsumer();
+        consumer.subscribe(Collections.singleton(defaultTopic));
+
+        this.webTestClient.post().uri(contextPath + "/submit")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(ACK_MODE_HEADER, "all")
+                .bodyValue(getRequest())
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody().json("{\"message\": \"User Registration Updated\"}");
+
+        ConsumerRecord<String, User> singleRecord = KafkaTestUtils.getSingleRecord(consumer, defaultTopic);
+        assertNotNull(singleRecord);
+        assertEquals("testemailaddress@gmail.com", singleRecord.key());
+        consumer.close();
+    }
+
+    @Test
+    @DisplayName("Test unknown acknowledgement mode is rejected")
+    public void testUnknownAckModeRejected() throws Exception {
+        this.webTestClient.post().uri(contextPath + "/submit")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .header(ACK_MODE_HEADER, "quorum")
+                .bodyValue(getRequest())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Test received user registration - reactive kafka receiver")
+    public void testRegistrationReceived() throws Exception {
+
+        Producer<String, User> producer = buildProducer();
+        producer.send(new ProducerRecord<>(REGISTRATION_TOPIC, User.builder().id(1).build()));
+        producer.flush();
+        latch.await(10L, TimeUnit.SECONDS);
+        assertEquals(0, latch.getCount());
+    }
+
+    private Consumer<String, User> buildConsumer() {
+        final Map<String, Object> consumerProps = KafkaTestUtils
+                .consumerProps("reactive-" + defaultTopic, "true", embeddedKafkaBroker);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        final DefaultKafkaConsumerFactory<String, User> consumerFactory =
+                new DefaultKafkaConsumerFactory<>(consumerProps, new StringDeserializer(), new JsonDeserializer<>(User.class));
+        return consumerFactory.createConsumer();
+    }
+
+    private Producer<String, User> buildProducer() {
+        final Map<String, Object> producerProps = KafkaTestUtils
+                .producerProps(embeddedKafkaBroker);
+
+        producerProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        producerProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        final DefaultKafkaProducerFactory<String, User> producerFactory = new DefaultKafkaProducerFactory<>(producerProps);
+        return producerFactory.createProducer();
+    }
+
+    @AfterAll
+    public void tearDown(){
+        embeddedKafkaBroker.getKafkaServers().forEach(KafkaServer::shutdown);
+        embeddedKafkaBroker.getKafkaServers().forEach(KafkaServer::awaitShutdown);
+    }
+}
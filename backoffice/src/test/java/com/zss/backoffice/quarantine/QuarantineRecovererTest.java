@@ -0,0 +1,65 @@
+package com.zss.backoffice.quarantine;
+
+import com.zss.backoffice.exception.UndecodableUserException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class QuarantineRecovererTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final QuarantineRecoverer quarantineRecoverer = new QuarantineRecoverer(kafkaTemplate, 1000);
+
+    private final List<ConsumerRecord<?, ?>> otherwise = new ArrayList<>();
+
+    @Test
+    @DisplayName("Test an undecodable record is published unchanged to the quarantine topic of its topic")
+    @SuppressWarnings("unchecked")
+    public void testUndecodableQuarantined() {
+        SettableListenableFuture<Object> sent = new SettableListenableFuture<>();
+        sent.set(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("userRegistration", 2, 5, "key", "{not a user");
+
+        quarantineRecoverer.orElse((failed, ex) -> otherwise.add(failed)).accept(record,
+                new ListenerExecutionFailedException("listener failed", new UndecodableUserException("not a user")));
+
+        ArgumentCaptor<ProducerRecord<Object, Object>> quarantined = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(quarantined.capture());
+        assertEquals("userRegistration-quarantine", quarantined.getValue().topic());
+        assertEquals("key", quarantined.getValue().key());
+        assertEquals("{not a user", quarantined.getValue().value());
+        assertTrue(otherwise.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test any other failure is left to the recoverer it is combined with")
+    @SuppressWarnings("unchecked")
+    public void testOtherFailuresPassedOn() {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("userRegistration", 2, 5, "key", "{}");
+
+        quarantineRecoverer.orElse((failed, ex) -> otherwise.add(failed)).accept(record,
+                new ListenerExecutionFailedException("listener failed", new IllegalStateException("store down")));
+
+        verify(kafkaTemplate, never()).send(any(ProducerRecord.class));
+        assertEquals(1, otherwise.size());
+    }
+}
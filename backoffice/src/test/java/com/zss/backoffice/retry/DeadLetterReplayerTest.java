@@ -0,0 +1,98 @@
+package com.zss.backoffice.retry;
+
+import com.zss.backoffice.model.User;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DeadLetterReplayerTest {
+
+    private static final TopicPartition DEAD_LETTERS = new TopicPartition("userRegistration-dlt", 0);
+
+    private final RetryTopics retryTopics = new RetryTopics("userRegistration", Collections.singletonList(1_000L));
+
+    private boolean closed;
+
+    private final MockConsumer<String, User> consumer = new MockConsumer<String, User>(OffsetResetStrategy.EARLIEST) {
+        @Override
+        public synchronized void close() {
+            closed = true;
+        }
+    };
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, User> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final DeadLetterReplayer deadLetterReplayer = new DeadLetterReplayer(() -> consumer, kafkaTemplate, retryTopics, 10, 1_000);
+
+    @Test
+    @DisplayName("Test dead letters go back to their original topic without their dead letter headers")
+    @SuppressWarnings("unchecked")
+    public void testReplayToOriginalTopic() {
+        SettableListenableFuture<SendResult<String, User>> sent = new SettableListenableFuture<>();
+        sent.set(null);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+        consumer.updatePartitions(DEAD_LETTERS.topic(), Collections.singletonList(
+                new PartitionInfo(DEAD_LETTERS.topic(), 0, Node.noNode(), new Node[0], new Node[0])));
+        consumer.updateBeginningOffsets(Collections.singletonMap(DEAD_LETTERS, 0L));
+        consumer.updateEndOffsets(Collections.singletonMap(DEAD_LETTERS, 3L));
+        consumer.schedulePollTask(() -> {
+            for (long offset = 0; offset < 3; offset++) {
+                consumer.addRecord(deadLetter(offset));
+            }
+        });
+
+        assertEquals(2, deadLetterReplayer.replay(2));
+
+        ArgumentCaptor<ProducerRecord<String, User>> replayed = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(replayed.capture());
+        List<ProducerRecord<String, User>> records = replayed.getAllValues();
+        assertEquals("userRegistration", records.get(0).topic());
+        assertEquals("user-0@example.com", records.get(0).key());
+        assertNull(records.get(0).headers().lastHeader(KafkaHeaders.DLT_ORIGINAL_OFFSET));
+        assertEquals("event-0", new String(records.get(0).headers().lastHeader("event-id").value(), StandardCharsets.UTF_8));
+        assertEquals(2L, consumer.committed(DEAD_LETTERS).offset());
+        assertTrue(closed);
+    }
+
+    @Test
+    @DisplayName("Test nothing is replayed when there is no dead letter topic yet")
+    public void testNoDeadLetterTopic() {
+        assertEquals(0, deadLetterReplayer.replay(10));
+    }
+
+    private ConsumerRecord<String, User> deadLetter(long offset) {
+        ConsumerRecord<String, User> record = new ConsumerRecord<>(DEAD_LETTERS.topic(), 0, offset,
+                "user-" + offset + "@example.com", User.builder().id((int) offset + 1).build());
+        record.headers()
+                .add("event-id", ("event-" + offset).getBytes(StandardCharsets.UTF_8))
+                .add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "userRegistration".getBytes(StandardCharsets.UTF_8))
+                .add(KafkaHeaders.DLT_ORIGINAL_OFFSET, new byte[8])
+                .add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "userRegistration-retry-0".getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -0,0 +1,86 @@
+package com.zss.backoffice.retry;
+
+import com.zss.backoffice.exception.RetryNotDueException;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class RetryTierErrorHandlerTest {
+
+    private static final TopicPartition TIER = new TopicPartition("userRegistration-retry-0", 0);
+
+    private final List<ConsumerRecord<?, ?>> recovered = new ArrayList<>();
+
+    private final RetryTierErrorHandler errorHandler = new RetryTierErrorHandler((record, ex) -> recovered.add(record));
+
+    private final MockConsumer<String, String> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    @BeforeEach
+    public void assign() {
+        consumer.assign(Collections.singleton(TIER));
+        Map<TopicPartition, Long> beginning = new HashMap<>();
+        beginning.put(TIER, 0L);
+        consumer.updateBeginningOffsets(beginning);
+    }
+
+    @Test
+    @DisplayName("Test a record not due yet is sought back and its partition paused until it is")
+    public void testNotDuePausesPartition() {
+        List<ConsumerRecord<?, ?>> records = Arrays.asList(record(5), record(6));
+
+        errorHandler.handle(new ListenerExecutionFailedException("not due", new RetryNotDueException(Long.MAX_VALUE)),
+                records, consumer, mock(MessageListenerContainer.class));
+
+        assertEquals(5L, consumer.position(TIER));
+        assertEquals(Collections.singleton(TIER), consumer.paused());
+        assertTrue(recovered.isEmpty());
+        errorHandler.resumeDue(consumer);
+        assertEquals(Collections.singleton(TIER), consumer.paused());
+    }
+
+    @Test
+    @DisplayName("Test a paused partition is resumed once its head record is due")
+    public void testDuePartitionResumed() {
+        errorHandler.handle(new RetryNotDueException(System.currentTimeMillis() - 1), Collections.singletonList(record(5)),
+                consumer, mock(MessageListenerContainer.class));
+
+        errorHandler.resumeDue(consumer);
+
+        assertTrue(consumer.paused().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Test a record failing again moves on to the next tier without blocking")
+    public void testFailureRecovered() {
+        errorHandler.handle(new ListenerExecutionFailedException("failed", new IllegalStateException()),
+                Arrays.asList(record(5), record(6)), consumer, mock(MessageListenerContainer.class));
+
+        assertEquals(1, recovered.size());
+        assertEquals(5L, recovered.get(0).offset());
+        assertEquals(6L, consumer.position(TIER));
+        assertTrue(consumer.paused().isEmpty());
+        assertFalse(errorHandler.isAckAfterHandle());
+    }
+
+    private ConsumerRecord<String, String> record(long offset) {
+        return new ConsumerRecord<>(TIER.topic(), TIER.partition(), offset, null, "user");
+    }
+}
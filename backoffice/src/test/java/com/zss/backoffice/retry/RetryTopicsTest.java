@@ -0,0 +1,45 @@
+package com.zss.backoffice.retry;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.record.TimestampType;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RetryTopicsTest {
+
+    private final RetryTopics retryTopics = new RetryTopics("userRegistration", Arrays.asList(1_000L, 10_000L));
+
+    @Test
+    @DisplayName("Test a failed record moves through every retry tier to the dead letter topic")
+    public void testNextTopic() {
+        assertEquals(Arrays.asList("userRegistration-retry-0", "userRegistration-retry-1"), retryTopics.getRetryTopics());
+        assertEquals("userRegistration-retry-0", retryTopics.nextTopic("userRegistration"));
+        assertEquals("userRegistration-retry-1", retryTopics.nextTopic("userRegistration-retry-0"));
+        assertEquals("userRegistration-dlt", retryTopics.nextTopic("userRegistration-retry-1"));
+        assertThrows(IllegalArgumentException.class, () -> retryTopics.nextTopic("backoffice"));
+    }
+
+    @Test
+    @DisplayName("Test a retried record is due its tier delay after it was moved")
+    public void testDueAt() {
+        assertEquals(1_500L, retryTopics.dueAt(record("userRegistration-retry-0", 500L)));
+        assertEquals(10_500L, retryTopics.dueAt(record("userRegistration-retry-1", 500L)));
+        assertEquals(500L, retryTopics.dueAt(record("userRegistration", 500L)));
+    }
+
+    @Test
+    @DisplayName("Test at least one retry tier is required")
+    public void testNoTiers() {
+        assertThrows(IllegalArgumentException.class, () -> new RetryTopics("userRegistration", Collections.emptyList()));
+    }
+
+    private ConsumerRecord<String, String> record(String topic, long timestamp) {
+        return new ConsumerRecord<>(topic, 0, 0L, timestamp, TimestampType.CREATE_TIME, 0L, 0, 0, null, "user");
+    }
+}
@@ -0,0 +1,139 @@
+package com.zss.backoffice.scaling;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListener;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ListenerAutoscalerTest {
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+
+    private final ConcurrentMessageListenerContainer<String, String> container = container();
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+
+    private final ListenerAutoscaler autoscaler = new ListenerAutoscaler(registry, Arrays.asList("backOfficeListener", "backOfficeBatchListener"),
+            mock(AdminClient.class), mock(Consumer.class), "userRegistration", "userRegistration",
+            new ListenerConcurrencyPolicy(1, 4, 10_000, 0), eventPublisher, 1000);
+
+    @Test
+    @DisplayName("Test the running listener is restarted with the concurrency its backlog needs")
+    public void testRunningListenerRescaled() {
+        when(registry.getListenerContainer("backOfficeListener")).thenReturn(container);
+        container.start();
+        try {
+            autoscaler.update(lag(2_000, 500, 0, 0), 1_000, 1_000);
+            autoscaler.update(lag(2_000, 500, 0, 0), 1_100, 2_000);
+
+            assertTrue(container.isRunning());
+            assertEquals(3, container.getConcurrency());
+            assertEquals(3, container.getContainers().size());
+        } finally {
+            container.stop();
+        }
+        ArgumentCaptor<ListenerScaledEvent> event = ArgumentCaptor.forClass(ListenerScaledEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(1, event.getValue().getFromConcurrency());
+        assertEquals(3, event.getValue().getToConcurrency());
+        assertTrue(event.getValue().isScaleUp());
+        assertEquals(2_500, autoscaler.getLag());
+        assertEquals(2_000, autoscaler.getMaxPartitionLag());
+        assertEquals(100.0, autoscaler.getRecordsPerSecond());
+        assertEquals(3, autoscaler.getConcurrency());
+        assertEquals(1, autoscaler.scaleUpCount());
+    }
+
+    @Test
+    @DisplayName("Test listeners that are not running are left alone")
+    public void testStoppedListenerIgnored() {
+        when(registry.getListenerContainer("backOfficeListener")).thenReturn(container);
+
+        autoscaler.update(lag(2_000, 500, 0, 0), 1_000, 1_000);
+        autoscaler.update(lag(2_000, 500, 0, 0), 1_100, 2_000);
+
+        assertFalse(container.isRunning());
+        assertEquals(1, container.getConcurrency());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    @DisplayName("Test a partition without a committed offset lags from its beginning offset")
+    public void testUncommittedPartitionLagsFromBeginning() throws Exception {
+        MockConsumer<String, String> endOffsetConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        TopicPartition committedPartition = new TopicPartition("userRegistration", 0);
+        TopicPartition uncommittedPartition = new TopicPartition("userRegistration", 1);
+        endOffsetConsumer.updatePartitions("userRegistration", Arrays.asList(
+                new PartitionInfo("userRegistration", 0, null, null, null),
+                new PartitionInfo("userRegistration", 1, null, null, null)));
+        endOffsetConsumer.updateBeginningOffsets(offsets(committedPartition, 100L, uncommittedPartition, 40L));
+        endOffsetConsumer.updateEndOffsets(offsets(committedPartition, 150L, uncommittedPartition, 90L));
+        AdminClient adminClient = mock(AdminClient.class);
+        ListConsumerGroupOffsetsResult committedOffsets = mock(ListConsumerGroupOffsetsResult.class);
+        when(adminClient.listConsumerGroupOffsets("userRegistration")).thenReturn(committedOffsets);
+        when(committedOffsets.partitionsToOffsetAndMetadata()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap(committedPartition, new OffsetAndMetadata(120L))));
+        ListenerAutoscaler sampled = new ListenerAutoscaler(registry, Arrays.asList("backOfficeListener"),
+                adminClient, endOffsetConsumer, "userRegistration", "userRegistration",
+                new ListenerConcurrencyPolicy(1, 4, 10_000, 0), eventPublisher, 1000);
+
+        sampled.sample();
+
+        assertEquals(80, sampled.getLag());
+        assertEquals(50, sampled.getMaxPartitionLag());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ConcurrentMessageListenerContainer<String, String> container() {
+        ConsumerFactory<String, String> consumerFactory = mock(ConsumerFactory.class);
+        when(consumerFactory.createConsumer(any(), any(), any(), any())).thenAnswer(invocation -> new MockConsumer<>(OffsetResetStrategy.EARLIEST));
+        ContainerProperties containerProperties = new ContainerProperties("userRegistration");
+        containerProperties.setGroupId("userRegistration");
+        containerProperties.setMessageListener((MessageListener<String, String>) record -> { });
+        return new ConcurrentMessageListenerContainer<>(consumerFactory, containerProperties);
+    }
+
+    private static Map<TopicPartition, Long> offsets(TopicPartition first, long firstOffset,
+                                                     TopicPartition second, long secondOffset) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        offsets.put(first, firstOffset);
+        offsets.put(second, secondOffset);
+        return offsets;
+    }
+
+    private static Map<TopicPartition, Long> lag(long... lags) {
+        Map<TopicPartition, Long> lagByPartition = new HashMap<>();
+        for (int i = 0; i < lags.length; i++) {
+            lagByPartition.put(new TopicPartition("userRegistration", i), lags[i]);
+        }
+        return lagByPartition;
+    }
+}
@@ -0,0 +1,55 @@
+package com.zss.backoffice.scaling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ListenerConcurrencyPolicyTest {
+
+    private final ListenerConcurrencyPolicy policy = new ListenerConcurrencyPolicy(1, 6, 10_000, 30_000);
+
+    @Test
+    @DisplayName("Test a backlog that would take too long to drain scales straight up to the consumers needed")
+    public void testScalesUpToDrainTarget() {
+        // two consumers commit 100 records/s: 5000 behind needs ten to drain in 10s, capped at six
+        assertEquals(6, policy.decide(2, 12, 5_000, 100, 60_000));
+        assertEquals(5, policy.decide(1, 12, 2_500, 50, 60_000));
+    }
+
+    @Test
+    @DisplayName("Test concurrency never goes beyond the partition count")
+    public void testBoundedByPartitions() {
+        assertEquals(3, policy.decide(1, 3, 100_000, 10, 60_000));
+        assertEquals(3, policy.decide(5, 3, 0, 10, 0));
+    }
+
+    @Test
+    @DisplayName("Test an idle or easily drained group releases one consumer at a time")
+    public void testScalesDownOneStep() {
+        assertEquals(3, policy.decide(4, 6, 0, 0, 60_000));
+        assertEquals(3, policy.decide(4, 6, 10, 1_000, 60_000));
+        assertEquals(1, policy.decide(1, 6, 0, 0, 60_000));
+    }
+
+    @Test
+    @DisplayName("Test a stalled backlog adds one consumer")
+    public void testStalledBacklogAddsOne() {
+        assertEquals(3, policy.decide(2, 6, 1_000, 0, 60_000));
+    }
+
+    @Test
+    @DisplayName("Test nothing changes during the cooldown or before a rate is known")
+    public void testHolds() {
+        assertEquals(2, policy.decide(2, 6, 5_000, 100, 10_000));
+        assertEquals(2, policy.decide(2, 6, 5_000, Double.NaN, 60_000));
+    }
+
+    @Test
+    @DisplayName("Test bounds that cannot be met are rejected")
+    public void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConcurrencyPolicy(0, 4, 10_000, 30_000));
+        assertThrows(IllegalArgumentException.class, () -> new ListenerConcurrencyPolicy(3, 2, 10_000, 30_000));
+    }
+}
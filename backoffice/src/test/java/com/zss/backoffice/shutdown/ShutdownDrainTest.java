@@ -0,0 +1,88 @@
+package com.zss.backoffice.shutdown;
+
+import com.zss.backoffice.exception.ShuttingDownException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShutdownDrainTest {
+
+    private final InFlightSends inFlightSends = new InFlightSends();
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+
+    private final InFlightSendInterceptor interceptor = new InFlightSendInterceptor();
+
+    @Test
+    @DisplayName("Test the listeners stop first and the replies they sent are awaited after them")
+    public void testStopsListenersBeforeAwaitingSends() {
+        interceptor.configure(Collections.singletonMap(InFlightSendInterceptor.IN_FLIGHT_SENDS_CONFIG, inFlightSends));
+        MessageListenerContainer listener = mock(MessageListenerContainer.class);
+        when(listener.isRunning()).thenReturn(true);
+        doAnswer(invocation -> {
+            // the last record of the batch sends its reply as the container stops
+            interceptor.onSend(new ProducerRecord<>("backoffice", "reply"));
+            new Thread(() -> {
+                invocation.getArgument(0, Runnable.class).run();
+                interceptor.onAcknowledgement(null, null);
+            }).start();
+            return null;
+        }).when(listener).stop(any(Runnable.class));
+        when(registry.getListenerContainers()).thenReturn(Collections.singletonList(listener));
+        ShutdownDrain drain = new ShutdownDrain(inFlightSends, registry, 1_000);
+        drain.start();
+
+        drain.stop();
+
+        assertTrue(drain.isDraining());
+        assertThrows(ShuttingDownException.class, drain::admit);
+        assertEquals(1, drain.stoppedListenerCount());
+        assertEquals(0, drain.abandonedListenerCount());
+        assertEquals(1, drain.drainedSendCount());
+        assertEquals(0, drain.abandonedSendCount());
+    }
+
+    @Test
+    @DisplayName("Test what is still running or in flight at the deadline is counted as abandoned")
+    public void testAbandonsAtTheDeadline() {
+        interceptor.configure(Collections.singletonMap(InFlightSendInterceptor.IN_FLIGHT_SENDS_CONFIG, inFlightSends));
+        interceptor.onSend(new ProducerRecord<>("backoffice", "unacknowledged"));
+        MessageListenerContainer stuck = mock(MessageListenerContainer.class);
+        when(stuck.isRunning()).thenReturn(true);
+        MessageListenerContainer stopped = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainers()).thenReturn(Arrays.asList(stuck, stopped));
+        ShutdownDrain drain = new ShutdownDrain(inFlightSends, registry, 100);
+        drain.start();
+
+        drain.stop();
+
+        assertEquals(0, drain.stoppedListenerCount());
+        assertEquals(1, drain.abandonedListenerCount());
+        assertEquals(0, drain.drainedSendCount());
+        assertEquals(1, drain.abandonedSendCount());
+    }
+
+    @Test
+    @DisplayName("Test an interceptor configured without a counter counts nothing")
+    public void testInterceptorWithoutCounter() {
+        interceptor.configure(Collections.emptyMap());
+        interceptor.onSend(new ProducerRecord<>("backoffice", "untracked"));
+        interceptor.onAcknowledgement(null, null);
+
+        assertEquals(0, inFlightSends.inFlight());
+        assertEquals(0, inFlightSends.completedCount());
+    }
+}
@@ -0,0 +1,83 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.model.RegistrationVerdict;
+import com.zss.backoffice.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegisteredUserViewTest {
+
+    private final RegisteredUserView view = new RegisteredUserView();
+
+    @Test
+    @DisplayName("Test users are found by id and by normalized email")
+    public void testLookups() {
+        view.apply("user@example.com", User.builder().id(1).email("User@Example.com").build());
+
+        assertEquals("User@Example.com", view.findById(1).get().getEmail());
+        assertEquals(1, view.findByEmail("  USER@example.com ").get().getId());
+        assertFalse(view.findById(2).isPresent());
+        assertFalse(view.findByEmail("").isPresent());
+        assertFalse(view.findByEmail(null).isPresent());
+    }
+
+    @Test
+    @DisplayName("Test a user re-keyed under a new email replaces its old row")
+    public void testRekeyedUserReplacesOldRow() {
+        view.apply("old@example.com", User.builder().id(1).email("old@example.com").build());
+        view.apply("new@example.com", User.builder().id(1).email("new@example.com").build());
+
+        assertEquals(1, view.size());
+        assertFalse(view.findByEmail("old@example.com").isPresent());
+        assertEquals("new@example.com", view.findById(1).get().getEmail());
+    }
+
+    @Test
+    @DisplayName("Test a tombstone removes the user from every index")
+    public void testTombstone() {
+        view.apply("user@example.com", User.builder().id(1).email("user@example.com").build());
+        view.apply("user@example.com", null);
+
+        assertEquals(0, view.size());
+        assertFalse(view.findById(1).isPresent());
+        assertFalse(view.findByEmail("user@example.com").isPresent());
+    }
+
+    @Test
+    @DisplayName("Test a registration is rejected when another user has its email")
+    public void testVerdict() {
+        view.apply("user@example.com", User.builder().id(1).email("user@example.com").build());
+
+        assertEquals(RegistrationVerdict.ALREADY_REGISTERED, view.verdictFor(User.builder().email("USER@example.com").build()));
+        assertEquals(RegistrationVerdict.ALREADY_REGISTERED, view.verdictFor(User.builder().id(2).email("user@example.com").build()));
+        assertEquals(RegistrationVerdict.ACCEPTED, view.verdictFor(User.builder().id(1).email("user@example.com").build()));
+        assertEquals(RegistrationVerdict.ACCEPTED, view.verdictFor(User.builder().email("other@example.com").build()));
+    }
+
+    @Test
+    @DisplayName("Test a registration without an id seen again is accepted and a different one with its email is not")
+    public void testVerdictWithoutId() {
+        view.apply("user@example.com", RegisteredUserView.withoutSecrets(User.builder().email("user@example.com").firstName("Ann")
+                .password("secret").build()));
+
+        assertEquals(RegistrationVerdict.ACCEPTED, view.verdictFor(User.builder().email("user@example.com").firstName("Ann")
+                .password("secret").verifyPassword("secret").build()));
+        assertEquals(RegistrationVerdict.ALREADY_REGISTERED, view.verdictFor(User.builder().email("user@example.com").firstName("Bob").build()));
+    }
+
+    @Test
+    @DisplayName("Test neither the view nor the changelog keeps passwords")
+    public void testWithoutSecrets() {
+        User user = RegisteredUserView.withoutSecrets(User.builder().id(1).email("user@example.com")
+                .password("secret").verifyPassword("secret").termsAndConditions(true).build());
+
+        assertNull(user.getPassword());
+        assertNull(user.getVerifyPassword());
+        assertTrue(user.isTermsAndConditions());
+    }
+}
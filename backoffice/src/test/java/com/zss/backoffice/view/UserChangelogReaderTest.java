@@ -0,0 +1,79 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.model.User;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.Config;
+import org.apache.kafka.clients.admin.ConfigEntry;
+import org.apache.kafka.clients.admin.DescribeConfigsResult;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserChangelogReaderTest {
+
+    private final TopicPartition partition = new TopicPartition("userChangelog", 0);
+
+    private final RegisteredUserView view = new RegisteredUserView();
+
+    private final MockConsumer<String, User> consumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+
+    private final AtomicReference<String> cleanupPolicy = new AtomicReference<>(TopicConfig.CLEANUP_POLICY_DELETE);
+
+    @Test
+    @DisplayName("Test the view is built once the changelog exists and is compacted, however late")
+    public void testReaderWaitsForCompactedChangelog() throws Exception {
+        UserChangelogReader reader = new UserChangelogReader(() -> consumer, this::adminClient, "userChangelog", view);
+        reader.start();
+        try {
+            TimeUnit.MILLISECONDS.sleep(200);
+            assertFalse(view.isReady());
+
+            consumer.updateBeginningOffsets(Collections.singletonMap(partition, 0L));
+            consumer.updateEndOffsets(Collections.singletonMap(partition, 1L));
+            consumer.updatePartitions("userChangelog", Collections.singletonList(new PartitionInfo("userChangelog", 0, null, null, null)));
+            TimeUnit.MILLISECONDS.sleep(200);
+            assertFalse(view.isReady());
+
+            consumer.schedulePollTask(() -> consumer.addRecord(new ConsumerRecord<>("userChangelog", 0, 0L, "user@example.com",
+                    User.builder().id(1).email("user@example.com").build())));
+            cleanupPolicy.set(TopicConfig.CLEANUP_POLICY_COMPACT);
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!view.isReady() && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+
+            assertTrue(view.isReady());
+            assertEquals(1, view.size());
+        } finally {
+            reader.stop();
+        }
+    }
+
+    private AdminClient adminClient() {
+        AdminClient adminClient = mock(AdminClient.class);
+        DescribeConfigsResult result = mock(DescribeConfigsResult.class);
+        when(adminClient.describeConfigs(any())).thenReturn(result);
+        when(result.all()).thenAnswer(invocation -> KafkaFuture.completedFuture(Collections.singletonMap(
+                new ConfigResource(ConfigResource.Type.TOPIC, "userChangelog"),
+                new Config(Collections.singletonList(new ConfigEntry(TopicConfig.CLEANUP_POLICY_CONFIG, cleanupPolicy.get()))))));
+        return adminClient;
+    }
+}
@@ -0,0 +1,40 @@
+package com.zss.backoffice.view;
+
+import com.zss.backoffice.model.RegistrationVerdict;
+import com.zss.backoffice.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import static com.zss.backoffice.config.BackoficeConstants.USER_CHANGELOG_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserChangelogTest {
+
+    private final RegisteredUserView view = new RegisteredUserView();
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, User> kafkaTemplate = mock(KafkaTemplate.class);
+
+    private final UserChangelog userChangelog = new UserChangelog(kafkaTemplate, view);
+
+    @Test
+    @DisplayName("Test a recorded user is in the view before its changelog record comes back")
+    public void testRecordedUserAppliedAtOnce() {
+        when(kafkaTemplate.send(anyString(), anyString(), any(User.class))).thenReturn(new SettableListenableFuture<>());
+
+        userChangelog.record(User.builder().id(1).email("user@example.com").password("secret").build());
+
+        verify(kafkaTemplate).send(eq(USER_CHANGELOG_TOPIC), eq("user@example.com"), any(User.class));
+        assertNull(view.findById(1).get().getPassword());
+        assertEquals(RegistrationVerdict.ALREADY_REGISTERED, view.verdictFor(User.builder().id(2).email("user@example.com").build()));
+    }
+}
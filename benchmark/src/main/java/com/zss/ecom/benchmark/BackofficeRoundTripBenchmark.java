@@ -0,0 +1,178 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.backoffice.codec.UserDeserializer;
+import com.zss.backoffice.codec.UserSerializer;
+import com.zss.backoffice.config.ProducerProfile;
+import com.zss.ecom.registration.model.UserKey;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The back office consume-transform-produce loop against an embedded broker, once committing consumer
+ * offsets after the replies are sent (at-least-once) and once committing offsets and replies in one
+ * transaction (exactly-once). Each invocation drains a freshly produced input topic; the score is per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@Fork(1)
+public class BackofficeRoundTripBenchmark {
+
+    private static final int RECORDS = 5_000;
+
+    private static final int PARTITIONS = 3;
+
+    private static final String GROUP_ID = "backoffice-benchmark";
+
+    @Param({"at-least-once", "exactly-once"})
+    public String mode;
+
+    private EmbeddedKafkaBroker broker;
+
+    private KafkaProducer<String, com.zss.ecom.registration.model.User> registrationProducer;
+
+    private KafkaProducer<String, com.zss.backoffice.model.User> replyProducer;
+
+    private KafkaConsumer<String, com.zss.backoffice.model.User> consumer;
+
+    private boolean exactlyOnce;
+
+    private int round;
+
+    private String inputTopic;
+
+    private String outputTopic;
+
+    @Setup(Level.Trial)
+    public void startBroker() {
+        exactlyOnce = "exactly-once".equals(mode);
+        broker = new EmbeddedKafkaBroker(1, false, PARTITIONS);
+        broker.brokerProperty("transaction.state.log.replication.factor", "1");
+        broker.brokerProperty("transaction.state.log.min.isr", "1");
+        broker.brokerProperty("group.initial.rebalance.delay.ms", "0");
+        broker.afterPropertiesSet();
+
+        Map<String, Object> registrationProps = new HashMap<>();
+        registrationProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        registrationProps.put(ProducerConfig.LINGER_MS_CONFIG, 5);
+        registrationProducer = new KafkaProducer<>(registrationProps, new StringSerializer(), UserCodecBenchmark.serializer());
+
+        Map<String, Object> replyProps = new HashMap<>();
+        replyProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        if (exactlyOnce) {
+            replyProps.putAll(ProducerProfile.DURABLE.getSettings());
+            replyProps.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, "backoffice-tx-benchmark");
+        } else {
+            replyProps.putAll(ProducerProfile.LOW_LATENCY.getSettings());
+        }
+        replyProducer = new KafkaProducer<>(replyProps, new StringSerializer(), new UserSerializer());
+        if (exactlyOnce) {
+            replyProducer.initTransactions();
+        }
+
+        Map<String, Object> consumerProps = new HashMap<>();
+        consumerProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString());
+        consumerProps.put(ConsumerConfig.GROUP_ID_CONFIG, GROUP_ID);
+        consumerProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        if (exactlyOnce) {
+            consumerProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        }
+        consumer = new KafkaConsumer<>(consumerProps, new StringDeserializer(), new UserDeserializer());
+    }
+
+    /**
+     * Fills a new input topic so every invocation starts from the same backlog and a clean group position.
+     * Partitions are assigned rather than subscribed to keep group rebalancing out of the measurement.
+     */
+    @Setup(Level.Invocation)
+    public void produceBacklog() {
+        round++;
+        inputTopic = "userRegistration-" + mode + "-" + round;
+        outputTopic = "userRegistrationProcessed-" + mode + "-" + round;
+        broker.addTopics(new NewTopic(inputTopic, PARTITIONS, (short) 1), new NewTopic(outputTopic, PARTITIONS, (short) 1));
+        for (int i = 0; i < RECORDS; i++) {
+            com.zss.ecom.registration.model.User user = BenchmarkUsers.withAddresses(1);
+            user.setId(i + 1);
+            user.setEmail("user" + i + "@example.com");
+            registrationProducer.send(new ProducerRecord<>(inputTopic, UserKey.of(user), user));
+        }
+        registrationProducer.flush();
+        List<TopicPartition> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new TopicPartition(inputTopic, i));
+        }
+        consumer.assign(partitions);
+        consumer.seekToBeginning(partitions);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public int roundTrip() {
+        int processed = 0;
+        while (processed < RECORDS) {
+            ConsumerRecords<String, com.zss.backoffice.model.User> records = consumer.poll(Duration.ofMillis(100));
+            if (records.isEmpty()) {
+                continue;
+            }
+            if (exactlyOnce) {
+                replyProducer.beginTransaction();
+            }
+            Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+            for (ConsumerRecord<String, com.zss.backoffice.model.User> record : records) {
+                replyProducer.send(new ProducerRecord<>(outputTopic, record.key(), record.value()));
+                offsets.put(new TopicPartition(record.topic(), record.partition()), new OffsetAndMetadata(record.offset() + 1));
+            }
+            if (exactlyOnce) {
+                replyProducer.sendOffsetsToTransaction(offsets, GROUP_ID);
+                replyProducer.commitTransaction();
+            } else {
+                consumer.commitSync(offsets);
+            }
+            processed += records.count();
+        }
+        return processed;
+    }
+
+    @TearDown(Level.Trial)
+    public void stopBroker() {
+        consumer.close();
+        replyProducer.close();
+        registrationProducer.close();
+        broker.destroy();
+    }
+}
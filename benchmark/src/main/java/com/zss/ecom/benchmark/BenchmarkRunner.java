@@ -0,0 +1,47 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.codec.UserSerializer;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Prints the payload size of each user shape and codec, then runs the benchmarks with the GC profiler
+ * so ops/s and normalized allocation ({@code gc.alloc.rate.norm}) land in one machine-readable report.
+ * Regular JMH command line options (e.g. a benchmark regex or {@code -f 0}) are passed through.
+ */
+public class BenchmarkRunner {
+
+    private static final int[] ADDRESS_COUNTS = {1, 5, 10};
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        printPayloadSizes();
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result("target/jmh-result.json")
+                .build();
+        new Runner(options).run();
+    }
+
+    private static void printPayloadSizes() {
+        UserSerializer serializer = UserCodecBenchmark.serializer();
+        System.out.println("# Payload size (bytes)");
+        System.out.printf("%-10s %8s %8s%n", "addresses", "json", "binary");
+        for (int addresses : ADDRESS_COUNTS) {
+            User user = BenchmarkUsers.withAddresses(addresses);
+            int json = serializer.serialize(UserCodecBenchmark.JSON_TOPIC, new RecordHeaders(), user).length;
+            int binary = serializer.serialize(UserCodecBenchmark.BINARY_TOPIC, new RecordHeaders(), user).length;
+            System.out.printf("%-10d %8d %8d%n", addresses, json, binary);
+        }
+        System.out.println();
+    }
+}
@@ -0,0 +1,48 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.model.Address;
+import com.zss.ecom.registration.model.User;
+
+import java.util.ArrayList;
+
+/**
+ * Realistic registration shapes, modelled on the userRequest.json used by the service tests.
+ */
+final class BenchmarkUsers {
+
+    private BenchmarkUsers(){}
+
+    static User withAddresses(int addressCount) {
+        ArrayList<Address> addresses = new ArrayList<>(addressCount);
+        for (int i = 0; i < addressCount; i++) {
+            addresses.add(Address.builder()
+                    .id(i + 1)
+                    .title("mr.")
+                    .firstName("TestUser")
+                    .lastName("TestLast")
+                    .isShippingAddress(i == 0)
+                    .isDefaultAddress(i == 0)
+                    .line1(i + " Pharmacy Street")
+                    .line2("Industrial Area Phase " + i)
+                    .city("Bengaluru")
+                    .town("Whitefield")
+                    .state("Karnataka")
+                    .build());
+        }
+        return User.builder()
+                .title("mr")
+                .firstName("TestUser")
+                .lastName("TestLast")
+                .email("testEmailAddress@gmail.com")
+                .password("P@ssw0rd")
+                .verifyPassword("P@ssw0rd")
+                .telephone(123456789)
+                .mobileNumber(9874563210f)
+                .customerType("STOCKIST")
+                .drugLicenseNo("654")
+                .receiveMarketingMails(true)
+                .termsAndConditions(true)
+                .addresses(addresses)
+                .build();
+    }
+}
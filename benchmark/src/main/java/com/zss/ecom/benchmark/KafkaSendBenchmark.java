@@ -0,0 +1,119 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.model.UserKey;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.internals.DefaultPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@code KafkaTemplate.send} path the controllers use, keyed and serialized as in production,
+ * against a {@link MockProducer} that acknowledges immediately so only client-side cost is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KafkaSendBenchmark {
+
+    private static final int PARTITIONS = 3;
+
+    private static final int HISTORY_LIMIT = 10_000;
+
+    @Param({"1", "5", "10"})
+    public int addresses;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private ReusableMockProducer producer;
+
+    private KafkaTemplate<String, User> kafkaTemplate;
+
+    private String topic;
+
+    private User user;
+
+    private int sent;
+
+    @Setup
+    public void setUp() {
+        topic = "binary".equals(codec) ? UserCodecBenchmark.BINARY_TOPIC : UserCodecBenchmark.JSON_TOPIC;
+        producer = new ReusableMockProducer(cluster(topic));
+        kafkaTemplate = new KafkaTemplate<>(new ProducerFactory<String, User>() {
+            @Override
+            public Producer<String, User> createProducer() {
+                return producer;
+            }
+
+            @Override
+            public Producer<String, User> createProducer(String txIdPrefix) {
+                return producer;
+            }
+        });
+        user = BenchmarkUsers.withAddresses(addresses);
+    }
+
+    @Benchmark
+    public ListenableFuture<SendResult<String, User>> send() {
+        if (++sent % HISTORY_LIMIT == 0) {
+            producer.clear();
+        }
+        return kafkaTemplate.send(topic, UserKey.of(user), user);
+    }
+
+    private static Cluster cluster(String topic) {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new PartitionInfo(topic, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("benchmark", Collections.singletonList(node), partitions,
+                Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * KafkaTemplate closes non-transactional producers after every send, which would end a plain MockProducer.
+     */
+    private static final class ReusableMockProducer extends MockProducer<String, User> {
+
+        ReusableMockProducer(Cluster cluster) {
+            super(cluster, true, new DefaultPartitioner(), new StringSerializer(), UserCodecBenchmark.serializer());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(Duration timeout) {
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.codec.UserSerializer;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.password.PasswordHasher;
+import com.zss.ecom.registration.password.PasswordHashing;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Eight request threads register users while two more serve requests that only serialize a user, the way
+ * one Tomcat pool serves both. With {@code stage=caller} the request threads hash themselves, as they would
+ * without the hashing pool; with {@code stage=pool} they wait on a pool of {@code hashingThreads}. Comparing
+ * the two shows what a given cost factor takes from registration throughput and what the pool gives back to
+ * the latency of everything else.
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    @Param({"10000", "100000", "310000"})
+    public int iterations;
+
+    @Param({"caller", "pool"})
+    public String stage;
+
+    @Param({"2"})
+    public int hashingThreads;
+
+    private PasswordHashing passwordHashing;
+
+    private UserSerializer serializer;
+
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        passwordHashing = new PasswordHashing(new PasswordHasher(iterations), hashingThreads, 64, 1);
+        serializer = UserCodecBenchmark.serializer();
+        user = BenchmarkUsers.withAddresses(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        passwordHashing.close();
+    }
+
+    @Benchmark
+    @Group("registration")
+    @GroupThreads(8)
+    public User register() {
+        return "pool".equals(stage) ? passwordHashing.submit(user).join() : passwordHashing.hashNow(user);
+    }
+
+    @Benchmark
+    @Group("registration")
+    @GroupThreads(2)
+    public byte[] otherRequest() {
+        return serializer.serialize(UserCodecBenchmark.JSON_TOPIC, new RecordHeaders(), user);
+    }
+}
@@ -0,0 +1,81 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.codec.UserDeserializer;
+import com.zss.ecom.registration.codec.UserSerializer;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization and deserialization of a user event with the JSON and binary codecs, through the
+ * same {@link UserSerializer}/{@link UserDeserializer} the services configure on their clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserCodecBenchmark {
+
+    static final String BINARY_TOPIC = "userRegistration-binary";
+
+    static final String JSON_TOPIC = "userRegistration";
+
+    @Param({"1", "5", "10"})
+    public int addresses;
+
+    @Param({"json", "binary"})
+    public String codec;
+
+    private UserSerializer serializer;
+
+    private UserDeserializer deserializer;
+
+    private String topic;
+
+    private User user;
+
+    private RecordHeaders payloadHeaders;
+
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        serializer = serializer();
+        deserializer = new UserDeserializer();
+        topic = "binary".equals(codec) ? BINARY_TOPIC : JSON_TOPIC;
+        user = BenchmarkUsers.withAddresses(addresses);
+        payloadHeaders = new RecordHeaders();
+        payload = serializer.serialize(topic, payloadHeaders, user);
+    }
+
+    @Benchmark
+    public byte[] serialize() {
+        return serializer.serialize(topic, new RecordHeaders(), user);
+    }
+
+    @Benchmark
+    public User deserialize() {
+        return deserializer.deserialize(topic, payloadHeaders, payload);
+    }
+
+    static UserSerializer serializer() {
+        UserSerializer serializer = new UserSerializer();
+        serializer.configure(Collections.singletonMap(UserSerializer.BINARY_TOPICS_CONFIG, BINARY_TOPIC), false);
+        return serializer;
+    }
+}
@@ -0,0 +1,43 @@
+package com.zss.ecom.benchmark;
+
+import com.zss.ecom.registration.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the Lombok {@code User.toString()} that the controllers build for their INFO log statements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserToStringBenchmark {
+
+    @Param({"1", "5", "10"})
+    public int addresses;
+
+    private User user;
+
+    @Setup
+    public void setUp() {
+        user = BenchmarkUsers.withAddresses(addresses);
+    }
+
+    @Benchmark
+    public String userToString() {
+        return user.toString();
+    }
+}
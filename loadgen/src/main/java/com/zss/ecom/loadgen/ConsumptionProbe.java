@@ -0,0 +1,58 @@
+package com.zss.ecom.loadgen;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confirms that the service on the other side consumed what the load produced, from the offsets its
+ * consumer group committed on the topic.
+ */
+final class ConsumptionProbe implements AutoCloseable {
+
+    private final AdminClient adminClient;
+
+    ConsumptionProbe(String bootstrapServers) {
+        this.adminClient = AdminClient.create(Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers));
+    }
+
+    /**
+     * The records of the topic the group has committed, summed over partitions.
+     */
+    long committed(Target target) throws InterruptedException, ExecutionException {
+        Map<TopicPartition, OffsetAndMetadata> offsets = adminClient.listConsumerGroupOffsets(target.getConsumerGroup())
+                .partitionsToOffsetAndMetadata().get();
+        long committed = 0;
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> offset : offsets.entrySet()) {
+            if (offset.getKey().topic().equals(target.getTopic()) && offset.getValue() != null) {
+                committed += offset.getValue().offset();
+            }
+        }
+        return committed;
+    }
+
+    /**
+     * Waits until the group has committed the expected records past the baseline, or the timeout elapses,
+     * and returns how many it had.
+     */
+    long awaitConsumed(Target target, long baseline, long expected, long timeoutMs) throws InterruptedException, ExecutionException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        long consumed = this.committed(target) - baseline;
+        while (consumed < expected && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(200);
+            consumed = this.committed(target) - baseline;
+        }
+        return consumed;
+    }
+
+    @Override
+    public void close() {
+        adminClient.close();
+    }
+}
@@ -0,0 +1,147 @@
+package com.zss.ecom.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Starts an embedded broker and both services against it, loads each requested /submit endpoint at a
+ * fixed rate, confirms the other service consumed everything that was accepted and writes a JSON report.
+ * Options are given as --name=value, see {@link LoadOptions}.
+ */
+public class LoadGeneratorRunner {
+
+    private static final int PARTITIONS = 3;
+
+    private static final long STARTUP_TIMEOUT_MS = 120_000;
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999", "p9999"};
+
+    public static void main(String[] args) throws Exception {
+        LoadOptions options = LoadOptions.parse(args);
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        EmbeddedKafkaBroker broker = new EmbeddedKafkaBroker(1, false, PARTITIONS);
+        broker.brokerProperty("transaction.state.log.replication.factor", "1");
+        broker.brokerProperty("transaction.state.log.min.isr", "1");
+        broker.brokerProperty("group.initial.rebalance.delay.ms", "0");
+        broker.afterPropertiesSet();
+        Path workDirectory = options.report.toAbsolutePath().getParent();
+        try (ServiceProcess registration = ServiceProcess.start(Target.REGISTRATION, options.appsDirectory, options.registrationPort,
+                     broker.getBrokersAsString(),
+                     Collections.singletonList("--registration.outbox.directory=" + workDirectory.resolve("loadgen-outbox-" + runId)),
+                     workDirectory.resolve("loadgen-registration.log"));
+             ServiceProcess backoffice = ServiceProcess.start(Target.BACKOFFICE, options.appsDirectory, options.backofficePort,
+                     broker.getBrokersAsString(), Collections.emptyList(), workDirectory.resolve("loadgen-backoffice.log"));
+             ConsumptionProbe probe = new ConsumptionProbe(broker.getBrokersAsString())) {
+            registration.awaitHealthy(STARTUP_TIMEOUT_MS);
+            backoffice.awaitHealthy(STARTUP_TIMEOUT_MS);
+            WebClient webClient = WebClient.builder()
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(ConnectionProvider.fixed("loadgen", options.maxConnections))))
+                    .build();
+            RandomUsers users = new RandomUsers(runId);
+
+            ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+            ObjectNode report = mapper.createObjectNode();
+            report.put("startedAt", Instant.now().toString());
+            report.put("rate", options.rate);
+            report.put("warmupSeconds", options.warmupSeconds);
+            report.put("durationSeconds", options.durationSeconds);
+            ArrayNode targets = report.putArray("targets");
+            for (Target target : options.targets) {
+                ServiceProcess service = target == Target.REGISTRATION ? registration : backoffice;
+                URI uri = service.url(target.submitPath()).toURI();
+                System.out.printf("# %s at %d requests/s for %d s after %d s of warmup%n",
+                        uri, options.rate, options.durationSeconds, options.warmupSeconds);
+                long baseline = probe.committed(target);
+                OpenLoopLoad.Result result = new OpenLoopLoad(webClient, uri, users, options.rate,
+                        Duration.ofMillis(options.requestTimeoutMs))
+                        .run(Duration.ofSeconds(options.warmupSeconds), Duration.ofSeconds(options.durationSeconds));
+                long drainStart = System.nanoTime();
+                long consumed = probe.awaitConsumed(target, baseline, result.accepted.sum(), options.drainTimeoutMs);
+                long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStart);
+                targets.add(targetReport(mapper, target, uri, result, consumed, drainMillis));
+                printSummary(result, consumed);
+            }
+            Files.createDirectories(options.report.toAbsolutePath().getParent());
+            mapper.writeValue(options.report.toFile(), report);
+            System.out.printf("Report written to %s%n", options.report.toAbsolutePath());
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    private static ObjectNode targetReport(ObjectMapper mapper, Target target, URI uri, OpenLoopLoad.Result result,
+                                           long consumed, long drainMillis) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("target", target.getService());
+        node.put("url", uri.toString());
+        node.put("requests", result.requests);
+        node.put("achievedRate", result.requests / (result.sendNanos / 1e9));
+        ObjectNode statuses = node.putObject("responses");
+        Map<Integer, LongAdder> sorted = new TreeMap<>(result.statuses);
+        sorted.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+        node.put("errors", result.errors.sum());
+        node.put("unfinished", result.unfinished);
+        node.set("latencyMicros", histogramReport(mapper, result.latency));
+        node.set("serviceTimeMicros", histogramReport(mapper, result.serviceTime));
+        ObjectNode consumption = node.putObject("consumption");
+        consumption.put("topic", target.getTopic());
+        consumption.put("consumerGroup", target.getConsumerGroup());
+        consumption.put("accepted", result.accepted.sum());
+        consumption.put("consumed", consumed);
+        consumption.put("confirmed", consumed >= result.accepted.sum());
+        consumption.put("drainMillis", drainMillis);
+        return node;
+    }
+
+    /**
+     * Percentiles for reading plus the whole histogram, compressed and base64 encoded, so that runs can
+     * be merged or replotted with HdrHistogram tools later.
+     */
+    private static ObjectNode histogramReport(ObjectMapper mapper, Histogram histogram) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("count", histogram.getTotalCount());
+        node.put("mean", histogram.getMean());
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            node.put(PERCENTILE_NAMES[i], histogram.getValueAtPercentile(PERCENTILES[i]));
+        }
+        node.put("max", histogram.getMaxValue());
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        int length = histogram.encodeIntoCompressedByteBuffer(buffer);
+        byte[] encoded = new byte[length];
+        buffer.flip();
+        buffer.get(encoded);
+        node.put("histogram", Base64.getEncoder().encodeToString(encoded));
+        return node;
+    }
+
+    private static void printSummary(OpenLoopLoad.Result result, long consumed) {
+        Histogram latency = result.latency;
+        System.out.printf("requests=%d errors=%d unfinished=%d p50=%dus p99=%dus p99.9=%dus max=%dus accepted=%d"
+                        + " consumed=%d%n",
+                result.requests, result.errors.sum(), result.unfinished, latency.getValueAtPercentile(50),
+                latency.getValueAtPercentile(99), latency.getValueAtPercentile(99.9), latency.getMaxValue(), result.accepted.sum(), consumed);
+    }
+}
@@ -0,0 +1,96 @@
+package com.zss.ecom.loadgen;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Command line options, given as --name=value.
+ */
+final class LoadOptions {
+
+    int rate = 200;
+
+    int warmupSeconds = 5;
+
+    int durationSeconds = 30;
+
+    List<Target> targets = new ArrayList<>(Arrays.asList(Target.values()));
+
+    int maxConnections = 500;
+
+    long requestTimeoutMs = 10_000;
+
+    long drainTimeoutMs = 60_000;
+
+    int registrationPort = 8081;
+
+    int backofficePort = 8082;
+
+    Path appsDirectory = Paths.get("target", "apps");
+
+    Path report = Paths.get("target", "loadgen-report.json");
+
+    private LoadOptions(){}
+
+    static LoadOptions parse(String[] args) {
+        LoadOptions options = new LoadOptions();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException(String.format("Expected --name=value but was [%s]", arg));
+            }
+            String value = arg.substring(separator + 1);
+            switch (arg.substring(2, separator)) {
+                case "rate":
+                    options.rate = Integer.parseInt(value);
+                    break;
+                case "warmup-seconds":
+                    options.warmupSeconds = Integer.parseInt(value);
+                    break;
+                case "duration-seconds":
+                    options.durationSeconds = Integer.parseInt(value);
+                    break;
+                case "targets":
+                    options.targets = new ArrayList<>();
+                    for (String name : value.split(",")) {
+                        options.targets.add(Target.of(name.trim()));
+                    }
+                    break;
+                case "max-connections":
+                    options.maxConnections = Integer.parseInt(value);
+                    break;
+                case "request-timeout-ms":
+                    options.requestTimeoutMs = Long.parseLong(value);
+                    break;
+                case "drain-timeout-ms":
+                    options.drainTimeoutMs = Long.parseLong(value);
+                    break;
+                case "registration-port":
+                    options.registrationPort = Integer.parseInt(value);
+                    break;
+                case "backoffice-port":
+                    options.backofficePort = Integer.parseInt(value);
+                    break;
+                case "apps":
+                    options.appsDirectory = Paths.get(value);
+                    break;
+                case "report":
+                    options.report = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("Unknown option [%s]", arg));
+            }
+        }
+        if (options.rate <= 0 || options.durationSeconds <= 0 || options.warmupSeconds < 0) {
+            throw new IllegalArgumentException("rate and duration-seconds must be positive, warmup-seconds not negative");
+        }
+        return options;
+    }
+
+    int portOf(Target target) {
+        return target == Target.REGISTRATION ? registrationPort : backofficePort;
+    }
+}
@@ -0,0 +1,145 @@
+package com.zss.ecom.loadgen;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests on a fixed schedule regardless of how fast the service answers. The latency of each
+ * request is measured from the time it was scheduled to be sent, not from when it was actually sent,
+ * so a stalled service is charged for every request that queued up behind the stall instead of the
+ * stall holding the load back (coordinated omission). The time from the actual send is kept apart as
+ * the service time. A request that fails, times out or is still outstanding when the run gives up
+ * waiting is charged too, at the time it has been waiting and never less than the request timeout,
+ * so the slowest requests cannot drop out of the latency histogram.
+ */
+final class OpenLoopLoad {
+
+    private final WebClient webClient;
+
+    private final URI uri;
+
+    private final RandomUsers users;
+
+    private final int rate;
+
+    private final Duration requestTimeout;
+
+    OpenLoopLoad(WebClient webClient, URI uri, RandomUsers users, int rate, Duration requestTimeout) {
+        this.webClient = webClient;
+        this.uri = uri;
+        this.users = users;
+        this.rate = rate;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Runs the warmup then the measured period; only requests scheduled in the measured period are
+     * recorded, but every accepted request counts towards what the other side must consume.
+     */
+    Result run(Duration warmup, Duration duration) throws InterruptedException {
+        Result result = new Result();
+        Recorder latency = new Recorder(3);
+        Recorder serviceTime = new Recorder(3);
+        AtomicInteger inFlight = new AtomicInteger();
+        Map<Long, Long> outstanding = new ConcurrentHashMap<>();
+        long timeoutMicros = TimeUnit.NANOSECONDS.toMicros(requestTimeout.toNanos());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measuredFrom = start + warmup.toNanos();
+        long end = measuredFrom + duration.toNanos();
+        for (long sequence = 0; ; sequence++) {
+            long scheduled = start + sequence * intervalNanos;
+            if (scheduled >= end) {
+                break;
+            }
+            sleepUntil(scheduled);
+            boolean measured = scheduled >= measuredFrom;
+            long sentAt = System.nanoTime();
+            if (measured) {
+                result.requests++;
+                outstanding.put(sequence, scheduled);
+            }
+            long key = sequence;
+            inFlight.incrementAndGet();
+            webClient.post()
+                    .uri(uri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .bodyValue(users.next(sequence))
+                    .exchange()
+                    .flatMap(response -> response.releaseBody().thenReturn(response.rawStatusCode()))
+                    .timeout(requestTimeout)
+                    .subscribe(status -> {
+                        long now = System.nanoTime();
+                        if (status >= 200 && status < 300) {
+                            result.accepted.increment();
+                        }
+                        if (measured && outstanding.remove(key) != null) {
+                            latency.recordValue(TimeUnit.NANOSECONDS.toMicros(now - scheduled));
+                            serviceTime.recordValue(TimeUnit.NANOSECONDS.toMicros(now - sentAt));
+                            result.statuses.computeIfAbsent(status, ignored -> new LongAdder()).increment();
+                        }
+                        inFlight.decrementAndGet();
+                    }, ex -> {
+                        if (measured && outstanding.remove(key) != null) {
+                            result.errors.increment();
+                            latency.recordValue(Math.max(
+                                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - scheduled), timeoutMicros));
+                        }
+                        inFlight.decrementAndGet();
+                    });
+        }
+        result.sendNanos = System.nanoTime() - measuredFrom;
+        long deadline = System.nanoTime() + requestTimeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        long now = System.nanoTime();
+        for (Long sequence : outstanding.keySet()) {
+            Long scheduled = outstanding.remove(sequence);
+            if (scheduled != null) {
+                result.unfinished++;
+                latency.recordValue(Math.max(TimeUnit.NANOSECONDS.toMicros(now - scheduled), timeoutMicros));
+            }
+        }
+        result.latency = latency.getIntervalHistogram();
+        result.serviceTime = serviceTime.getIntervalHistogram();
+        return result;
+    }
+
+    private static void sleepUntil(long nanoTime) {
+        long remaining;
+        while ((remaining = nanoTime - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+
+    static final class Result {
+
+        long requests;
+
+        long sendNanos;
+
+        long unfinished;
+
+        final LongAdder accepted = new LongAdder();
+
+        final LongAdder errors = new LongAdder();
+
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        Histogram latency;
+
+        Histogram serviceTime;
+    }
+}
@@ -0,0 +1,56 @@
+package com.zss.ecom.loadgen;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Request bodies shaped like the userRequest.json of the service tests, with the identifying fields
+ * randomized so that no two requests carry the same user.
+ */
+final class RandomUsers {
+
+    private static final String[] FIRST_NAMES = {"Asha", "Ravi", "Meera", "Arjun", "Divya", "Kiran", "Neha", "Vikram"};
+
+    private static final String[] LAST_NAMES = {"Rao", "Iyer", "Shah", "Nair", "Reddy", "Menon", "Patel", "Das"};
+
+    private static final String[] CUSTOMER_TYPES = {"STOCKIST", "RETAILER", "HOSPITAL"};
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final ObjectNode template;
+
+    private final String runId;
+
+    RandomUsers(String runId) {
+        this.runId = runId;
+        try (InputStream in = RandomUsers.class.getResourceAsStream("/userRequest.json")) {
+            this.template = (ObjectNode) mapper.readTree(in);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read the userRequest.json template", ex);
+        }
+    }
+
+    byte[] next(long sequence) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ObjectNode user = template.deepCopy();
+        user.put("id", sequence + 1);
+        user.put("firstName", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+        user.put("lastName", LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+        user.put("email", String.format("loadgen-%s-%d@example.com", runId, sequence));
+        user.put("telephone", 100_000_000 + random.nextInt(900_000_000));
+        user.put("mobileNumber", 9_000_000_000L + random.nextLong(1_000_000_000L));
+        user.put("customerType", CUSTOMER_TYPES[random.nextInt(CUSTOMER_TYPES.length)]);
+        user.put("drugLicenseNo", String.valueOf(random.nextInt(1_000_000)));
+        user.put("receiveMarketingMails", random.nextBoolean());
+        try {
+            return mapper.writeValueAsBytes(user);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.zss.ecom.loadgen;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One of the services, started from its runnable jar in a JVM of its own so that it has its own
+ * configuration, heap and threads, exactly as it would be deployed. Its output goes to a log file.
+ */
+final class ServiceProcess implements AutoCloseable {
+
+    private final Target target;
+
+    private final int port;
+
+    private final Process process;
+
+    private ServiceProcess(Target target, int port, Process process) {
+        this.target = target;
+        this.port = port;
+        this.process = process;
+    }
+
+    static ServiceProcess start(Target target, Path appsDirectory, int port, String bootstrapServers,
+                                List<String> extraArgs, Path logFile) throws IOException {
+        Path jar = appsDirectory.resolve(target.getService() + "-exec.jar");
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException(String.format("[%s] not found, run \"mvn package\" after installing the services", jar));
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-jar");
+        command.add(jar.toString());
+        command.add("--spring.profiles.active=local");
+        command.add("--server.port=" + port);
+        command.add("--spring.kafka.consumer.bootstrap-servers=" + bootstrapServers);
+        command.add("--spring.kafka.producer.bootstrap-servers=" + bootstrapServers);
+        command.addAll(extraArgs);
+        Files.createDirectories(logFile.toAbsolutePath().getParent());
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile())
+                .start();
+        return new ServiceProcess(target, port, process);
+    }
+
+    /**
+     * Polls the actuator health endpoint until the service reports up.
+     */
+    void awaitHealthy(long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        URL health = this.url(target.healthPath());
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException(String.format("%s exited with [%d] during startup", target.getService(), process.exitValue()));
+            }
+            try {
+                HttpURLConnection connection = (HttpURLConnection) health.openConnection();
+                connection.setConnectTimeout(1000);
+                connection.setReadTimeout(1000);
+                int status = connection.getResponseCode();
+                connection.disconnect();
+                if (status == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // not listening yet
+            }
+            TimeUnit.MILLISECONDS.sleep(500);
+        }
+        throw new IllegalStateException(String.format("%s did not become healthy within [%d] ms", target.getService(), timeoutMs));
+    }
+
+    URL url(String path) {
+        try {
+            return new URL("http", "localhost", port, path);
+        } catch (IOException ex) {
+            throw new IllegalArgumentException(ex);
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
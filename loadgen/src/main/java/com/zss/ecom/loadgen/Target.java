@@ -0,0 +1,52 @@
+package com.zss.ecom.loadgen;
+
+/**
+ * A /submit endpoint under load, with the topic it publishes to and the consumer group of the service
+ * on the other side that consumes it.
+ */
+enum Target {
+
+    REGISTRATION("registration", "userRegistration", "userRegistration"),
+    BACKOFFICE("backoffice", "backoffice", "backoffice");
+
+    private final String service;
+
+    private final String topic;
+
+    private final String consumerGroup;
+
+    Target(String service, String topic, String consumerGroup) {
+        this.service = service;
+        this.topic = topic;
+        this.consumerGroup = consumerGroup;
+    }
+
+    static Target of(String service) {
+        for (Target target : values()) {
+            if (target.service.equals(service)) {
+                return target;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown target [%s], expected registration or backoffice", service));
+    }
+
+    String getService() {
+        return service;
+    }
+
+    String getTopic() {
+        return topic;
+    }
+
+    String getConsumerGroup() {
+        return consumerGroup;
+    }
+
+    String submitPath() {
+        return "/" + service + "/submit";
+    }
+
+    String healthPath() {
+        return "/" + service + "/actuator/health";
+    }
+}
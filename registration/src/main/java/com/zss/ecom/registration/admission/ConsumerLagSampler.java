@@ -0,0 +1,164 @@
+package com.zss.ecom.registration.admission;
+
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Feeds {@link IngestAdmission} from a timer thread: the lag of the consumer group on the registration
+ * topic is its committed offsets, read through the admin client, against the end offsets, read by a
+ * consumer outside any group, which also gives the beginning offset a partition without a commit is
+ * counted from; the buffer usage is the fullest of the producers behind the templates, reading only
+ * producers a {@link MeteredProducerFactory} has already created, and the outbox backlog is what the
+ * relay has yet to send. When a sample cannot be taken the previous one stays in force.
+ */
+@Slf4j
+public class ConsumerLagSampler implements SmartLifecycle {
+
+    private final IngestAdmission admission;
+
+    private final AdminClient adminClient;
+
+    private final Consumer<?, ?> endOffsetConsumer;
+
+    private final Collection<KafkaTemplate<String, User>> kafkaTemplates;
+
+    private final RegistrationOutbox registrationOutbox;
+
+    private final String topic;
+
+    private final String consumerGroup;
+
+    private final long sampleIntervalMs;
+
+    private volatile ScheduledExecutorService timer;
+
+    public ConsumerLagSampler(IngestAdmission admission, AdminClient adminClient, Consumer<?, ?> endOffsetConsumer,
+                              Collection<KafkaTemplate<String, User>> kafkaTemplates, RegistrationOutbox registrationOutbox,
+                              String topic, String consumerGroup, long sampleIntervalMs) {
+        this.admission = admission;
+        this.adminClient = adminClient;
+        this.endOffsetConsumer = endOffsetConsumer;
+        this.kafkaTemplates = kafkaTemplates;
+        this.registrationOutbox = registrationOutbox;
+        this.topic = topic;
+        this.consumerGroup = consumerGroup;
+        this.sampleIntervalMs = sampleIntervalMs;
+    }
+
+    public void sample() throws Exception {
+        List<PartitionInfo> partitionInfos = endOffsetConsumer.partitionsFor(topic, Duration.ofMillis(sampleIntervalMs));
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> partitions = partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toList());
+        Map<TopicPartition, Long> endOffsets = endOffsetConsumer.endOffsets(partitions, Duration.ofMillis(sampleIntervalMs));
+        Map<TopicPartition, OffsetAndMetadata> committedOffsets = adminClient.listConsumerGroupOffsets(consumerGroup)
+                .partitionsToOffsetAndMetadata().get(sampleIntervalMs, TimeUnit.MILLISECONDS);
+        List<TopicPartition> uncommitted = partitions.stream()
+                .filter(partition -> committedOffsets.get(partition) == null)
+                .collect(Collectors.toList());
+        Map<TopicPartition, Long> beginningOffsets = uncommitted.isEmpty() ? Collections.emptyMap()
+                : endOffsetConsumer.beginningOffsets(uncommitted, Duration.ofMillis(sampleIntervalMs));
+        long lag = 0;
+        long committed = 0;
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            OffsetAndMetadata offset = committedOffsets.get(end.getKey());
+            long position = offset == null ? beginningOffsets.getOrDefault(end.getKey(), 0L) : offset.offset();
+            committed += position;
+            lag += Math.max(0, end.getValue() - position);
+        }
+        admission.update(lag, committed, this.bufferUsage(),
+                registrationOutbox == null ? 0 : registrationOutbox.getBacklogBytes(), System.currentTimeMillis());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registration-admission-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                this.sample();
+            } catch (Exception ex) {
+                log.warn("Unable to sample the lag of consumer group [{}], keeping the previous admission decision", consumerGroup, ex);
+            }
+        }, 0, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        ScheduledExecutorService current = timer;
+        timer = null;
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(sampleIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            endOffsetConsumer.close();
+            adminClient.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return timer != null;
+    }
+
+    private double bufferUsage() {
+        double usage = 0;
+        for (KafkaTemplate<String, User> kafkaTemplate : kafkaTemplates) {
+            ProducerFactory<String, User> producerFactory = kafkaTemplate.getProducerFactory();
+            if (!(producerFactory instanceof MeteredProducerFactory)) {
+                continue;
+            }
+            double available = -1;
+            double total = -1;
+            for (Map.Entry<MetricName, ? extends Metric> metric
+                    : ((MeteredProducerFactory<String, User>) producerFactory).producerMetrics().entrySet()) {
+                Object value = metric.getValue().metricValue();
+                if (!(value instanceof Double)) {
+                    continue;
+                }
+                if ("buffer-available-bytes".equals(metric.getKey().name())) {
+                    available = (Double) value;
+                } else if ("buffer-total-bytes".equals(metric.getKey().name())) {
+                    total = (Double) value;
+                }
+            }
+            if (available >= 0 && total > 0) {
+                usage = Math.max(usage, 1 - available / total);
+            }
+        }
+        return usage;
+    }
+}
@@ -0,0 +1,145 @@
+package com.zss.ecom.registration.admission;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Decides whether /submit takes another registration, from the latest sample of the back office consumer
+ * lag, of the producer buffer and of the outbox backlog. Below the throttle lag everything is admitted;
+ * between the throttle and the shed lag the admitted share falls linearly to none; at or above the shed lag,
+ * or with the producer buffer or the outbox backlog fuller than allowed, everything is rejected. Rejected callers are told to come back once the
+ * back office, at the rate it is currently consuming, should be back under the throttle lag.
+ */
+public class IngestAdmission {
+
+    private static final double DRAIN_RATE_SMOOTHING = 0.5;
+
+    private final long throttleLag;
+
+    private final long shedLag;
+
+    private final double maxBufferUsage;
+
+    private final long maxOutboxBacklogBytes;
+
+    private final long maxRetryAfterSeconds;
+
+    private final DoubleSupplier random;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private volatile State state = new State(0, 0, 0, 1, 1);
+
+    private long lastCommitted = -1;
+
+    private long lastSampleMs;
+
+    private double drainRate;
+
+    public IngestAdmission(long throttleLag, long shedLag, double maxBufferUsage, long maxOutboxBacklogBytes,
+                           long maxRetryAfterSeconds) {
+        this(throttleLag, shedLag, maxBufferUsage, maxOutboxBacklogBytes, maxRetryAfterSeconds,
+                () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    IngestAdmission(long throttleLag, long shedLag, double maxBufferUsage, long maxOutboxBacklogBytes,
+                    long maxRetryAfterSeconds, DoubleSupplier random) {
+        if (shedLag <= throttleLag) {
+            throw new IllegalArgumentException("The shed lag must be above the throttle lag");
+        }
+        this.throttleLag = throttleLag;
+        this.shedLag = shedLag;
+        this.maxBufferUsage = maxBufferUsage;
+        this.maxOutboxBacklogBytes = maxOutboxBacklogBytes;
+        this.maxRetryAfterSeconds = maxRetryAfterSeconds;
+        this.random = random;
+    }
+
+    /**
+     * Takes a new sample: the records the consumer group still has to consume, the records it has consumed
+     * in total, the fullest producer buffer as a fraction of its size, and the bytes the outbox relay has
+     * yet to send.
+     */
+    public synchronized void update(long lag, long committed, double bufferUsage, long outboxBacklogBytes, long nowMs) {
+        if (lastCommitted >= 0 && nowMs > lastSampleMs && committed >= lastCommitted) {
+            double rate = (committed - lastCommitted) * 1000.0 / (nowMs - lastSampleMs);
+            drainRate = DRAIN_RATE_SMOOTHING * rate + (1 - DRAIN_RATE_SMOOTHING) * drainRate;
+        }
+        lastCommitted = committed;
+        lastSampleMs = nowMs;
+        double admitted;
+        long retryAfter;
+        if (bufferUsage >= maxBufferUsage || outboxBacklogBytes >= maxOutboxBacklogBytes || lag >= shedLag) {
+            admitted = 0;
+        } else if (lag > throttleLag) {
+            admitted = 1 - (double) (lag - throttleLag) / (shedLag - throttleLag);
+        } else {
+            admitted = 1;
+        }
+        if (lag <= throttleLag) {
+            retryAfter = 1;
+        } else if (drainRate > 0) {
+            retryAfter = Math.min(maxRetryAfterSeconds, Math.max(1, (long) Math.ceil((lag - throttleLag) / drainRate)));
+        } else {
+            retryAfter = maxRetryAfterSeconds;
+        }
+        state = new State(lag, bufferUsage, outboxBacklogBytes, admitted, retryAfter);
+    }
+
+    /**
+     * @throws AdmissionRejectedException when the registration is shed
+     */
+    public void admit() {
+        State current = state;
+        if (current.admitted >= 1 || (current.admitted > 0 && random.getAsDouble() < current.admitted)) {
+            return;
+        }
+        rejected.increment();
+        throw new AdmissionRejectedException(String.format("Registration is %d records behind, retry in %d seconds",
+                current.lag, current.retryAfterSeconds), current.retryAfterSeconds);
+    }
+
+    public long getLag() {
+        return state.lag;
+    }
+
+    public double getBufferUsage() {
+        return state.bufferUsage;
+    }
+
+    public long getOutboxBacklogBytes() {
+        return state.outboxBacklogBytes;
+    }
+
+    public double getAdmittedShare() {
+        return state.admitted;
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    private static final class State {
+
+        private final long lag;
+
+        private final double bufferUsage;
+
+        private final long outboxBacklogBytes;
+
+        private final double admitted;
+
+        private final long retryAfterSeconds;
+
+        private State(long lag, double bufferUsage, long outboxBacklogBytes, double admitted, long retryAfterSeconds) {
+            this.lag = lag;
+            this.bufferUsage = bufferUsage;
+            this.outboxBacklogBytes = outboxBacklogBytes;
+            this.admitted = admitted;
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+    }
+}
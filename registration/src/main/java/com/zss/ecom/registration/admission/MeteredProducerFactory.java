@@ -0,0 +1,37 @@
+package com.zss.ecom.registration.admission;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A producer factory that keeps hold of the producer it hands out, so its metrics can be read without
+ * creating a producer for a template nothing sends through.
+ */
+public class MeteredProducerFactory<K, V> extends DefaultKafkaProducerFactory<K, V> {
+
+    private volatile Producer<K, V> producer;
+
+    public MeteredProducerFactory(Map<String, Object> configs) {
+        super(configs);
+    }
+
+    @Override
+    public Producer<K, V> createProducer() {
+        Producer<K, V> created = super.createProducer();
+        producer = created;
+        return created;
+    }
+
+    /**
+     * @return the metrics of the producer, empty while none was created
+     */
+    public Map<MetricName, ? extends Metric> producerMetrics() {
+        Producer<K, V> current = producer;
+        return current == null ? Collections.emptyMap() : current.metrics();
+    }
+}
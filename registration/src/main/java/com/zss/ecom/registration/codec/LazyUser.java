@@ -0,0 +1,111 @@
+package com.zss.ecom.registration.codec;
+
+import com.zss.ecom.registration.exception.UndecodableUserException;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_BINARY;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_SCHEMA_VERSION_HEADER;
+
+/**
+ * A back office record's user, kept as bytes until it is asked for. Its headers are readable at once; the reply
+ * listener routes on them alone and never decodes a body. Decoding happens in the listener rather than in the
+ * consumer's poll, so a body that cannot be read fails that one record with {@link UndecodableUserException}.
+ */
+public final class LazyUser implements Supplier<User> {
+
+    private final String topic;
+
+    private final Headers headers;
+
+    private final byte[] data;
+
+    private final UserDeserializer deserializer;
+
+    private User user;
+
+    private boolean decoded;
+
+    LazyUser(String topic, Headers headers, byte[] data, UserDeserializer deserializer) {
+        this.topic = topic;
+        this.headers = headers;
+        this.data = data;
+        this.deserializer = deserializer;
+    }
+
+    /**
+     * Wraps a user that is already in memory; it is serialized as JSON if it is ever written out.
+     */
+    public static LazyUser of(User user) {
+        LazyUser lazyUser = new LazyUser(null, new RecordHeaders(), null, null);
+        lazyUser.user = user;
+        lazyUser.decoded = true;
+        return lazyUser;
+    }
+
+    /**
+     * The header's last value as UTF-8 text; null when absent.
+     */
+    public String header(String name) {
+        Header header = headers.lastHeader(name);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The user, decoded the first time it is asked for.
+     *
+     * @throws UndecodableUserException when the body is in a format or binary schema version this service
+     * cannot read
+     */
+    @Override
+    public User get() {
+        if (!decoded) {
+            user = this.decode();
+            decoded = true;
+        }
+        return user;
+    }
+
+    public boolean isDecoded() {
+        return decoded;
+    }
+
+    public byte[] data() {
+        return data == null && user != null ? new UserSerializer().serialize(topic, user) : data;
+    }
+
+    private User decode() {
+        if (data == null) {
+            return null;
+        }
+        if (USER_FORMAT_BINARY.equals(this.header(USER_FORMAT_HEADER))) {
+            String version = this.header(USER_SCHEMA_VERSION_HEADER);
+            if (version != null && !isSupported(version)) {
+                throw new UndecodableUserException(String.format("Unsupported user schema version [%s] on %s", version, topic));
+            }
+        }
+        try {
+            return deserializer.deserialize(topic, headers, data);
+        } catch (RuntimeException ex) {
+            throw new UndecodableUserException(String.format("Unable to decode a user of %d bytes from %s", data.length, topic), ex);
+        }
+    }
+
+    /**
+     * The codec reads every version up to its own, so only a record written by a newer producer is refused.
+     */
+    private static boolean isSupported(String version) {
+        try {
+            int number = Integer.parseInt(version.trim());
+            return number >= 1 && number <= UserBinaryCodec.SCHEMA_VERSION;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+}
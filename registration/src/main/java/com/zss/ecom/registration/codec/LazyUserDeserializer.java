@@ -0,0 +1,35 @@
+package com.zss.ecom.registration.codec;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.Map;
+
+/**
+ * Wraps the raw value in a {@link LazyUser}; nothing is parsed until the listener calls {@link LazyUser#get()}.
+ */
+public class LazyUserDeserializer implements Deserializer<LazyUser> {
+
+    private final UserDeserializer userDeserializer = new UserDeserializer();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        userDeserializer.configure(configs, isKey);
+    }
+
+    @Override
+    public LazyUser deserialize(String topic, byte[] data) {
+        return this.deserialize(topic, new RecordHeaders(), data);
+    }
+
+    @Override
+    public LazyUser deserialize(String topic, Headers headers, byte[] data) {
+        return new LazyUser(topic, headers, data, userDeserializer);
+    }
+
+    @Override
+    public void close() {
+        userDeserializer.close();
+    }
+}
@@ -0,0 +1,15 @@
+package com.zss.ecom.registration.codec;
+
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Republishes a consumed {@link LazyUser} as the exact bytes it was consumed as, so dead letters and
+ * quarantined records keep the body that failed.
+ */
+public class LazyUserSerializer implements Serializer<LazyUser> {
+
+    @Override
+    public byte[] serialize(String topic, LazyUser data) {
+        return data == null ? null : data.data();
+    }
+}
@@ -0,0 +1,419 @@
+package com.zss.ecom.registration.codec;
+
+import com.zss.ecom.registration.model.Address;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compact tagged binary encoding of {@link User} and its {@link Address}es.
+ *
+ * <p>A payload starts with the schema version byte, followed by fields written as a varint tag
+ * ({@code fieldNumber << 3 | wireType}) and a value. Null and default valued fields are omitted.
+ * Decoders skip fields they do not know by their wire type and leave missing fields at their
+ * default, so fields can be added or retired without a coordinated deploy of producer and consumer.
+ * Field numbers must never be reused; a new version is only needed for an incompatible change.
+ */
+public final class UserBinaryCodec {
+
+    public static final byte SCHEMA_VERSION = 1;
+
+    private static final int VARINT = 0;
+    private static final int LENGTH_DELIMITED = 2;
+    private static final int FIXED32 = 5;
+
+    private static final int USER_ID = 1;
+    private static final int USER_TITLE = 2;
+    private static final int USER_FIRST_NAME = 3;
+    private static final int USER_LAST_NAME = 4;
+    private static final int USER_EMAIL = 5;
+    private static final int USER_PASSWORD = 6;
+    private static final int USER_VERIFY_PASSWORD = 7;
+    private static final int USER_TELEPHONE = 8;
+    private static final int USER_MOBILE_NUMBER = 9;
+    private static final int USER_CUSTOMER_TYPE = 10;
+    private static final int USER_DRUG_LICENSE_NO = 11;
+    private static final int USER_RECEIVE_MARKETING_MAILS = 12;
+    private static final int USER_TERMS_AND_CONDITIONS = 13;
+    private static final int USER_ADDRESSES = 14;
+
+    private static final int ADDRESS_ID = 1;
+    private static final int ADDRESS_TITLE = 2;
+    private static final int ADDRESS_FIRST_NAME = 3;
+    private static final int ADDRESS_LAST_NAME = 4;
+    private static final int ADDRESS_SHIPPING = 5;
+    private static final int ADDRESS_DEFAULT = 6;
+    private static final int ADDRESS_LINE1 = 7;
+    private static final int ADDRESS_LINE2 = 8;
+    private static final int ADDRESS_CITY = 9;
+    private static final int ADDRESS_TOWN = 10;
+    private static final int ADDRESS_STATE = 11;
+
+    private static final int RETAINED_BUFFER_LIMIT = 64 * 1024;
+
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(() -> new Writer(512));
+
+    private UserBinaryCodec(){}
+
+    public static byte[] encode(User user) {
+        Writer writer = WRITERS.get();
+        writer.reset();
+        writer.writeByte(SCHEMA_VERSION);
+        writer.writeInt(USER_ID, user.getId());
+        writer.writeString(USER_TITLE, user.getTitle());
+        writer.writeString(USER_FIRST_NAME, user.getFirstName());
+        writer.writeString(USER_LAST_NAME, user.getLastName());
+        writer.writeString(USER_EMAIL, user.getEmail());
+        writer.writeString(USER_PASSWORD, user.getPassword());
+        writer.writeString(USER_VERIFY_PASSWORD, user.getVerifyPassword());
+        writer.writeFloat(USER_TELEPHONE, user.getTelephone());
+        writer.writeFloat(USER_MOBILE_NUMBER, user.getMobileNumber());
+        writer.writeString(USER_CUSTOMER_TYPE, user.getCustomerType());
+        writer.writeString(USER_DRUG_LICENSE_NO, user.getDrugLicenseNo());
+        writer.writeBoolean(USER_RECEIVE_MARKETING_MAILS, user.isReceiveMarketingMails());
+        writer.writeBoolean(USER_TERMS_AND_CONDITIONS, user.isTermsAndConditions());
+        if (user.getAddresses() != null) {
+            // the address block carries its own count so an empty list survives the round trip
+            int addresses = writer.beginNested(USER_ADDRESSES);
+            writer.writeVarint(user.getAddresses().size());
+            for (Address address : user.getAddresses()) {
+                int nested = writer.beginNested();
+                encodeAddress(writer, address);
+                writer.endNested(nested);
+            }
+            writer.endNested(addresses);
+        }
+        byte[] payload = writer.toByteArray();
+        if (writer.capacity() > RETAINED_BUFFER_LIMIT) {
+            WRITERS.remove();
+        }
+        return payload;
+    }
+
+    public static User decode(byte[] data) {
+        Reader reader = new Reader(data, 0, data.length);
+        byte version = reader.readByte();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new SerializationException("Unsupported user schema version " + version);
+        }
+        User user = new User();
+        while (reader.hasRemaining()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case USER_ID: user.setId(reader.readZigZag()); break;
+                case USER_TITLE: user.setTitle(reader.readString()); break;
+                case USER_FIRST_NAME: user.setFirstName(reader.readString()); break;
+                case USER_LAST_NAME: user.setLastName(reader.readString()); break;
+                case USER_EMAIL: user.setEmail(reader.readString()); break;
+                case USER_PASSWORD: user.setPassword(reader.readString()); break;
+                case USER_VERIFY_PASSWORD: user.setVerifyPassword(reader.readString()); break;
+                case USER_TELEPHONE: user.setTelephone(reader.readFloat()); break;
+                case USER_MOBILE_NUMBER: user.setMobileNumber(reader.readFloat()); break;
+                case USER_CUSTOMER_TYPE: user.setCustomerType(reader.readString()); break;
+                case USER_DRUG_LICENSE_NO: user.setDrugLicenseNo(reader.readString()); break;
+                case USER_RECEIVE_MARKETING_MAILS: user.setReceiveMarketingMails(reader.readVarint() != 0); break;
+                case USER_TERMS_AND_CONDITIONS: user.setTermsAndConditions(reader.readVarint() != 0); break;
+                case USER_ADDRESSES: user.setAddresses(decodeAddresses(reader.readNested())); break;
+                default: reader.skip(tag & 0x7);
+            }
+        }
+        return user;
+    }
+
+    private static void encodeAddress(Writer writer, Address address) {
+        writer.writeInt(ADDRESS_ID, address.getId());
+        writer.writeString(ADDRESS_TITLE, address.getTitle());
+        writer.writeString(ADDRESS_FIRST_NAME, address.getFirstName());
+        writer.writeString(ADDRESS_LAST_NAME, address.getLastName());
+        writer.writeBoolean(ADDRESS_SHIPPING, address.isShippingAddress());
+        writer.writeBoolean(ADDRESS_DEFAULT, address.isDefaultAddress());
+        writer.writeString(ADDRESS_LINE1, address.getLine1());
+        writer.writeString(ADDRESS_LINE2, address.getLine2());
+        writer.writeString(ADDRESS_CITY, address.getCity());
+        writer.writeString(ADDRESS_TOWN, address.getTown());
+        writer.writeString(ADDRESS_STATE, address.getState());
+    }
+
+    private static ArrayList<Address> decodeAddresses(Reader reader) {
+        int count = reader.readVarint();
+        ArrayList<Address> addresses = new ArrayList<>(Math.min(count, 16));
+        for (int i = 0; i < count; i++) {
+            addresses.add(decodeAddress(reader.readNested()));
+        }
+        return addresses;
+    }
+
+    private static Address decodeAddress(Reader reader) {
+        Address address = new Address();
+        while (reader.hasRemaining()) {
+            int tag = reader.readVarint();
+            switch (tag >>> 3) {
+                case ADDRESS_ID: address.setId(reader.readZigZag()); break;
+                case ADDRESS_TITLE: address.setTitle(reader.readString()); break;
+                case ADDRESS_FIRST_NAME: address.setFirstName(reader.readString()); break;
+                case ADDRESS_LAST_NAME: address.setLastName(reader.readString()); break;
+                case ADDRESS_SHIPPING: address.setShippingAddress(reader.readVarint() != 0); break;
+                case ADDRESS_DEFAULT: address.setDefaultAddress(reader.readVarint() != 0); break;
+                case ADDRESS_LINE1: address.setLine1(reader.readString()); break;
+                case ADDRESS_LINE2: address.setLine2(reader.readString()); break;
+                case ADDRESS_CITY: address.setCity(reader.readString()); break;
+                case ADDRESS_TOWN: address.setTown(reader.readString()); break;
+                case ADDRESS_STATE: address.setState(reader.readString()); break;
+                default: reader.skip(tag & 0x7);
+            }
+        }
+        return address;
+    }
+
+    private static final class Writer {
+
+        private byte[] buffer;
+
+        private int position;
+
+        Writer(int capacity) {
+            this.buffer = new byte[capacity];
+        }
+
+        void reset() {
+            position = 0;
+        }
+
+        int capacity() {
+            return buffer.length;
+        }
+
+        void writeTag(int field, int wireType) {
+            writeVarint(field << 3 | wireType);
+        }
+
+        void writeInt(int field, int value) {
+            if (value != 0) {
+                writeTag(field, VARINT);
+                writeVarint(value << 1 ^ value >> 31);
+            }
+        }
+
+        void writeBoolean(int field, boolean value) {
+            if (value) {
+                writeTag(field, VARINT);
+                writeByte((byte) 1);
+            }
+        }
+
+        void writeFloat(int field, float value) {
+            if (value != 0f) {
+                writeTag(field, FIXED32);
+                int bits = Float.floatToIntBits(value);
+                ensureCapacity(4);
+                buffer[position++] = (byte) bits;
+                buffer[position++] = (byte) (bits >>> 8);
+                buffer[position++] = (byte) (bits >>> 16);
+                buffer[position++] = (byte) (bits >>> 24);
+            }
+        }
+
+        /**
+         * Writes UTF-8 straight into the buffer; unpaired surrogates become '?' as with {@link String#getBytes}.
+         */
+        void writeString(int field, String value) {
+            if (value == null) {
+                return;
+            }
+            writeTag(field, LENGTH_DELIMITED);
+            int length = utf8Length(value);
+            writeVarint(length);
+            ensureCapacity(length);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    buffer[position++] = (byte) c;
+                } else if (c < 0x800) {
+                    buffer[position++] = (byte) (0xC0 | c >> 6);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (!Character.isSurrogate(c)) {
+                    buffer[position++] = (byte) (0xE0 | c >> 12);
+                    buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | c & 0x3F);
+                } else if (isSurrogatePair(value, i)) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | codePoint >> 18);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    buffer[position++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    buffer[position++] = '?';
+                }
+            }
+        }
+
+        int beginNested(int field) {
+            writeTag(field, LENGTH_DELIMITED);
+            return beginNested();
+        }
+
+        /**
+         * Reserves a single byte for the length of a nested block; {@link #endNested} widens it if needed.
+         */
+        int beginNested() {
+            writeByte((byte) 0);
+            return position;
+        }
+
+        void endNested(int start) {
+            int length = position - start;
+            int extra = varintSize(length) - 1;
+            if (extra > 0) {
+                ensureCapacity(extra);
+                System.arraycopy(buffer, start, buffer, start + extra, length);
+            }
+            int end = position + extra;
+            position = start - 1;
+            writeVarint(length);
+            position = end;
+        }
+
+        void writeVarint(int value) {
+            ensureCapacity(5);
+            while ((value & ~0x7F) != 0) {
+                buffer[position++] = (byte) (value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        void writeByte(byte value) {
+            ensureCapacity(1);
+            buffer[position++] = value;
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+        private void ensureCapacity(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        private static int utf8Length(String value) {
+            int length = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < 0x80) {
+                    length++;
+                } else if (c < 0x800) {
+                    length += 2;
+                } else if (!Character.isSurrogate(c)) {
+                    length += 3;
+                } else if (isSurrogatePair(value, i)) {
+                    length += 4;
+                    i++;
+                } else {
+                    length++;
+                }
+            }
+            return length;
+        }
+
+        private static boolean isSurrogatePair(String value, int index) {
+            return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(index + 1));
+        }
+
+        private static int varintSize(int value) {
+            int size = 1;
+            while ((value & ~0x7F) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+
+        private final int limit;
+
+        private int position;
+
+        Reader(byte[] buffer, int offset, int limit) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        boolean hasRemaining() {
+            return position < limit;
+        }
+
+        byte readByte() {
+            require(1);
+            return buffer[position++];
+        }
+
+        int readVarint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("Malformed varint in user payload");
+        }
+
+        int readZigZag() {
+            int value = readVarint();
+            return value >>> 1 ^ -(value & 1);
+        }
+
+        float readFloat() {
+            require(4);
+            int bits = buffer[position] & 0xFF
+                    | (buffer[position + 1] & 0xFF) << 8
+                    | (buffer[position + 2] & 0xFF) << 16
+                    | (buffer[position + 3] & 0xFF) << 24;
+            position += 4;
+            return Float.intBitsToFloat(bits);
+        }
+
+        String readString() {
+            int length = readVarint();
+            require(length);
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        Reader readNested() {
+            int length = readVarint();
+            require(length);
+            Reader nested = new Reader(buffer, position, position + length);
+            position += length;
+            return nested;
+        }
+
+        void skip(int wireType) {
+            switch (wireType) {
+                case VARINT: readVarint(); break;
+                case FIXED32: require(4); position += 4; break;
+                case LENGTH_DELIMITED: readNested(); break;
+                default: throw new SerializationException("Unknown wire type " + wireType + " in user payload");
+            }
+        }
+
+        private void require(int length) {
+            if (length < 0 || position + length > limit) {
+                throw new SerializationException("Truncated user payload");
+            }
+        }
+    }
+}
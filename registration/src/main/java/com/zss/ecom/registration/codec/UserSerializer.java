@@ -0,0 +1,71 @@
+package com.zss.ecom.registration.codec;
+
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.util.StringUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_BINARY;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_SCHEMA_VERSION_HEADER;
+
+/**
+ * Writes users to the topics listed in {@link #BINARY_TOPICS_CONFIG} with {@link UserBinaryCodec} and
+ * to every other topic as JSON. Binary records are tagged with format and schema version headers so
+ * {@link UserDeserializer} can read both formats from the same topic while producers migrate.
+ */
+public class UserSerializer implements Serializer<User> {
+
+    public static final String BINARY_TOPICS_CONFIG = "user.serializer.binary.topics";
+
+    private static final byte[] BINARY_FORMAT = USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] BINARY_SCHEMA_VERSION = String.valueOf(UserBinaryCodec.SCHEMA_VERSION).getBytes(StandardCharsets.UTF_8);
+
+    private final JsonSerializer<User> jsonSerializer = new JsonSerializer<>();
+
+    private Set<String> binaryTopics = Collections.emptySet();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        jsonSerializer.configure(configs, isKey);
+        Object topics = configs.get(BINARY_TOPICS_CONFIG);
+        if (topics instanceof String) {
+            binaryTopics = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace((String) topics));
+        } else if (topics instanceof Collection) {
+            binaryTopics = new HashSet<>();
+            ((Collection<?>) topics).forEach(topic -> binaryTopics.add(topic.toString()));
+        }
+    }
+
+    @Override
+    public byte[] serialize(String topic, User data) {
+        if (data != null && binaryTopics.contains(topic)) {
+            return UserBinaryCodec.encode(data);
+        }
+        return jsonSerializer.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, User data) {
+        if (data != null && binaryTopics.contains(topic)) {
+            headers.remove(USER_FORMAT_HEADER).add(USER_FORMAT_HEADER, BINARY_FORMAT);
+            headers.remove(USER_SCHEMA_VERSION_HEADER).add(USER_SCHEMA_VERSION_HEADER, BINARY_SCHEMA_VERSION);
+            return UserBinaryCodec.encode(data);
+        }
+        return jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
@@ -0,0 +1,39 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.model.User;
+import reactor.kafka.sender.KafkaSender;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Reactive counterpart of {@link AckModeKafkaTemplates}: one sender per {@link AckMode} plus the
+ * mode used when a request does not ask for one.
+ */
+public class AckModeKafkaSenders {
+
+    private final Map<AckMode, KafkaSender<String, User>> senders;
+
+    private final AckMode defaultMode;
+
+    public AckModeKafkaSenders(Map<AckMode, KafkaSender<String, User>> senders, AckMode defaultMode) {
+        this.senders = new EnumMap<>(senders);
+        this.defaultMode = defaultMode;
+    }
+
+    public AckMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    public AckMode resolve(String requestedMode) {
+        return requestedMode == null ? this.getDefaultMode() : AckMode.of(requestedMode);
+    }
+
+    public KafkaSender<String, User> forMode(AckMode ackMode) {
+        return senders.get(ackMode);
+    }
+
+    public void close() {
+        senders.values().forEach(KafkaSender::close);
+    }
+}
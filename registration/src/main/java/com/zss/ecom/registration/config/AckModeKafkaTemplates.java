@@ -0,0 +1,41 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.model.User;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One interactive template per {@link AckMode}, since acknowledgement is fixed per producer, plus the
+ * mode used when a request does not ask for one.
+ */
+public class AckModeKafkaTemplates {
+
+    private final Map<AckMode, KafkaTemplate<String, User>> templates;
+
+    private final AckMode defaultMode;
+
+    public AckModeKafkaTemplates(Map<AckMode, KafkaTemplate<String, User>> templates, AckMode defaultMode) {
+        this.templates = new EnumMap<>(templates);
+        this.defaultMode = defaultMode;
+    }
+
+    public AckMode getDefaultMode() {
+        return defaultMode;
+    }
+
+    public AckMode resolve(String requestedMode) {
+        return requestedMode == null ? this.getDefaultMode() : AckMode.of(requestedMode);
+    }
+
+    public KafkaTemplate<String, User> forMode(AckMode ackMode) {
+        return templates.get(ackMode);
+    }
+
+    public Collection<KafkaTemplate<String, User>> all() {
+        return Collections.unmodifiableCollection(templates.values());
+    }
+}
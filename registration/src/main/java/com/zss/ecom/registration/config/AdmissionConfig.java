@@ -0,0 +1,104 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.admission.ConsumerLagSampler;
+import com.zss.ecom.registration.admission.IngestAdmission;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Admission control of /submit on the lag of the back office consumer group, enabled by
+ * "registration.admission.enabled".
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.admission.enabled", havingValue = "true")
+public class AdmissionConfig {
+
+    @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
+    private String bootstrapAddress;
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${registration.admission.consumer-group:userRegistration}")
+    private String consumerGroup;
+
+    @Value(value = "${registration.admission.sample-interval-ms:1000}")
+    private long sampleIntervalMs;
+
+    @Value(value = "${registration.admission.throttle-lag:10000}")
+    private long throttleLag;
+
+    @Value(value = "${registration.admission.shed-lag:50000}")
+    private long shedLag;
+
+    @Value(value = "${registration.admission.max-buffer-usage:0.9}")
+    private double maxBufferUsage;
+
+    @Value(value = "${registration.admission.max-outbox-backlog-bytes:536870912}")
+    private long maxOutboxBacklogBytes;
+
+    @Value(value = "${registration.admission.max-retry-after-seconds:60}")
+    private long maxRetryAfterSeconds;
+
+    @Bean
+    public IngestAdmission ingestAdmission() {
+        return new IngestAdmission(throttleLag, shedLag, maxBufferUsage, maxOutboxBacklogBytes, maxRetryAfterSeconds);
+    }
+
+    /**
+     * Samples the buffers of every registration producer, the outbox relay's included when the outbox is enabled.
+     */
+    @Bean
+    public ConsumerLagSampler consumerLagSampler(IngestAdmission ingestAdmission, AckModeKafkaTemplates ackModeKafkaTemplates,
+                                                 @Qualifier("bulkKafkaTemplate") KafkaTemplate<String, User> bulkKafkaTemplate,
+                                                 @Nullable @Qualifier("relayKafkaTemplate") KafkaTemplate<String, User> relayKafkaTemplate,
+                                                 @Nullable RegistrationOutbox registrationOutbox) {
+        List<KafkaTemplate<String, User>> kafkaTemplates = new ArrayList<>(ackModeKafkaTemplates.all());
+        kafkaTemplates.add(bulkKafkaTemplate);
+        if (relayKafkaTemplate != null) {
+            kafkaTemplates.add(relayKafkaTemplate);
+        }
+        AdminClient adminClient = AdminClient.create(Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress));
+        KafkaConsumer<byte[], byte[]> endOffsetConsumer = new KafkaConsumer<>(
+                Collections.singletonMap(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        return new ConsumerLagSampler(ingestAdmission, adminClient, endOffsetConsumer, kafkaTemplates, registrationOutbox,
+                defaultTopic, consumerGroup, sampleIntervalMs);
+    }
+
+    @Bean
+    public MeterBinder ingestAdmissionMetrics(IngestAdmission ingestAdmission) {
+        return registry -> {
+            Gauge.builder("registration.admission.lag", ingestAdmission, IngestAdmission::getLag)
+                    .tag("group", consumerGroup)
+                    .description("Records the back office consumer group has still to consume").register(registry);
+            Gauge.builder("registration.admission.buffer.usage", ingestAdmission, IngestAdmission::getBufferUsage)
+                    .description("Fullest producer buffer, as a fraction of its size").register(registry);
+            Gauge.builder("registration.admission.outbox.backlog", ingestAdmission, IngestAdmission::getOutboxBacklogBytes)
+                    .description("Outbox bytes the relay has yet to send").register(registry);
+            Gauge.builder("registration.admission.admitted", ingestAdmission, IngestAdmission::getAdmittedShare)
+                    .description("Share of registrations currently admitted").register(registry);
+            FunctionCounter.builder("registration.admission.rejected", ingestAdmission, IngestAdmission::rejectedCount)
+                    .description("Registrations rejected with 429").register(registry);
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.audit.RegistrationAuditLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Audit logging of registrations; the share of registrations logged is set by "registration.audit.sample-rate"
+ * for the steps that went well and "registration.audit.failure-sample-rate" for failures.
+ */
+@Configuration
+public class AuditConfig {
+
+    @Value(value = "${registration.audit.sample-rate:1.0}")
+    private double sampleRate;
+
+    @Value(value = "${registration.audit.failure-sample-rate:1.0}")
+    private double failureSampleRate;
+
+    @Bean
+    public RegistrationAuditLog registrationAuditLog() {
+        return new RegistrationAuditLog(sampleRate, failureSampleRate);
+    }
+}
@@ -0,0 +1,40 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.codec.LazyUser;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static com.zss.ecom.registration.config.RegistrationConstants.DEAD_LETTER_TOPIC_SUFFIX;
+
+/**
+ * Dead letter topic of the back office listener, enabled by "kafka.listener.dead-letter.enabled". The
+ * dead letter carries the original topic, partition, offset and the exception in the "kafka_dlt-" headers.
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.dead-letter.enabled", havingValue = "true")
+public class DeadLetterConfig {
+
+    @Value(value = "${kafka.topic.partitions}")
+    private int partitions;
+
+    @Value(value = "${kafka.topic.replication-factor}")
+    private short replicationFactor;
+
+    @Bean
+    public NewTopic backofficeDeadLetterTopic() {
+        return new NewTopic(BACKOFFICE_TOPIC + DEAD_LETTER_TOPIC_SUFFIX, partitions, replicationFactor);
+    }
+
+    @Bean
+    public DeadLetterPublishingRecoverer backOfficeDeadLetterRecoverer(KafkaTemplate<String, LazyUser> forwardingKafkaTemplate) {
+        return new DeadLetterPublishingRecoverer(forwardingKafkaTemplate,
+                (record, ex) -> new TopicPartition(record.topic() + DEAD_LETTER_TOPIC_SUFFIX, -1));
+    }
+}
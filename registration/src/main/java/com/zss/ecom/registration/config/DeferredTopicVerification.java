@@ -0,0 +1,63 @@
+package com.zss.ecom.registration.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.kafka.core.KafkaAdmin;
+
+/**
+ * Checks the registration and back office topics in the background after startup rather than during it.
+ * A broker that is not reachable yet costs a warning and another attempt {@code retryIntervalMs} later,
+ * never a registration service that is late to accept requests.
+ */
+@Slf4j
+public class DeferredTopicVerification implements ApplicationListener<ApplicationReadyEvent>, DisposableBean {
+
+    private final KafkaAdmin kafkaAdmin;
+
+    private final long retryIntervalMs;
+
+    private volatile Thread verifier;
+
+    public DeferredTopicVerification(KafkaAdmin kafkaAdmin, long retryIntervalMs) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.retryIntervalMs = retryIntervalMs;
+    }
+
+    @Override
+    public synchronized void onApplicationEvent(ApplicationReadyEvent event) {
+        if (verifier != null) {
+            return;
+        }
+        verifier = new Thread(this::verify, "registration-topic-verification");
+        verifier.setDaemon(true);
+        verifier.start();
+    }
+
+    @Override
+    public void destroy() {
+        Thread current = verifier;
+        if (current != null) {
+            current.interrupt();
+        }
+    }
+
+    private void verify() {
+        long started = System.currentTimeMillis();
+        for (int attempt = 1; !Thread.currentThread().isInterrupted(); attempt++) {
+            try {
+                kafkaAdmin.initialize();
+                log.info("Topics verified after {} attempt(s) in {} ms", attempt, System.currentTimeMillis() - started);
+                return;
+            } catch (RuntimeException ex) {
+                log.warn("Unable to verify topics on attempt {}, trying again in {} ms", attempt, retryIntervalMs, ex);
+            }
+            try {
+                Thread.sleep(retryIntervalMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
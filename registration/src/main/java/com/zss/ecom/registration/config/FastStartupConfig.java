@@ -0,0 +1,50 @@
+package com.zss.ecom.registration.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.MethodIntrospector;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.kafka.annotation.KafkaListener;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * What the "fast-startup" profile needs besides lazy bean initialization itself.
+ */
+@Configuration
+@Slf4j
+public class FastStartupConfig {
+
+    /**
+     * Keeps the controller, which consumes back office verdicts, out of lazy initialization: its listeners
+     * would otherwise wait for the first HTTP request to create it.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter kafkaListenerLazyInitializationExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> beanType != null && hasKafkaListener(beanType);
+    }
+
+    /**
+     * Stops the service once it has started, which is all the run recording the class data sharing archive needs.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "registration.startup.exit-when-ready", havingValue = "true")
+    public ApplicationListener<ApplicationReadyEvent> exitWhenReady() {
+        return event -> {
+            log.info("Ready {} ms after the JVM started, exiting", System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime());
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        };
+    }
+
+    private static boolean hasKafkaListener(Class<?> beanType) {
+        return AnnotatedElementUtils.hasAnnotation(beanType, KafkaListener.class)
+                || !MethodIntrospector.selectMethods(beanType, (MethodIntrospector.MetadataLookup<KafkaListener>) method ->
+                        AnnotatedElementUtils.findMergedAnnotation(method, KafkaListener.class)).isEmpty();
+    }
+}
@@ -0,0 +1,29 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.idempotency.IdempotentResponseCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The Idempotency-Key cache of /submit, enabled by "registration.idempotency.enabled".
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.idempotency.enabled", havingValue = "true")
+public class IdempotencyConfig {
+
+    @Value(value = "${registration.idempotency.max-entries:100000}")
+    private int maxEntries;
+
+    @Value(value = "${registration.idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value(value = "${registration.idempotency.stripes:16}")
+    private int stripes;
+
+    @Bean
+    public IdempotentResponseCache idempotentResponseCache() {
+        return new IdempotentResponseCache(maxEntries, ttlMs, stripes);
+    }
+}
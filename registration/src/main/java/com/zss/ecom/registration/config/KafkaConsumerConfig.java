@@ -1,6 +1,8 @@
 package com.zss.ecom.registration.config;
 
-import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.codec.LazyUser;
+import com.zss.ecom.registration.codec.LazyUserDeserializer;
+import com.zss.ecom.registration.quarantine.QuarantineRecoverer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,7 +11,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
-import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.SeekToCurrentErrorHandler;
+import org.springframework.lang.Nullable;
+import org.springframework.util.backoff.FixedBackOff;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -23,22 +29,67 @@ public class KafkaConsumerConfig {
     @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
     private String bootstrapAddress;
 
-    public ConsumerFactory<String, User> consumerFactory(String groupId) {
+    @Value(value = "${spring.kafka.consumer.auto-offset-reset:latest}")
+    private String autoOffsetReset;
+
+    @Value(value = "${kafka.listener.concurrency:${kafka.topic.partitions}}")
+    private int concurrency;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long sendTimeoutMs;
+
+    public Map<String, Object> consumerProps(String groupId) {
         Map<String, Object> props = new HashMap<>();
         props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
         props.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
-        return new DefaultKafkaConsumerFactory<>(props, new StringDeserializer(), new JsonDeserializer<>(User.class));
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, autoOffsetReset);
+        return props;
     }
 
-    public ConcurrentKafkaListenerContainerFactory<String, User> kafkaListenerContainerFactory(String groupId) {
-        ConcurrentKafkaListenerContainerFactory<String, User> factory = new ConcurrentKafkaListenerContainerFactory<>();
+    /**
+     * Values reach listeners undecoded, so a body that cannot be read fails its record in the listener instead of the poll.
+     */
+    public ConsumerFactory<String, LazyUser> consumerFactory(String groupId) {
+        return new DefaultKafkaConsumerFactory<>(consumerProps(groupId), new StringDeserializer(), new LazyUserDeserializer());
+    }
+
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> kafkaListenerContainerFactory(String groupId) {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory(groupId));
+        factory.setConcurrency(concurrency);
         return factory;
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, User> backOfficeKafkaListenerContainerFactory() {
-        return kafkaListenerContainerFactory(BACKOFFICE_GROUP_ID);
+    public QuarantineRecoverer quarantineRecoverer(KafkaTemplate<String, LazyUser> forwardingKafkaTemplate) {
+        return new QuarantineRecoverer(forwardingKafkaTemplate, sendTimeoutMs);
+    }
+
+    /**
+     * A back office record that cannot be decoded is quarantined. Any other failure is published to the dead
+     * letter topic at once when it is enabled, and logged and skipped when not.
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, LazyUser> backOfficeKafkaListenerContainerFactory(
+            QuarantineRecoverer quarantineRecoverer, @Nullable DeadLetterPublishingRecoverer backOfficeDeadLetterRecoverer) {
+        ConcurrentKafkaListenerContainerFactory<String, LazyUser> factory = kafkaListenerContainerFactory(BACKOFFICE_GROUP_ID);
+        factory.setErrorHandler(new SeekToCurrentErrorHandler(quarantineRecoverer.orElse(
+                backOfficeDeadLetterRecoverer != null ? backOfficeDeadLetterRecoverer : QuarantineRecoverer.LOG_AND_SKIP),
+                new FixedBackOff(0L, 0L)));
+        return factory;
+    }
+
+    /**
+     * For a consumer that assigns itself partitions and commits nothing: there is no group, no offsets to reset
+     * to, and only records of committed transactions are read.
+     */
+    public Map<String, Object> assignedConsumerProps() {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        return props;
     }
 
     @Bean
@@ -1,37 +1,105 @@
 package com.zss.ecom.registration.config;
 
+import com.zss.ecom.registration.admission.MeteredProducerFactory;
+import com.zss.ecom.registration.codec.LazyUser;
+import com.zss.ecom.registration.codec.LazyUserSerializer;
+import com.zss.ecom.registration.codec.UserSerializer;
 import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.shutdown.InFlightSendInterceptor;
+import com.zss.ecom.registration.shutdown.InFlightSends;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
 
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
 @Configuration
+@Slf4j
 public class KafkaProducerConfig {
 
     @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
     private String bootstrapAddress;
 
-    @Bean
-    public ProducerFactory<String, User> producerFactory() {
-        Map<String, Object> configProps = new HashMap<>();
+    @Value(value = "${kafka.serialization.binary-topics:}")
+    private String binaryTopics;
+
+    @Value(value = "${kafka.producer.profile:low-latency}")
+    private String profile;
+
+    @Value(value = "${kafka.producer.bulk-profile:high-throughput}")
+    private String bulkProfile;
+
+    @Value(value = "${kafka.producer.ack-mode:leader}")
+    private String ackMode;
+
+    public Map<String, Object> producerProps(String name, ProducerProfile producerProfile) {
+        Map<String, Object> configProps = new HashMap<>(producerProfile.getSettings());
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, UserSerializer.class);
+        configProps.put(UserSerializer.BINARY_TOPICS_CONFIG, binaryTopics);
+        configProps.put(ProducerConfig.INTERCEPTOR_CLASSES_CONFIG, InFlightSendInterceptor.class.getName());
+        configProps.put(InFlightSendInterceptor.IN_FLIGHT_SENDS_CONFIG, inFlightSends());
+        log.info("Kafka producer [{}] uses profile [{}] with {}", name, producerProfile.getProfileName(), producerProfile.getSettings());
+        return configProps;
+    }
+
+    /**
+     * Every producer built from {@link #producerProps} counts its unacknowledged records here.
+     */
+    @Bean
+    public InFlightSends inFlightSends() {
+        return new InFlightSends();
+    }
+
+    @Bean
+    public ProducerFactory<String, User> bulkProducerFactory() {
+        return new MeteredProducerFactory<>(producerProps("bulk", ProducerProfile.of(bulkProfile)));
     }
 
+    /**
+     * The interactive profile once per acknowledgement mode; producers are only created for the modes requests use.
+     */
     @Bean
+    public AckModeKafkaTemplates ackModeKafkaTemplates() {
+        Map<AckMode, KafkaTemplate<String, User>> templates = new EnumMap<>(AckMode.class);
+        for (AckMode mode : AckMode.values()) {
+            Map<String, Object> configProps = mode.applyTo(producerProps("interactive-" + mode.getModeName(), ProducerProfile.of(profile)));
+            templates.put(mode, new KafkaTemplate<>(new MeteredProducerFactory<>(configProps)));
+        }
+        return new AckModeKafkaTemplates(templates, AckMode.of(ackMode));
+    }
+
+    @Bean
+    @Primary
     public KafkaTemplate<String, User> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+        AckModeKafkaTemplates ackModeKafkaTemplates = ackModeKafkaTemplates();
+        return ackModeKafkaTemplates.forMode(ackModeKafkaTemplates.getDefaultMode());
+    }
+
+    @Bean
+    public KafkaTemplate<String, User> bulkKafkaTemplate() {
+        return new KafkaTemplate<>(bulkProducerFactory());
+    }
+
+    /**
+     * Republishes consumed back office records byte for byte, to the dead letter and quarantine topics,
+     * waiting for all replicas.
+     */
+    @Bean
+    public KafkaTemplate<String, LazyUser> forwardingKafkaTemplate() {
+        Map<String, Object> configProps = AckMode.ALL.applyTo(producerProps("forwarding", ProducerProfile.of(profile)));
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, LazyUserSerializer.class);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(configProps));
     }
 
 }
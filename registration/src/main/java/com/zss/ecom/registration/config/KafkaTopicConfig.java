@@ -1,8 +1,10 @@
 package com.zss.ecom.registration.config;
 
+import com.zss.ecom.registration.quarantine.QuarantineRecoverer;
 import org.apache.kafka.clients.admin.AdminClientConfig;
 import org.apache.kafka.clients.admin.NewTopic;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.core.KafkaAdmin;
@@ -21,20 +23,49 @@ public class KafkaTopicConfig {
     @Value(value = "${spring.kafka.template.default-topic}")
     private String defaultTopic;
 
+    @Value(value = "${kafka.topic.partitions}")
+    private int partitions;
+
+    @Value(value = "${kafka.topic.replication-factor}")
+    private short replicationFactor;
+
+    @Value(value = "${kafka.topic.deferred-verification.enabled:false}")
+    private boolean deferredVerification;
+
+    @Value(value = "${kafka.topic.deferred-verification.retry-interval-ms:5000}")
+    private long verificationRetryIntervalMs;
+
+    /**
+     * Topics are created as the context refreshes by default; with deferred verification it is left to
+     * {@link DeferredTopicVerification} once the service is up.
+     */
     @Bean
     public KafkaAdmin kafkaAdmin() {
         Map<String, Object> configs = new HashMap<>();
         configs.put(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress);
-        return new KafkaAdmin(configs);
+        KafkaAdmin kafkaAdmin = new KafkaAdmin(configs);
+        kafkaAdmin.setAutoCreate(!deferredVerification);
+        return kafkaAdmin;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "kafka.topic.deferred-verification.enabled", havingValue = "true")
+    public DeferredTopicVerification deferredTopicVerification(KafkaAdmin kafkaAdmin) {
+        return new DeferredTopicVerification(kafkaAdmin, verificationRetryIntervalMs);
     }
 
     @Bean
     public NewTopic registrationTopic() {
-        return new NewTopic(defaultTopic, 1, (short) 1);
+        return new NewTopic(defaultTopic, partitions, replicationFactor);
     }
 
     @Bean
     public NewTopic backofficeTopic() {
-        return new NewTopic(BACKOFFICE_TOPIC, 1, (short) 1);
+        return new NewTopic(BACKOFFICE_TOPIC, partitions, replicationFactor);
+    }
+
+    @Bean
+    public NewTopic backofficeQuarantineTopic() {
+        return new NewTopic(QuarantineRecoverer.quarantineTopic(BACKOFFICE_TOPIC), partitions, replicationFactor);
     }
 }
@@ -0,0 +1,88 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.scaling.ListenerAutoscaler;
+import com.zss.ecom.registration.scaling.ListenerConcurrencyPolicy;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.util.Collections;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_GROUP_ID;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_LISTENER_ID;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+
+/**
+ * Back office listener concurrency following the lag of the back office consumer group, enabled by
+ * "kafka.listener.autoscaling.enabled".
+ */
+@Configuration
+@ConditionalOnProperty(name = "kafka.listener.autoscaling.enabled", havingValue = "true")
+public class ListenerAutoscalingConfig {
+
+    @Value(value = "${spring.kafka.consumer.bootstrap-servers}")
+    private String bootstrapAddress;
+
+    @Value(value = "${kafka.listener.autoscaling.min-concurrency:1}")
+    private int minConcurrency;
+
+    @Value(value = "${kafka.listener.autoscaling.max-concurrency:${kafka.topic.partitions}}")
+    private int maxConcurrency;
+
+    @Value(value = "${kafka.listener.autoscaling.target-drain-ms:10000}")
+    private long targetDrainMs;
+
+    @Value(value = "${kafka.listener.autoscaling.cooldown-ms:30000}")
+    private long cooldownMs;
+
+    @Value(value = "${kafka.listener.autoscaling.sample-interval-ms:5000}")
+    private long sampleIntervalMs;
+
+    @Bean
+    public ListenerAutoscaler backOfficeListenerAutoscaler(KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+                                                           ApplicationEventPublisher eventPublisher) {
+        AdminClient adminClient = AdminClient.create(Collections.singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress));
+        KafkaConsumer<byte[], byte[]> endOffsetConsumer = new KafkaConsumer<>(
+                Collections.singletonMap(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapAddress),
+                new ByteArrayDeserializer(), new ByteArrayDeserializer());
+        return new ListenerAutoscaler(kafkaListenerEndpointRegistry, Collections.singletonList(BACKOFFICE_LISTENER_ID),
+                adminClient, endOffsetConsumer, BACKOFFICE_TOPIC, BACKOFFICE_GROUP_ID,
+                new ListenerConcurrencyPolicy(minConcurrency, maxConcurrency, targetDrainMs, cooldownMs),
+                eventPublisher, sampleIntervalMs);
+    }
+
+    @Bean
+    public MeterBinder backOfficeListenerAutoscalerMetrics(ListenerAutoscaler backOfficeListenerAutoscaler) {
+        return registry -> {
+            Gauge.builder("registration.listener.concurrency", backOfficeListenerAutoscaler, ListenerAutoscaler::getConcurrency)
+                    .tag("group", BACKOFFICE_GROUP_ID)
+                    .description("Consumers the back office listener runs").register(registry);
+            Gauge.builder("registration.listener.group.lag", backOfficeListenerAutoscaler, ListenerAutoscaler::getLag)
+                    .tag("group", BACKOFFICE_GROUP_ID)
+                    .description("Back office records not yet committed by the group").register(registry);
+            Gauge.builder("registration.listener.partition.lag.max", backOfficeListenerAutoscaler, ListenerAutoscaler::getMaxPartitionLag)
+                    .tag("group", BACKOFFICE_GROUP_ID)
+                    .description("Largest lag of a single back office partition").register(registry);
+            Gauge.builder("registration.listener.throughput", backOfficeListenerAutoscaler, ListenerAutoscaler::getRecordsPerSecond)
+                    .tag("group", BACKOFFICE_GROUP_ID)
+                    .description("Back office records committed per second over the last sample").register(registry);
+            FunctionCounter.builder("registration.listener.scaling", backOfficeListenerAutoscaler, ListenerAutoscaler::scaleUpCount)
+                    .tags("group", BACKOFFICE_GROUP_ID, "direction", "up")
+                    .description("Consumers were added to the back office listener").register(registry);
+            FunctionCounter.builder("registration.listener.scaling", backOfficeListenerAutoscaler, ListenerAutoscaler::scaleDownCount)
+                    .tags("group", BACKOFFICE_GROUP_ID, "direction", "down")
+                    .description("Consumers were removed from the back office listener").register(registry);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.metrics.RegistrationMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Registration pipeline meters, published through the actuator metrics endpoint.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public RegistrationMetrics registrationMetrics(MeterRegistry meterRegistry) {
+        return new RegistrationMetrics(meterRegistry);
+    }
+}
@@ -0,0 +1,73 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.admission.MeteredProducerFactory;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.OutboxRelay;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * The local outbox that /submit writes to when "registration.outbox.enabled" is set, and the relay
+ * that forwards it to the registration topic. The relay has a producer of its own on the durable profile,
+ * whatever profile the interactive producers use, so that its retries can neither duplicate nor reorder.
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.outbox.enabled", havingValue = "true")
+public class OutboxConfig {
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${registration.outbox.directory:outbox}")
+    private String directory;
+
+    @Value(value = "${registration.outbox.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value(value = "${registration.outbox.flush-interval-ms:2}")
+    private long flushIntervalMs;
+
+    @Value(value = "${registration.outbox.max-backlog-bytes:1073741824}")
+    private long maxBacklogBytes;
+
+    @Value(value = "${registration.outbox.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Value(value = "${registration.outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value(value = "${registration.outbox.relay.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value(value = "${registration.outbox.relay.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    @Value(value = "${registration.outbox.relay.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+
+    @Bean(destroyMethod = "close")
+    public RegistrationOutbox registrationOutbox() throws IOException {
+        return RegistrationOutbox.open(Paths.get(directory), segmentBytes, maxBacklogBytes, retryAfterSeconds, flushIntervalMs);
+    }
+
+    @Bean
+    public KafkaTemplate<String, User> relayKafkaTemplate(KafkaProducerConfig kafkaProducerConfig) {
+        return new KafkaTemplate<>(new MeteredProducerFactory<>(
+                kafkaProducerConfig.producerProps("outbox-relay", ProducerProfile.DURABLE)));
+    }
+
+    @Bean
+    public OutboxRelay outboxRelay(RegistrationOutbox registrationOutbox,
+                                   @Qualifier("relayKafkaTemplate") KafkaTemplate<String, User> relayKafkaTemplate) {
+        return new OutboxRelay(registrationOutbox, relayKafkaTemplate, defaultTopic, batchSize,
+                sendTimeoutMs, retryBackoffMs, maxRetryBackoffMs);
+    }
+}
@@ -0,0 +1,58 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.password.PasswordHasher;
+import com.zss.ecom.registration.password.PasswordHashing;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes passwords before registrations are published when "registration.password-hashing.enabled" is set.
+ * "registration.password-hashing.iterations" is the cost of one hash; the pool has "threads" threads, one per
+ * core by default, and "queue-capacity" registrations may wait for them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.password-hashing.enabled", havingValue = "true")
+public class PasswordHashingConfig {
+
+    @Value(value = "${registration.password-hashing.iterations:310000}")
+    private int iterations;
+
+    @Value(value = "${registration.password-hashing.threads:0}")
+    private int threads;
+
+    @Value(value = "${registration.password-hashing.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value(value = "${registration.password-hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    @Bean(destroyMethod = "close")
+    public PasswordHashing passwordHashing() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new PasswordHashing(new PasswordHasher(iterations), poolSize, queueCapacity, retryAfterSeconds);
+    }
+
+    @Bean
+    public MeterBinder passwordHashingMetrics(PasswordHashing passwordHashing) {
+        return registry -> {
+            Gauge.builder("registration.hashing.queue.depth", passwordHashing, PasswordHashing::queueDepth)
+                    .description("Registrations waiting for a password hashing thread").register(registry);
+            Gauge.builder("registration.hashing.active", passwordHashing, PasswordHashing::activeCount)
+                    .description("Password hashing threads busy").register(registry);
+            FunctionCounter.builder("registration.hashing.rejected", passwordHashing, PasswordHashing::rejectedCount)
+                    .description("Registrations turned away with the hashing queue full").register(registry);
+            FunctionTimer.builder("registration.hashing", passwordHashing, PasswordHashing::hashedCount,
+                    PasswordHashing::hashingNanos, TimeUnit.NANOSECONDS)
+                    .tag("iterations", String.valueOf(iterations))
+                    .description("Time spent hashing passwords").register(registry);
+        };
+    }
+}
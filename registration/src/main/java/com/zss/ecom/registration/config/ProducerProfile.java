@@ -0,0 +1,85 @@
+package com.zss.ecom.registration.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named producer tunings. Each profile sets batching, compression and acknowledgement as one
+ * coherent set rather than as individually overridden client defaults.
+ */
+public enum ProducerProfile {
+
+    /**
+     * Interactive requests: send immediately, leader acknowledgement only.
+     */
+    LOW_LATENCY("low-latency", settings(
+            ProducerConfig.LINGER_MS_CONFIG, 0,
+            ProducerConfig.BATCH_SIZE_CONFIG, 16384,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "none",
+            ProducerConfig.ACKS_CONFIG, "1",
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5,
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432L)),
+
+    /**
+     * Bulk imports: wait briefly to fill large batches and compress them cheaply.
+     */
+    HIGH_THROUGHPUT("high-throughput", settings(
+            ProducerConfig.LINGER_MS_CONFIG, 20,
+            ProducerConfig.BATCH_SIZE_CONFIG, 262144,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "lz4",
+            ProducerConfig.ACKS_CONFIG, "1",
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5,
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 134217728L)),
+
+    /**
+     * No loss or duplication on retry: all in-sync replicas acknowledge and the producer is idempotent.
+     */
+    DURABLE("durable", settings(
+            ProducerConfig.LINGER_MS_CONFIG, 5,
+            ProducerConfig.BATCH_SIZE_CONFIG, 65536,
+            ProducerConfig.COMPRESSION_TYPE_CONFIG, "zstd",
+            ProducerConfig.ACKS_CONFIG, "all",
+            ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true,
+            ProducerConfig.MAX_IN_FLIGHT_REQUESTS_PER_CONNECTION, 5,
+            ProducerConfig.RETRIES_CONFIG, Integer.MAX_VALUE,
+            ProducerConfig.BUFFER_MEMORY_CONFIG, 33554432L));
+
+    private final String profileName;
+
+    private final Map<String, Object> settings;
+
+    ProducerProfile(String profileName, Map<String, Object> settings) {
+        this.profileName = profileName;
+        this.settings = settings;
+    }
+
+    public String getProfileName() {
+        return profileName;
+    }
+
+    public Map<String, Object> getSettings() {
+        return settings;
+    }
+
+    public static ProducerProfile of(String name) {
+        String normalized = name.trim().toLowerCase(Locale.ROOT).replace('_', '-');
+        for (ProducerProfile profile : values()) {
+            if (profile.profileName.equals(normalized)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException(String.format("Unknown producer profile [%s]", name));
+    }
+
+    private static Map<String, Object> settings(Object... keyValues) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        for (int i = 0; i < keyValues.length; i += 2) {
+            settings.put((String) keyValues[i], keyValues[i + 1]);
+        }
+        return Collections.unmodifiableMap(settings);
+    }
+}
@@ -0,0 +1,82 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.codec.UserDeserializer;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_GROUP_ID;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+
+/**
+ * Reactor Kafka clients for the reactive runtime. Each sender bounds the records it has in flight, so
+ * a slow broker slows down reading request bodies rather than queueing users in memory.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveKafkaConfig {
+
+    private final KafkaProducerConfig kafkaProducerConfig;
+
+    private final KafkaConsumerConfig kafkaConsumerConfig;
+
+    @Value(value = "${kafka.producer.profile:low-latency}")
+    private String profile;
+
+    @Value(value = "${kafka.producer.bulk-profile:high-throughput}")
+    private String bulkProfile;
+
+    @Value(value = "${kafka.producer.ack-mode:leader}")
+    private String ackMode;
+
+    @Value(value = "${kafka.reactive.max-in-flight:256}")
+    private int maxInFlight;
+
+    @Autowired
+    public ReactiveKafkaConfig(KafkaProducerConfig kafkaProducerConfig, KafkaConsumerConfig kafkaConsumerConfig) {
+        this.kafkaProducerConfig = kafkaProducerConfig;
+        this.kafkaConsumerConfig = kafkaConsumerConfig;
+    }
+
+    @Bean
+    public AckModeKafkaSenders ackModeKafkaSenders() {
+        Map<AckMode, KafkaSender<String, User>> senders = new EnumMap<>(AckMode.class);
+        for (AckMode mode : AckMode.values()) {
+            Map<String, Object> configProps = mode.applyTo(
+                    kafkaProducerConfig.producerProps("reactive-" + mode.getModeName(), ProducerProfile.of(profile)));
+            senders.put(mode, KafkaSender.create(SenderOptions.<String, User>create(configProps).maxInFlight(maxInFlight)));
+        }
+        return new AckModeKafkaSenders(senders, AckMode.of(ackMode));
+    }
+
+    /**
+     * Keeps going past a failed record so the bulk response can report it next to the ones that succeeded.
+     */
+    @Bean
+    public KafkaSender<String, User> bulkKafkaSender() {
+        Map<String, Object> configProps = kafkaProducerConfig.producerProps("reactive-bulk", ProducerProfile.of(bulkProfile));
+        return KafkaSender.create(SenderOptions.<String, User>create(configProps)
+                .maxInFlight(maxInFlight)
+                .stopOnError(false));
+    }
+
+    @Bean
+    public KafkaReceiver<String, User> backOfficeKafkaReceiver() {
+        return KafkaReceiver.create(ReceiverOptions.<String, User>create(kafkaConsumerConfig.consumerProps(BACKOFFICE_GROUP_ID))
+                .withKeyDeserializer(new StringDeserializer())
+                .withValueDeserializer(new UserDeserializer())
+                .subscription(Collections.singleton(BACKOFFICE_TOPIC)));
+    }
+}
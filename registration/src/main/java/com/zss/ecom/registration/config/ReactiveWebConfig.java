@@ -0,0 +1,29 @@
+package com.zss.ecom.registration.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.APPLICATION_NDJSON_VALUE;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveWebConfig {
+
+    /**
+     * Lets the reactive bulk endpoint decode newline delimited JSON; each line is read as the previous
+     * one is sent, exactly like a JSON array. Ordered after Boot's own Jackson customizer, which it replaces.
+     */
+    @Bean
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    public CodecCustomizer ndjsonCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> configurer.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper,
+                MediaType.APPLICATION_JSON, MediaType.APPLICATION_STREAM_JSON, MediaType.parseMediaType(APPLICATION_NDJSON_VALUE)));
+    }
+}
@@ -4,6 +4,22 @@ public class RegistrationConstants {
 
     public static final String BACKOFFICE_GROUP_ID = "backoffice";
     public static final String BACKOFFICE_TOPIC = "backoffice";
+    public static final String BACKOFFICE_LISTENER_ID = "backOfficeListener";
+    public static final String DEAD_LETTER_TOPIC_SUFFIX = "-dlt";
+    public static final String QUARANTINE_TOPIC_SUFFIX = "-quarantine";
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final String USER_FORMAT_HEADER = "user-format";
+    public static final String USER_SCHEMA_VERSION_HEADER = "user-schema-version";
+    public static final String USER_FORMAT_BINARY = "binary";
+    public static final String ACK_MODE_HEADER = "X-Ack-Mode";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String EVENT_ID_HEADER = "event-id";
+    public static final String AWAIT_VERDICT_HEADER = "X-Await-Verdict";
+    public static final String VERDICT_HEADER = "registration-verdict";
+    public static final String VERDICT_ACCEPTED = "accepted";
+    public static final String VERDICT_UNAVAILABLE = "unavailable";
+    public static final String RECEIVED_AT_HEADER = "received-at";
+    public static final String SENT_AT_HEADER = "sent-at";
 
     private RegistrationConstants(){}
 
@@ -0,0 +1,36 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.codec.LazyUserDeserializer;
+import com.zss.ecom.registration.reply.BackOfficeReplyReader;
+import com.zss.ecom.registration.reply.PendingReplies;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+
+/**
+ * Lets /submit wait for the back office verdict when "registration.request-reply.enabled" is set, reading
+ * the replies with a consumer of this instance alone.
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.request-reply.enabled", havingValue = "true")
+public class RequestReplyConfig {
+
+    @Value(value = "${registration.request-reply.max-pending:10000}")
+    private int maxPending;
+
+    @Bean(destroyMethod = "close")
+    public PendingReplies pendingReplies() {
+        return new PendingReplies(maxPending);
+    }
+
+    @Bean
+    public BackOfficeReplyReader backOfficeReplyReader(PendingReplies pendingReplies, KafkaConsumerConfig kafkaConsumerConfig) {
+        return new BackOfficeReplyReader(() -> new KafkaConsumer<>(kafkaConsumerConfig.assignedConsumerProps(),
+                new StringDeserializer(), new LazyUserDeserializer()), BACKOFFICE_TOPIC, pendingReplies);
+    }
+}
@@ -0,0 +1,97 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.shutdown.InFlightSends;
+import com.zss.ecom.registration.shutdown.ShutdownDrain;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Draining of registrations, sends and listeners before shutdown, enabled by "registration.shutdown.drain.enabled".
+ * While it drains the "shutdownDrain" health component is out of service, so /actuator/health answers 503,
+ * and so does /submit.
+ */
+@Configuration
+@ConditionalOnProperty(name = "registration.shutdown.drain.enabled", havingValue = "true")
+public class ShutdownDrainConfig {
+
+    @Value(value = "${registration.shutdown.drain.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Bean
+    public ShutdownDrain shutdownDrain(InFlightSends inFlightSends, KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry) {
+        return new ShutdownDrain(inFlightSends, kafkaListenerEndpointRegistry, timeoutMs);
+    }
+
+    @Bean
+    public HealthIndicator shutdownDrainHealthIndicator(ShutdownDrain shutdownDrain) {
+        return () -> shutdownDrain.isDraining()
+                ? Health.outOfService().withDetail("inFlightSends", shutdownDrain.inFlightSends()).build()
+                : Health.up().build();
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public WebMvcConfigurer shutdownDrainWebMvcConfigurer(ShutdownDrain shutdownDrain) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(new HandlerInterceptor() {
+                    @Override
+                    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                        shutdownDrain.admit();
+                        return true;
+                    }
+                }).addPathPatterns("/submit", "/submit/**");
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    public WebFilter shutdownDrainWebFilter(ShutdownDrain shutdownDrain) {
+        return (exchange, chain) -> {
+            if (shutdownDrain.isDraining() && exchange.getRequest().getPath().value().matches(".*/submit(/.*)?")) {
+                exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+                exchange.getResponse().getHeaders().set(HttpHeaders.CONNECTION, "close");
+                return exchange.getResponse().setComplete();
+            }
+            return chain.filter(exchange);
+        };
+    }
+
+    @Bean
+    public MeterBinder shutdownDrainMetrics(ShutdownDrain shutdownDrain) {
+        return registry -> {
+            Gauge.builder("registration.shutdown.draining", shutdownDrain, drain -> drain.isDraining() ? 1 : 0)
+                    .description("Whether the service is draining before shutdown").register(registry);
+            Gauge.builder("registration.shutdown.sends.in.flight", shutdownDrain, ShutdownDrain::inFlightSends)
+                    .description("Records sent and not yet acknowledged or failed").register(registry);
+            FunctionCounter.builder("registration.shutdown.sends.drained", shutdownDrain, ShutdownDrain::drainedSendCount)
+                    .description("Sends completed while draining").register(registry);
+            FunctionCounter.builder("registration.shutdown.sends.abandoned", shutdownDrain, ShutdownDrain::abandonedSendCount)
+                    .description("Sends still in flight when the drain deadline passed").register(registry);
+            FunctionCounter.builder("registration.shutdown.listeners.stopped", shutdownDrain, ShutdownDrain::stoppedListenerCount)
+                    .description("Listener containers that committed and stopped while draining").register(registry);
+            FunctionCounter.builder("registration.shutdown.listeners.abandoned", shutdownDrain, ShutdownDrain::abandonedListenerCount)
+                    .description("Listener containers still running when the drain deadline passed").register(registry);
+        };
+    }
+}
@@ -0,0 +1,18 @@
+package com.zss.ecom.registration.exception;
+
+/**
+ * A registration turned away because registration, or the pipeline behind it, is too busy to take it now.
+ */
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds){
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
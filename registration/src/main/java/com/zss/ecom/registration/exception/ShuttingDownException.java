@@ -0,0 +1,11 @@
+package com.zss.ecom.registration.exception;
+
+/**
+ * A registration that arrived after this instance began draining for shutdown; another instance should take it.
+ */
+public class ShuttingDownException extends RuntimeException {
+
+    public ShuttingDownException(String message){
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.zss.ecom.registration.exception;
+
+/**
+ * A back office record whose value is not a user this service can read. Reading it again gives the same
+ * result, so the record is quarantined instead of being retried or dead lettered.
+ */
+public class UndecodableUserException extends RuntimeException {
+
+    public UndecodableUserException(String message){
+        super(message);
+    }
+
+    public UndecodableUserException(String message, Throwable cause){
+        super(message, cause);
+    }
+
+    /**
+     * Whether this exception is the one thrown or any cause of it, as the container wraps listener failures.
+     */
+    public static boolean isCauseOf(Throwable ex){
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UndecodableUserException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,267 @@
+package com.zss.ecom.registration.facade;
+
+import com.zss.ecom.registration.audit.RegistrationAuditLog;
+import com.zss.ecom.registration.config.AckMode;
+import com.zss.ecom.registration.config.AckModeKafkaSenders;
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.exception.ApplicationException;
+import com.zss.ecom.registration.model.BulkRegistrationFailure;
+import com.zss.ecom.registration.model.BulkRegistrationResponse;
+import com.zss.ecom.registration.model.RegistrationEvent;
+import com.zss.ecom.registration.model.RegistrationResponse;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.password.PasswordHashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.ACK_MODE_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.APPLICATION_NDJSON_VALUE;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+
+/**
+ * The registration endpoints and back office listener on WebFlux and Reactor Kafka, active when the
+ * "reactive" profile selects the reactive web application type. Request bodies are only read as fast
+ * as the senders get acknowledgements back, so the broker paces the clients end to end.
+ */
+@RestController
+@RequestMapping(path = "${server.servlet.context-path:}")
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@Slf4j
+public class ReactiveRegistrationController {
+
+    private static final int BULK_HASHING_CONCURRENCY = Runtime.getRuntime().availableProcessors();
+
+    private final AckModeKafkaSenders kafkaSenders;
+
+    private final KafkaSender<String, User> bulkKafkaSender;
+
+    private final KafkaReceiver<String, User> backOfficeKafkaReceiver;
+
+    private final CountDownLatch countDownLatch;
+
+    private final RegistrationAuditLog auditLog;
+
+    private final PasswordHashing passwordHashing;
+
+    private Disposable backOfficeSubscription;
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
+    @Value(value = "${registration.bulk.max-reported-failures:1000}")
+    private int maxReportedFailures;
+
+    @Autowired
+    public ReactiveRegistrationController(AckModeKafkaSenders kafkaSenders,
+                                          @Qualifier("bulkKafkaSender") KafkaSender<String, User> bulkKafkaSender,
+                                          KafkaReceiver<String, User> backOfficeKafkaReceiver,
+                                          CountDownLatch countDownLatch,
+                                          RegistrationAuditLog auditLog,
+                                          @Nullable PasswordHashing passwordHashing){
+        this.kafkaSenders = kafkaSenders;
+        this.bulkKafkaSender = bulkKafkaSender;
+        this.backOfficeKafkaReceiver = backOfficeKafkaReceiver;
+        this.countDownLatch = countDownLatch;
+        this.auditLog = auditLog;
+        this.passwordHashing = passwordHashing;
+    }
+
+    /**
+     * Same contract as the servlet endpoint, except that fire-and-forget still waits for the record to
+     * leave the producer so it counts against the in-flight limit.
+     */
+    @PostMapping(path = "/submit", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<RegistrationResponse>> userRegistration(@RequestBody Mono<User> body,
+            @RequestHeader(value = ACK_MODE_HEADER, required = false) String ackModeName){
+        AckMode ackMode = kafkaSenders.resolve(ackModeName);
+        HttpStatus status = ackMode.awaitsAcknowledgement() ? HttpStatus.CREATED : HttpStatus.ACCEPTED;
+        return body.flatMap(user -> {
+            auditLog.received(user);
+            return this.hashed(user).flatMap(hashedUser -> kafkaSenders.forMode(ackMode)
+                    .send(Mono.just(SenderRecord.create(RegistrationEvent.record(defaultTopic, hashedUser), hashedUser)))
+                    .next()
+                    .map(result -> {
+                        auditLog.sent(user, result.recordMetadata().topic(), result.recordMetadata().partition(), result.recordMetadata().offset());
+                        return ResponseEntity.status(status).body(response("User Registration Submitted"));
+                    })
+                    .doOnError(ex -> auditLog.failed("send", user, ex))
+                    .onErrorMap(ex -> new ApplicationException(String.format("Unable to send message to back office=[{%s}]", RegistrationAuditLog.describe(user)), ex)));
+        }).timeout(Duration.ofMillis(ackTimeoutMs),
+                Mono.just(ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response("User Registration Acknowledgement Timed Out"))));
+    }
+
+    /**
+     * Streams a JSON array or newline delimited JSON into the bulk sender. A body that stops parsing ends
+     * the stream and is reported on the line after the last one read. Users are hashed a few at a time and sent
+     * in order; a line the hashing pool has no room for is reported as failed rather than waited for.
+     */
+    @PostMapping(path = "/submit/bulk", consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<BulkRegistrationResponse> bulkUserRegistration(@RequestBody Flux<User> users){
+        BulkTally tally = new BulkTally(maxReportedFailures);
+        Flux<SenderRecord<String, User, Integer>> records = users.index().flatMapSequential(indexed -> {
+            int line = (int) (indexed.getT1() + 1);
+            tally.received();
+            return this.hashed(indexed.getT2())
+                    .map(user -> SenderRecord.create(RegistrationEvent.record(defaultTopic, user), line))
+                    .onErrorResume(ex -> ex instanceof IllegalArgumentException || ex instanceof AdmissionRejectedException, ex -> {
+                        tally.rejected(line, ex.getMessage());
+                        return Mono.empty();
+                    });
+        }, BULK_HASHING_CONCURRENCY);
+        return bulkKafkaSender.send(records)
+                .doOnNext(tally::settled)
+                .then(Mono.fromCallable(tally::toResponse))
+                .onErrorResume(ex -> Mono.fromCallable(() -> tally.abortedAfter(ex)));
+    }
+
+    /**
+     * Subscribes once the application is ready, like the listener containers, so the topics have been
+     * created with their configured partitions before the first assignment.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeToBackOffice(){
+        backOfficeSubscription = backOfficeKafkaReceiver.receive()
+                .subscribe(record -> {
+                    try {
+                        this.userBackOfficeListener(record.value());
+                    } catch (RuntimeException ex) {
+                        log.error("Failed to process message from back office partition=[{}] offset=[{}]",
+                                record.partition(), record.offset(), ex);
+                    }
+                    record.receiverOffset().acknowledge();
+                }, ex -> log.error("Back office receiver stopped", ex));
+    }
+
+    @PreDestroy
+    public void unsubscribeFromBackOffice(){
+        if (backOfficeSubscription != null) {
+            backOfficeSubscription.dispose();
+        }
+    }
+
+    @ExceptionHandler(value = {ApplicationException.class})
+    public ResponseEntity<RegistrationResponse> handleApplicationException(ApplicationException ex){
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response(ex.getMessage()));
+    }
+
+    @ExceptionHandler(value = {AdmissionRejectedException.class})
+    public ResponseEntity<RegistrationResponse> handleAdmissionRejected(AdmissionRejectedException ex){
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response(ex.getMessage()));
+    }
+
+    @ExceptionHandler(value = {IllegalArgumentException.class})
+    public ResponseEntity<RegistrationResponse> handleIllegalArgument(IllegalArgumentException ex){
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response(ex.getMessage()));
+    }
+
+    private void userBackOfficeListener(User user){
+        auditLog.consumed(user, BACKOFFICE_TOPIC);
+        this.countDownLatch.countDown(); //This for test purpose only have remove
+    }
+
+    private Mono<User> hashed(User user){
+        if (passwordHashing == null) {
+            return Mono.just(user);
+        }
+        return Mono.defer(() -> Mono.fromFuture(passwordHashing.submit(user)))
+                .publishOn(Schedulers.fromExecutor(passwordHashing.handoff()));
+    }
+
+    private RegistrationResponse response(String message){
+        return RegistrationResponse.builder().message(message).build();
+    }
+
+    private static final class BulkTally {
+
+        private final List<BulkRegistrationFailure> failures = new ArrayList<>();
+
+        private final int maxReportedFailures;
+
+        private int received;
+
+        private int submitted;
+
+        private int failed;
+
+        BulkTally(int maxReportedFailures) {
+            this.maxReportedFailures = maxReportedFailures;
+        }
+
+        synchronized void received() {
+            received++;
+        }
+
+        synchronized void settled(SenderResult<Integer> result) {
+            if (result.exception() == null) {
+                submitted++;
+            } else {
+                this.failed(result.correlationMetadata(), result.exception().getMessage());
+            }
+        }
+
+        synchronized void rejected(int line, String error) {
+            this.failed(line, error);
+        }
+
+        synchronized BulkRegistrationResponse abortedAfter(Throwable ex) {
+            received++;
+            this.failed(received, ex.getMessage());
+            return this.toResponse();
+        }
+
+        private void failed(int line, String error) {
+            failed++;
+            log.debug("Bulk registration line [{}] failed: {}", line, error);
+            if (failures.size() < maxReportedFailures) {
+                failures.add(BulkRegistrationFailure.builder().line(line).error(error).build());
+            }
+        }
+
+        synchronized BulkRegistrationResponse toResponse() {
+            return BulkRegistrationResponse.builder()
+                    .message("Bulk User Registration Submitted")
+                    .received(received)
+                    .submitted(submitted)
+                    .failed(failed)
+                    .pending(received - submitted - failed)
+                    .failures(new ArrayList<>(failures))
+                    .build();
+        }
+    }
+}
@@ -1,71 +1,352 @@
 package com.zss.ecom.registration.facade;
 
+import com.zss.ecom.registration.admission.IngestAdmission;
+import com.zss.ecom.registration.audit.RegistrationAuditLog;
+import com.zss.ecom.registration.codec.LazyUser;
+import com.zss.ecom.registration.config.AckMode;
+import com.zss.ecom.registration.config.AckModeKafkaTemplates;
 import com.zss.ecom.registration.exception.ApplicationException;
+import com.zss.ecom.registration.idempotency.IdempotentResponseCache;
+import com.zss.ecom.registration.metrics.RegistrationMetrics;
+import com.zss.ecom.registration.model.BulkRegistrationResponse;
+import com.zss.ecom.registration.model.RegistrationEvent;
 import com.zss.ecom.registration.model.RegistrationResponse;
 import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import com.zss.ecom.registration.password.PasswordHashing;
+import com.zss.ecom.registration.reply.PendingReplies;
+import com.zss.ecom.registration.service.BulkRegistrationService;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.kafka.support.SendResult;
+import org.springframework.lang.Nullable;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeoutException;
 
+import static com.zss.ecom.registration.config.RegistrationConstants.ACK_MODE_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.APPLICATION_NDJSON_VALUE;
+import static com.zss.ecom.registration.config.RegistrationConstants.AWAIT_VERDICT_HEADER;
 import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_GROUP_ID;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_LISTENER_ID;
 import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static com.zss.ecom.registration.config.RegistrationConstants.IDEMPOTENCY_KEY_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.RECEIVED_AT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.SENT_AT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_ACCEPTED;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_UNAVAILABLE;
 
 @RestController
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
 @Slf4j
 public class RegistrationController {
 
-    private final KafkaTemplate<String, User> kafkaTemplate;
+    private final AckModeKafkaTemplates kafkaTemplates;
 
     private final CountDownLatch countDownLatch;
 
+    private final BulkRegistrationService bulkRegistrationService;
+
+    private final RegistrationOutbox registrationOutbox;
+
+    private final IdempotentResponseCache idempotentResponseCache;
+
+    private final PendingReplies pendingReplies;
+
+    private final RegistrationMetrics registrationMetrics;
+
+    private final IngestAdmission ingestAdmission;
+
+    private final RegistrationAuditLog auditLog;
+
+    private final PasswordHashing passwordHashing;
+
     @Value(value = "${spring.kafka.template.default-topic}")
     private String defaultTopic;
 
+    @Value(value = "${kafka.producer.ack-timeout-ms:10000}")
+    private long ackTimeoutMs;
+
+    @Value(value = "${registration.request-reply.timeout-ms:5000}")
+    private long verdictTimeoutMs;
+
     @Autowired
-    public RegistrationController(KafkaTemplate<String, User> kafkaTemplate, CountDownLatch countDownLatch){
-        this.kafkaTemplate = kafkaTemplate;
+    public RegistrationController(AckModeKafkaTemplates kafkaTemplates, CountDownLatch countDownLatch,
+                                  BulkRegistrationService bulkRegistrationService,
+                                  @Nullable RegistrationOutbox registrationOutbox,
+                                  @Nullable IdempotentResponseCache idempotentResponseCache,
+                                  @Nullable PendingReplies pendingReplies,
+                                  RegistrationMetrics registrationMetrics,
+                                  @Nullable IngestAdmission ingestAdmission,
+                                  RegistrationAuditLog auditLog,
+                                  @Nullable PasswordHashing passwordHashing){
+        this.kafkaTemplates = kafkaTemplates;
         this.countDownLatch = countDownLatch;
+        this.bulkRegistrationService = bulkRegistrationService;
+        this.registrationOutbox = registrationOutbox;
+        this.idempotentResponseCache = idempotentResponseCache;
+        this.pendingReplies = pendingReplies;
+        this.registrationMetrics = registrationMetrics;
+        this.ingestAdmission = ingestAdmission;
+        this.auditLog = auditLog;
+        this.passwordHashing = passwordHashing;
     }
 
+    /**
+     * Answers once the requested acknowledgement arrives without holding the servlet thread: 201 when the
+     * broker has the user, 202 for fire-and-forget, 500 when the send fails and 504 when no answer comes in time.
+     * With the outbox enabled 202 means the user is on the local disk, and asking for a broker acknowledgement
+     * with X-Ack-Mode answers 400 since the outbox cannot honour it.
+     * A retry carrying the Idempotency-Key of an earlier request gets that request's answer instead of sending
+     * again, and 422 if the key was used for a different user; an earlier 429 or 5xx is not replayed but tried
+     * again. With X-Await-Verdict the answer is the back
+     * office verdict instead: 201 when accepted, 409 when rejected, 503 when the back office cannot decide yet
+     * and did not register the user or before replies are being read, 504 when none arrives in time. With admission control enabled a
+     * registration may be turned away with 429 and a Retry-After while the back office is behind.
+     * With password hashing enabled the passwords must match (400 otherwise) and only their hash is sent, once
+     * a hashing thread is free; a full hashing queue also answers 429.
+     */
     @PostMapping(path = "/submit", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    @ResponseStatus(code = HttpStatus.CREATED)
-    public RegistrationResponse userRegistration(@RequestBody User user){
-      log.info("Received request for user registration {}", user.toString());
-      this.sendMessage(user);
-      return RegistrationResponse.builder().message("User Registration Submitted").build();
+    public DeferredResult<ResponseEntity<RegistrationResponse>> userRegistration(@RequestBody User user,
+            @RequestHeader(value = ACK_MODE_HEADER, required = false) String ackModeName,
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @RequestHeader(value = AWAIT_VERDICT_HEADER, defaultValue = "false") boolean awaitVerdict){
+      long receivedAt = System.currentTimeMillis();
+      long receivedAtNanos = System.nanoTime();
+      auditLog.received(user);
+      if (ingestAdmission != null) {
+          ingestAdmission.admit();
+      }
+      AckMode ackMode = kafkaTemplates.resolve(ackModeName);
+      if (registrationOutbox != null && ackModeName != null && ackMode.awaitsAcknowledgement() && !awaitVerdict) {
+          throw new IllegalArgumentException(ACK_MODE_HEADER + " " + ackMode.getModeName()
+                  + " is not supported, the outbox answers before the broker acknowledges");
+      }
+      DeferredResult<ResponseEntity<RegistrationResponse>> result = awaitVerdict
+              ? new DeferredResult<>(verdictTimeoutMs + ackTimeoutMs, verdictTimedOut())
+              : new DeferredResult<>(ackTimeoutMs,
+                      ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response("User Registration Acknowledgement Timed Out")));
+      CompletableFuture<ResponseEntity<RegistrationResponse>> outcome = new CompletableFuture<>();
+      if (idempotentResponseCache != null && idempotencyKey != null && !idempotencyKey.isEmpty()) {
+          IdempotentResponseCache.Claim claim = idempotentResponseCache.claim(idempotencyKey, user, outcome);
+          if (claim.isConflict()) {
+              result.setResult(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                      .body(response("Idempotency-Key was already used for a different user registration")));
+              return result;
+          }
+          if (!claim.isFirst()) {
+              log.info("Replaying the outcome of Idempotency-Key [{}]", idempotencyKey);
+              return complete(result, claim.getOriginal());
+          }
+          outcome.whenComplete((answer, ex) -> {
+              if (ex != null || isTransient(answer)) {
+                  idempotentResponseCache.release(idempotencyKey, outcome);
+              }
+          });
+          result.onTimeout(() -> idempotentResponseCache.release(idempotencyKey, outcome));
+      }
+      outcome.whenComplete((answer, ex) -> registrationMetrics.recordSubmitted(receivedAtNanos, ackMode,
+              answer == null ? HttpStatus.INTERNAL_SERVER_ERROR : answer.getStatusCode()));
+      try {
+          if (passwordHashing == null) {
+              this.dispatch(user, ackMode, awaitVerdict, receivedAt, outcome);
+          } else {
+              passwordHashing.submit(user).whenCompleteAsync((hashedUser, ex) -> {
+                  if (ex != null) {
+                      outcome.completeExceptionally(ex);
+                      return;
+                  }
+                  try {
+                      this.dispatch(hashedUser, ackMode, awaitVerdict, receivedAt, outcome);
+                  } catch (RuntimeException dispatchEx) {
+                      outcome.completeExceptionally(dispatchEx);
+                  }
+              }, passwordHashing.handoff());
+          }
+      } catch (RuntimeException ex) {
+          outcome.completeExceptionally(ex);
+          throw ex;
+      }
+      return complete(result, outcome);
     }
 
-    @KafkaListener(topics = BACKOFFICE_TOPIC, groupId = BACKOFFICE_GROUP_ID)
-    public void userBackOfficeListener(String user){
-        log.info("Received message from back office {}", user);
+    @PostMapping(path = "/submit/bulk", consumes = {APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public BulkRegistrationResponse bulkUserRegistration(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                         InputStream body) throws IOException {
+        log.info("Received bulk user registration request of type {}", contentType);
+        if (ingestAdmission != null) {
+            ingestAdmission.admit();
+        }
+        if (MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+            return bulkRegistrationService.submitJsonArray(body);
+        }
+        return bulkRegistrationService.submitNdjson(body);
+    }
+
+    @KafkaListener(id = BACKOFFICE_LISTENER_ID, topics = BACKOFFICE_TOPIC, groupId = BACKOFFICE_GROUP_ID,
+            containerFactory = "backOfficeKafkaListenerContainerFactory")
+    public void userBackOfficeListener(LazyUser user){
+        auditLog.consumed(user.get(), BACKOFFICE_TOPIC);
         this.countDownLatch.countDown(); //This for test purpose only have remove
     }
 
-    private void sendMessage(User user){
-        ListenableFuture<SendResult<String, User>> listenableFuture = kafkaTemplate.send(defaultTopic, user);
+    private void dispatch(User user, AckMode ackMode, boolean awaitVerdict, long receivedAt,
+                          CompletableFuture<ResponseEntity<RegistrationResponse>> outcome){
+        if (awaitVerdict) {
+            this.sendAwaitingVerdict(user, ackMode, receivedAt, outcome);
+        } else if (registrationOutbox != null) {
+            this.appendToOutbox(user, outcome);
+        } else {
+            this.sendMessage(user, ackMode, receivedAt, outcome);
+        }
+    }
+
+    /**
+     * Sends the user with a correlation id and the topic to reply on, then answers with the verdict the back
+     * office replies with. The waiting request holds no thread, only an entry in the pending replies.
+     */
+    private void sendAwaitingVerdict(User user, AckMode ackMode, long receivedAt, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome){
+        if (pendingReplies == null) {
+            throw new IllegalArgumentException(AWAIT_VERDICT_HEADER + " is not supported, request-reply is disabled");
+        }
+        if (!pendingReplies.isReady()) {
+            outcome.complete(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response("Back Office Replies Not Read Yet")));
+            return;
+        }
+        String correlationId = UUID.randomUUID().toString();
+        CompletableFuture<String> verdict;
+        try {
+            verdict = pendingReplies.register(correlationId, verdictTimeoutMs);
+        } catch (IllegalStateException ex) {
+            log.warn("Rejected user registration awaiting a verdict: {}", ex.getMessage());
+            outcome.complete(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response("Too Many Registrations Awaiting A Verdict")));
+            return;
+        }
+        verdict.whenComplete((answer, ex) -> {
+            if (ex == null) {
+                auditLog.verdict(user, answer);
+                if (VERDICT_ACCEPTED.equals(answer)) {
+                    outcome.complete(ResponseEntity.status(HttpStatus.CREATED).body(verdictResponse("User Registration Accepted", answer)));
+                } else if (VERDICT_UNAVAILABLE.equals(answer)) {
+                    outcome.complete(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(verdictResponse("Back Office Verdict Unavailable", answer)));
+                } else {
+                    outcome.complete(ResponseEntity.status(HttpStatus.CONFLICT).body(verdictResponse("User Registration Rejected", answer)));
+                }
+            } else if (ex instanceof TimeoutException) {
+                outcome.complete(verdictTimedOut());
+            } else {
+                outcome.completeExceptionally(ex);
+            }
+        });
+        ProducerRecord<String, User> record = this.registrationRecord(user, receivedAt);
+        record.headers()
+                .add(KafkaHeaders.CORRELATION_ID, correlationId.getBytes(StandardCharsets.UTF_8))
+                .add(KafkaHeaders.REPLY_TOPIC, BACKOFFICE_TOPIC.getBytes(StandardCharsets.UTF_8));
+        kafkaTemplates.forMode(ackMode).send(record).addCallback(sent -> registrationMetrics.recordSent(sent.getRecordMetadata()), ex -> {
+            registrationMetrics.recordSendFailure(defaultTopic);
+            auditLog.failed("send", user, ex);
+            pendingReplies.fail(correlationId,
+                    new ApplicationException(String.format("Unable to send message to back office=[{%s}]", RegistrationAuditLog.describe(user)), ex));
+        });
+    }
+
+    private void sendMessage(User user, AckMode ackMode, long receivedAt, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome){
+        ListenableFuture<SendResult<String, User>> listenableFuture =
+                kafkaTemplates.forMode(ackMode).send(this.registrationRecord(user, receivedAt));
+        if (!ackMode.awaitsAcknowledgement()) {
+            outcome.complete(ResponseEntity.status(HttpStatus.ACCEPTED).body(response("User Registration Submitted")));
+        }
         listenableFuture.addCallback((ListenableFutureCallback<? super SendResult<String, User>>) new ListenableFutureCallback<SendResult<String, User>>() {
             @Override
             public void onSuccess(SendResult<String, User> result) {
-                log.info("Sent message to back office=[{}] with offset=[{}]", user.toString(), result.getRecordMetadata().offset());
+                auditLog.sent(user, result.getRecordMetadata().topic(), result.getRecordMetadata().partition(), result.getRecordMetadata().offset());
+                registrationMetrics.recordSent(result.getRecordMetadata());
+                outcome.complete(ResponseEntity.status(HttpStatus.CREATED).body(response("User Registration Submitted")));
             }
             @Override
             public void onFailure(Throwable ex) {
-               throw new ApplicationException(String.format("Unable to send message to back office=[{%s}]", user.toString()), ex);
+                registrationMetrics.recordSendFailure(defaultTopic);
+                auditLog.failed("send", user, ex);
+                outcome.completeExceptionally(new ApplicationException(String.format("Unable to send message to back office=[{%s}]", RegistrationAuditLog.describe(user)), ex));
             }
         });
     }
+
+    private void appendToOutbox(User user, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome){
+        registrationOutbox.append(user).whenComplete((ignored, ex) -> {
+            if (ex == null) {
+                outcome.complete(ResponseEntity.status(HttpStatus.ACCEPTED).body(response("User Registration Submitted")));
+            } else {
+                auditLog.failed("outbox", user, ex);
+                outcome.completeExceptionally(new ApplicationException(String.format("Unable to write user to the outbox=[{%s}]", RegistrationAuditLog.describe(user)), ex));
+            }
+        });
+    }
+
+    /**
+     * The user keyed by normalized email with a new event id, stamped with when the request was received and
+     * when it was sent so the back office can tell where the time went.
+     */
+    private ProducerRecord<String, User> registrationRecord(User user, long receivedAt){
+        ProducerRecord<String, User> record = RegistrationEvent.record(defaultTopic, user);
+        record.headers()
+                .add(RECEIVED_AT_HEADER, RegistrationMetrics.timestamp(receivedAt))
+                .add(SENT_AT_HEADER, RegistrationMetrics.timestamp(System.currentTimeMillis()));
+        return record;
+    }
+
+    private static DeferredResult<ResponseEntity<RegistrationResponse>> complete(DeferredResult<ResponseEntity<RegistrationResponse>> result,
+                                                                                CompletableFuture<ResponseEntity<RegistrationResponse>> outcome){
+        outcome.whenComplete((response, ex) -> {
+            if (ex == null) {
+                result.setResult(response);
+            } else {
+                result.setErrorResult(ex);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Answers a retry should not get replayed: the registration may not have happened, and trying again later
+     * can succeed.
+     */
+    private static boolean isTransient(ResponseEntity<RegistrationResponse> answer){
+        return answer.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS || answer.getStatusCode().is5xxServerError();
+    }
+
+    private ResponseEntity<RegistrationResponse> verdictTimedOut(){
+        return ResponseEntity.status(HttpStatus.GATEWAY_TIMEOUT).body(response("Back Office Verdict Timed Out"));
+    }
+
+    private RegistrationResponse verdictResponse(String message, String verdict){
+        return RegistrationResponse.builder().message(message).verdict(verdict).build();
+    }
+
+    private RegistrationResponse response(String message){
+        return RegistrationResponse.builder().message(message).build();
+    }
 }
@@ -1,6 +1,9 @@
 package com.zss.ecom.registration.facade;
 
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.exception.ShuttingDownException;
 import com.zss.ecom.registration.model.RegistrationResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,6 +13,7 @@ import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 @ControllerAdvice
+@ConditionalOnExpression("'${spring.main.web-application-type:servlet}' != 'reactive'")
 public class RegistrationControllerAdvice extends ResponseEntityExceptionHandler {
 
     @ExceptionHandler(value = {Exception.class})
@@ -18,6 +22,28 @@ public class RegistrationControllerAdvice extends ResponseEntityExceptionHandler
                 new HttpHeaders(), HttpStatus.INTERNAL_SERVER_ERROR, request);
     }
 
+    @ExceptionHandler(value = {IllegalArgumentException.class})
+    protected ResponseEntity<Object> handleIllegalArgument(IllegalArgumentException ex, WebRequest request) {
+        return handleExceptionInternal(ex, errorResponse(ex.getMessage()),
+                new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
+    }
+
+    @ExceptionHandler(value = {AdmissionRejectedException.class})
+    protected ResponseEntity<Object> handleAdmissionRejected(AdmissionRejectedException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()));
+        return handleExceptionInternal(ex, errorResponse(ex.getMessage()),
+                headers, HttpStatus.TOO_MANY_REQUESTS, request);
+    }
+
+    @ExceptionHandler(value = {ShuttingDownException.class})
+    protected ResponseEntity<Object> handleShuttingDown(ShuttingDownException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONNECTION, "close");
+        return handleExceptionInternal(ex, errorResponse(ex.getMessage()),
+                headers, HttpStatus.SERVICE_UNAVAILABLE, request);
+    }
+
     private RegistrationResponse errorResponse(String message){
         return RegistrationResponse.builder().message(message).build();
     }
@@ -0,0 +1,178 @@
+package com.zss.ecom.registration.idempotency;
+
+import com.zss.ecom.registration.codec.UserBinaryCodec;
+import com.zss.ecom.registration.model.RegistrationResponse;
+import com.zss.ecom.registration.model.User;
+import org.springframework.http.ResponseEntity;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Outcomes of /submit requests by Idempotency-Key, so a client retrying after a timeout gets the answer of
+ * its first attempt, or waits for it while it is still in flight, instead of producing the user again.
+ * Keys are spread over independently locked, insertion ordered stripes; with one fixed time to live the
+ * eldest entry of a stripe is always the next to expire, so expiry and the size bound only look at the head.
+ * The user of a first attempt is kept as the SHA-256 digest of its binary encoding, which is as good as the
+ * encoding itself for telling a retry from a different user and takes 32 bytes whatever the user's size.
+ */
+public class IdempotentResponseCache {
+
+    private static final ThreadLocal<MessageDigest> DIGESTS = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    });
+
+    private final LinkedHashMap<String, Entry>[] stripes;
+
+    private final int maxEntriesPerStripe;
+
+    private final long ttlNanos;
+
+    private final LongSupplier nanoTime;
+
+    public IdempotentResponseCache(int maxEntries, long ttlMs, int stripeCount) {
+        this(maxEntries, ttlMs, stripeCount, System::nanoTime);
+    }
+
+    @SuppressWarnings("unchecked")
+    IdempotentResponseCache(int maxEntries, long ttlMs, int stripeCount, LongSupplier nanoTime) {
+        if (maxEntries < stripeCount || stripeCount < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Idempotency cache needs at least one entry per stripe, got [%d] entries for [%d] stripes", maxEntries, stripeCount));
+        }
+        this.stripes = new LinkedHashMap[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new LinkedHashMap<>();
+        }
+        this.maxEntriesPerStripe = maxEntries / stripeCount;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * Registers the outcome of a first attempt, or returns what is already known about the key.
+     */
+    public Claim claim(String key, User user, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome) {
+        byte[] fingerprint = DIGESTS.get().digest(UserBinaryCodec.encode(user));
+        LinkedHashMap<String, Entry> stripe = stripeFor(key);
+        long now = nanoTime.getAsLong();
+        synchronized (stripe) {
+            this.expire(stripe, now);
+            Entry existing = stripe.get(key);
+            if (existing != null) {
+                return MessageDigest.isEqual(existing.fingerprint, fingerprint) ? Claim.replay(existing.outcome) : Claim.conflict();
+            }
+            stripe.put(key, new Entry(now, fingerprint, outcome));
+            Iterator<Entry> eldest = stripe.values().iterator();
+            while (stripe.size() > maxEntriesPerStripe) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return Claim.first();
+    }
+
+    /**
+     * Drops a key whose attempt failed so the next retry is sent again, unless the key was claimed anew since.
+     */
+    public void release(String key, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome) {
+        LinkedHashMap<String, Entry> stripe = stripeFor(key);
+        synchronized (stripe) {
+            Entry existing = stripe.get(key);
+            if (existing != null && existing.outcome == outcome) {
+                stripe.remove(key);
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (LinkedHashMap<String, Entry> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    private void expire(LinkedHashMap<String, Entry> stripe, long now) {
+        Iterator<Entry> eldest = stripe.values().iterator();
+        while (eldest.hasNext() && now - eldest.next().createdNanos >= ttlNanos) {
+            eldest.remove();
+        }
+    }
+
+    private LinkedHashMap<String, Entry> stripeFor(String key) {
+        int hash = key.hashCode();
+        return stripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % stripes.length];
+    }
+
+    /**
+     * What a request should do with its key: send, replay an earlier outcome, or be rejected because the
+     * key was first used for a different user.
+     */
+    public static final class Claim {
+
+        private static final Claim FIRST = new Claim(null, false);
+
+        private static final Claim CONFLICT = new Claim(null, true);
+
+        private final CompletableFuture<ResponseEntity<RegistrationResponse>> original;
+
+        private final boolean conflict;
+
+        private Claim(CompletableFuture<ResponseEntity<RegistrationResponse>> original, boolean conflict) {
+            this.original = original;
+            this.conflict = conflict;
+        }
+
+        static Claim first() {
+            return FIRST;
+        }
+
+        static Claim replay(CompletableFuture<ResponseEntity<RegistrationResponse>> original) {
+            return new Claim(original, false);
+        }
+
+        static Claim conflict() {
+            return CONFLICT;
+        }
+
+        public boolean isFirst() {
+            return this == FIRST;
+        }
+
+        public boolean isConflict() {
+            return conflict;
+        }
+
+        public CompletableFuture<ResponseEntity<RegistrationResponse>> getOriginal() {
+            return original;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long createdNanos;
+
+        private final byte[] fingerprint;
+
+        private final CompletableFuture<ResponseEntity<RegistrationResponse>> outcome;
+
+        private Entry(long createdNanos, byte[] fingerprint, CompletableFuture<ResponseEntity<RegistrationResponse>> outcome) {
+            this.createdNanos = createdNanos;
+            this.fingerprint = fingerprint;
+            this.outcome = outcome;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.zss.ecom.registration.metrics;
+
+import com.zss.ecom.registration.config.AckMode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.springframework.http.HttpStatus;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the registration side of the pipeline: how long /submit takes to answer, and how many
+ * registrations reach each partition or fail to be sent. The back office measures the rest of the way
+ * from the timestamp headers stamped on each record.
+ */
+public class RegistrationMetrics {
+
+    private static final double[] PERCENTILES = {0.5, 0.99, 0.999};
+
+    private final MeterRegistry registry;
+
+    public RegistrationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Records the time from receiving a registration over HTTP to its answer.
+     */
+    public void recordSubmitted(long receivedAtNanos, AckMode ackMode, HttpStatus status) {
+        Timer.builder("registration.submit.latency")
+                .description("Time from receiving a registration to answering it")
+                .tag("ack.mode", ackMode.getModeName())
+                .tag("status", String.valueOf(status.value()))
+                .publishPercentiles(PERCENTILES)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(System.nanoTime() - receivedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSent(RecordMetadata metadata) {
+        Counter.builder("registration.records.sent")
+                .description("Registrations acknowledged by the broker")
+                .tag("topic", metadata.topic())
+                .tag("partition", String.valueOf(metadata.partition()))
+                .register(registry)
+                .increment();
+    }
+
+    public void recordSendFailure(String topic) {
+        Counter.builder("registration.send.failures")
+                .description("Registrations the producer failed to send")
+                .tag("topic", topic)
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * The header value of an epoch millisecond timestamp.
+     */
+    public static byte[] timestamp(long epochMillis) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array();
+    }
+}
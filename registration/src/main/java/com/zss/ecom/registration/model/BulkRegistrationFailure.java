@@ -0,0 +1,19 @@
+package com.zss.ecom.registration.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+@ToString
+public class BulkRegistrationFailure {
+
+    int line;
+
+    String error;
+}
@@ -0,0 +1,29 @@
+package com.zss.ecom.registration.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@Builder
+@ToString
+public class BulkRegistrationResponse {
+
+    String message;
+
+    int received;
+
+    int submitted;
+
+    int failed;
+
+    int pending;
+
+    List<BulkRegistrationFailure> failures;
+}
@@ -0,0 +1,32 @@
+package com.zss.ecom.registration.model;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.EVENT_ID_HEADER;
+
+/**
+ * Builds the record a registration is published as, keyed by {@link UserKey} and stamped with an event id.
+ * The id is chosen once per registration and sent again with it on every retry, so the back office can
+ * drop a registration it has already processed by the id alone, without decoding it.
+ */
+public final class RegistrationEvent {
+
+    private RegistrationEvent(){}
+
+    public static String newEventId() {
+        return UUID.randomUUID().toString();
+    }
+
+    public static ProducerRecord<String, User> record(String topic, User user) {
+        return record(topic, user, newEventId());
+    }
+
+    public static ProducerRecord<String, User> record(String topic, User user, String eventId) {
+        ProducerRecord<String, User> record = new ProducerRecord<>(topic, UserKey.of(user), user);
+        record.headers().add(EVENT_ID_HEADER, eventId.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
@@ -1,5 +1,6 @@
 package com.zss.ecom.registration.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
@@ -11,7 +12,10 @@ import lombok.ToString;
 @AllArgsConstructor
 @Builder
 @ToString
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class RegistrationResponse {
 
     String message;
+
+    String verdict;
 }
@@ -0,0 +1,24 @@
+package com.zss.ecom.registration.outbox;
+
+import com.zss.ecom.registration.model.User;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * A durable outbox entry together with its position and the position of the entry after it. The event id
+ * was chosen on append, so every relay attempt sends the registration under the same id.
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+public class OutboxRecord {
+
+    long position;
+
+    long nextPosition;
+
+    String eventId;
+
+    User user;
+}
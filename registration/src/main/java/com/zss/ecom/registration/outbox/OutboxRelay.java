@@ -0,0 +1,149 @@
+package com.zss.ecom.registration.outbox;
+
+import com.zss.ecom.registration.model.RegistrationEvent;
+import com.zss.ecom.registration.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Drains the {@link RegistrationOutbox} into Kafka in append order. A batch is only checkpointed once
+ * every record in it is acknowledged by all in-sync replicas; a failed batch is sent again from the same
+ * checkpoint after a growing pause, so the broker sees each registration at least once, always under the
+ * event id it was appended with. The template must be idempotent: a batch is many records in flight at once,
+ * and only an idempotent producer keeps them in append order when some are retried.
+ */
+@Slf4j
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final long IDLE_WAIT_MS = 500;
+
+    private final RegistrationOutbox outbox;
+
+    private final KafkaTemplate<String, User> kafkaTemplate;
+
+    private final String topic;
+
+    private final int batchSize;
+
+    private final long sendTimeoutMs;
+
+    private final long retryBackoffMs;
+
+    private final long maxRetryBackoffMs;
+
+    private volatile Thread worker;
+
+    private volatile boolean running;
+
+    public OutboxRelay(RegistrationOutbox outbox, KafkaTemplate<String, User> kafkaTemplate, String topic, int batchSize,
+                       long sendTimeoutMs, long retryBackoffMs, long maxRetryBackoffMs) {
+        this.outbox = outbox;
+        this.kafkaTemplate = kafkaTemplate;
+        this.topic = topic;
+        this.batchSize = batchSize;
+        this.sendTimeoutMs = sendTimeoutMs;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxRetryBackoffMs = maxRetryBackoffMs;
+    }
+
+    /**
+     * Sends the next batch after the checkpoint and advances the checkpoint past the records acknowledged
+     * in order within the send timeout. The acknowledgements are awaited rather than the producer flushed,
+     * so a broker outage holds the relay no longer than the timeout.
+     *
+     * @return the number of records relayed
+     * @throws TimeoutException when a record is not acknowledged in time, with the checkpoint before it
+     */
+    public int relayBatch() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        List<OutboxRecord> records = outbox.read(outbox.getCheckpoint(), batchSize);
+        if (records.isEmpty()) {
+            return 0;
+        }
+        List<ListenableFuture<SendResult<String, User>>> futures = new ArrayList<>(records.size());
+        for (OutboxRecord record : records) {
+            futures.add(kafkaTemplate.send(RegistrationEvent.record(topic, record.getUser(), record.getEventId())));
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                futures.get(i).get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException ex) {
+                this.commit(records, i);
+                throw ex;
+            }
+        }
+        this.commit(records, records.size());
+        log.debug("Relayed [{}] registrations from the outbox, checkpoint now [{}]", records.size(), outbox.getCheckpoint());
+        return records.size();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::relay, "registration-outbox-relay");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            current.interrupt();
+            try {
+                current.join(sendTimeoutMs);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        worker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void commit(List<OutboxRecord> records, int acknowledged) throws IOException {
+        if (acknowledged > 0) {
+            outbox.commit(records.get(acknowledged - 1).getNextPosition());
+        }
+    }
+
+    private void relay() {
+        long backoff = retryBackoffMs;
+        while (running) {
+            try {
+                if (this.relayBatch() == 0) {
+                    outbox.awaitRecordsAfter(outbox.getCheckpoint(), IDLE_WAIT_MS);
+                }
+                backoff = retryBackoffMs;
+            } catch (InterruptedException ex) {
+                return;
+            } catch (Exception ex) {
+                log.warn("Unable to relay registrations from the outbox, [{}] bytes waiting, retrying in [{}] ms",
+                        outbox.getBacklogBytes(), backoff, ex);
+                try {
+                    TimeUnit.MILLISECONDS.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, maxRetryBackoffMs);
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.zss.ecom.registration.outbox;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * One fixed size, memory-mapped outbox file holding records of [length][crc32][payload]. A zero length
+ * marks the end of the written records. The file is named after the outbox position of its first byte.
+ */
+final class OutboxSegment implements Closeable {
+
+    static final String SUFFIX = ".outbox";
+
+    static final int HEADER_BYTES = 8;
+
+    private final Path file;
+
+    private final long baseOffset;
+
+    private final int capacity;
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private OutboxSegment(Path file, long baseOffset, FileChannel channel, int capacity) throws IOException {
+        this.file = file;
+        this.baseOffset = baseOffset;
+        this.capacity = capacity;
+        this.channel = channel;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    static OutboxSegment create(Path directory, long baseOffset, int capacity) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", baseOffset, SUFFIX));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new OutboxSegment(file, baseOffset, channel, capacity);
+    }
+
+    static OutboxSegment open(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long baseOffset = Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        return new OutboxSegment(file, baseOffset, channel, (int) channel.size());
+    }
+
+    static boolean isSegment(Path file) {
+        return file.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    long getBaseOffset() {
+        return baseOffset;
+    }
+
+    long getEndOffset() {
+        return baseOffset + capacity;
+    }
+
+    boolean fits(int offset, int payloadBytes) {
+        return (long) offset + HEADER_BYTES + payloadBytes <= capacity;
+    }
+
+    /**
+     * Called by one writer at a time; readers only look at records the writer has published since.
+     */
+    void write(int offset, byte[] payload) {
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.putInt(payload.length);
+        view.putInt(crc(payload));
+        view.put(payload);
+    }
+
+    /**
+     * The payload of the record at the offset, or null when there is no intact record there.
+     */
+    byte[] read(int offset) {
+        if ((long) offset + HEADER_BYTES > capacity) {
+            return null;
+        }
+        int length = buffer.getInt(offset);
+        if (length <= 0 || !fits(offset, length)) {
+            return null;
+        }
+        byte[] payload = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset + HEADER_BYTES);
+        view.get(payload);
+        return crc(payload) == buffer.getInt(offset + 4) ? payload : null;
+    }
+
+    /**
+     * Clears a torn record left by a crash so that nothing after the recovered end can be read as a record.
+     */
+    void truncateTo(int offset) {
+        if ((long) offset + HEADER_BYTES > capacity || buffer.getInt(offset) == 0) {
+            return;
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        byte[] zeros = new byte[8192];
+        while (view.hasRemaining()) {
+            view.put(zeros, 0, Math.min(zeros.length, view.remaining()));
+        }
+        buffer.force();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    void delete() throws IOException {
+        this.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+}
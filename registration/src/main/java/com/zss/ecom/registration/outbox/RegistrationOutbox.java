@@ -0,0 +1,346 @@
+package com.zss.ecom.registration.outbox;
+
+import com.zss.ecom.registration.codec.UserBinaryCodec;
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.exception.ApplicationException;
+import com.zss.ecom.registration.model.User;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Append-only log of accepted registrations in memory-mapped segment files, drained into Kafka by the
+ * {@link OutboxRelay}. Appends are made durable in groups: a flusher thread forces the mapped pages once
+ * per flush interval and completes every append it covered, so registrations arriving together share
+ * one fsync. Positions are byte offsets across all segments; the relay checkpoint is the position of
+ * the first record not yet acknowledged by the broker.
+ */
+@Slf4j
+public class RegistrationOutbox implements Closeable {
+
+    private static final String CHECKPOINT_FILE = "relay.checkpoint";
+
+    /**
+     * First byte of an entry holding an event id, followed by the id and the encoded user. No encoded user
+     * starts with it, since those begin with their schema version, so entries appended before event ids were
+     * kept are still read; they are given a new id when read.
+     */
+    private static final byte EVENT_ID_ENTRY = 0;
+
+    private static final int EVENT_ID_ENTRY_BYTES = 1 + 2 * Long.BYTES;
+
+    private final Path directory;
+
+    private final int segmentBytes;
+
+    private final long maxBacklogBytes;
+
+    private final long retryAfterSeconds;
+
+    private final TreeMap<Long, OutboxSegment> segments = new TreeMap<>();
+
+    private final Queue<PendingAppend> pendingAppends = new ConcurrentLinkedQueue<>();
+
+    private final Object flushLock = new Object();
+
+    private final Object flushSignal = new Object();
+
+    private final FileChannel checkpointChannel;
+
+    private final MappedByteBuffer checkpointBuffer;
+
+    private final Thread flusher;
+
+    private OutboxSegment active;
+
+    private long writePosition;
+
+    private volatile long flushedPosition;
+
+    private volatile long checkpoint;
+
+    private volatile boolean closed;
+
+    private RegistrationOutbox(Path directory, int segmentBytes, long maxBacklogBytes, long retryAfterSeconds,
+                               long flushIntervalMs) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBacklogBytes = maxBacklogBytes;
+        this.retryAfterSeconds = retryAfterSeconds;
+        Files.createDirectories(directory);
+        this.checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.checkpointBuffer = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, Long.BYTES);
+        this.recover();
+        this.flusher = new Thread(() -> this.flushEvery(flushIntervalMs), "registration-outbox-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public static RegistrationOutbox open(Path directory, int segmentBytes, long maxBacklogBytes, long retryAfterSeconds,
+                                          long flushIntervalMs) throws IOException {
+        return new RegistrationOutbox(directory, segmentBytes, maxBacklogBytes, retryAfterSeconds, flushIntervalMs);
+    }
+
+    /**
+     * Appends the user under a new event id and returns a future completed once the record has been forced to disk.
+     *
+     * @throws AdmissionRejectedException when the backlog the relay has yet to send is full
+     */
+    public CompletableFuture<Void> append(User user) {
+        byte[] payload = entry(UUID.randomUUID(), UserBinaryCodec.encode(user));
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Registration outbox is closed");
+            }
+            if (writePosition - checkpoint > maxBacklogBytes) {
+                throw new AdmissionRejectedException(String.format("Registration outbox backlog exceeds [%d] bytes", maxBacklogBytes),
+                        retryAfterSeconds);
+            }
+            int offset = (int) (writePosition - active.getBaseOffset());
+            if (!active.fits(offset, payload.length)) {
+                this.roll(payload.length);
+                offset = 0;
+            }
+            active.write(offset, payload);
+            writePosition = active.getBaseOffset() + offset + OutboxSegment.HEADER_BYTES + payload.length;
+            pendingAppends.add(new PendingAppend(writePosition, durable));
+        }
+        return durable;
+    }
+
+    /**
+     * Forces everything appended so far and completes the appends it covered.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<OutboxSegment> dirty;
+            long target;
+            synchronized (this) {
+                target = writePosition;
+                if (target == flushedPosition) {
+                    return;
+                }
+                Long from = segments.floorKey(flushedPosition);
+                dirty = new ArrayList<>(from == null ? segments.values() : segments.tailMap(from, true).values());
+            }
+            dirty.forEach(OutboxSegment::force);
+            flushedPosition = target;
+            PendingAppend pending;
+            while ((pending = pendingAppends.peek()) != null && pending.position <= target) {
+                pendingAppends.poll().durable.complete(null);
+            }
+        }
+        synchronized (flushSignal) {
+            flushSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Reads up to maxRecords durable records starting at the position.
+     */
+    public List<OutboxRecord> read(long position, int maxRecords) {
+        List<OutboxRecord> records = new ArrayList<>();
+        long limit = flushedPosition;
+        while (records.size() < maxRecords && position < limit) {
+            OutboxSegment segment;
+            synchronized (this) {
+                Map.Entry<Long, OutboxSegment> entry = segments.floorEntry(position);
+                segment = entry == null ? null : entry.getValue();
+            }
+            if (segment == null) {
+                break;
+            }
+            int offset = (int) (position - segment.getBaseOffset());
+            byte[] payload = segment.read(offset);
+            if (payload == null) {
+                position = segment.getEndOffset();
+                continue;
+            }
+            long next = position + OutboxSegment.HEADER_BYTES + payload.length;
+            records.add(record(position, next, payload));
+            position = next;
+        }
+        return records;
+    }
+
+    /**
+     * Waits until records beyond the position are durable or the timeout elapses.
+     */
+    public void awaitRecordsAfter(long position, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        synchronized (flushSignal) {
+            while (flushedPosition <= position && !closed) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                flushSignal.wait(remaining);
+            }
+        }
+    }
+
+    /**
+     * Records that everything before the position reached the broker and drops the segments it covers.
+     */
+    public void commit(long position) throws IOException {
+        checkpointBuffer.putLong(0, position);
+        checkpointBuffer.force();
+        checkpoint = position;
+        List<OutboxSegment> released = new ArrayList<>();
+        synchronized (this) {
+            while (segments.size() > 1 && segments.firstEntry().getValue().getEndOffset() <= position) {
+                released.add(segments.pollFirstEntry().getValue());
+            }
+        }
+        for (OutboxSegment segment : released) {
+            segment.delete();
+        }
+    }
+
+    public long getCheckpoint() {
+        return checkpoint;
+    }
+
+    public long getBacklogBytes() {
+        return flushedPosition - checkpoint;
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        flusher.interrupt();
+        this.flush();
+        synchronized (flushSignal) {
+            flushSignal.notifyAll();
+        }
+        synchronized (this) {
+            for (OutboxSegment segment : segments.values()) {
+                segment.close();
+            }
+        }
+        checkpointChannel.close();
+    }
+
+    /**
+     * Rebuilds the write position by scanning from the checkpoint to the first record that is missing
+     * or fails its checksum, which is where a crash interrupted the last append.
+     */
+    private void recover() throws IOException {
+        checkpoint = checkpointBuffer.getLong(0);
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(OutboxSegment::isSegment).sorted().collect(Collectors.toList())) {
+                OutboxSegment segment = OutboxSegment.open(file);
+                if (segment.getEndOffset() <= checkpoint) {
+                    segment.delete();
+                } else {
+                    segments.put(segment.getBaseOffset(), segment);
+                }
+            }
+        }
+        if (segments.isEmpty()) {
+            active = OutboxSegment.create(directory, checkpoint, segmentBytes);
+            segments.put(active.getBaseOffset(), active);
+            writePosition = checkpoint;
+        } else {
+            long position = Math.max(checkpoint, segments.firstKey());
+            OutboxSegment segment = segments.floorEntry(position).getValue();
+            while (true) {
+                byte[] payload = segment.read((int) (position - segment.getBaseOffset()));
+                if (payload != null) {
+                    position += OutboxSegment.HEADER_BYTES + payload.length;
+                } else if (segments.higherEntry(segment.getBaseOffset()) != null) {
+                    segment = segments.higherEntry(segment.getBaseOffset()).getValue();
+                    position = segment.getBaseOffset();
+                } else {
+                    break;
+                }
+            }
+            segment.truncateTo((int) (position - segment.getBaseOffset()));
+            active = segment;
+            writePosition = position;
+        }
+        flushedPosition = writePosition;
+        log.info("Registration outbox at [{}] recovered with checkpoint [{}] and [{}] bytes to relay",
+                directory, checkpoint, writePosition - checkpoint);
+    }
+
+    private void roll(int payloadBytes) {
+        if (OutboxSegment.HEADER_BYTES + payloadBytes > segmentBytes) {
+            throw new IllegalArgumentException(String.format("Registration of [%d] bytes exceeds the outbox segment size", payloadBytes));
+        }
+        try {
+            active = OutboxSegment.create(directory, active.getEndOffset(), segmentBytes);
+        } catch (IOException ex) {
+            throw new ApplicationException("Unable to create a registration outbox segment", ex);
+        }
+        segments.put(active.getBaseOffset(), active);
+    }
+
+    private void flushEvery(long flushIntervalMs) {
+        while (!closed) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(flushIntervalMs);
+                this.flush();
+            } catch (InterruptedException ex) {
+                return;
+            } catch (RuntimeException ex) {
+                log.error("Registration outbox flush failed", ex);
+            }
+        }
+    }
+
+    private static byte[] entry(UUID eventId, byte[] user) {
+        return ByteBuffer.allocate(EVENT_ID_ENTRY_BYTES + user.length)
+                .put(EVENT_ID_ENTRY)
+                .putLong(eventId.getMostSignificantBits())
+                .putLong(eventId.getLeastSignificantBits())
+                .put(user)
+                .array();
+    }
+
+    private static OutboxRecord record(long position, long next, byte[] payload) {
+        if (payload.length == 0 || payload[0] != EVENT_ID_ENTRY) {
+            return new OutboxRecord(position, next, UUID.randomUUID().toString(), UserBinaryCodec.decode(payload));
+        }
+        ByteBuffer entry = ByteBuffer.wrap(payload);
+        entry.get();
+        UUID eventId = new UUID(entry.getLong(), entry.getLong());
+        byte[] user = new byte[entry.remaining()];
+        entry.get(user);
+        return new OutboxRecord(position, next, eventId.toString(), UserBinaryCodec.decode(user));
+    }
+
+    private static final class PendingAppend {
+
+        private final long position;
+
+        private final CompletableFuture<Void> durable;
+
+        private PendingAppend(long position, CompletableFuture<Void> durable) {
+            this.position = position;
+            this.durable = durable;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.zss.ecom.registration.password;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * PBKDF2 with HMAC-SHA256 and a random salt per password. The encoded form carries everything needed to
+ * check a password against it, "pbkdf2-sha256$iterations$salt$hash", so the iteration count can be raised
+ * without invalidating hashes made at an older one.
+ */
+public class PasswordHasher {
+
+    static final String PREFIX = "pbkdf2-sha256";
+
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+
+    private static final int SALT_BYTES = 16;
+
+    private static final int HASH_BITS = 256;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private final int iterations;
+
+    public PasswordHasher(int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Password hashing iterations must be positive");
+        }
+        this.iterations = iterations;
+    }
+
+    public String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder().withoutPadding();
+        return PREFIX + '$' + iterations + '$' + encoder.encodeToString(salt) + '$'
+                + encoder.encodeToString(derive(password, salt, iterations));
+    }
+
+    public boolean matches(String password, String encoded) {
+        String[] parts = encoded == null ? new String[0] : encoded.split("\\$");
+        if (parts.length != 4 || !PREFIX.equals(parts[0])) {
+            return false;
+        }
+        try {
+            Base64.Decoder decoder = Base64.getDecoder();
+            byte[] expected = decoder.decode(parts[3]);
+            return MessageDigest.isEqual(expected, derive(password, decoder.decode(parts[2]), Integer.parseInt(parts[1])));
+        } catch (IllegalArgumentException ex) {
+            return false;
+        }
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException ex) {
+            throw new IllegalStateException(ALGORITHM + " is not available", ex);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
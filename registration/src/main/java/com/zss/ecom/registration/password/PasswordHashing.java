@@ -0,0 +1,158 @@
+package com.zss.ecom.registration.password;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.model.User;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The stage that replaces a registration's clear text passwords with their hash before it is published.
+ * Hashing is made slow on purpose, so it runs on a pool of its own rather than on request threads: at most
+ * {@code threads} hash at once and {@code queueCapacity} wait. A registration arriving while the queue is
+ * full is turned away at once instead of queueing without bound behind the others. What a caller does with
+ * a hashed user runs on the {@link #handoff()} threads, so the hashing threads do nothing but hash.
+ */
+public class PasswordHashing implements Closeable {
+
+    private final PasswordHasher passwordHasher;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ThreadPoolExecutor handoff;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongAdder hashed = new LongAdder();
+
+    private final LongAdder hashingNanos = new LongAdder();
+
+    private final long retryAfterSeconds;
+
+    public PasswordHashing(PasswordHasher passwordHasher, int threads, int queueCapacity, long retryAfterSeconds) {
+        this.passwordHasher = passwordHasher;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), daemonThreads("password-hashing-"),
+                new ThreadPoolExecutor.AbortPolicy());
+        this.handoff = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreads("password-hashed-"));
+    }
+
+    /**
+     * The threads to continue on once a user is hashed, for {@code whenCompleteAsync} and the like. Its queue
+     * is not bounded but needs no bound: each task on it follows a hash, and those are bounded already.
+     */
+    public Executor handoff() {
+        return handoff;
+    }
+
+    /**
+     * Hashes the user's password on the hashing pool; the future completes with a copy of the user holding
+     * the hash in place of both passwords.
+     *
+     * @throws IllegalArgumentException when the password is missing or does not match its verification
+     * @throws AdmissionRejectedException when the hashing queue is full
+     */
+    public CompletableFuture<User> submit(User user) {
+        verify(user);
+        CompletableFuture<User> hashedUser = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    hashedUser.complete(this.hash(user));
+                } catch (RuntimeException ex) {
+                    hashedUser.completeExceptionally(ex);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            rejected.increment();
+            throw new AdmissionRejectedException(String.format("Password hashing is saturated with [%d] registrations waiting",
+                    executor.getQueue().size()), retryAfterSeconds);
+        }
+        return hashedUser;
+    }
+
+    /**
+     * Hashes on the calling thread, for a caller that would rather slow down than be turned away.
+     */
+    public User hashNow(User user) {
+        verify(user);
+        return this.hash(user);
+    }
+
+    public static void verify(User user) {
+        if (user.getPassword() == null || user.getPassword().isEmpty()) {
+            throw new IllegalArgumentException("Password is required");
+        }
+        if (!user.getPassword().equals(user.getVerifyPassword())) {
+            throw new IllegalArgumentException("Password and verify password do not match");
+        }
+    }
+
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int activeCount() {
+        return executor.getActiveCount();
+    }
+
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    public long hashedCount() {
+        return hashed.sum();
+    }
+
+    public double hashingNanos() {
+        return hashingNanos.sum();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        handoff.shutdown();
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private User hash(User user) {
+        long started = System.nanoTime();
+        String hash = passwordHasher.hash(user.getPassword());
+        hashingNanos.add(System.nanoTime() - started);
+        hashed.increment();
+        return User.builder()
+                .id(user.getId())
+                .title(user.getTitle())
+                .firstName(user.getFirstName())
+                .lastName(user.getLastName())
+                .email(user.getEmail())
+                .password(hash)
+                .telephone(user.getTelephone())
+                .mobileNumber(user.getMobileNumber())
+                .customerType(user.getCustomerType())
+                .drugLicenseNo(user.getDrugLicenseNo())
+                .receiveMarketingMails(user.isReceiveMarketingMails())
+                .termsAndConditions(user.isTermsAndConditions())
+                .addresses(user.getAddresses())
+                .build();
+    }
+}
@@ -0,0 +1,78 @@
+package com.zss.ecom.registration.quarantine;
+
+import com.zss.ecom.registration.exception.UndecodableUserException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.QUARANTINE_TOPIC_SUFFIX;
+
+/**
+ * Sets aside back office records that cannot be decoded on "&lt;topic&gt;-quarantine", body untouched, with the
+ * "kafka_dlt-" headers naming their origin and the failure. Everything else goes to the recoverer given to
+ * {@link #orElse(BiConsumer)}. Publishing waits for the broker, so the failed offset is only skipped once the
+ * record is safely in quarantine.
+ */
+@Slf4j
+public class QuarantineRecoverer extends DeadLetterPublishingRecoverer {
+
+    /**
+     * The fallback when no dead letter topic is configured: the failure is logged and the record skipped.
+     */
+    public static final BiConsumer<ConsumerRecord<?, ?>, Exception> LOG_AND_SKIP = (record, ex) ->
+            log.error("Skipped back office message from {} partition=[{}] offset=[{}] that failed processing",
+                    record.topic(), record.partition(), record.offset(), ex);
+
+    private final long sendTimeoutMs;
+
+    public QuarantineRecoverer(KafkaTemplate<?, ?> kafkaTemplate, long sendTimeoutMs) {
+        super(kafkaTemplate, (record, ex) -> new TopicPartition(quarantineTopic(record.topic()), -1));
+        this.sendTimeoutMs = sendTimeoutMs;
+    }
+
+    public static String quarantineTopic(String topic) {
+        return topic + QUARANTINE_TOPIC_SUFFIX;
+    }
+
+    /**
+     * A recoverer that quarantines undecodable records and passes any other failure to {@code otherwise}.
+     */
+    public BiConsumer<ConsumerRecord<?, ?>, Exception> orElse(BiConsumer<ConsumerRecord<?, ?>, Exception> otherwise) {
+        return (record, ex) -> {
+            if (UndecodableUserException.isCauseOf(ex)) {
+                this.accept(record, ex);
+            } else {
+                otherwise.accept(record, ex);
+            }
+        };
+    }
+
+    @Override
+    public void accept(ConsumerRecord<?, ?> record, Exception exception) {
+        log.warn("Quarantining back office message from {} partition=[{}] offset=[{}]: {}", record.topic(),
+                record.partition(), record.offset(), exception.getMessage());
+        super.accept(record, exception);
+    }
+
+    @Override
+    protected void publish(ProducerRecord<Object, Object> outRecord, KafkaOperations<Object, Object> kafkaTemplate) {
+        try {
+            kafkaTemplate.send(outRecord).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new KafkaException("Interrupted while quarantining to " + outRecord.topic(), ex);
+        } catch (ExecutionException | TimeoutException ex) {
+            throw new KafkaException("Unable to quarantine to " + outRecord.topic(), ex);
+        }
+    }
+}
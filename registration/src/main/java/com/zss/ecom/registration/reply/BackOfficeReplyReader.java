@@ -0,0 +1,150 @@
+package com.zss.ecom.registration.reply;
+
+import com.zss.ecom.registration.codec.LazyUser;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.header.Header;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_ACCEPTED;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_HEADER;
+
+/**
+ * Completes requests waiting for a back office verdict. Every instance needs every reply, so the reader
+ * assigns itself all partitions of the reply topic rather than joining a consumer group, and commits
+ * nothing. It starts at the end of each partition and only marks the {@link PendingReplies} ready once
+ * those positions are fixed, so no reply to a request accepted afterwards can be missed. Replies of
+ * aborted back office transactions are never read. A topic that does not exist yet and failed polls are
+ * retried for as long as the reader runs.
+ */
+@Slf4j
+public class BackOfficeReplyReader implements SmartLifecycle {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+
+    private final Supplier<Consumer<String, LazyUser>> consumerFactory;
+
+    private final String topic;
+
+    private final PendingReplies pendingReplies;
+
+    private volatile Consumer<String, LazyUser> consumer;
+
+    private volatile Thread worker;
+
+    private volatile boolean running;
+
+    public BackOfficeReplyReader(Supplier<Consumer<String, LazyUser>> consumerFactory, String topic, PendingReplies pendingReplies) {
+        this.consumerFactory = consumerFactory;
+        this.topic = topic;
+        this.pendingReplies = pendingReplies;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        consumer = consumerFactory.get();
+        worker = new Thread(this::read, "backoffice-reply-reader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        Thread current = worker;
+        if (current != null) {
+            consumer.wakeup();
+            try {
+                current.join(POLL_TIMEOUT.toMillis() * 4);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        worker = null;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Completes the request the reply is correlated with; replies without a correlation id are ignored.
+     */
+    public void onReply(ConsumerRecord<String, LazyUser> reply) {
+        Header correlationId = reply.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+        if (correlationId == null) {
+            return;
+        }
+        Header verdict = reply.headers().lastHeader(VERDICT_HEADER);
+        pendingReplies.complete(new String(correlationId.value(), StandardCharsets.UTF_8),
+                verdict == null ? VERDICT_ACCEPTED : new String(verdict.value(), StandardCharsets.UTF_8));
+    }
+
+    private void read() {
+        try (Consumer<String, LazyUser> replies = consumer) {
+            while (running) {
+                try {
+                    if (!pendingReplies.isReady() && !this.assignAtEnd(replies)) {
+                        TimeUnit.MILLISECONDS.sleep(POLL_TIMEOUT.toMillis());
+                        continue;
+                    }
+                    for (ConsumerRecord<String, LazyUser> reply : replies.poll(POLL_TIMEOUT)) {
+                        this.onReply(reply);
+                    }
+                } catch (WakeupException ex) {
+                    // stopping, or woken for no reason: the loop condition decides
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (RuntimeException ex) {
+                    log.warn("Unable to read back office replies from [{}], retrying", topic, ex);
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(POLL_TIMEOUT.toMillis());
+                    } catch (InterruptedException interrupted) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false while the topic does not exist yet
+     */
+    private boolean assignAtEnd(Consumer<String, LazyUser> replies) {
+        List<PartitionInfo> partitionInfos = replies.partitionsFor(topic, POLL_TIMEOUT);
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            log.debug("Reply topic [{}] does not exist yet", topic);
+            return false;
+        }
+        List<TopicPartition> partitions = partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toList());
+        replies.assign(partitions);
+        replies.seekToEnd(partitions);
+        for (TopicPartition partition : partitions) {
+            replies.position(partition);
+        }
+        pendingReplies.markReady();
+        log.info("Reading back office replies from the end of [{}] partitions of [{}]", partitions.size(), topic);
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package com.zss.ecom.registration.reply;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Requests waiting for the back office verdict, by correlation id. Nothing blocks while a request waits:
+ * a reply completes its future from the listener thread and a single timer thread expires the ones that
+ * never get an answer. At most maxPending requests wait at once, so correlations abandoned by a silent
+ * back office cannot grow without bound. Requests should only wait once the replies are being read, which
+ * {@link BackOfficeReplyReader} signals with {@link #markReady()}.
+ */
+@Slf4j
+public class PendingReplies implements Closeable {
+
+    private final ConcurrentMap<String, Pending> pending = new ConcurrentHashMap<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final int maxPending;
+
+    private volatile boolean ready;
+
+    public PendingReplies(int maxPending) {
+        this.maxPending = maxPending;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "registration-reply-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Starts waiting for the verdict of the correlation id.
+     *
+     * @throws IllegalStateException when maxPending requests are already waiting
+     */
+    public CompletableFuture<String> register(String correlationId, long timeoutMs) {
+        if (size.incrementAndGet() > maxPending) {
+            size.decrementAndGet();
+            throw new IllegalStateException(String.format("[%d] registrations are already waiting for the back office", maxPending));
+        }
+        Pending entry = new Pending();
+        pending.put(correlationId, entry);
+        entry.timeout = timer.schedule(() -> {
+            if (this.remove(correlationId, entry)) {
+                entry.verdict.completeExceptionally(new TimeoutException(
+                        String.format("No back office verdict for correlation id [%s] within [%d] ms", correlationId, timeoutMs)));
+            }
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+        return entry.verdict;
+    }
+
+    /**
+     * Completes the request waiting on the correlation id; replies for requests that timed out, or that
+     * another instance sent, are ignored.
+     */
+    public boolean complete(String correlationId, String verdict) {
+        Pending entry = pending.get(correlationId);
+        if (entry == null || !this.remove(correlationId, entry)) {
+            log.debug("Ignored back office verdict for unknown correlation id [{}]", correlationId);
+            return false;
+        }
+        ScheduledFuture<?> timeout = entry.timeout;
+        if (timeout != null) {
+            timeout.cancel(false);
+        }
+        entry.verdict.complete(verdict);
+        return true;
+    }
+
+    /**
+     * Fails the request waiting on the correlation id, when its request could not be sent.
+     */
+    public void fail(String correlationId, Throwable cause) {
+        Pending entry = pending.get(correlationId);
+        if (entry != null && this.remove(correlationId, entry)) {
+            entry.verdict.completeExceptionally(cause);
+        }
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        pending.forEach((correlationId, entry) -> {
+            if (this.remove(correlationId, entry)) {
+                entry.verdict.completeExceptionally(new IllegalStateException("Registration is shutting down"));
+            }
+        });
+    }
+
+    private boolean remove(String correlationId, Pending entry) {
+        if (pending.remove(correlationId, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private static final class Pending {
+
+        private final CompletableFuture<String> verdict = new CompletableFuture<>();
+
+        private volatile ScheduledFuture<?> timeout;
+    }
+}
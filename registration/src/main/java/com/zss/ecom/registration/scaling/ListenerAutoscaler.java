@@ -0,0 +1,230 @@
+package com.zss.ecom.registration.scaling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the back office listener's consumer count in line with its backlog. A timer thread compares the
+ * committed offsets of the group, listed by the admin client, with the end offsets, read by a consumer that
+ * joins no group, to get each partition's lag, counting a partition the group never committed from its
+ * beginning offset rather than zero; how far the committed offsets moved since the last sample
+ * gives the records handled per second, however long each took to process. When
+ * {@link ListenerConcurrencyPolicy} asks for another concurrency the container is restarted with it and a
+ * {@link ListenerScaledEvent} published. Containers that are stopped are skipped.
+ */
+@Slf4j
+public class ListenerAutoscaler implements SmartLifecycle {
+
+    private final KafkaListenerEndpointRegistry listenerEndpointRegistry;
+
+    private final Collection<String> listenerIds;
+
+    private final AdminClient adminClient;
+
+    private final Consumer<?, ?> endOffsetConsumer;
+
+    private final String topic;
+
+    private final String consumerGroup;
+
+    private final ListenerConcurrencyPolicy policy;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final long sampleIntervalMs;
+
+    private final LongAdder scaleUps = new LongAdder();
+
+    private final LongAdder scaleDowns = new LongAdder();
+
+    private volatile ScheduledExecutorService timer;
+
+    private volatile long lag;
+
+    private volatile long maxPartitionLag;
+
+    private volatile double recordsPerSecond = Double.NaN;
+
+    private volatile int concurrency;
+
+    private long lastCommitted;
+
+    private long lastSampleAt;
+
+    private long lastChangeAt;
+
+    public ListenerAutoscaler(KafkaListenerEndpointRegistry listenerEndpointRegistry, Collection<String> listenerIds,
+                              AdminClient adminClient, Consumer<?, ?> endOffsetConsumer, String topic, String consumerGroup,
+                              ListenerConcurrencyPolicy policy, ApplicationEventPublisher eventPublisher, long sampleIntervalMs) {
+        this.listenerEndpointRegistry = listenerEndpointRegistry;
+        this.listenerIds = listenerIds;
+        this.adminClient = adminClient;
+        this.endOffsetConsumer = endOffsetConsumer;
+        this.topic = topic;
+        this.consumerGroup = consumerGroup;
+        this.policy = policy;
+        this.eventPublisher = eventPublisher;
+        this.sampleIntervalMs = sampleIntervalMs;
+    }
+
+    public void sample() throws Exception {
+        List<PartitionInfo> partitionInfos = endOffsetConsumer.partitionsFor(topic, Duration.ofMillis(sampleIntervalMs));
+        if (partitionInfos == null || partitionInfos.isEmpty()) {
+            return;
+        }
+        List<TopicPartition> partitions = partitionInfos.stream()
+                .map(info -> new TopicPartition(info.topic(), info.partition()))
+                .collect(Collectors.toList());
+        Map<TopicPartition, Long> endOffsets = endOffsetConsumer.endOffsets(partitions, Duration.ofMillis(sampleIntervalMs));
+        Map<TopicPartition, OffsetAndMetadata> committedOffsets = adminClient.listConsumerGroupOffsets(consumerGroup)
+                .partitionsToOffsetAndMetadata().get(sampleIntervalMs, TimeUnit.MILLISECONDS);
+        List<TopicPartition> uncommitted = partitions.stream()
+                .filter(partition -> committedOffsets.get(partition) == null)
+                .collect(Collectors.toList());
+        Map<TopicPartition, Long> beginningOffsets = uncommitted.isEmpty() ? Collections.emptyMap()
+                : endOffsetConsumer.beginningOffsets(uncommitted, Duration.ofMillis(sampleIntervalMs));
+        Map<TopicPartition, Long> lagByPartition = new HashMap<>();
+        long committed = 0;
+        for (Map.Entry<TopicPartition, Long> end : endOffsets.entrySet()) {
+            OffsetAndMetadata offset = committedOffsets.get(end.getKey());
+            long position = offset == null ? beginningOffsets.getOrDefault(end.getKey(), 0L) : offset.offset();
+            committed += position;
+            lagByPartition.put(end.getKey(), Math.max(0, end.getValue() - position));
+        }
+        this.update(lagByPartition, committed, System.currentTimeMillis());
+    }
+
+    /**
+     * Acts on a sample: the lag per partition and the total of the group's committed offsets.
+     */
+    void update(Map<TopicPartition, Long> lagByPartition, long committed, long now) {
+        long totalLag = 0;
+        long maxLag = 0;
+        for (long partitionLag : lagByPartition.values()) {
+            totalLag += partitionLag;
+            maxLag = Math.max(maxLag, partitionLag);
+        }
+        double rate = lastSampleAt == 0 || now <= lastSampleAt ? Double.NaN
+                : Math.max(0, committed - lastCommitted) * 1000.0 / (now - lastSampleAt);
+        lag = totalLag;
+        maxPartitionLag = maxLag;
+        recordsPerSecond = rate;
+        lastCommitted = committed;
+        lastSampleAt = now;
+        for (String listenerId : listenerIds) {
+            MessageListenerContainer container = listenerEndpointRegistry.getListenerContainer(listenerId);
+            if (!(container instanceof ConcurrentMessageListenerContainer) || !container.isRunning()) {
+                continue;
+            }
+            ConcurrentMessageListenerContainer<?, ?> concurrentContainer = (ConcurrentMessageListenerContainer<?, ?>) container;
+            int current = concurrentContainer.getConcurrency();
+            int wanted = policy.decide(current, lagByPartition.size(), totalLag, rate, now - lastChangeAt);
+            if (wanted != current) {
+                this.rescale(concurrentContainer, listenerId, current, wanted, totalLag, rate);
+                lastChangeAt = now;
+            }
+            concurrency = wanted;
+        }
+    }
+
+    public long getLag() {
+        return lag;
+    }
+
+    public long getMaxPartitionLag() {
+        return maxPartitionLag;
+    }
+
+    public double getRecordsPerSecond() {
+        return recordsPerSecond;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public long scaleUpCount() {
+        return scaleUps.sum();
+    }
+
+    public long scaleDownCount() {
+        return scaleDowns.sum();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (timer != null) {
+            return;
+        }
+        lastChangeAt = System.currentTimeMillis();
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "registration-listener-autoscaler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                this.sample();
+            } catch (Exception ex) {
+                log.warn("Unable to sample the lag of consumer group [{}], keeping the listener concurrency", consumerGroup, ex);
+            }
+        }, sampleIntervalMs, sampleIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public synchronized void stop() {
+        ScheduledExecutorService current = timer;
+        timer = null;
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(sampleIntervalMs * 2, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            endOffsetConsumer.close();
+            adminClient.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return timer != null;
+    }
+
+    private void rescale(ConcurrentMessageListenerContainer<?, ?> container, String listenerId, int from, int to,
+                         long totalLag, double rate) {
+        log.info("Scaling listener [{}] of group [{}] from {} to {} consumers at lag [{}] and [{}] records/s",
+                listenerId, consumerGroup, from, to, totalLag, rate);
+        container.stop();
+        container.setConcurrency(to);
+        container.start();
+        if (to > from) {
+            scaleUps.increment();
+        } else {
+            scaleDowns.increment();
+        }
+        eventPublisher.publishEvent(new ListenerScaledEvent(this, listenerId, consumerGroup, from, to, totalLag, rate));
+    }
+}
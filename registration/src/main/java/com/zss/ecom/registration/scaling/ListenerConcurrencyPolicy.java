@@ -0,0 +1,64 @@
+package com.zss.ecom.registration.scaling;
+
+/**
+ * Sizes a listener to its backlog: enough consumers, each going at the rate one consumer currently manages,
+ * to clear the lag within {@code targetDrainMs}. More consumers are added in one step, surplus ones are
+ * removed one at a time, and each change, being a rebalance, is followed by {@code cooldownMs} of no change.
+ */
+public class ListenerConcurrencyPolicy {
+
+    private final int minConcurrency;
+
+    private final int maxConcurrency;
+
+    private final long targetDrainMs;
+
+    private final long cooldownMs;
+
+    public ListenerConcurrencyPolicy(int minConcurrency, int maxConcurrency, long targetDrainMs, long cooldownMs) {
+        if (minConcurrency < 1 || maxConcurrency < minConcurrency) {
+            throw new IllegalArgumentException(String.format(
+                    "Listener concurrency bounds must satisfy 1 <= min <= max, got min [%d] and max [%d]", minConcurrency, maxConcurrency));
+        }
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.targetDrainMs = targetDrainMs;
+        this.cooldownMs = cooldownMs;
+    }
+
+    /**
+     * The number of consumers to run next; one outside the bounds is brought back within them regardless of
+     * the cooldown.
+     *
+     * @param partitions partitions of the topic, beyond which another consumer would get no assignment
+     * @param recordsPerSecond the group's committed records per second over the last sample interval, NaN
+     * after the first sample
+     */
+    public int decide(int current, int partitions, long lag, double recordsPerSecond, long sinceLastChangeMs) {
+        int ceiling = Math.max(minConcurrency, partitions > 0 ? Math.min(maxConcurrency, partitions) : maxConcurrency);
+        if (current < minConcurrency || current > ceiling) {
+            return Math.max(minConcurrency, Math.min(ceiling, current));
+        }
+        if (sinceLastChangeMs < cooldownMs || Double.isNaN(recordsPerSecond)) {
+            return current;
+        }
+        long wanted;
+        if (lag <= 0) {
+            wanted = minConcurrency;
+        } else if (recordsPerSecond <= 0) {
+            wanted = current + 1L;
+        } else {
+            wanted = (long) Math.ceil(lag * 1000.0 * current / (recordsPerSecond * targetDrainMs));
+        }
+        wanted = Math.max(minConcurrency, Math.min(ceiling, wanted));
+        return wanted < current ? current - 1 : (int) wanted;
+    }
+
+    public int getMinConcurrency() {
+        return minConcurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+}
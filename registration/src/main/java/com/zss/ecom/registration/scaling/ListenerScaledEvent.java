@@ -0,0 +1,38 @@
+package com.zss.ecom.registration.scaling;
+
+import lombok.Getter;
+import org.springframework.context.ApplicationEvent;
+
+/**
+ * Announces that {@link ListenerAutoscaler} changed the number of consumers of a listener.
+ */
+@Getter
+public class ListenerScaledEvent extends ApplicationEvent {
+
+    private final String listenerId;
+
+    private final String consumerGroup;
+
+    private final int fromConcurrency;
+
+    private final int toConcurrency;
+
+    private final long lag;
+
+    private final double recordsPerSecond;
+
+    public ListenerScaledEvent(Object source, String listenerId, String consumerGroup, int fromConcurrency, int toConcurrency,
+                               long lag, double recordsPerSecond) {
+        super(source);
+        this.listenerId = listenerId;
+        this.consumerGroup = consumerGroup;
+        this.fromConcurrency = fromConcurrency;
+        this.toConcurrency = toConcurrency;
+        this.lag = lag;
+        this.recordsPerSecond = recordsPerSecond;
+    }
+
+    public boolean isScaleUp() {
+        return toConcurrency > fromConcurrency;
+    }
+}
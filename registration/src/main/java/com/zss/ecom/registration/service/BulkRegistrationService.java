@@ -0,0 +1,283 @@
+package com.zss.ecom.registration.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.model.BulkRegistrationFailure;
+import com.zss.ecom.registration.model.BulkRegistrationResponse;
+import com.zss.ecom.registration.model.RegistrationEvent;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.password.PasswordHashing;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams a bulk registration body one user at a time and pipelines each user into the producer,
+ * so the request is never materialized in memory and throughput is bounded by the broker.
+ */
+@Service
+@Slf4j
+public class BulkRegistrationService {
+
+    private final KafkaTemplate<String, User> kafkaTemplate;
+
+    private final ObjectReader userReader;
+
+    private final ObjectMapper objectMapper;
+
+    private final PasswordHashing passwordHashing;
+
+    @Value(value = "${spring.kafka.template.default-topic}")
+    private String defaultTopic;
+
+    @Value(value = "${registration.bulk.ack-timeout-ms:30000}")
+    private long ackTimeoutMs;
+
+    @Value(value = "${registration.bulk.max-reported-failures:1000}")
+    private int maxReportedFailures;
+
+    @Autowired
+    public BulkRegistrationService(@Qualifier("bulkKafkaTemplate") KafkaTemplate<String, User> kafkaTemplate, ObjectMapper objectMapper,
+                                   @Nullable PasswordHashing passwordHashing){
+        this.kafkaTemplate = kafkaTemplate;
+        this.objectMapper = objectMapper;
+        this.passwordHashing = passwordHashing;
+        this.userReader = objectMapper.readerFor(User.class);
+    }
+
+    /**
+     * Reads newline delimited JSON, one user per line. Blank lines are skipped and a malformed line
+     * is reported without affecting the lines around it.
+     */
+    public BulkRegistrationResponse submitNdjson(InputStream body) throws IOException {
+        BulkSubmission submission = new BulkSubmission();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            submission.received++;
+            try {
+                this.send(submission, lineNumber, userReader.readValue(line));
+            } catch (JsonProcessingException ex) {
+                submission.failed(lineNumber, ex.getOriginalMessage());
+            }
+        }
+        return this.complete(submission);
+    }
+
+    /**
+     * Reads a JSON array of users element by element; the line of each result is its position in the array.
+     * An element that is not an object is reported and skipped. A syntax error ends the stream since nothing
+     * after it can be located reliably.
+     */
+    public BulkRegistrationResponse submitJsonArray(InputStream body) throws IOException {
+        BulkSubmission submission = new BulkSubmission();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                submission.failed(1, "Expected a JSON array of users");
+                return this.complete(submission);
+            }
+            int element = 0;
+            try {
+                JsonToken token;
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        submission.failed(element + 1, "Unexpected end of the JSON array");
+                        break;
+                    }
+                    element++;
+                    submission.received++;
+                    if (token != JsonToken.START_OBJECT) {
+                        submission.failed(element, "Expected a user object, found " + token);
+                        parser.skipChildren();
+                        continue;
+                    }
+                    JsonNode node = parser.readValueAsTree();
+                    try {
+                        this.send(submission, element, userReader.readValue(node));
+                    } catch (JsonProcessingException ex) {
+                        submission.failed(element, ex.getOriginalMessage());
+                    }
+                }
+            } catch (JsonProcessingException ex) {
+                submission.failed(element + 1, ex.getOriginalMessage());
+            }
+        }
+        return this.complete(submission);
+    }
+
+    /**
+     * With password hashing enabled each user is hashed on the hashing pool, so the lines of one request hash in
+     * parallel. When that pool is saturated the request hashes the line itself: it already holds its thread for
+     * the whole stream, and doing so slows its reading down instead of failing the line. A line counts as
+     * hashing until it is handed to the producer or rejected.
+     */
+    private void send(BulkSubmission submission, int line, User user) {
+        submission.sent();
+        if (passwordHashing == null) {
+            this.publish(submission, line, user);
+            return;
+        }
+        submission.hashing();
+        try {
+            CompletableFuture<User> hashedUser;
+            try {
+                hashedUser = passwordHashing.submit(user);
+            } catch (AdmissionRejectedException ex) {
+                hashedUser = CompletableFuture.completedFuture(passwordHashing.hashNow(user));
+            }
+            hashedUser.whenCompleteAsync((hashed, ex) -> {
+                try {
+                    if (ex == null) {
+                        this.publish(submission, line, hashed);
+                    } else {
+                        submission.rejected(line, ex.getMessage());
+                    }
+                } finally {
+                    submission.handedOff();
+                }
+            }, passwordHashing.handoff());
+        } catch (RuntimeException ex) {
+            submission.rejected(line, ex.getMessage());
+            submission.handedOff();
+        }
+    }
+
+    private void publish(BulkSubmission submission, int line, User user) {
+        try {
+            kafkaTemplate.send(RegistrationEvent.record(defaultTopic, user)).addCallback(
+                    result -> submission.acknowledged(),
+                    ex -> submission.rejected(line, ex.getMessage()));
+        } catch (RuntimeException ex) {
+            submission.rejected(line, ex.getMessage());
+        }
+    }
+
+    /**
+     * Flushes once every line still hashing has reached the producer, since a flush before that would leave
+     * them waiting for the linger; both waits share the acknowledgement timeout.
+     */
+    private BulkRegistrationResponse complete(BulkSubmission submission) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        try {
+            if (submission.awaitHandedOff(deadline)) {
+                kafkaTemplate.flush();
+            }
+            submission.awaitAcknowledgements(deadline);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return submission.toResponse();
+    }
+
+    private final class BulkSubmission {
+
+        private final List<BulkRegistrationFailure> failures = new ArrayList<>();
+
+        private int received;
+
+        private int submitted;
+
+        private int failed;
+
+        private int inFlight;
+
+        private int hashing;
+
+        synchronized void sent() {
+            inFlight++;
+        }
+
+        synchronized void hashing() {
+            hashing++;
+        }
+
+        synchronized void handedOff() {
+            if (--hashing == 0) {
+                this.notifyAll();
+            }
+        }
+
+        synchronized void acknowledged() {
+            submitted++;
+            this.settled();
+        }
+
+        synchronized void rejected(int line, String error) {
+            this.failed(line, error);
+            this.settled();
+        }
+
+        synchronized void failed(int line, String error) {
+            failed++;
+            log.debug("Bulk registration line [{}] failed: {}", line, error);
+            if (failures.size() < maxReportedFailures) {
+                failures.add(BulkRegistrationFailure.builder().line(line).error(error).build());
+            }
+        }
+
+        private void settled() {
+            if (--inFlight == 0) {
+                this.notifyAll();
+            }
+        }
+
+        /**
+         * @return false when lines were still hashing at the deadline
+         */
+        synchronized boolean awaitHandedOff(long deadlineNanos) throws InterruptedException {
+            while (hashing > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                this.wait(remaining);
+            }
+            return true;
+        }
+
+        synchronized void awaitAcknowledgements(long deadlineNanos) throws InterruptedException {
+            while (inFlight > 0) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remaining <= 0) {
+                    return;
+                }
+                this.wait(remaining);
+            }
+        }
+
+        synchronized BulkRegistrationResponse toResponse() {
+            return BulkRegistrationResponse.builder()
+                    .message("Bulk User Registration Submitted")
+                    .received(received)
+                    .submitted(submitted)
+                    .failed(failed)
+                    .pending(inFlight)
+                    .failures(new ArrayList<>(failures))
+                    .build();
+        }
+    }
+}
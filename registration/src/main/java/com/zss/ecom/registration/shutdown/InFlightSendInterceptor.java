@@ -0,0 +1,44 @@
+package com.zss.ecom.registration.shutdown;
+
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import java.util.Map;
+
+/**
+ * Counts a record in flight from the moment it is sent until the producer completes it, successfully or
+ * not. The producer creates the interceptor itself; the counter it reports to is passed in its
+ * configuration under {@link #IN_FLIGHT_SENDS_CONFIG}.
+ */
+public class InFlightSendInterceptor implements ProducerInterceptor<Object, Object> {
+
+    public static final String IN_FLIGHT_SENDS_CONFIG = "registration.in-flight.sends";
+
+    private InFlightSends inFlightSends;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        Object configured = configs.get(IN_FLIGHT_SENDS_CONFIG);
+        inFlightSends = configured instanceof InFlightSends ? (InFlightSends) configured : null;
+    }
+
+    @Override
+    public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+        if (inFlightSends != null) {
+            inFlightSends.sent();
+        }
+        return record;
+    }
+
+    @Override
+    public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+        if (inFlightSends != null) {
+            inFlightSends.completed();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.zss.ecom.registration.shutdown;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records handed to a registration producer that the broker has neither acknowledged nor failed yet,
+ * counted by {@link InFlightSendInterceptor} across every producer it is configured on.
+ */
+public class InFlightSends {
+
+    private static final long POLL_INTERVAL_MS = 10;
+
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private final LongAdder completed = new LongAdder();
+
+    void sent() {
+        inFlight.incrementAndGet();
+    }
+
+    void completed() {
+        inFlight.decrementAndGet();
+        completed.increment();
+    }
+
+    public long inFlight() {
+        return inFlight.get();
+    }
+
+    public long completedCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Waits, checking every few milliseconds, until nothing is in flight or the deadline passes.
+     *
+     * @return the sends still in flight
+     */
+    public long awaitIdle(long deadlineMs) throws InterruptedException {
+        long remaining = inFlight.get();
+        while (remaining > 0 && System.currentTimeMillis() < deadlineMs) {
+            Thread.sleep(POLL_INTERVAL_MS);
+            remaining = inFlight.get();
+        }
+        return remaining;
+    }
+}
@@ -0,0 +1,163 @@
+package com.zss.ecom.registration.shutdown;
+
+import com.zss.ecom.registration.exception.ShuttingDownException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the registration service as its context closes, before the listener containers and producers
+ * are stopped for good. /submit is refused from the first moment, then the records already sent are given
+ * until the deadline to be acknowledged, with the back office listeners still reading the verdicts some of
+ * them wait for. Last, the listeners finish the records they polled and commit them synchronously, again
+ * within a deadline. Each stage waits at most {@code timeoutMs}.
+ */
+@Slf4j
+public class ShutdownDrain implements SmartLifecycle {
+
+    /**
+     * Below the default phase of the other lifecycles, which are stopped first, and above the listener containers.
+     */
+    public static final int PHASE = Integer.MAX_VALUE - 1;
+
+    private final InFlightSends inFlightSends;
+
+    private final KafkaListenerEndpointRegistry listenerEndpointRegistry;
+
+    private final long timeoutMs;
+
+    private final LongAdder drainedSends = new LongAdder();
+
+    private final LongAdder abandonedSends = new LongAdder();
+
+    private final LongAdder stoppedListeners = new LongAdder();
+
+    private final LongAdder abandonedListeners = new LongAdder();
+
+    private volatile boolean running;
+
+    private volatile boolean draining;
+
+    public ShutdownDrain(InFlightSends inFlightSends, KafkaListenerEndpointRegistry listenerEndpointRegistry, long timeoutMs) {
+        this.inFlightSends = inFlightSends;
+        this.listenerEndpointRegistry = listenerEndpointRegistry;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * @throws ShuttingDownException once draining has begun
+     */
+    public void admit() {
+        if (draining) {
+            throw new ShuttingDownException("Registration is shutting down, submit to another instance");
+        }
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public long inFlightSends() {
+        return inFlightSends.inFlight();
+    }
+
+    public long drainedSendCount() {
+        return drainedSends.sum();
+    }
+
+    public long abandonedSendCount() {
+        return abandonedSends.sum();
+    }
+
+    public long stoppedListenerCount() {
+        return stoppedListeners.sum();
+    }
+
+    public long abandonedListenerCount() {
+        return abandonedListeners.sum();
+    }
+
+    @Override
+    public void start() {
+        draining = false;
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        this.stop(() -> { });
+    }
+
+    @Override
+    public void stop(Runnable callback) {
+        try {
+            this.drain();
+        } finally {
+            running = false;
+            callback.run();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    private void drain() {
+        draining = true;
+        long started = System.currentTimeMillis();
+        log.info("Draining before shutdown: refusing registrations, {} sends in flight", inFlightSends.inFlight());
+        long completedBefore = inFlightSends.completedCount();
+        long abandoned = inFlightSends.inFlight();
+        try {
+            abandoned = inFlightSends.awaitIdle(System.currentTimeMillis() + timeoutMs);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        drainedSends.add(inFlightSends.completedCount() - completedBefore);
+        abandonedSends.add(abandoned);
+        if (abandoned > 0) {
+            log.warn("Abandoning {} sends still in flight after {} ms", abandoned, timeoutMs);
+        }
+        this.stopListeners();
+        log.info("Drained in {} ms: {} sends acknowledged, {} abandoned; {} listeners stopped, {} abandoned",
+                System.currentTimeMillis() - started, drainedSends.sum(), abandonedSends.sum(),
+                stoppedListeners.sum(), abandonedListeners.sum());
+    }
+
+    /**
+     * A container stops once its consumer has handed the records of the last poll to the listener and
+     * committed their offsets; containers still busy at the deadline are left to the endpoint registry.
+     * A consumer blocked in a poll only notices at the end of the poll timeout, 5 s by default, so a shorter
+     * deadline abandons idle listeners too.
+     */
+    private void stopListeners() {
+        List<MessageListenerContainer> containers = listenerEndpointRegistry.getListenerContainers().stream()
+                .filter(MessageListenerContainer::isRunning)
+                .collect(Collectors.toList());
+        CountDownLatch stopped = new CountDownLatch(containers.size());
+        containers.forEach(container -> container.stop(stopped::countDown));
+        try {
+            stopped.await(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        stoppedListeners.add(containers.size() - stopped.getCount());
+        abandonedListeners.add(stopped.getCount());
+        if (stopped.getCount() > 0) {
+            log.warn("{} listener containers did not stop within {} ms", stopped.getCount(), timeoutMs);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.zss.ecom.registration.admission;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsResult;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.KafkaFuture;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ConsumerLagSamplerTest {
+
+    private final TopicPartition committedPartition = new TopicPartition("userRegistration", 0);
+
+    private final TopicPartition uncommittedPartition = new TopicPartition("userRegistration", 1);
+
+    @Test
+    @DisplayName("Test a partition without a committed offset lags from its beginning offset")
+    public void testUncommittedPartitionLagsFromBeginning() throws Exception {
+        MockConsumer<String, String> endOffsetConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        endOffsetConsumer.updatePartitions("userRegistration", Arrays.asList(
+                new PartitionInfo("userRegistration", 0, null, null, null),
+                new PartitionInfo("userRegistration", 1, null, null, null)));
+        endOffsetConsumer.updateBeginningOffsets(offsets(100L, 40L));
+        endOffsetConsumer.updateEndOffsets(offsets(150L, 90L));
+        AdminClient adminClient = mock(AdminClient.class);
+        ListConsumerGroupOffsetsResult committedOffsets = mock(ListConsumerGroupOffsetsResult.class);
+        when(adminClient.listConsumerGroupOffsets("userRegistration")).thenReturn(committedOffsets);
+        when(committedOffsets.partitionsToOffsetAndMetadata()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap(committedPartition, new OffsetAndMetadata(120L))));
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60);
+        ConsumerLagSampler sampler = new ConsumerLagSampler(ingestAdmission, adminClient, endOffsetConsumer,
+                Collections.emptyList(), null, "userRegistration", "userRegistration", 1000);
+
+        sampler.sample();
+
+        assertEquals(80, ingestAdmission.getLag());
+    }
+
+    @Test
+    @DisplayName("Test only producers already created are sampled along with the outbox backlog")
+    public void testExistingProducersAndOutboxBacklogSampled() throws Exception {
+        MockConsumer<String, String> endOffsetConsumer = new MockConsumer<>(OffsetResetStrategy.EARLIEST);
+        endOffsetConsumer.updatePartitions("userRegistration", Collections.singletonList(
+                new PartitionInfo("userRegistration", 0, null, null, null)));
+        endOffsetConsumer.updateEndOffsets(Collections.singletonMap(committedPartition, 100L));
+        AdminClient adminClient = mock(AdminClient.class);
+        ListConsumerGroupOffsetsResult committedOffsets = mock(ListConsumerGroupOffsetsResult.class);
+        when(adminClient.listConsumerGroupOffsets("userRegistration")).thenReturn(committedOffsets);
+        when(committedOffsets.partitionsToOffsetAndMetadata()).thenReturn(KafkaFuture.completedFuture(
+                Collections.singletonMap(committedPartition, new OffsetAndMetadata(100L))));
+        MockProducer<String, User> usedProducer = new MockProducer<>();
+        usedProducer.setMockMetrics(new MetricName("buffer-available-bytes", "producer-metrics", "", Collections.emptyMap()), metric(250.0));
+        usedProducer.setMockMetrics(new MetricName("buffer-total-bytes", "producer-metrics", "", Collections.emptyMap()), metric(1000.0));
+        AtomicInteger producersCreated = new AtomicInteger();
+        MeteredProducerFactory<String, User> usedFactory = producerFactory(usedProducer, producersCreated);
+        MeteredProducerFactory<String, User> unusedFactory = producerFactory(new MockProducer<>(), producersCreated);
+        usedFactory.createProducer();
+        RegistrationOutbox registrationOutbox = mock(RegistrationOutbox.class);
+        when(registrationOutbox.getBacklogBytes()).thenReturn(2_000_000L);
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60);
+        ConsumerLagSampler sampler = new ConsumerLagSampler(ingestAdmission, adminClient, endOffsetConsumer,
+                Arrays.asList(new KafkaTemplate<>(unusedFactory), new KafkaTemplate<>(usedFactory)), registrationOutbox,
+                "userRegistration", "userRegistration", 1000);
+
+        sampler.sample();
+
+        assertEquals(1, producersCreated.get());
+        assertEquals(0.75, ingestAdmission.getBufferUsage());
+        assertEquals(2_000_000L, ingestAdmission.getOutboxBacklogBytes());
+        assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+    }
+
+    private MeteredProducerFactory<String, User> producerFactory(Producer<String, User> producer, AtomicInteger producersCreated) {
+        return new MeteredProducerFactory<String, User>(Collections.emptyMap()) {
+            @Override
+            protected Producer<String, User> createKafkaProducer() {
+                producersCreated.incrementAndGet();
+                return producer;
+            }
+        };
+    }
+
+    private Metric metric(double value) {
+        Metric metric = mock(Metric.class);
+        when(metric.metricValue()).thenReturn(value);
+        return metric;
+    }
+
+    private Map<TopicPartition, Long> offsets(long committedPartitionOffset, long uncommittedPartitionOffset) {
+        Map<TopicPartition, Long> offsets = new HashMap<>();
+        offsets.put(committedPartition, committedPartitionOffset);
+        offsets.put(uncommittedPartition, uncommittedPartitionOffset);
+        return offsets;
+    }
+}
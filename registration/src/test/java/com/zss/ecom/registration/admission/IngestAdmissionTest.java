@@ -0,0 +1,77 @@
+package com.zss.ecom.registration.admission;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class IngestAdmissionTest {
+
+    @Test
+    @DisplayName("Test everything is admitted below the throttle lag")
+    public void testAdmittedBelowThrottleLag() {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60, () -> 0.99);
+        ingestAdmission.update(100, 0, 0.5, 0, 0);
+
+        ingestAdmission.admit();
+        assertEquals(1.0, ingestAdmission.getAdmittedShare());
+        assertEquals(0, ingestAdmission.rejectedCount());
+    }
+
+    @Test
+    @DisplayName("Test the admitted share falls linearly between the throttle and the shed lag")
+    public void testAdmittedShareBetweenThrottleAndShed() {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_100, 0.9, 1_000_000, 60, () -> 0.5);
+        ingestAdmission.update(350, 0, 0, 0, 0);
+        assertEquals(0.75, ingestAdmission.getAdmittedShare(), 1e-9);
+        ingestAdmission.admit();
+
+        ingestAdmission.update(850, 0, 0, 0, 1_000);
+        assertEquals(0.25, ingestAdmission.getAdmittedShare(), 1e-9);
+        assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+        assertEquals(1, ingestAdmission.rejectedCount());
+    }
+
+    @Test
+    @DisplayName("Test Retry-After is the time to drain back under the throttle lag")
+    public void testRetryAfterFromDrainRate() {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60, () -> 0.0);
+        ingestAdmission.update(1_100, 0, 0, 0, 0);
+        AdmissionRejectedException noDrain = assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+        assertEquals(60, noDrain.getRetryAfterSeconds());
+
+        ingestAdmission.update(1_100, 400, 0, 0, 1_000);
+        AdmissionRejectedException draining = assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+        assertEquals(5, draining.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Test a full producer buffer sheds everything")
+    public void testFullBufferSheds() {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60, () -> 0.0);
+        ingestAdmission.update(0, 0, 0.95, 0, 0);
+
+        AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+        assertEquals(0.0, ingestAdmission.getAdmittedShare());
+        assertEquals(1, ex.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Test a full outbox backlog sheds everything")
+    public void testFullOutboxBacklogSheds() {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60, () -> 0.0);
+        ingestAdmission.update(0, 0, 0, 1_000_000, 0);
+
+        assertThrows(AdmissionRejectedException.class, ingestAdmission::admit);
+        assertEquals(0.0, ingestAdmission.getAdmittedShare());
+        assertEquals(1_000_000, ingestAdmission.getOutboxBacklogBytes());
+    }
+
+    @Test
+    @DisplayName("Test the shed lag must be above the throttle lag")
+    public void testInvalidLags() {
+        assertThrows(IllegalArgumentException.class, () -> new IngestAdmission(1_000, 1_000, 0.9, 1_000_000, 60));
+    }
+}
@@ -0,0 +1,78 @@
+package com.zss.ecom.registration.audit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import com.zss.ecom.registration.model.Address;
+import com.zss.ecom.registration.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RegistrationAuditLogTest {
+
+    private final Logger auditLogger = (Logger) LoggerFactory.getLogger("com.zss.ecom.registration.audit");
+
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private final User user = User.builder().id(7).firstName("Jane").email("jane.doe@example.com")
+            .password("secret").verifyPassword("secret").customerType("retail")
+            .addresses(new ArrayList<>(Collections.singletonList(Address.builder().build()))).build();
+
+    @BeforeEach
+    public void attach() {
+        appender.start();
+        auditLogger.addAppender(appender);
+    }
+
+    @AfterEach
+    public void detach() {
+        auditLogger.detachAppender(appender);
+    }
+
+    @Test
+    @DisplayName("Test an audit event renders masked fields and never the passwords or names")
+    public void testMaskedFields() {
+        new RegistrationAuditLog(1.0, 1.0).received(user);
+
+        assertEquals(1, appender.list.size());
+        String message = appender.list.get(0).getFormattedMessage();
+        assertEquals("event=received id=7 email=j***@example.com customerType=retail addresses=1", message);
+        assertFalse(message.contains("secret"));
+        assertFalse(message.contains("Jane"));
+    }
+
+    @Test
+    @DisplayName("Test steps that went well and failures are sampled at their own rates")
+    public void testSampling() {
+        RegistrationAuditLog auditLog = new RegistrationAuditLog(0.25, 1.0, () -> 0.5);
+
+        auditLog.received(user);
+        auditLog.sent(user, "userRegistration", 0, 1L);
+        auditLog.failed("send", user, new IllegalStateException("broker down"));
+
+        assertEquals(1, appender.list.size());
+        assertEquals("event=failed step=send id=7 email=j***@example.com", appender.list.get(0).getFormattedMessage());
+        new RegistrationAuditLog(0.25, 0.0, () -> 0.1).failed("send", user, new IllegalStateException());
+        assertEquals(1, appender.list.size());
+    }
+
+    @Test
+    @DisplayName("Test emails are masked down to their first character and domain")
+    public void testMaskEmail() {
+        assertEquals("j***@example.com", RegistrationAuditLog.maskEmail("jane.doe@example.com"));
+        assertEquals("***", RegistrationAuditLog.maskEmail("no-at-sign"));
+        assertEquals("***", RegistrationAuditLog.maskEmail("@example.com"));
+        assertNull(RegistrationAuditLog.maskEmail(null));
+        assertEquals("id=7, email=j***@example.com", RegistrationAuditLog.describe(user));
+    }
+}
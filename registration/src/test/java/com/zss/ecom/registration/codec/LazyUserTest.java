@@ -0,0 +1,81 @@
+package com.zss.ecom.registration.codec;
+
+import com.zss.ecom.registration.exception.UndecodableUserException;
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.ListenerExecutionFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_BINARY;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_FORMAT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.USER_SCHEMA_VERSION_HEADER;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LazyUserTest {
+
+    private final LazyUserDeserializer deserializer = new LazyUserDeserializer();
+
+    @Test
+    @DisplayName("Test a reply is routed on its headers while its body stays undecoded")
+    public void testHeadersWithoutDecoding() {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add(KafkaHeaders.CORRELATION_ID, "correlation-1".getBytes(StandardCharsets.UTF_8));
+        LazyUser reply = deserializer.deserialize(BACKOFFICE_TOPIC, headers, "{not a user".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals("correlation-1", reply.header(KafkaHeaders.CORRELATION_ID));
+        assertFalse(reply.isDecoded());
+    }
+
+    @Test
+    @DisplayName("Test JSON and binary users decode on first use")
+    public void testDecodes() {
+        User user = User.builder().id(4).email("test@gmail.com").build();
+        RecordHeaders binary = new RecordHeaders();
+        binary.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+        binary.add(USER_SCHEMA_VERSION_HEADER, String.valueOf(UserBinaryCodec.SCHEMA_VERSION).getBytes(StandardCharsets.UTF_8));
+
+        LazyUser fromJson = deserializer.deserialize(BACKOFFICE_TOPIC, new RecordHeaders(), new UserSerializer().serialize(BACKOFFICE_TOPIC, user));
+        LazyUser fromBinary = deserializer.deserialize(BACKOFFICE_TOPIC, binary, UserBinaryCodec.encode(user));
+
+        assertEquals(user.toString(), fromJson.get().toString());
+        assertEquals(user.toString(), fromBinary.get().toString());
+        assertTrue(fromBinary.isDecoded());
+    }
+
+    @Test
+    @DisplayName("Test a binary user written by an older producer is still decoded")
+    public void testOlderSchemaVersionDecoded() {
+        User user = User.builder().id(4).email("test@gmail.com").build();
+        for (int version = 1; version <= UserBinaryCodec.SCHEMA_VERSION; version++) {
+            RecordHeaders binary = new RecordHeaders();
+            binary.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+            binary.add(USER_SCHEMA_VERSION_HEADER, String.valueOf(version).getBytes(StandardCharsets.UTF_8));
+
+            assertEquals("test@gmail.com", deserializer.deserialize(BACKOFFICE_TOPIC, binary, UserBinaryCodec.encode(user)).get().getEmail());
+        }
+    }
+
+    @Test
+    @DisplayName("Test an unreadable body or unknown schema version is undecodable and kept byte for byte")
+    public void testUndecodable() {
+        byte[] body = "{not a user".getBytes(StandardCharsets.UTF_8);
+        RecordHeaders futureVersion = new RecordHeaders();
+        futureVersion.add(USER_FORMAT_HEADER, USER_FORMAT_BINARY.getBytes(StandardCharsets.UTF_8));
+        futureVersion.add(USER_SCHEMA_VERSION_HEADER, String.valueOf(UserBinaryCodec.SCHEMA_VERSION + 1).getBytes(StandardCharsets.UTF_8));
+        LazyUser unreadable = deserializer.deserialize(BACKOFFICE_TOPIC, new RecordHeaders(), body);
+
+        UndecodableUserException ex = assertThrows(UndecodableUserException.class, unreadable::get);
+        assertThrows(UndecodableUserException.class, deserializer.deserialize(BACKOFFICE_TOPIC, futureVersion, body)::get);
+        assertTrue(UndecodableUserException.isCauseOf(new ListenerExecutionFailedException("listener failed", ex)));
+        assertArrayEquals(body, new LazyUserSerializer().serialize(BACKOFFICE_TOPIC, unreadable));
+    }
+}
@@ -0,0 +1,37 @@
+package com.zss.ecom.registration.config;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AckModeTest {
+
+    @Test
+    @DisplayName("Test acknowledgement modes resolve from their header names")
+    public void testAckModeResolvedByName() {
+        assertEquals(AckMode.FIRE_AND_FORGET, AckMode.of("fire_and_forget"));
+        assertEquals(AckMode.LEADER, AckMode.of(" Leader "));
+        assertEquals(AckMode.ALL, AckMode.of("all"));
+        assertThrows(IllegalArgumentException.class, () -> AckMode.of("quorum"));
+    }
+
+    @Test
+    @DisplayName("Test weaker acknowledgement modes switch off idempotence of the durable profile")
+    public void testAckModeOverridesProfile() {
+        Map<String, Object> leader = AckMode.LEADER.applyTo(new HashMap<>(ProducerProfile.DURABLE.getSettings()));
+        assertEquals("1", leader.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(false, leader.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+
+        Map<String, Object> all = AckMode.ALL.applyTo(new HashMap<>(ProducerProfile.DURABLE.getSettings()));
+        assertEquals("all", all.get(ProducerConfig.ACKS_CONFIG));
+        assertEquals(true, all.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertFalse(AckMode.FIRE_AND_FORGET.awaitsAcknowledgement());
+    }
+}
@@ -0,0 +1,95 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.RegistrationApplication;
+import com.zss.ecom.registration.codec.UserSerializer;
+import com.zss.ecom.registration.model.User;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Times the registration service from launch until it is ready and until it has read a back office verdict
+ * published before it started, once with eager wiring and once with the "fast-startup" profile. The broker
+ * is embedded, and a warm-up start in the same JVM keeps class loading out of both timings.
+ */
+@Slf4j
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FastStartupIntTest {
+
+    private EmbeddedKafkaBroker embeddedKafkaBroker;
+
+    @BeforeAll
+    public void startBroker() {
+        embeddedKafkaBroker = new EmbeddedKafkaBroker(1, true, 1, BACKOFFICE_TOPIC)
+                .brokerProperty("log.dir", "target/embedded-kafka-fast-startup");
+        embeddedKafkaBroker.afterPropertiesSet();
+        this.launch("test").close();
+    }
+
+    @AfterAll
+    public void stopBroker() {
+        embeddedKafkaBroker.destroy();
+    }
+
+    @Test
+    @DisplayName("Test startup time and time to the first consumed record with eager wiring")
+    public void testEagerStartup() throws Exception {
+        this.measureStartup(1, "test", context ->
+                assertFalse(context.getBeanFactory().getBeanDefinition("kafkaAdmin").isLazyInit()));
+    }
+
+    @Test
+    @DisplayName("Test startup time and time to the first consumed record with the fast-startup profile")
+    public void testFastStartup() throws Exception {
+        this.measureStartup(2, "test,fast-startup", context -> {
+            assertTrue(context.getBeanFactory().getBeanDefinition("kafkaAdmin").isLazyInit());
+            assertFalse(context.getBeanFactory().getBeanDefinition("registrationController").isLazyInit());
+            assertNotNull(context.getBean(DeferredTopicVerification.class));
+        });
+    }
+
+    private void measureStartup(int userId, String profiles, Consumer<ConfigurableApplicationContext> checks) throws Exception {
+        try (Producer<String, User> producer = new DefaultKafkaProducerFactory<>(KafkaTestUtils.producerProps(embeddedKafkaBroker),
+                new StringSerializer(), new UserSerializer()).createProducer()) {
+            producer.send(new ProducerRecord<>(BACKOFFICE_TOPIC, User.builder().id(userId).email("verdict" + userId + "@gmail.com").build())).get();
+        }
+        long launched = System.nanoTime();
+        ConfigurableApplicationContext context = this.launch(profiles);
+        try {
+            long startupMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+            assertTrue(context.getBean(CountDownLatch.class).await(60, TimeUnit.SECONDS));
+            long firstRecordMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - launched);
+            log.info("Profiles [{}]: started in {} ms, first verdict consumed {} ms after launch", profiles, startupMs, firstRecordMs);
+            checks.accept(context);
+        } finally {
+            context.close();
+        }
+    }
+
+    private ConfigurableApplicationContext launch(String profiles) {
+        return new SpringApplicationBuilder(RegistrationApplication.class).run(
+                "--spring.profiles.active=" + profiles,
+                "--spring.embedded.kafka.brokers=" + embeddedKafkaBroker.getBrokersAsString(),
+                "--server.port=0");
+    }
+}
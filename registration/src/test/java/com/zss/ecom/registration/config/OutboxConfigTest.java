@@ -0,0 +1,32 @@
+package com.zss.ecom.registration.config;
+
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OutboxConfigTest {
+
+    @Test
+    @DisplayName("Test the relay producer is idempotent and waits for all replicas whatever the interactive profile")
+    public void testRelayProducerIdempotent() {
+        KafkaProducerConfig kafkaProducerConfig = new KafkaProducerConfig();
+        ReflectionTestUtils.setField(kafkaProducerConfig, "bootstrapAddress", "localhost:9092");
+        ReflectionTestUtils.setField(kafkaProducerConfig, "binaryTopics", "");
+        ReflectionTestUtils.setField(kafkaProducerConfig, "profile", "low-latency");
+
+        KafkaTemplate<String, User> relayKafkaTemplate = new OutboxConfig().relayKafkaTemplate(kafkaProducerConfig);
+
+        Map<String, Object> configProps = ((DefaultKafkaProducerFactory<String, User>) relayKafkaTemplate.getProducerFactory())
+                .getConfigurationProperties();
+        assertEquals(true, configProps.get(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG));
+        assertEquals("all", configProps.get(ProducerConfig.ACKS_CONFIG));
+    }
+}
@@ -1,6 +1,7 @@
 package com.zss.ecom.registration.facade;
 
 import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.password.PasswordHasher;
 import kafka.server.KafkaServer;
 import org.apache.commons.io.FileUtils;
 import org.apache.kafka.clients.consumer.Consumer;
@@ -9,6 +10,7 @@ import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.Producer;
 import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.junit.jupiter.api.AfterAll;
@@ -33,19 +35,26 @@ import org.springframework.kafka.test.utils.KafkaTestUtils;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static com.zss.ecom.registration.config.RegistrationConstants.EVENT_ID_HEADER;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -79,14 +88,23 @@ class RegistrationControllerIntTest {
         Consumer<String, User> consumer = buildConsumer();
         consumer.subscribe(Collections.singleton(defaultTopic));
 
-        this.mockMvc.perform(post("/submit").content(getRequest())
+        MvcResult result = this.mockMvc.perform(post("/submit").content(getRequest())
                 .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        this.mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isCreated())
                 .andExpect(content().json("{\"message\": \"User Registration Submitted\"}"));
 
         ConsumerRecord<String, User> singleRecord = KafkaTestUtils.getSingleRecord(consumer, defaultTopic);
         assertNotNull(singleRecord);
-        assertEquals(getExpected(), singleRecord.value().toString());
+        assertEquals("testemailaddress@gmail.com", singleRecord.key());
+        Header eventId = singleRecord.headers().lastHeader(EVENT_ID_HEADER);
+        assertNotNull(eventId);
+        assertNotNull(UUID.fromString(new String(eventId.value(), StandardCharsets.UTF_8)));
+        String passwordHash = singleRecord.value().getPassword();
+        assertTrue(new PasswordHasher(1).matches("P@ssw0rd", passwordHash));
+        assertEquals(getExpected(passwordHash), singleRecord.value().toString());
     }
 
     @Test
@@ -108,9 +126,9 @@ class RegistrationControllerIntTest {
                 .andExpect(status().is(415));
     }
 
-    private String getExpected() {
-        return "User(id=0, title=mr, firstName=TestUser, lastName=TestLast, email=testEmailAddress@gmail.com, password=P@ssw0rd, " +
-                "verifyPassword=P@ssw0rd, telephone=1.23456792E8, mobileNumber=9.8745631E9, customerType=STOCKIST, drugLicenseNo=654, " +
+    private String getExpected(String passwordHash) {
+        return "User(id=0, title=mr, firstName=TestUser, lastName=TestLast, email=testEmailAddress@gmail.com, password=" + passwordHash + ", " +
+                "verifyPassword=null, telephone=1.23456792E8, mobileNumber=9.8745631E9, customerType=STOCKIST, drugLicenseNo=654, " +
                 "receiveMarketingMails=true, termsAndConditions=true, addresses=null)";
     }
 
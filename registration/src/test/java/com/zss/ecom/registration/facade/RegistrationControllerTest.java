@@ -1,31 +1,79 @@
 package com.zss.ecom.registration.facade;
 
 
+import com.zss.ecom.registration.admission.IngestAdmission;
+import com.zss.ecom.registration.audit.RegistrationAuditLog;
+import com.zss.ecom.registration.codec.LazyUser;
+import com.zss.ecom.registration.config.AckMode;
+import com.zss.ecom.registration.config.AckModeKafkaTemplates;
 import com.zss.ecom.registration.exception.ApplicationException;
+import com.zss.ecom.registration.idempotency.IdempotentResponseCache;
+import com.zss.ecom.registration.metrics.RegistrationMetrics;
+import com.zss.ecom.registration.model.BulkRegistrationResponse;
+import com.zss.ecom.registration.model.RegistrationResponse;
 import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.outbox.RegistrationOutbox;
+import com.zss.ecom.registration.password.PasswordHasher;
+import com.zss.ecom.registration.password.PasswordHashing;
+import com.zss.ecom.registration.reply.BackOfficeReplyReader;
+import com.zss.ecom.registration.reply.PendingReplies;
+import com.zss.ecom.registration.service.BulkRegistrationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.kafka.support.SendResult;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.springframework.web.context.request.async.DeferredResult;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.APPLICATION_NDJSON_VALUE;
+import static com.zss.ecom.registration.config.RegistrationConstants.BACKOFFICE_TOPIC;
+import static com.zss.ecom.registration.config.RegistrationConstants.RECEIVED_AT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.SENT_AT_HEADER;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_ACCEPTED;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_UNAVAILABLE;
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_HEADER;
 import static com.zss.ecom.registration.facade.RegistrationControllerIntTest.getRequest;
-import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
@@ -34,34 +82,306 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(MockitoExtension.class)
 class RegistrationControllerTest {
 
+    @Mock
+    private AckModeKafkaTemplates kafkaTemplates;
+
     @Mock
     private KafkaTemplate<String, User> kafkaTemplate;
 
     @Mock
     private ListenableFuture<SendResult<String, User>> responseFuture;
 
+    @Mock
+    private BulkRegistrationService bulkRegistrationService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private RegistrationMetrics registrationMetrics = new RegistrationMetrics(meterRegistry);
+
+    @Spy
+    private RegistrationAuditLog auditLog = new RegistrationAuditLog(1.0, 1.0);
+
     @InjectMocks
     private RegistrationController registrationController;
 
+    @BeforeEach
+    public void setDefaultTopic() {
+        ReflectionTestUtils.setField(registrationController, "defaultTopic", "userRegistration");
+    }
+
     @Test
-    @DisplayName("Test user registration sent failed to back office")
-    public void testRegistrationSubmitToFailedToBackOffice() throws Exception {
+    @DisplayName("Test user registration sent failed to back office is reported to the caller")
+    public void testRegistrationSubmitToFailedToBackOffice() {
 
-        String expectedMessage = "Unable to send message to back office=[{User(id=0, title=null, firstName=null, lastName=null, " +
-                "email=null, password=null, verifyPassword=null, telephone=0.0, mobileNumber=0.0, customerType=null, " +
-                "drugLicenseNo=null, receiveMarketingMails=false, termsAndConditions=false, addresses=null)}]";
+        String expectedMessage = "Unable to send message to back office=[{id=0, email=t***@example.com}]";
 
         doAnswer(invocationOnMock -> {
             ListenableFutureCallback listenableFutureCallback = invocationOnMock.getArgument(0);
             listenableFutureCallback.onFailure(new RuntimeException());
             return null;
         }).when(responseFuture).addCallback(any(ListenableFutureCallback.class));
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> result =
+                registrationController.userRegistration(User.builder().email("test.user@example.com").password("secret").build(), null, null, false);
+
+        assertTrue(result.getResult() instanceof ApplicationException);
+        assertEquals(expectedMessage, ((ApplicationException) result.getResult()).getMessage());
+        assertEquals(1, meterRegistry.get("registration.send.failures").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test user registration answers once the broker acknowledges")
+    public void testRegistrationAnsweredOnAcknowledgement() {
+        doAnswer(invocationOnMock -> {
+            ListenableFutureCallback<SendResult<String, User>> listenableFutureCallback = invocationOnMock.getArgument(0);
+            listenableFutureCallback.onSuccess(new SendResult<>(null,
+                    new RecordMetadata(new TopicPartition("userRegistration", 0), 0L, 0L, 0L, 0L, 0, 0)));
+            return null;
+        }).when(responseFuture).addCallback(any(ListenableFutureCallback.class));
+        when(kafkaTemplates.resolve("all")).thenReturn(AckMode.ALL);
+        when(kafkaTemplates.forMode(AckMode.ALL)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> result =
+                registrationController.userRegistration(User.builder().build(), "all", null, false);
+
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+        ArgumentCaptor<ProducerRecord<String, User>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(sent.capture());
+        assertNotNull(sent.getValue().headers().lastHeader(RECEIVED_AT_HEADER));
+        assertNotNull(sent.getValue().headers().lastHeader(SENT_AT_HEADER));
+        assertEquals(1, meterRegistry.get("registration.submit.latency").tag("ack.mode", "all").tag("status", "201").timer().count());
+        assertEquals(1, meterRegistry.get("registration.records.sent").tag("partition", "0").counter().count());
+    }
+
+    @Test
+    @DisplayName("Test fire-and-forget user registration is accepted without waiting")
+    public void testFireAndForgetRegistrationAccepted() {
+        when(kafkaTemplates.resolve("fire-and-forget")).thenReturn(AckMode.FIRE_AND_FORGET);
+        when(kafkaTemplates.forMode(AckMode.FIRE_AND_FORGET)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> result =
+                registrationController.userRegistration(User.builder().build(), "fire-and-forget", null, false);
+
+        assertEquals(HttpStatus.ACCEPTED, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+    }
+
+    @Test
+    @DisplayName("Test user registration is keyed by normalized email")
+    public void testRegistrationKeyedByNormalizedEmail() {
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        registrationController.userRegistration(User.builder().id(7).email(" Test.User@Example.com ").build(), null, null, false);
+
+        verify(kafkaTemplate).send(argThat((ProducerRecord<String, User> record) -> "test.user@example.com".equals(record.key())));
+    }
+
+    @Test
+    @DisplayName("Test user registration is accepted once written to the outbox")
+    public void testRegistrationAcceptedFromOutbox() {
+        RegistrationOutbox registrationOutbox = mock(RegistrationOutbox.class);
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        when(registrationOutbox.append(any())).thenReturn(durable);
+        RegistrationController outboxController =
+                new RegistrationController(kafkaTemplates, null, bulkRegistrationService, registrationOutbox, null, null, registrationMetrics, null, auditLog, null);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> result =
+                outboxController.userRegistration(User.builder().build(), null, null, false);
+
+        assertFalse(result.hasResult());
+        durable.complete(null);
+        assertEquals(HttpStatus.ACCEPTED, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+        verifyNoInteractions(kafkaTemplate);
+    }
+
+    @Test
+    @DisplayName("Test a broker acknowledgement mode is honoured without the outbox and refused with it")
+    public void testAckModeWithAndWithoutOutbox() {
+        doAnswer(invocationOnMock -> {
+            ListenableFutureCallback<SendResult<String, User>> listenableFutureCallback = invocationOnMock.getArgument(0);
+            listenableFutureCallback.onSuccess(new SendResult<>(null,
+                    new RecordMetadata(new TopicPartition("userRegistration", 0), 0L, 0L, 0L, 0L, 0, 0)));
+            return null;
+        }).when(responseFuture).addCallback(any(ListenableFutureCallback.class));
+        when(kafkaTemplates.resolve("all")).thenReturn(AckMode.ALL);
+        when(kafkaTemplates.forMode(AckMode.ALL)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+        RegistrationOutbox registrationOutbox = mock(RegistrationOutbox.class);
+        RegistrationController outboxController =
+                new RegistrationController(kafkaTemplates, null, bulkRegistrationService, registrationOutbox, null, null, registrationMetrics, null, auditLog, null);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> direct =
+                registrationController.userRegistration(User.builder().build(), "all", null, false);
 
-        when(kafkaTemplate.send(any(),any())).thenReturn(responseFuture);
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) direct.getResult()).getStatusCode());
+        IllegalArgumentException refused = assertThrows(IllegalArgumentException.class,
+                () -> outboxController.userRegistration(User.builder().build(), "all", null, false));
+        assertEquals("X-Ack-Mode all is not supported, the outbox answers before the broker acknowledges", refused.getMessage());
+        verifyNoInteractions(registrationOutbox);
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @DisplayName("Test a retried Idempotency-Key waits for and replays the original send")
+    public void testIdempotentRetryReplaysOriginal() {
+        RegistrationController idempotentController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, new IdempotentResponseCache(100, 60_000, 4), null, registrationMetrics, null, auditLog, null);
+        ReflectionTestUtils.setField(idempotentController, "defaultTopic", "userRegistration");
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+        User user = User.builder().id(7).email("retry@example.com").build();
 
-        Exception exception = assertThrows(ApplicationException.class,
-                () -> {registrationController.userRegistration(User.builder().build());});
-        assertEquals(expectedMessage, exception.getMessage());
+        DeferredResult<ResponseEntity<RegistrationResponse>> first = idempotentController.userRegistration(user, null, "key-1", false);
+        DeferredResult<ResponseEntity<RegistrationResponse>> retry = idempotentController.userRegistration(
+                User.builder().id(7).email("retry@example.com").build(), null, "key-1", false);
+        DeferredResult<ResponseEntity<RegistrationResponse>> conflict = idempotentController.userRegistration(
+                User.builder().id(8).build(), null, "key-1", false);
+
+        assertFalse(retry.hasResult());
+        ArgumentCaptor<ListenableFutureCallback<SendResult<String, User>>> callback = ArgumentCaptor.forClass(ListenableFutureCallback.class);
+        verify(responseFuture).addCallback(callback.capture());
+        callback.getValue().onSuccess(new SendResult<>(null,
+                new RecordMetadata(new TopicPartition("userRegistration", 0), 0L, 0L, 0L, 0L, 0, 0)));
+
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) first.getResult()).getStatusCode());
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) retry.getResult()).getStatusCode());
+        assertEquals(HttpStatus.UNPROCESSABLE_ENTITY, ((ResponseEntity<?>) conflict.getResult()).getStatusCode());
+        verify(kafkaTemplate, times(1)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @DisplayName("Test a failed send releases its Idempotency-Key for the next retry")
+    public void testIdempotentFailureReleasesKey() {
+        RegistrationController idempotentController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, new IdempotentResponseCache(100, 60_000, 4), null, registrationMetrics, null, auditLog, null);
+        ReflectionTestUtils.setField(idempotentController, "defaultTopic", "userRegistration");
+        doAnswer(invocationOnMock -> {
+            ListenableFutureCallback listenableFutureCallback = invocationOnMock.getArgument(0);
+            listenableFutureCallback.onFailure(new RuntimeException());
+            return null;
+        }).when(responseFuture).addCallback(any(ListenableFutureCallback.class));
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> first =
+                idempotentController.userRegistration(User.builder().build(), null, "key-1", false);
+        DeferredResult<ResponseEntity<RegistrationResponse>> retry =
+                idempotentController.userRegistration(User.builder().build(), null, "key-1", false);
+
+        assertTrue(first.getResult() instanceof ApplicationException);
+        assertTrue(retry.getResult() instanceof ApplicationException);
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @DisplayName("Test an unavailable verdict releases its Idempotency-Key so the retry is sent again")
+    public void testIdempotentUnavailableVerdictRetried() {
+        PendingReplies pendingReplies = new PendingReplies(10);
+        pendingReplies.markReady();
+        BackOfficeReplyReader replies = new BackOfficeReplyReader(null, BACKOFFICE_TOPIC, pendingReplies);
+        RegistrationController idempotentController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, new IdempotentResponseCache(100, 60_000, 4), pendingReplies,
+                registrationMetrics, null, auditLog, null);
+        ReflectionTestUtils.setField(idempotentController, "defaultTopic", "userRegistration");
+        ReflectionTestUtils.setField(idempotentController, "verdictTimeoutMs", 60_000L);
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> first = idempotentController.userRegistration(
+                User.builder().id(7).email("retry@example.com").build(), null, "key-1", true);
+        ArgumentCaptor<ProducerRecord<String, User>> requests = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate).send(requests.capture());
+        replies.onReply(replyTo(requests.getValue(), VERDICT_UNAVAILABLE));
+        DeferredResult<ResponseEntity<RegistrationResponse>> retry = idempotentController.userRegistration(
+                User.builder().id(7).email("retry@example.com").build(), null, "key-1", true);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseEntity<?>) first.getResult()).getStatusCode());
+        assertFalse(retry.hasResult());
+        verify(kafkaTemplate, times(2)).send(requests.capture());
+        replies.onReply(replyTo(requests.getValue(), VERDICT_ACCEPTED));
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) retry.getResult()).getStatusCode());
+        pendingReplies.close();
+    }
+
+    @Test
+    @DisplayName("Test a registration awaiting a verdict is refused and never sent before replies are read")
+    public void testVerdictRefusedBeforeRepliesRead() {
+        PendingReplies pendingReplies = new PendingReplies(10);
+        RegistrationController verdictController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, null, pendingReplies, registrationMetrics, null, auditLog, null);
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> result =
+                verdictController.userRegistration(User.builder().id(1).build(), null, null, true);
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseEntity<?>) result.getResult()).getStatusCode());
+        assertEquals(0, pendingReplies.size());
+        verifyNoInteractions(kafkaTemplate);
+        pendingReplies.close();
+    }
+
+    @Test
+    @DisplayName("Test a registration awaiting a verdict is answered by the correlated back office reply")
+    public void testRegistrationAnsweredByVerdict() {
+        PendingReplies pendingReplies = new PendingReplies(10);
+        pendingReplies.markReady();
+        BackOfficeReplyReader replies = new BackOfficeReplyReader(null, BACKOFFICE_TOPIC, pendingReplies);
+        RegistrationController verdictController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, null, pendingReplies, registrationMetrics, null, auditLog, null);
+        ReflectionTestUtils.setField(verdictController, "defaultTopic", "userRegistration");
+        ReflectionTestUtils.setField(verdictController, "verdictTimeoutMs", 60_000L);
+        when(kafkaTemplates.resolve(null)).thenReturn(AckMode.LEADER);
+        when(kafkaTemplates.forMode(AckMode.LEADER)).thenReturn(kafkaTemplate);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(responseFuture);
+
+        DeferredResult<ResponseEntity<RegistrationResponse>> accepted =
+                verdictController.userRegistration(User.builder().id(1).build(), null, null, true);
+        DeferredResult<ResponseEntity<RegistrationResponse>> rejected =
+                verdictController.userRegistration(User.builder().id(2).build(), null, null, true);
+        DeferredResult<ResponseEntity<RegistrationResponse>> undecided =
+                verdictController.userRegistration(User.builder().id(3).build(), null, null, true);
+
+        ArgumentCaptor<ProducerRecord<String, User>> requests = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(3)).send(requests.capture());
+        assertEquals(3, pendingReplies.size());
+        assertEquals(BACKOFFICE_TOPIC, new String(requests.getValue().headers().lastHeader(KafkaHeaders.REPLY_TOPIC).value(), StandardCharsets.UTF_8));
+        replies.onReply(replyTo(requests.getAllValues().get(0), VERDICT_ACCEPTED));
+        replies.onReply(replyTo(requests.getAllValues().get(1), "already-registered"));
+        replies.onReply(replyTo(requests.getAllValues().get(2), "unavailable"));
+
+        assertEquals(HttpStatus.CREATED, ((ResponseEntity<?>) accepted.getResult()).getStatusCode());
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, ((ResponseEntity<?>) undecided.getResult()).getStatusCode());
+        assertEquals(HttpStatus.CONFLICT, ((ResponseEntity<?>) rejected.getResult()).getStatusCode());
+        assertEquals("already-registered", ((ResponseEntity<RegistrationResponse>) rejected.getResult()).getBody().getVerdict());
+        assertEquals(0, pendingReplies.size());
+        pendingReplies.close();
+    }
+
+    @Test
+    @DisplayName("Test bulk registration is routed by content type")
+    public void testBulkRegistrationRoutedByContentType() throws Exception {
+        when(bulkRegistrationService.submitNdjson(any())).thenReturn(BulkRegistrationResponse.builder().received(2).build());
+        when(bulkRegistrationService.submitJsonArray(any())).thenReturn(BulkRegistrationResponse.builder().received(1).build());
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(registrationController).build();
+
+        mvc.perform(post("/submit/bulk").content("{}\n{}\n")
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"received\": 2}"));
+        mvc.perform(post("/submit/bulk").content("[{}]")
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(status().isOk())
+                .andExpect(content().json("{\"received\": 1}"));
     }
 
     @Test
@@ -76,4 +396,81 @@ class RegistrationControllerTest {
 
           assertEquals(HttpStatus.INTERNAL_SERVER_ERROR.value(), response.getStatus());
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Test a shed registration is answered 429 with a Retry-After and never sent")
+    public void testShedRegistrationRetriesLater() throws Exception {
+        IngestAdmission ingestAdmission = new IngestAdmission(100, 1_000, 0.9, 1_000_000, 60);
+        ingestAdmission.update(2_000, 0, 0, 0, 0);
+        ingestAdmission.update(2_000, 500, 0, 0, 1_000);
+        RegistrationController sheddingController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, null, null, registrationMetrics, ingestAdmission, auditLog, null);
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(sheddingController)
+                .setControllerAdvice(new RegistrationControllerAdvice())
+                .build();
+
+        MockHttpServletResponse response = mvc.perform(post("/submit").content(getRequest())
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                .andReturn().getResponse();
+        MockHttpServletResponse bulkResponse = mvc.perform(post("/submit/bulk").content("{}\n")
+                .header(HttpHeaders.CONTENT_TYPE, APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse();
+
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), response.getStatus());
+        assertEquals("8", response.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS.value(), bulkResponse.getStatus());
+        assertEquals(2, ingestAdmission.rejectedCount());
+        verifyNoInteractions(kafkaTemplate, bulkRegistrationService);
+    }
+
+    @Test
+    @DisplayName("Test only the password hash is sent, off the hashing threads, and mismatched passwords are rejected before hashing")
+    public void testPasswordHashedBeforeSend() throws Exception {
+        PasswordHasher passwordHasher = new PasswordHasher(1_000);
+        PasswordHashing passwordHashing = new PasswordHashing(passwordHasher, 1, 4, 1);
+        RegistrationController hashingController = new RegistrationController(kafkaTemplates, null,
+                bulkRegistrationService, null, null, null, registrationMetrics, null, auditLog, passwordHashing);
+        ReflectionTestUtils.setField(hashingController, "defaultTopic", "userRegistration");
+        when(kafkaTemplates.resolve("fire-and-forget")).thenReturn(AckMode.FIRE_AND_FORGET);
+        when(kafkaTemplates.forMode(AckMode.FIRE_AND_FORGET)).thenReturn(kafkaTemplate);
+        AtomicReference<String> sendingThread = new AtomicReference<>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            sendingThread.set(Thread.currentThread().getName());
+            return responseFuture;
+        });
+
+        try {
+            DeferredResult<ResponseEntity<RegistrationResponse>> result = hashingController.userRegistration(
+                    User.builder().email("test.user@example.com").password("P@ssw0rd").verifyPassword("P@ssw0rd").build(),
+                    "fire-and-forget", null, false);
+            CompletableFuture<Object> answer = new CompletableFuture<>();
+            result.setResultHandler(answer::complete);
+            MockMvc mvc = MockMvcBuilders.standaloneSetup(hashingController)
+                    .setControllerAdvice(new RegistrationControllerAdvice())
+                    .build();
+            MockHttpServletResponse mismatched = mvc.perform(post("/submit")
+                    .content("{\"email\": \"other@example.com\", \"password\": \"P@ssw0rd\", \"verifyPassword\": \"password\"}")
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE))
+                    .andReturn().getResponse();
+
+            ArgumentCaptor<ProducerRecord<String, User>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+            verify(kafkaTemplate, timeout(5_000)).send(sent.capture());
+            assertEquals(HttpStatus.ACCEPTED, ((ResponseEntity<?>) answer.get(5, TimeUnit.SECONDS)).getStatusCode());
+            assertTrue(passwordHasher.matches("P@ssw0rd", sent.getValue().value().getPassword()));
+            assertNull(sent.getValue().value().getVerifyPassword());
+            assertEquals(HttpStatus.BAD_REQUEST.value(), mismatched.getStatus());
+            assertEquals(1, passwordHashing.hashedCount());
+            assertTrue(sendingThread.get().startsWith("password-hashed-"));
+        } finally {
+            passwordHashing.close();
+        }
+    }
+
+    private ConsumerRecord<String, LazyUser> replyTo(ProducerRecord<String, User> request, String verdict) {
+        ConsumerRecord<String, LazyUser> reply = new ConsumerRecord<>(BACKOFFICE_TOPIC, 0, 0, null, LazyUser.of(request.value()));
+        reply.headers()
+                .add(request.headers().lastHeader(KafkaHeaders.CORRELATION_ID))
+                .add(VERDICT_HEADER, verdict.getBytes(StandardCharsets.UTF_8));
+        return reply;
+    }
+}
@@ -0,0 +1,86 @@
+package com.zss.ecom.registration.idempotency;
+
+import com.zss.ecom.registration.codec.UserBinaryCodec;
+import com.zss.ecom.registration.model.RegistrationResponse;
+import com.zss.ecom.registration.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IdempotentResponseCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private final User user = User.builder().id(1).email("user@example.com").build();
+
+    @Test
+    @DisplayName("Test a retried key replays the outcome of the first attempt")
+    public void testRetryReplaysOriginal() {
+        IdempotentResponseCache cache = new IdempotentResponseCache(10, 1000, 1, now::get);
+        CompletableFuture<ResponseEntity<RegistrationResponse>> first = new CompletableFuture<>();
+
+        assertTrue(cache.claim("key-1", user, first).isFirst());
+        IdempotentResponseCache.Claim retry = cache.claim("key-1", User.builder().id(1).email("user@example.com").build(),
+                new CompletableFuture<>());
+
+        assertSame(first, retry.getOriginal());
+    }
+
+    @Test
+    @DisplayName("Test a key reused for a different user is a conflict")
+    public void testKeyReuseConflict() {
+        IdempotentResponseCache cache = new IdempotentResponseCache(10, 1000, 1, now::get);
+        cache.claim("key-1", user, new CompletableFuture<>());
+
+        assertTrue(cache.claim("key-1", User.builder().id(2).build(), new CompletableFuture<>()).isConflict());
+    }
+
+    @Test
+    @DisplayName("Test a different user whose encoding has the same array hash code is still a conflict")
+    public void testHashCodeCollisionConflict() {
+        IdempotentResponseCache cache = new IdempotentResponseCache(10, 1000, 1, now::get);
+        User first = User.builder().id(1).email("Aa@example.com").build();
+        User second = User.builder().id(1).email("BB@example.com").build();
+        assertEquals(Arrays.hashCode(UserBinaryCodec.encode(first)), Arrays.hashCode(UserBinaryCodec.encode(second)));
+        cache.claim("key-1", first, new CompletableFuture<>());
+
+        assertTrue(cache.claim("key-1", second, new CompletableFuture<>()).isConflict());
+    }
+
+    @Test
+    @DisplayName("Test keys are forgotten after their time to live, on release and beyond the maximum size")
+    public void testExpiryReleaseAndSizeBound() {
+        IdempotentResponseCache cache = new IdempotentResponseCache(2, 1000, 1, now::get);
+        CompletableFuture<ResponseEntity<RegistrationResponse>> first = new CompletableFuture<>();
+        cache.claim("key-1", user, first);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1000));
+        assertTrue(cache.claim("key-1", user, new CompletableFuture<>()).isFirst());
+
+        CompletableFuture<ResponseEntity<RegistrationResponse>> second = new CompletableFuture<>();
+        cache.claim("key-2", user, second);
+        cache.release("key-2", first);
+        assertEquals(2, cache.size());
+        cache.release("key-2", second);
+        assertTrue(cache.claim("key-2", user, new CompletableFuture<>()).isFirst());
+
+        cache.claim("key-3", user, new CompletableFuture<>());
+        assertEquals(2, cache.size());
+        assertTrue(cache.claim("key-1", user, new CompletableFuture<>()).isFirst());
+    }
+
+    @Test
+    @DisplayName("Test a cache smaller than its stripe count is rejected")
+    public void testInvalidSize() {
+        assertThrows(IllegalArgumentException.class, () -> new IdempotentResponseCache(2, 1000, 4));
+    }
+}
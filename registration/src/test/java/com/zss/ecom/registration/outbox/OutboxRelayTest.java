@@ -0,0 +1,126 @@
+package com.zss.ecom.registration.outbox;
+
+import com.zss.ecom.registration.model.User;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.EVENT_ID_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private KafkaTemplate<String, User> kafkaTemplate;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Test relayed users are sent in order with their key and checkpointed")
+    public void testRelayCommitsAcknowledgedBatch() throws Exception {
+        SettableListenableFuture<SendResult<String, User>> sent = new SettableListenableFuture<>();
+        sent.set(new SendResult<>(null, null));
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(sent);
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, 60_000)) {
+            outbox.append(User.builder().email("First@Example.com").build());
+            outbox.append(User.builder().email("second@example.com").build());
+            outbox.flush();
+            OutboxRelay relay = new OutboxRelay(outbox, kafkaTemplate, "userRegistration", 500, 1000, 10, 100);
+
+            assertEquals(2, relay.relayBatch());
+            assertEquals(0, relay.relayBatch());
+
+            ArgumentCaptor<ProducerRecord<String, User>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+            verify(kafkaTemplate, times(2)).send(records.capture());
+            assertEquals("userRegistration", records.getAllValues().get(0).topic());
+            assertEquals("first@example.com", records.getAllValues().get(0).key());
+            assertEquals("second@example.com", records.getAllValues().get(1).key());
+            assertNotEquals(eventId(records.getAllValues().get(0)), eventId(records.getAllValues().get(1)));
+            assertEquals(0, outbox.getBacklogBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a failed send leaves the checkpoint so the batch is sent again under the same event id")
+    public void testRelayKeepsCheckpointOnFailure() throws Exception {
+        SettableListenableFuture<SendResult<String, User>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker unavailable"));
+        SettableListenableFuture<SendResult<String, User>> sent = new SettableListenableFuture<>();
+        sent.set(new SendResult<>(null, null));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn((ListenableFuture<SendResult<String, User>>) failed)
+                .thenReturn(sent);
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, 60_000)) {
+            outbox.append(User.builder().email("user@example.com").build());
+            outbox.flush();
+            OutboxRelay relay = new OutboxRelay(outbox, kafkaTemplate, "userRegistration", 500, 1000, 10, 100);
+
+            assertThrows(ExecutionException.class, relay::relayBatch);
+            assertEquals(0, outbox.getCheckpoint());
+
+            assertEquals(1, relay.relayBatch());
+            ArgumentCaptor<ProducerRecord<String, User>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+            verify(kafkaTemplate, times(2)).send(records.capture());
+            assertEquals("user@example.com", records.getValue().key());
+            assertEquals(eventId(records.getAllValues().get(0)), eventId(records.getValue()));
+        }
+    }
+
+    @Test
+    @DisplayName("Test an unacknowledged record times out the batch without flushing and is the next to send")
+    public void testRelayCheckpointsAcknowledgedPrefix() throws Exception {
+        SettableListenableFuture<SendResult<String, User>> sent = new SettableListenableFuture<>();
+        sent.set(new SendResult<>(null, null));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(sent)
+                .thenReturn(new SettableListenableFuture<>())
+                .thenReturn(sent);
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, 60_000)) {
+            outbox.append(User.builder().email("first@example.com").build());
+            outbox.append(User.builder().email("second@example.com").build());
+            outbox.flush();
+            OutboxRelay relay = new OutboxRelay(outbox, kafkaTemplate, "userRegistration", 500, 50, 10, 100);
+
+            assertThrows(TimeoutException.class, relay::relayBatch);
+            assertTrue(outbox.getCheckpoint() > 0);
+
+            assertEquals(1, relay.relayBatch());
+            ArgumentCaptor<ProducerRecord<String, User>> records = ArgumentCaptor.forClass(ProducerRecord.class);
+            verify(kafkaTemplate, times(3)).send(records.capture());
+            assertEquals("second@example.com", records.getValue().key());
+            verify(kafkaTemplate, never()).flush();
+            assertEquals(0, outbox.getBacklogBytes());
+        }
+    }
+
+    private static String eventId(ProducerRecord<String, User> record) {
+        return new String(record.headers().lastHeader(EVENT_ID_HEADER).value(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,167 @@
+package com.zss.ecom.registration.outbox;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RegistrationOutboxTest {
+
+    private static final long MANUAL_FLUSH = 60_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Test appended users are durable and readable in order only after a flush")
+    public void testAppendFlushRead() throws IOException {
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            CompletableFuture<Void> first = outbox.append(user(1));
+            CompletableFuture<Void> second = outbox.append(user(2));
+
+            assertFalse(first.isDone());
+            assertTrue(outbox.read(0, 10).isEmpty());
+
+            outbox.flush();
+
+            assertTrue(first.isDone() && second.isDone());
+            List<OutboxRecord> records = outbox.read(0, 10);
+            assertEquals(2, records.size());
+            assertEquals("user1@example.com", records.get(0).getUser().getEmail());
+            assertEquals("user2@example.com", records.get(1).getUser().getEmail());
+            assertEquals(records.get(0).getNextPosition(), records.get(1).getPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a reopened outbox resumes after the committed checkpoint")
+    public void testReopenResumesAfterCheckpoint() throws IOException {
+        long checkpoint;
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            outbox.append(user(1));
+            outbox.append(user(2));
+            outbox.append(user(3));
+            outbox.flush();
+            checkpoint = outbox.read(0, 1).get(0).getNextPosition();
+            outbox.commit(checkpoint);
+        }
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            assertEquals(checkpoint, outbox.getCheckpoint());
+            List<OutboxRecord> records = outbox.read(outbox.getCheckpoint(), 10);
+            assertEquals(2, records.size());
+            assertEquals("user2@example.com", records.get(0).getUser().getEmail());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a record keeps the event id it was appended with across reads and reopens")
+    public void testEventIdKept() throws IOException {
+        String eventId;
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            outbox.append(user(1));
+            outbox.append(user(2));
+            outbox.flush();
+            List<OutboxRecord> records = outbox.read(0, 10);
+            eventId = records.get(0).getEventId();
+            assertEquals(eventId, outbox.read(0, 1).get(0).getEventId());
+            assertNotEquals(eventId, records.get(1).getEventId());
+        }
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            OutboxRecord record = outbox.read(0, 1).get(0);
+            assertEquals(eventId, record.getEventId());
+            assertEquals("user1@example.com", record.getUser().getEmail());
+        }
+    }
+
+    @Test
+    @DisplayName("Test a torn record left by a crash is dropped and overwritten on recovery")
+    public void testTornTailTruncated() throws IOException {
+        long end;
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            outbox.append(user(1));
+            outbox.append(user(2));
+            outbox.flush();
+            end = outbox.read(0, 10).get(1).getNextPosition();
+        }
+        try (FileChannel channel = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+            ByteBuffer torn = ByteBuffer.allocate(12).putInt(100).putInt(42).putInt(7);
+            torn.flip();
+            channel.write(torn, end);
+        }
+
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 4096, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            assertEquals(2, outbox.read(0, 10).size());
+            outbox.append(user(3));
+            outbox.flush();
+            List<OutboxRecord> records = outbox.read(0, 10);
+            assertEquals(3, records.size());
+            assertEquals(end, records.get(2).getPosition());
+        }
+    }
+
+    @Test
+    @DisplayName("Test full segments roll over and are deleted once relayed")
+    public void testSegmentRollAndRelease() throws IOException {
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 256, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            for (int i = 1; i <= 20; i++) {
+                outbox.append(user(i));
+            }
+            outbox.flush();
+            assertTrue(segments().size() > 1);
+
+            List<OutboxRecord> records = outbox.read(0, 100);
+            assertEquals(20, records.size());
+            for (int i = 0; i < records.size(); i++) {
+                assertEquals("user" + (i + 1) + "@example.com", records.get(i).getUser().getEmail());
+            }
+
+            outbox.commit(records.get(records.size() - 1).getNextPosition());
+            assertEquals(1, segments().size());
+            assertEquals(0, outbox.getBacklogBytes());
+        }
+    }
+
+    @Test
+    @DisplayName("Test appends are refused when the user does not fit or the backlog is full")
+    public void testAppendRefused() throws IOException {
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory, 16, Long.MAX_VALUE, 1, MANUAL_FLUSH)) {
+            assertThrows(IllegalArgumentException.class, () -> outbox.append(user(1)));
+        }
+        try (RegistrationOutbox outbox = RegistrationOutbox.open(directory.resolve("full"), 4096, 0, 1, MANUAL_FLUSH)) {
+            outbox.append(user(1));
+            AdmissionRejectedException full = assertThrows(AdmissionRejectedException.class, () -> outbox.append(user(2)));
+            assertEquals(1, full.getRetryAfterSeconds());
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(OutboxSegment::isSegment).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static User user(int id) {
+        return User.builder().id(id).firstName("User").lastName(String.valueOf(id))
+                .email("user" + id + "@example.com").termsAndConditions(true).build();
+    }
+}
@@ -0,0 +1,90 @@
+package com.zss.ecom.registration.password;
+
+import com.zss.ecom.registration.exception.AdmissionRejectedException;
+import com.zss.ecom.registration.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHashingTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final PasswordHasher passwordHasher = new PasswordHasher(1_000);
+
+    private final PasswordHashing passwordHashing = new PasswordHashing(new PasswordHasher(1_000) {
+        @Override
+        public String hash(String password) {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return super.hash(password);
+        }
+    }, 1, 1, 3);
+
+    @AfterEach
+    public void close() {
+        release.countDown();
+        passwordHashing.close();
+    }
+
+    @Test
+    @DisplayName("Test a hash verifies its own password only and is salted per hash")
+    public void testHashMatches() {
+        String hash = passwordHasher.hash("P@ssw0rd");
+
+        assertTrue(hash.startsWith("pbkdf2-sha256$1000$"));
+        assertTrue(passwordHasher.matches("P@ssw0rd", hash));
+        assertTrue(new PasswordHasher(50_000).matches("P@ssw0rd", hash));
+        assertFalse(passwordHasher.matches("p@ssw0rd", hash));
+        assertFalse(passwordHasher.matches("P@ssw0rd", "P@ssw0rd"));
+        assertNotEquals(hash, passwordHasher.hash("P@ssw0rd"));
+    }
+
+    @Test
+    @DisplayName("Test registrations beyond the hashing threads and queue are rejected until one finishes")
+    public void testSaturatedHashingRejected() throws Exception {
+        CompletableFuture<User> first = passwordHashing.submit(user("P@ssw0rd", "P@ssw0rd"));
+        CompletableFuture<User> queued = passwordHashing.submit(user("P@ssw0rd", "P@ssw0rd"));
+
+        AdmissionRejectedException ex = assertThrows(AdmissionRejectedException.class,
+                () -> passwordHashing.submit(user("P@ssw0rd", "P@ssw0rd")));
+        assertEquals(3, ex.getRetryAfterSeconds());
+        assertEquals(1, passwordHashing.queueDepth());
+        assertEquals(1, passwordHashing.rejectedCount());
+
+        release.countDown();
+        User hashed = first.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        assertTrue(passwordHasher.matches("P@ssw0rd", hashed.getPassword()));
+        assertNull(hashed.getVerifyPassword());
+        assertEquals("test.user@example.com", hashed.getEmail());
+        assertEquals(2, passwordHashing.hashedCount());
+    }
+
+    @Test
+    @DisplayName("Test missing and mismatched passwords are rejected before reaching the pool")
+    public void testPasswordsVerified() {
+        assertThrows(IllegalArgumentException.class, () -> passwordHashing.submit(user(null, null)));
+        assertThrows(IllegalArgumentException.class, () -> passwordHashing.submit(user("P@ssw0rd", "password")));
+        assertEquals(0, passwordHashing.queueDepth());
+        assertEquals(0, passwordHashing.rejectedCount());
+    }
+
+    private static User user(String password, String verifyPassword) {
+        return User.builder().id(1).email("test.user@example.com").password(password).verifyPassword(verifyPassword).build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.zss.ecom.registration.reply;
+
+import com.zss.ecom.registration.codec.LazyUser;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.VERDICT_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BackOfficeReplyReaderTest {
+
+    private final TopicPartition partition = new TopicPartition("backoffice", 0);
+
+    @Test
+    @DisplayName("Test replies are read from the end of a reply topic created after the reader started")
+    public void testReaderWaitsForReplyTopic() throws Exception {
+        MockConsumer<String, LazyUser> consumer = new MockConsumer<>(OffsetResetStrategy.LATEST);
+        PendingReplies pendingReplies = new PendingReplies(10);
+        BackOfficeReplyReader reader = new BackOfficeReplyReader(() -> consumer, "backoffice", pendingReplies);
+        reader.start();
+        try {
+            TimeUnit.MILLISECONDS.sleep(200);
+            assertFalse(pendingReplies.isReady());
+
+            consumer.updateEndOffsets(Collections.singletonMap(partition, 5L));
+            consumer.updatePartitions("backoffice", Collections.singletonList(new PartitionInfo("backoffice", 0, null, null, null)));
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (!pendingReplies.isReady() && System.nanoTime() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            assertTrue(pendingReplies.isReady());
+            assertEquals(5L, consumer.position(partition));
+
+            CompletableFuture<String> verdict = pendingReplies.register("correlation-1", 60_000);
+            ConsumerRecord<String, LazyUser> reply = new ConsumerRecord<>("backoffice", 0, 5L, null, null);
+            reply.headers()
+                    .add(KafkaHeaders.CORRELATION_ID, "correlation-1".getBytes(StandardCharsets.UTF_8))
+                    .add(VERDICT_HEADER, "already-registered".getBytes(StandardCharsets.UTF_8));
+            consumer.schedulePollTask(() -> consumer.addRecord(reply));
+
+            assertEquals("already-registered", verdict.get(5, TimeUnit.SECONDS));
+        } finally {
+            reader.stop();
+            pendingReplies.close();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.zss.ecom.registration.reply;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingRepliesTest {
+
+    private final PendingReplies pendingReplies = new PendingReplies(2);
+
+    @AfterEach
+    public void close() {
+        pendingReplies.close();
+    }
+
+    @Test
+    @DisplayName("Test a reply completes the request waiting on its correlation id")
+    public void testReplyCompletesRequest() throws Exception {
+        CompletableFuture<String> verdict = pendingReplies.register("correlation-1", 60_000);
+
+        assertTrue(pendingReplies.complete("correlation-1", "accepted"));
+        assertEquals("accepted", verdict.get());
+        assertEquals(0, pendingReplies.size());
+        assertFalse(pendingReplies.complete("correlation-1", "accepted"));
+    }
+
+    @Test
+    @DisplayName("Test a request without a reply times out")
+    public void testRequestTimesOut() {
+        CompletableFuture<String> verdict = pendingReplies.register("correlation-1", 10);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> verdict.get(5, TimeUnit.SECONDS));
+        assertTrue(ex.getCause() instanceof TimeoutException);
+        assertEquals(0, pendingReplies.size());
+        assertFalse(pendingReplies.complete("correlation-1", "accepted"));
+    }
+
+    @Test
+    @DisplayName("Test no more than max pending requests wait at once")
+    public void testMaxPending() {
+        pendingReplies.register("correlation-1", 60_000);
+        pendingReplies.register("correlation-2", 60_000);
+
+        assertThrows(IllegalStateException.class, () -> pendingReplies.register("correlation-3", 60_000));
+        pendingReplies.fail("correlation-1", new IllegalStateException("send failed"));
+        pendingReplies.register("correlation-3", 60_000);
+        assertEquals(2, pendingReplies.size());
+    }
+
+    @Test
+    @DisplayName("Test a reply for an unknown correlation id is ignored")
+    public void testUnknownCorrelationIgnored() {
+        assertFalse(pendingReplies.complete("elsewhere", "accepted"));
+        assertEquals(0, pendingReplies.size());
+    }
+}
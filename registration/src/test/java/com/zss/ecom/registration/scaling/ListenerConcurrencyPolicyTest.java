@@ -0,0 +1,27 @@
+package com.zss.ecom.registration.scaling;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ListenerConcurrencyPolicyTest {
+
+    private final ListenerConcurrencyPolicy policy = new ListenerConcurrencyPolicy(1, 3, 5_000, 20_000);
+
+    @Test
+    @DisplayName("Test the back office listener grows with its backlog up to the partition count")
+    public void testGrowsWithBacklog() {
+        // one consumer commits 200 records/s: 1000 behind drains in 5s, 2000 needs a second consumer
+        assertEquals(1, policy.decide(1, 3, 1_000, 200, 20_000));
+        assertEquals(2, policy.decide(1, 3, 2_000, 200, 20_000));
+        assertEquals(2, policy.decide(1, 2, 50_000, 200, 20_000));
+    }
+
+    @Test
+    @DisplayName("Test the back office listener shrinks one consumer per cooldown once caught up")
+    public void testShrinksWhenCaughtUp() {
+        assertEquals(3, policy.decide(3, 3, 0, 40, 19_999));
+        assertEquals(2, policy.decide(3, 3, 0, 40, 20_000));
+    }
+}
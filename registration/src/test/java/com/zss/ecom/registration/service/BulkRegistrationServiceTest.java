@@ -0,0 +1,179 @@
+package com.zss.ecom.registration.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.zss.ecom.registration.model.BulkRegistrationFailure;
+import com.zss.ecom.registration.model.BulkRegistrationResponse;
+import com.zss.ecom.registration.model.User;
+import com.zss.ecom.registration.password.PasswordHasher;
+import com.zss.ecom.registration.password.PasswordHashing;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import static com.zss.ecom.registration.config.RegistrationConstants.EVENT_ID_HEADER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BulkRegistrationServiceTest {
+
+    private static final String TOPIC = "userRegistration";
+
+    @Mock
+    private KafkaTemplate<String, User> kafkaTemplate;
+
+    private BulkRegistrationService bulkRegistrationService;
+
+    @BeforeEach
+    public void setUp() {
+        bulkRegistrationService = new BulkRegistrationService(kafkaTemplate, new ObjectMapper(), null);
+        ReflectionTestUtils.setField(bulkRegistrationService, "defaultTopic", TOPIC);
+        ReflectionTestUtils.setField(bulkRegistrationService, "ackTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(bulkRegistrationService, "maxReportedFailures", 10);
+    }
+
+    @Test
+    @DisplayName("Test NDJSON bulk registration reports malformed lines and submits the rest")
+    public void testNdjsonBulkRegistration() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> acked());
+
+        BulkRegistrationResponse response = bulkRegistrationService.submitNdjson(body(
+                "{\"email\": \"first@gmail.com\"}\n" +
+                "{\"email\": \n" +
+                "\n" +
+                "{\"email\": \"Second@gmail.com\"}\n"));
+
+        assertEquals(3, response.getReceived());
+        assertEquals(2, response.getSubmitted());
+        assertEquals(1, response.getFailed());
+        assertEquals(0, response.getPending());
+        assertEquals(2, response.getFailures().get(0).getLine());
+        ArgumentCaptor<ProducerRecord<String, User>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(sent.capture());
+        assertEquals(TOPIC, sent.getValue().topic());
+        assertEquals("second@gmail.com", sent.getValue().key());
+        assertNotEquals(eventId(sent.getAllValues().get(0)), eventId(sent.getValue()));
+        verify(kafkaTemplate).flush();
+    }
+
+    @Test
+    @DisplayName("Test JSON array bulk registration reports broker failures per element")
+    public void testJsonArrayBulkRegistration() throws Exception {
+        SettableListenableFuture<SendResult<String, User>> failed = new SettableListenableFuture<>();
+        failed.setException(new IllegalStateException("broker unavailable"));
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenAnswer(invocation -> acked())
+                .thenReturn(failed);
+
+        BulkRegistrationResponse response = bulkRegistrationService.submitJsonArray(body(
+                "[{\"email\": \"first@gmail.com\"}, {\"email\": \"second@gmail.com\"}]"));
+
+        assertEquals(2, response.getReceived());
+        assertEquals(1, response.getSubmitted());
+        assertEquals(1, response.getFailed());
+        assertEquals(2, response.getFailures().get(0).getLine());
+        assertEquals("broker unavailable", response.getFailures().get(0).getError());
+        verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+    }
+
+    @Test
+    @DisplayName("Test JSON array bulk registration reports elements that are not users and submits the rest")
+    public void testJsonArrayMixedElements() throws Exception {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> acked());
+
+        BulkRegistrationResponse response = bulkRegistrationService.submitJsonArray(body(
+                "[{\"email\": \"first@gmail.com\"}, 42, \"second@gmail.com\", null, [{\"email\": \"nested@gmail.com\"}], " +
+                "{\"email\": \"third@gmail.com\"}]"));
+
+        assertEquals(6, response.getReceived());
+        assertEquals(2, response.getSubmitted());
+        assertEquals(4, response.getFailed());
+        assertEquals(Arrays.asList(2, 3, 4, 5), response.getFailures().stream()
+                .map(BulkRegistrationFailure::getLine).collect(Collectors.toList()));
+        ArgumentCaptor<ProducerRecord<String, User>> sent = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(sent.capture());
+        assertEquals("third@gmail.com", sent.getValue().key());
+    }
+
+    @Test
+    @DisplayName("Test bulk registration flushes only once every hashed user reached the producer")
+    public void testFlushAfterHashedUsersPublished() throws Exception {
+        PasswordHashing passwordHashing = new PasswordHashing(new PasswordHasher(1_000) {
+            @Override
+            public String hash(String password) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.hash(password);
+            }
+        }, 2, 2, 1);
+        BulkRegistrationService hashingService = new BulkRegistrationService(kafkaTemplate, new ObjectMapper(), passwordHashing);
+        ReflectionTestUtils.setField(hashingService, "defaultTopic", TOPIC);
+        ReflectionTestUtils.setField(hashingService, "ackTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(hashingService, "maxReportedFailures", 10);
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenAnswer(invocation -> acked());
+
+        try {
+            BulkRegistrationResponse response = hashingService.submitNdjson(body(
+                    "{\"email\": \"first@gmail.com\", \"password\": \"secret\", \"verifyPassword\": \"secret\"}\n" +
+                    "{\"email\": \"second@gmail.com\", \"password\": \"secret\", \"verifyPassword\": \"secret\"}\n"));
+
+            assertEquals(2, response.getSubmitted());
+            assertEquals(0, response.getPending());
+            InOrder inOrder = inOrder(kafkaTemplate);
+            inOrder.verify(kafkaTemplate, times(2)).send(any(ProducerRecord.class));
+            inOrder.verify(kafkaTemplate).flush();
+        } finally {
+            passwordHashing.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Test JSON bulk registration rejects a body that is not an array")
+    public void testJsonBulkRegistrationRequiresArray() throws Exception {
+        BulkRegistrationResponse response = bulkRegistrationService.submitJsonArray(body("{\"email\": \"first@gmail.com\"}"));
+
+        assertEquals(0, response.getReceived());
+        assertEquals(1, response.getFailed());
+    }
+
+    private static String eventId(ProducerRecord<String, User> record) {
+        return new String(record.headers().lastHeader(EVENT_ID_HEADER).value(), StandardCharsets.UTF_8);
+    }
+
+    private SettableListenableFuture<SendResult<String, User>> acked() {
+        SettableListenableFuture<SendResult<String, User>> future = new SettableListenableFuture<>();
+        future.set(new SendResult<>(new ProducerRecord<>(TOPIC, User.builder().build()),
+                new RecordMetadata(new TopicPartition(TOPIC, 0), 0, 0, 0, 0L, 0, 0)));
+        return future;
+    }
+
+    private InputStream body(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,106 @@
+package com.zss.ecom.registration.shutdown;
+
+import com.zss.ecom.registration.exception.ShuttingDownException;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ShutdownDrainTest {
+
+    private final InFlightSends inFlightSends = new InFlightSends();
+
+    private final KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+
+    @Test
+    @DisplayName("Test registrations are refused once draining begins")
+    public void testRefusesWhileDraining() {
+        when(registry.getListenerContainers()).thenReturn(Collections.emptyList());
+        ShutdownDrain drain = new ShutdownDrain(inFlightSends, registry, 100);
+        drain.start();
+        drain.admit();
+
+        AtomicBoolean called = new AtomicBoolean();
+        drain.stop(() -> called.set(true));
+
+        assertTrue(called.get());
+        assertTrue(drain.isDraining());
+        assertFalse(drain.isRunning());
+        assertThrows(ShuttingDownException.class, drain::admit);
+    }
+
+    @Test
+    @DisplayName("Test sends acknowledged before the deadline are drained and the rest abandoned")
+    public void testDrainsSendsUntilTheDeadline() {
+        when(registry.getListenerContainers()).thenReturn(Collections.emptyList());
+        InFlightSendInterceptor interceptor = new InFlightSendInterceptor();
+        interceptor.configure(Collections.singletonMap(InFlightSendInterceptor.IN_FLIGHT_SENDS_CONFIG, inFlightSends));
+        interceptor.onSend(new ProducerRecord<>("userRegistration", "one"));
+        interceptor.onSend(new ProducerRecord<>("userRegistration", "two"));
+        interceptor.onSend(new ProducerRecord<>("userRegistration", "three"));
+        interceptor.onAcknowledgement(null, null);
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            interceptor.onAcknowledgement(null, new RuntimeException("broker unavailable"));
+        }).start();
+        ShutdownDrain drain = new ShutdownDrain(inFlightSends, registry, 500);
+        drain.start();
+
+        drain.stop();
+
+        assertEquals(1, drain.drainedSendCount());
+        assertEquals(1, drain.abandonedSendCount());
+        assertEquals(1, inFlightSends.inFlight());
+    }
+
+    @Test
+    @DisplayName("Test listeners are stopped after the sends, and a listener that does not stop in time is abandoned")
+    public void testStopsListenersAfterSends() {
+        inFlightSends.sent();
+        MessageListenerContainer verdicts = mock(MessageListenerContainer.class);
+        when(verdicts.isRunning()).thenReturn(true);
+        doAnswer(invocation -> {
+            assertEquals(0, inFlightSends.inFlight());
+            invocation.getArgument(0, Runnable.class).run();
+            return null;
+        }).when(verdicts).stop(any(Runnable.class));
+        MessageListenerContainer stuck = mock(MessageListenerContainer.class);
+        when(stuck.isRunning()).thenReturn(true);
+        MessageListenerContainer idle = mock(MessageListenerContainer.class);
+        when(registry.getListenerContainers()).thenReturn(Arrays.asList(verdicts, stuck, idle));
+        ShutdownDrain drain = new ShutdownDrain(inFlightSends, registry, 200);
+        drain.start();
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            inFlightSends.completed();
+        }).start();
+
+        drain.stop();
+
+        assertEquals(1, drain.drainedSendCount());
+        assertEquals(1, drain.stoppedListenerCount());
+        assertEquals(1, drain.abandonedListenerCount());
+    }
+}